@@ -0,0 +1,152 @@
+package ru.poib.VTBHack.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Синтетические входные данные для бенчмарков: процесс из N задач, спецификация из M эндпоинтов
+ * с вложенными схемами заданной глубины и диаграмма последовательности.
+ * Имена задач совпадают с summary операций: часть задач сопоставляется точно,
+ * остальные проходят полный семантический поиск, как в реальных процессах.
+ */
+final class BenchmarkFixtures {
+
+    private static final String[] ACTIONS = {"Получить", "Создать", "Обновить", "Проверить"};
+    private static final String[] ENTITIES = {"счет", "платеж", "клиента", "согласие", "карту", "продукт"};
+    private static final String[] RESOURCES = {"accounts", "payments", "clients", "consents", "cards", "products"};
+
+    private BenchmarkFixtures() {
+    }
+
+    static String taskName(int i) {
+        return ACTIONS[i % ACTIONS.length] + " " + ENTITIES[(i / ACTIONS.length) % ENTITIES.length] + " " + i;
+    }
+
+    static String endpointPath(int i) {
+        return "/" + RESOURCES[i % RESOURCES.length] + "/v" + i + "/{" + RESOURCES[i % RESOURCES.length] + "_id}";
+    }
+
+    static String endpointMethod(int i) {
+        return i % 2 == 0 ? "get" : "post";
+    }
+
+    /**
+     * Линейный процесс: start -> task_0 -> ... -> task_{N-1} -> end.
+     * Четные задачи явно указывают эндпоинт в имени ("Описание: METHOD /path"),
+     * нечетные сопоставляются по описанию и семантике
+     */
+    static String bpmn(int tasks) {
+        StringBuilder xml = new StringBuilder(256 * tasks);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" ")
+                .append("targetNamespace=\"http://bench\">\n")
+                .append("  <process id=\"bench\" name=\"Бенчмарк\" isExecutable=\"true\">\n")
+                .append("    <startEvent id=\"start\" name=\"Старт\"/>\n");
+        String previous = "start";
+        for (int i = 0; i < tasks; i++) {
+            String id = "task_" + i;
+            if (i % 2 == 0) {
+                xml.append("    <serviceTask id=\"").append(id).append("\" name=\"").append(taskName(i)).append(": ")
+                        .append(endpointMethod(i).toUpperCase()).append(' ').append(endpointPath(i)).append("\"/>\n");
+            } else {
+                xml.append("    <serviceTask id=\"").append(id).append("\" name=\"").append(taskName(i)).append("\">\n")
+                        .append("      <documentation>").append(taskName(i)).append(" в банке</documentation>\n")
+                        .append("    </serviceTask>\n");
+            }
+            xml.append("    <sequenceFlow id=\"flow_").append(i).append("\" sourceRef=\"").append(previous)
+                    .append("\" targetRef=\"").append(id).append("\"/>\n");
+            previous = id;
+        }
+        xml.append("    <endEvent id=\"end\"/>\n")
+                .append("    <sequenceFlow id=\"flow_end\" sourceRef=\"").append(previous).append("\" targetRef=\"end\"/>\n")
+                .append("  </process>\n</definitions>\n");
+        return xml.toString();
+    }
+
+    /**
+     * Диаграмма последовательности с вызовом каждого эндпоинта
+     */
+    static String plantUml(int endpoints) {
+        StringBuilder uml = new StringBuilder(96 * endpoints);
+        uml.append("@startuml\nactor Client as C\nparticipant \"API Bank\" as Bank\n\n");
+        for (int i = 0; i < endpoints; i++) {
+            uml.append("C -> Bank: ").append(endpointMethod(i).toUpperCase()).append(' ').append(endpointPath(i)).append('\n')
+                    .append("activate Bank\n")
+                    .append("Bank -> C: ").append(taskName(i)).append('\n')
+                    .append("deactivate Bank\n\n");
+        }
+        return uml.append("@enduml\n").toString();
+    }
+
+    /**
+     * Спецификация из M эндпоинтов; тела запросов ссылаются на компоненты с вложенностью depth
+     */
+    static String openApi(int endpoints, int depth) {
+        StringBuilder json = new StringBuilder(1024 * endpoints);
+        json.append("{\"openapi\":\"3.0.0\",\"info\":{\"title\":\"Bench\",\"version\":\"1\"},\"paths\":{");
+        for (int i = 0; i < endpoints; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String method = endpointMethod(i);
+            String resource = RESOURCES[i % RESOURCES.length];
+            json.append('"').append(endpointPath(i)).append("\":{\"").append(method).append("\":{")
+                    .append("\"operationId\":\"").append(method).append(resource).append(i).append("\",")
+                    .append("\"summary\":\"").append(taskName(i)).append("\",")
+                    .append("\"parameters\":[")
+                    .append("{\"name\":\"").append(resource).append("_id\",\"in\":\"path\",\"required\":true,\"schema\":{\"type\":\"string\"}},")
+                    .append("{\"name\":\"client_id\",\"in\":\"query\",\"schema\":{\"type\":\"string\"}},")
+                    .append("{\"name\":\"x-request-id\",\"in\":\"header\",\"schema\":{\"type\":\"string\",\"format\":\"uuid\"}}],");
+            if ("post".equals(method)) {
+                json.append("\"requestBody\":{\"content\":{\"application/json\":{\"schema\":")
+                        .append("{\"$ref\":\"#/components/schemas/Level0\"}}}},");
+            }
+            json.append("\"responses\":{\"200\":{\"description\":\"ok\",\"content\":{\"application/json\":{\"schema\":")
+                    .append("{\"$ref\":\"#/components/schemas/Level0\"}}}}}}}");
+        }
+        json.append("},\"components\":{\"schemas\":{");
+        for (int level = 0; level < depth; level++) {
+            if (level > 0) {
+                json.append(',');
+            }
+            json.append("\"Level").append(level).append("\":{\"type\":\"object\",\"required\":[\"id\"],\"properties\":{")
+                    .append("\"id\":{\"type\":\"string\"},\"email\":{\"type\":\"string\",\"format\":\"email\"},")
+                    .append("\"amount\":{\"type\":\"number\"},\"inn\":{\"type\":\"string\"},")
+                    .append("\"status\":{\"type\":\"string\",\"enum\":[\"Enabled\",\"Disabled\"]}");
+            if (level + 1 < depth) {
+                json.append(",\"child\":{\"$ref\":\"#/components/schemas/Level").append(level + 1).append("\"}")
+                        .append(",\"items\":{\"type\":\"array\",\"items\":{\"$ref\":\"#/components/schemas/Level")
+                        .append(level + 1).append("\"}}");
+            }
+            json.append("}}");
+        }
+        return json.append("}}}").toString();
+    }
+
+    /**
+     * Локальная заглушка API: на любой запрос отвечает 200 с небольшим JSON
+     */
+    static HttpServer startStubServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        byte[] body = "{\"id\":\"1\",\"status\":\"Enabled\",\"amount\":100.5}".getBytes(StandardCharsets.UTF_8);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    static String baseUrl(HttpServer server) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+}
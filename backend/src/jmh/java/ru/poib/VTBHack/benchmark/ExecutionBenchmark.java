@@ -0,0 +1,99 @@
+package ru.poib.VTBHack.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.openjdk.jmh.annotations.*;
+import ru.poib.VTBHack.execution.config.HttpClientConfig;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+import ru.poib.VTBHack.execution.model.TestExecutionRequest;
+import ru.poib.VTBHack.execution.model.TestExecutionResult;
+import ru.poib.VTBHack.execution.service.*;
+import ru.poib.VTBHack.generator.model.GenerationType;
+import ru.poib.VTBHack.generator.model.TestDataGenerationRequest;
+import ru.poib.VTBHack.generator.service.*;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.mapping.service.DataFlowAnalyzer;
+import ru.poib.VTBHack.mapping.service.EndpointExtractor;
+import ru.poib.VTBHack.mapping.service.MappingService;
+import ru.poib.VTBHack.mapping.service.SemanticAnalysisService;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.BpmnParserService;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прогон процесса через TestExecutionService против локальной заглушки API:
+ * измеряет накладные расходы исполнителя (порядок шагов, подстановка данных, HTTP, валидация)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionBenchmark {
+
+    @Param({"10", "50"})
+    int tasks;
+
+    @Param({"false", "true"})
+    boolean validateResponseSchema;
+
+    private HttpServer stubServer;
+    private TestExecutionService executionService;
+    private TestExecutionRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        stubServer = BenchmarkFixtures.startStubServer();
+
+        ProcessModel processModel = new BpmnParserService().parse(BenchmarkFixtures.bpmn(tasks));
+        OpenApiModel openApiModel = new OpenApiParserService().parseOpenApi(BenchmarkFixtures.openApi(tasks, 3));
+        MappingResult mappingResult = new MappingService(
+                new EndpointExtractor(), new SemanticAnalysisService(), new DataFlowAnalyzer())
+                .mapProcessToEndpoints(processModel, openApiModel);
+
+        SmartFieldGenerator smartFieldGenerator = new SmartFieldGenerator(new RussianDataGenerator());
+        ClassicDataGenerator classicDataGenerator =
+                new ClassicDataGenerator(new SchemaDataGenerator(smartFieldGenerator), smartFieldGenerator);
+        TestDataGeneratorService generatorService =
+                new TestDataGeneratorService(classicDataGenerator, new AIDataGenerator(classicDataGenerator));
+        TestDataGenerationRequest dataRequest = new TestDataGenerationRequest();
+        dataRequest.setGenerationType(GenerationType.CLASSIC);
+        dataRequest.setMappingResult(mappingResult);
+        dataRequest.setOpenApiModel(openApiModel);
+        dataRequest.setSeed(1L);
+
+        ExecutionConfig config = new ExecutionConfig();
+        config.setBaseUrl(BenchmarkFixtures.baseUrl(stubServer));
+        config.setDefaultHeaders(new HashMap<>());
+        config.setValidateResponseSchema(validateResponseSchema);
+
+        request = new TestExecutionRequest();
+        request.setProcessModel(processModel);
+        request.setMappingResult(mappingResult);
+        request.setOpenApiModel(openApiModel);
+        request.setTestData(generatorService.generateTestData(dataRequest));
+        request.setConfig(config);
+
+        executionService = new TestExecutionService(
+                new HttpRequestExecutor(new HttpClientConfig().httpClient(
+                        PoolingHttpClientConnectionManagerBuilder.create().build())),
+                new ResponseValidator(),
+                new DataExtractor(),
+                new BpmnExecutionEngine());
+    }
+
+    @TearDown
+    public void tearDown() {
+        stubServer.stop(0);
+    }
+
+    @Benchmark
+    public TestExecutionResult executeProcess() {
+        return executionService.executeTest(request);
+    }
+}
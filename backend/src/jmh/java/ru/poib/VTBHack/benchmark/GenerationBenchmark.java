@@ -0,0 +1,76 @@
+package ru.poib.VTBHack.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.poib.VTBHack.generator.model.TestDataStep;
+import ru.poib.VTBHack.generator.service.*;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.mapping.model.TaskEndpointMapping;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация тестовых данных: компиляция плана и выполнение плана для одного варианта
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenerationBenchmark {
+
+    @Param({"20", "200"})
+    int tasks;
+
+    @Param({"2", "6"})
+    int depth;
+
+    private final SmartFieldGenerator smartFieldGenerator = new SmartFieldGenerator(new RussianDataGenerator());
+    private final ClassicDataGenerator classicDataGenerator =
+            new ClassicDataGenerator(new SchemaDataGenerator(smartFieldGenerator), smartFieldGenerator);
+
+    private MappingResult mappingResult;
+    private OpenApiModel openApiModel;
+    private GenerationPlan plan;
+    private long seed;
+
+    @Setup
+    public void setUp() throws Exception {
+        openApiModel = new OpenApiParserService().parseOpenApi(BenchmarkFixtures.openApi(tasks, depth));
+        Map<String, TaskEndpointMapping> mappings = new LinkedHashMap<>();
+        for (int i = 0; i < tasks; i++) {
+            TaskEndpointMapping mapping = new TaskEndpointMapping();
+            mapping.setTaskId("task_" + i);
+            mapping.setTaskName(BenchmarkFixtures.taskName(i));
+            mapping.setEndpointPath(BenchmarkFixtures.endpointPath(i));
+            mapping.setEndpointMethod(BenchmarkFixtures.endpointMethod(i).toUpperCase());
+            mappings.put(mapping.getTaskId(), mapping);
+        }
+        mappingResult = new MappingResult();
+        mappingResult.setTaskMappings(mappings);
+        mappingResult.setDataFlowEdges(new ArrayList<>());
+        plan = classicDataGenerator.compile(mappingResult, openApiModel);
+    }
+
+    @Benchmark
+    public GenerationPlan compilePlan() {
+        return classicDataGenerator.compile(mappingResult, openApiModel);
+    }
+
+    @Benchmark
+    public List<TestDataStep> executePlan() {
+        return classicDataGenerator.generateTestData(plan, "positive", GenerationContext.seeded(seed++));
+    }
+
+    @Benchmark
+    public List<TestDataStep> compileAndExecute() {
+        return classicDataGenerator.generateTestData(mappingResult, openApiModel, "positive",
+                GenerationContext.seeded(seed++));
+    }
+}
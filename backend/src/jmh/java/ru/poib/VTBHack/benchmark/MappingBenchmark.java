@@ -0,0 +1,66 @@
+package ru.poib.VTBHack.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.mapping.service.DataFlowAnalyzer;
+import ru.poib.VTBHack.mapping.service.EndpointExtractor;
+import ru.poib.VTBHack.mapping.service.MappingService;
+import ru.poib.VTBHack.mapping.service.SemanticAnalysisService;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.BpmnParserService;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сопоставление задач процесса с эндпоинтами и семантическое сходство строк
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"20", "100"})
+    int tasks;
+
+    @Param({"50", "300"})
+    int endpoints;
+
+    private final SemanticAnalysisService semanticAnalysisService = new SemanticAnalysisService();
+    private final MappingService mappingService = new MappingService(
+            new EndpointExtractor(), semanticAnalysisService, new DataFlowAnalyzer());
+
+    private static final int PAIRS = 1024;
+
+    private ProcessModel processModel;
+    private OpenApiModel openApiModel;
+    private final String[] left = new String[PAIRS];
+    private final String[] right = new String[PAIRS];
+    private int pair;
+
+    @Setup
+    public void setUp() throws Exception {
+        processModel = new BpmnParserService().parse(BenchmarkFixtures.bpmn(tasks));
+        openApiModel = new OpenApiParserService().parseOpenApi(BenchmarkFixtures.openApi(endpoints, 4));
+        // Строки пар готовятся заранее, чтобы их сборка не попадала в замер
+        for (int i = 0; i < PAIRS; i++) {
+            left[i] = BenchmarkFixtures.taskName(i);
+            right[i] = BenchmarkFixtures.taskName(i * 7 + 3) + " по идентификатору";
+        }
+    }
+
+    @Benchmark
+    public MappingResult mapProcessToEndpoints() {
+        return mappingService.mapProcessToEndpoints(processModel, openApiModel);
+    }
+
+    @Benchmark
+    public double calculateSimilarity() {
+        int i = pair++ & (PAIRS - 1);
+        return semanticAnalysisService.calculateSimilarity(left[i], right[i]);
+    }
+}
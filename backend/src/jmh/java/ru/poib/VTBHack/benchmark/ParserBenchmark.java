@@ -0,0 +1,67 @@
+package ru.poib.VTBHack.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.puml.SequenceDiagramModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.BpmnParserService;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+import ru.poib.VTBHack.parser.service.PlantUmlParserService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор BPMN, PlantUML и OpenAPI на синтетических входах разного размера
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"20", "200"})
+    int tasks;
+
+    @Param({"50", "500"})
+    int endpoints;
+
+    @Param({"6"})
+    int depth;
+
+    private final BpmnParserService bpmnParser = new BpmnParserService();
+    private final PlantUmlParserService plantUmlParser = new PlantUmlParserService();
+    private final OpenApiParserService openApiParser = new OpenApiParserService();
+
+    private String bpmn;
+    private String plantUml;
+    private String openApi;
+
+    @Setup
+    public void setUp() {
+        bpmn = BenchmarkFixtures.bpmn(tasks);
+        plantUml = BenchmarkFixtures.plantUml(endpoints);
+        openApi = BenchmarkFixtures.openApi(endpoints, depth);
+    }
+
+    @Benchmark
+    public ProcessModel parseBpmn() throws Exception {
+        return bpmnParser.parse(bpmn);
+    }
+
+    @Benchmark
+    public SequenceDiagramModel parsePlantUml() {
+        return plantUmlParser.parse(plantUml);
+    }
+
+    @Benchmark
+    public OpenApiModel parseOpenApi() throws Exception {
+        return openApiParser.parseOpenApi(openApi);
+    }
+
+    @Benchmark
+    public OpenApiModel parseOpenApiLazy() throws Exception {
+        return openApiParser.parseOpenApiLazy(openApi);
+    }
+}
@@ -98,13 +98,13 @@ public class DevConsoleTests {
             System.out.println("✅ Диаграмма успешно распарсена!");
             System.out.println("Участники: " + model.getParticipants().size());
             System.out.println("Взаимодействий: " + model.getInteractions().size());
-            var endpoints = plantUmlParserService.extractApiEndpoints(content);
+            var endpoints = plantUmlParserService.extractApiEndpoints(model);
             System.out.println("\nAPI Endpoints:");
             endpoints.forEach(ep ->
                     System.out.println("  " + ep.getMethod() + " " + ep.getPath() +
                             " (" + ep.getSource() + " → " + ep.getTarget() + ")")
             );
-            ValidationResult validation = plantUmlParserService.validate(content);
+            ValidationResult validation = plantUmlParserService.validate(content, model);
             System.out.println("\nВалидация:");
             System.out.println("  Валиден: " + validation.isValid());
             if (!validation.getErrors().isEmpty()) {
@@ -115,7 +115,7 @@ public class DevConsoleTests {
                 System.out.println("  Предупреждения:");
                 validation.getWarnings().forEach(warn -> System.out.println("    ⚠️ " + warn));
             }
-            var stats = plantUmlParserService.getStatistics(content);
+            var stats = plantUmlParserService.getStatistics(model);
             System.out.println("\nСтатистика:");
             System.out.println("  Участники: " + stats.getParticipantCount());
             System.out.println("  Взаимодействия: " + stats.getInteractionCount());
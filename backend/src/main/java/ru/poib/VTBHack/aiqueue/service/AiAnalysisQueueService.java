@@ -7,7 +7,10 @@ import ru.poib.VTBHack.aiqueue.repo.AiAnalysisJobRepository;
 import ru.poib.VTBHack.aiqueue.service.AiJobStoreService;
 import ru.poib.VTBHack.mapping.model.AIVerificationReport;
 import ru.poib.VTBHack.mapping.service.AIVerificationService;
+import ru.poib.VTBHack.metrics.event.AiJobEvent;
+import ru.poib.VTBHack.metrics.service.PerformanceMetrics;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -21,11 +24,15 @@ public class AiAnalysisQueueService {
     private final AIVerificationService aiVerificationService;
     private final AiAnalysisJobRepository repository;
     private final AiJobStoreService fileStore;
+    private final PerformanceMetrics metrics;
 
-    public AiAnalysisQueueService(AIVerificationService aiVerificationService, AiAnalysisJobRepository repository, AiJobStoreService fileStore) {
+    public AiAnalysisQueueService(AIVerificationService aiVerificationService, AiAnalysisJobRepository repository, AiJobStoreService fileStore,
+                                  PerformanceMetrics metrics) {
         this.aiVerificationService = aiVerificationService;
         this.repository = repository;
         this.fileStore = fileStore;
+        this.metrics = metrics;
+        metrics.registerAiQueue(queue);
 
         Thread worker = new Thread(this::processLoop, "ai-analysis-worker");
         worker.setDaemon(true);
@@ -104,8 +111,14 @@ public class AiAnalysisQueueService {
 
                 job.setStatus(AiAnalysisJob.Status.RUNNING);
                 job.setStartedAt(Instant.now());
+                Duration queueWait = job.getCreatedAt() != null
+                        ? Duration.between(job.getCreatedAt(), job.getStartedAt())
+                        : Duration.ZERO;
+                metrics.recordAiJobWait(queueWait);
                 safeSave(job);
                 safeFileSave(job);
+                AiJobEvent event = AiJobEvent.start(job.getId(), job.getProjectId(), job.getModelName(),
+                        queueWait.toMillis(), job.getOpenApiJson(), job.getBpmnXml());
                 try {
                     AIVerificationReport report = job.getModelName() != null
                             ? aiVerificationService.verifyFilesWithModel(job.getOpenApiJson(), job.getBpmnXml(), job.getModelName())
@@ -113,6 +126,8 @@ public class AiAnalysisQueueService {
                     job.setResult(report);
                     job.setStatus(AiAnalysisJob.Status.COMPLETED);
                     job.setFinishedAt(Instant.now());
+                    metrics.recordAiJobService("completed", Duration.between(job.getStartedAt(), job.getFinishedAt()));
+                    event.finish("completed");
                     safeSave(job);
                     safeFileSave(job);
                     log.info("AI job {} completed", jobId);
@@ -120,6 +135,8 @@ public class AiAnalysisQueueService {
                     job.setStatus(AiAnalysisJob.Status.ERROR);
                     job.setErrorMessage(e.getMessage());
                     job.setFinishedAt(Instant.now());
+                    metrics.recordAiJobService("error", Duration.between(job.getStartedAt(), job.getFinishedAt()));
+                    event.finish("error");
                     safeSave(job);
                     safeFileSave(job);
                     log.error("AI job {} failed", jobId, e);
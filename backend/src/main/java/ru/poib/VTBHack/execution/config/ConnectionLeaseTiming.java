@@ -0,0 +1,43 @@
+package ru.poib.VTBHack.execution.config;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.classic.ExecRuntime;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+
+import java.io.IOException;
+
+/**
+ * Звено цепочки HTTP клиента перед установкой соединения: само берет соединение из пула
+ * и накапливает время ожидания в контексте запроса, чтобы оно не попадало в задержку сервера
+ */
+public class ConnectionLeaseTiming implements ExecChainHandler {
+
+    public static final String NAME = "connection-lease-timing";
+    static final String LEASE_NANOS = "vtbhack.connection.lease.nanos";
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+            throws IOException, HttpException {
+        ExecRuntime runtime = scope.execRuntime;
+        if (!runtime.isEndpointAcquired()) {
+            HttpClientContext context = scope.clientContext;
+            long start = System.nanoTime();
+            // Следующее звено (CONNECT) видит занятое соединение и только подключает его при необходимости
+            runtime.acquireEndpoint(scope.exchangeId, scope.route, context.getUserToken(), context);
+            context.setAttribute(LEASE_NANOS, leaseNanos(context) + System.nanoTime() - start);
+        }
+        return chain.proceed(request, scope);
+    }
+
+    /**
+     * Суммарное ожидание соединения из пула за запрос, включая повторы и перенаправления
+     */
+    public static long leaseNanos(HttpClientContext context) {
+        Object value = context.getAttribute(LEASE_NANOS);
+        return value instanceof Long nanos ? nanos : 0;
+    }
+}
@@ -1,10 +1,16 @@
 package ru.poib.VTBHack.execution.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,19 +21,41 @@ import java.util.concurrent.TimeUnit;
  */
 @Configuration
 public class HttpClientConfig {
+
+    /**
+     * Пул соединений клиента; занятые, свободные и ожидающие соединения публикуются
+     * как метрики httpcomponents.httpclient.pool.* с тегом httpclient=execution.
+     * Размер пула по умолчанию покрывает наибольший maxInFlight нагрузочного профиля,
+     * иначе итерации ждали бы соединения вместо ответа сервера
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${execution.http.max-connections-per-route:10000}") int maxConnectionsPerRoute,
+            @Value("${execution.http.max-connections-total:10000}") int maxConnectionsTotal) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnectionsTotal)
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "execution").bindTo(meterRegistry);
+        return connectionManager;
+    }
     
     @Bean
-    public HttpClient httpClient() {
+    public HttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
         RequestConfig requestConfig = RequestConfig.custom()
                 .setConnectionRequestTimeout(Timeout.of(10, TimeUnit.SECONDS))
                 .setResponseTimeout(Timeout.of(30, TimeUnit.SECONDS))
                 .build();
         
         CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
                 .setDefaultRequestConfig(requestConfig)
+                // Ожидание соединения из пула измеряется отдельно от задержки сервера
+                .addExecInterceptorBefore(ChainElement.CONNECT.name(), ConnectionLeaseTiming.NAME,
+                        new ConnectionLeaseTiming())
                 .build();
         
         return httpClient;
     }
 }
-
@@ -72,7 +72,7 @@ public class TestExecutionController {
             // Парсим OpenAPI если предоставлен
             ru.poib.VTBHack.parser.model.openapi.OpenApiModel openApiModel = null;
             if (openApiJson != null && !openApiJson.isEmpty()) {
-                openApiModel = openApiParserService.parseOpenApi(openApiJson);
+                openApiModel = openApiParserService.parseOpenApiLazy(openApiJson);
             }
             
             // Парсим тестовые данные и маппинг (нужно использовать ObjectMapper)
@@ -0,0 +1,23 @@
+package ru.poib.VTBHack.execution.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Кассета прогона: записанные HTTP ответы в порядке получения
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Cassette {
+    private String id;
+
+    private Instant recordedAt;
+
+    private List<CassetteEntry> entries = new ArrayList<>();
+}
@@ -0,0 +1,51 @@
+package ru.poib.VTBHack.execution.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Записанная пара запрос/ответ кассеты
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CassetteEntry {
+    /**
+     * HTTP метод
+     */
+    private String method;
+
+    /**
+     * Нормализованный URL: путь и отсортированные query параметры, без схемы и хоста
+     */
+    private String url;
+
+    /**
+     * Хэш тела запроса; "-" для запросов без тела
+     */
+    private String bodyHash;
+
+    private int statusCode;
+
+    private Map<String, String> headers;
+
+    private String body;
+
+    /**
+     * Задержка ответа при записи в миллисекундах
+     */
+    private long durationMs;
+
+    /**
+     * В body только префикс ответа: полное тело не JSON и в запись не поместилось
+     */
+    private boolean bodyTruncated;
+
+    /**
+     * Файл с полным телом в data/response-bodies на момент записи или null; удаляется по сроку хранения
+     */
+    private String bodyFile;
+}
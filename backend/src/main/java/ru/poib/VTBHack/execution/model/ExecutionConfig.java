@@ -1,9 +1,11 @@
 package ru.poib.VTBHack.execution.model;
 
+import com.fasterxml.jackson.annotation.JsonSetter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -52,7 +54,188 @@ public class ExecutionConfig {
      * Максимальное время выполнения всего процесса в миллисекундах (по умолчанию 120000 = 2 минуты)
      */
     private long maxExecutionTimeMs = 120000;
-    
+
+    /**
+     * Максимальное число одновременно выполняемых ветвей parallel/inclusive gateway (по умолчанию 4, 1 = последовательно).
+     * Прочие независимые задачи всегда выполняются по очереди
+     */
+    private int maxParallelBranches = 4;
+
+    /**
+     * Проверять тело успешного ответа по схеме из OpenAPI (по умолчанию выключено)
+     */
+    private boolean validateResponseSchema = false;
+
+    /**
+     * Сколько байт тела ответа сохранять в отчете о шаге (по умолчанию 64 КБ).
+     * Проверка и извлечение данных работают с полным телом
+     */
+    private int responseCaptureBytes = 64 * 1024;
+
+    /**
+     * Предельный размер тела ответа в байтах (по умолчанию 64 МБ); больший ответ прерывается и шаг падает
+     */
+    private long maxResponseBodyBytes = 64L * 1024 * 1024;
+
+    /**
+     * Сохранять тела больше responseCaptureBytes целиком в файл, в отчете - путь к нему (по умолчанию выключено).
+     * Файлы пишутся только в серверный каталог data/response-bodies и удаляются по сроку хранения
+     */
+    private boolean spillResponseBodies = false;
+
+    /**
+     * Режим кассеты: OFF - обычные запросы, RECORD - запросы с записью ответов,
+     * REPLAY - ответы из записанной кассеты без обращения к API
+     */
+    private CassetteMode cassetteMode = CassetteMode.OFF;
+
+    /**
+     * Идентификатор кассеты (по умолчанию ID процесса)
+     */
+    private String cassetteId;
+
+    /**
+     * При воспроизведении выдерживать записанную задержку ответов (по умолчанию выключено)
+     */
+    private boolean replayTiming = false;
+
+    public enum CassetteMode {
+        OFF, RECORD, REPLAY
+    }
+
+    /**
+     * Ограничение запросов на каждый целевой хост (по умолчанию не ограничено)
+     */
+    private RateLimit hostLimit;
+
+    /**
+     * Ограничения по шаблонам эндпоинтов, ключ - "METHOD /path/{template}"
+     */
+    private Map<String, RateLimit> endpointLimits;
+
+    /**
+     * Автомат отключения эндпоинтов (по умолчанию выключен)
+     */
+    private CircuitBreakerConfig circuitBreaker;
+
+    /**
+     * Каталог сохраненных тел клиент не задает: запрос с ним отклоняется, а не пишет файлы по своему пути
+     */
+    @JsonSetter("responseSpillDir")
+    private void rejectResponseSpillDir(String responseSpillDir) {
+        if (responseSpillDir != null) {
+            throw new IllegalArgumentException(
+                    "responseSpillDir не поддерживается: тела ответов сохраняются в data/response-bodies");
+        }
+    }
+
+    /**
+     * Глубокая копия конфигурации. Во время выполнения в конфигурацию записывается состояние
+     * (токен авторизации из ответа, идентификатор кассеты), поэтому параллельные ветви
+     * и итерации нагрузочного прогона работают каждая со своей копией
+     */
+    public ExecutionConfig copy() {
+        ExecutionConfig copy = new ExecutionConfig();
+        copy.baseUrl = baseUrl;
+        copy.defaultHeaders = defaultHeaders != null ? new LinkedHashMap<>(defaultHeaders) : null;
+        copy.authConfig = authConfig != null ? authConfig.copy() : null;
+        copy.requestTimeoutMs = requestTimeoutMs;
+        copy.connectionTimeoutMs = connectionTimeoutMs;
+        copy.retryCount = retryCount;
+        copy.retryDelayMs = retryDelayMs;
+        copy.maxExecutionTimeMs = maxExecutionTimeMs;
+        copy.maxParallelBranches = maxParallelBranches;
+        copy.validateResponseSchema = validateResponseSchema;
+        copy.responseCaptureBytes = responseCaptureBytes;
+        copy.maxResponseBodyBytes = maxResponseBodyBytes;
+        copy.spillResponseBodies = spillResponseBodies;
+        copy.cassetteMode = cassetteMode;
+        copy.cassetteId = cassetteId;
+        copy.replayTiming = replayTiming;
+        copy.hostLimit = hostLimit != null ? hostLimit.copy() : null;
+        if (endpointLimits != null) {
+            copy.endpointLimits = new LinkedHashMap<>();
+            endpointLimits.forEach((key, limit) -> copy.endpointLimits.put(key, limit != null ? limit.copy() : null));
+        }
+        copy.circuitBreaker = circuitBreaker != null ? circuitBreaker.copy() : null;
+        return copy;
+    }
+
+    /**
+     * Ограничение исходящих запросов
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RateLimit {
+        /**
+         * Средняя интенсивность запросов в секунду (0 - без ограничения)
+         */
+        private double requestsPerSecond;
+
+        /**
+         * Сколько запросов можно выполнить подряд без ожидания (по умолчанию 1)
+         */
+        private int burst = 1;
+
+        /**
+         * Максимум одновременных запросов (0 - без ограничения)
+         */
+        private int maxConcurrent;
+
+        public RateLimit copy() {
+            return new RateLimit(requestsPerSecond, burst, maxConcurrent);
+        }
+    }
+
+    /**
+     * Настройки автомата отключения эндпоинта
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CircuitBreakerConfig {
+        /**
+         * Доля ошибок (сеть, 5xx) в процентах, при которой эндпоинт отключается
+         */
+        private double failureRateThreshold = 50;
+
+        /**
+         * Доля медленных вызовов в процентах, при которой эндпоинт отключается
+         */
+        private double slowCallRateThreshold = 80;
+
+        /**
+         * С какой длительности вызов считается медленным, в миллисекундах
+         */
+        private long slowCallDurationMs = 5000;
+
+        /**
+         * Размер окна последних вызовов, по которому считаются доли
+         */
+        private int slidingWindowSize = 20;
+
+        /**
+         * Минимум вызовов в окне до первой оценки
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * Сколько эндпоинт остается отключенным до пробных вызовов, в миллисекундах
+         */
+        private long openDurationMs = 10000;
+
+        /**
+         * Число пробных вызовов, которые должны пройти успешно для восстановления
+         */
+        private int halfOpenProbes = 3;
+
+        public CircuitBreakerConfig copy() {
+            return new CircuitBreakerConfig(failureRateThreshold, slowCallRateThreshold, slowCallDurationMs,
+                    slidingWindowSize, minimumCalls, openDurationMs, halfOpenProbes);
+        }
+    }
+
     /**
      * Конфигурация аутентификации
      */
@@ -85,6 +268,10 @@ public class ExecutionConfig {
          */
         private String headerName;
         
+        public AuthConfig copy() {
+            return new AuthConfig(type, value, username, password, headerName);
+        }
+
         public enum AuthType {
             NONE, BASIC, BEARER, API_KEY
         }
@@ -67,7 +67,8 @@ public class ExecutionProblem {
         CONTRACT_ERROR,
         BUSINESS_LOGIC_ERROR,
         UNEXPECTED_RESPONSE,
-        DATA_EXTRACTION_ERROR
+        DATA_EXTRACTION_ERROR,
+        CIRCUIT_OPEN        // Вызов отклонен без запроса: эндпоинт отключен автоматом после серии ошибок
     }
     
     public enum Severity {
@@ -0,0 +1,44 @@
+package ru.poib.VTBHack.execution.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Перцентили задержки шагов по HDR гистограмме
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyStatistics {
+    /**
+     * Количество измерений
+     */
+    private long count;
+
+    /**
+     * Медиана в миллисекундах
+     */
+    private double p50Ms;
+
+    /**
+     * 95-й перцентиль в миллисекундах
+     */
+    private double p95Ms;
+
+    /**
+     * 99-й перцентиль в миллисекундах
+     */
+    private double p99Ms;
+
+    /**
+     * Максимум в миллисекундах
+     */
+    private double maxMs;
+
+    /**
+     * Сжатая HDR гистограмма в микросекундах (Base64): позволяет объединять статистику
+     * нескольких прогонов без потери точности перцентилей
+     */
+    private String histogram;
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Результат выполнения теста
@@ -119,6 +120,16 @@ public class TestExecutionResult {
          * Количество ошибок валидации
          */
         private int validationErrors;
+        
+        /**
+         * Перцентили задержки всех шагов прогона
+         */
+        private LatencyStatistics latency;
+        
+        /**
+         * Перцентили задержки по эндпоинтам, ключ - "METHOD /path/{template}"
+         */
+        private Map<String, LatencyStatistics> endpointLatency;
     }
 }
 
@@ -1,5 +1,7 @@
 package ru.poib.VTBHack.execution.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -43,6 +45,16 @@ public class TestExecutionStep {
      * Длительность выполнения в миллисекундах
      */
     private long durationMs;
+
+    /**
+     * Ожидание ограничителя исходящих запросов в миллисекундах (входит в durationMs, но не в время ответа)
+     */
+    private long limiterWaitMs;
+
+    /**
+     * Ожидание свободного соединения в пуле HTTP клиента в миллисекундах (входит в durationMs, но не в время ответа)
+     */
+    private long connectionWaitMs;
     
     /**
      * Детали запроса
@@ -92,9 +104,29 @@ public class TestExecutionStep {
     public static class ResponseDetails {
         private int statusCode;
         private Map<String, String> headers;
+        /**
+         * Тело ответа или его префикс, если тело больше лимита захвата
+         */
         private String body;
         private long responseTimeMs;
         private Instant timestamp;
+        /**
+         * Полный размер тела в байтах
+         */
+        private long bodySize;
+        /**
+         * В body сохранен только префикс тела
+         */
+        private boolean bodyTruncated;
+        /**
+         * Путь к файлу с полным телом, если оно сохранялось
+         */
+        private String bodyFile;
+        /**
+         * Разобранное тело для извлечения данных; освобождается после обработки шага и не сериализуется
+         */
+        @JsonIgnore
+        private JsonNode json;
     }
 }
 
@@ -4,19 +4,23 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.poib.VTBHack.mapping.model.DataFlowEdge;
 import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.parser.model.ProcessFlow;
 import ru.poib.VTBHack.parser.model.ProcessModel;
 import ru.poib.VTBHack.parser.model.ProcessTask;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Упрощенный движок для выполнения BPMN логики
- * Обрабатывает последовательное выполнение шагов согласно графу процесса
+ * Строит план выполнения шагов согласно графу процесса: ветви шлюзов, слияния и условия
  */
 @Slf4j
 @Service
 public class BpmnExecutionEngine {
     
+    private final GatewayConditionEvaluator conditionEvaluator = new GatewayConditionEvaluator();
+
     /**
      * Определяет порядок выполнения задач на основе графа процесса и зависимостей данных
      * Учитывает виртуальные задачи и зависимости из DataFlowEdges
@@ -26,45 +30,60 @@ public class BpmnExecutionEngine {
      * @return упорядоченный список ID задач для выполнения
      */
     public List<String> determineExecutionOrder(ProcessModel processModel, MappingResult mappingResult) {
-        // Собираем все задачи: из BPMN и виртуальные из маппинга
-        Set<String> allTaskIds = new HashSet<>();
-        
-        // Добавляем задачи из BPMN
-        Map<String, ProcessTask> taskMap = new HashMap<>();
-        for (ProcessTask task : processModel.getTasks()) {
-            taskMap.put(task.getId(), task);
-            allTaskIds.add(task.getId());
-        }
+        return createExecutionPlan(processModel, mappingResult).getExecutionOrder();
+    }
+
+    /**
+     * Строит план выполнения: этапы независимых задач и состояние шлюзов для одного прогона.
+     * Связи между задачами проходят через шлюзы и события: задача после parallel gateway
+     * зависит от задачи перед ним, а задача после слияния — от задач всех ветвей.
+     *
+     * @param processModel модель процесса
+     * @param mappingResult результат маппинга
+     * @return план, готовый к выполнению
+     */
+    public ExecutionPlan createExecutionPlan(ProcessModel processModel, MappingResult mappingResult) {
+        // Собираем все задачи: из BPMN и виртуальные из маппинга (в стабильном порядке)
+        Set<String> allTaskIds = new LinkedHashSet<>();
+        Set<String> virtualTaskIds = new LinkedHashSet<>();
+        Set<String> processTaskIds = new LinkedHashSet<>();
         
         // Добавляем виртуальные задачи из маппинга
         if (mappingResult != null && mappingResult.getTaskMappings() != null) {
             for (String taskId : mappingResult.getTaskMappings().keySet()) {
                 if (taskId.startsWith("VIRTUAL_DEP_")) {
-                    allTaskIds.add(taskId);
+                    virtualTaskIds.add(taskId);
                 }
             }
         }
         
+        // Добавляем задачи из BPMN
+        for (ProcessTask task : processModel.getTasks()) {
+            processTaskIds.add(task.getId());
+        }
+        allTaskIds.addAll(virtualTaskIds);
+        allTaskIds.addAll(processTaskIds);
+        
+        List<ProcessFlow> flows = resolveFlows(processModel);
+        
         // Строим граф зависимостей
-        Map<String, List<String>> dependencies = new HashMap<>();
+        Map<String, Set<String>> dependencies = new HashMap<>();
         Map<String, Integer> inDegree = new HashMap<>();
         
         // Инициализация для всех задач
         for (String taskId : allTaskIds) {
-            dependencies.put(taskId, new ArrayList<>());
+            dependencies.put(taskId, new LinkedHashSet<>());
             inDegree.put(taskId, 0);
         }
         
-        // Добавляем зависимости из sequence flows
-        if (processModel.getSequenceFlows() != null) {
-            for (Map.Entry<String, String> flow : processModel.getSequenceFlows().entrySet()) {
-                String sourceId = flow.getKey();
-                String targetId = flow.getValue();
-                
-                if (allTaskIds.contains(sourceId) && allTaskIds.contains(targetId)) {
-                    dependencies.get(sourceId).add(targetId);
-                    inDegree.put(targetId, inDegree.get(targetId) + 1);
-                }
+        // Добавляем зависимости из sequence flows, проходя сквозь шлюзы и события
+        Map<String, List<String>> outgoing = new HashMap<>();
+        for (ProcessFlow flow : flows) {
+            outgoing.computeIfAbsent(flow.getSourceRef(), k -> new ArrayList<>()).add(flow.getTargetRef());
+        }
+        for (String sourceId : allTaskIds) {
+            for (String targetId : findNextTasks(sourceId, outgoing, allTaskIds)) {
+                addDependency(sourceId, targetId, dependencies, inDegree);
             }
         }
         
@@ -76,67 +95,105 @@ public class BpmnExecutionEngine {
                 
                 if (sourceId != null && targetId != null && 
                     allTaskIds.contains(sourceId) && allTaskIds.contains(targetId)) {
-                    // Проверяем, нет ли уже такой зависимости
-                    if (!dependencies.get(sourceId).contains(targetId)) {
-                        dependencies.get(sourceId).add(targetId);
-                        inDegree.put(targetId, inDegree.get(targetId) + 1);
-                    }
+                    addDependency(sourceId, targetId, dependencies, inDegree);
                 }
             }
         }
         
-        // Топологическая сортировка (Kahn's algorithm)
-        List<String> executionOrder = new ArrayList<>();
-        Queue<String> queue = new LinkedList<>();
+        // Топологическая сортировка по уровням (Kahn's algorithm):
+        // задачи одного уровня не зависят друг от друга и образуют этап
+        List<List<String>> stages = new ArrayList<>();
+        Set<String> scheduled = new HashSet<>();
+        List<String> ready = allTaskIds.stream()
+                .filter(id -> inDegree.get(id) == 0)
+                .collect(Collectors.toCollection(ArrayList::new));
         
-        // Находим задачи без входящих зависимостей (стартовые задачи)
-        for (Map.Entry<String, Integer> entry : inDegree.entrySet()) {
-            if (entry.getValue() == 0) {
-                queue.offer(entry.getKey());
+        while (scheduled.size() < allTaskIds.size()) {
+            if (ready.isEmpty()) {
+                // Цикл в графе: начинаем с виртуальной задачи или первой оставшейся задачи BPMN
+                String next = allTaskIds.stream()
+                        .filter(id -> !scheduled.contains(id))
+                        .findFirst()
+                        .orElseThrow();
+                ready.add(next);
             }
-        }
-        
-        // Если нет явных стартовых задач, начинаем с виртуальных задач или первой задачи
-        if (queue.isEmpty() && !allTaskIds.isEmpty()) {
-            // Сначала пробуем найти виртуальную задачу
-            String firstVirtual = allTaskIds.stream()
-                    .filter(id -> id.startsWith("VIRTUAL_DEP_"))
-                    .findFirst()
-                    .orElse(null);
             
-            if (firstVirtual != null) {
-                queue.offer(firstVirtual);
-            } else {
-                // Иначе берем первую задачу из BPMN
-                if (!processModel.getTasks().isEmpty()) {
-                    queue.offer(processModel.getTasks().get(0).getId());
-                }
-            }
-        }
-        
-        while (!queue.isEmpty()) {
-            String currentTaskId = queue.poll();
-            executionOrder.add(currentTaskId);
+            List<String> stage = ready;
+            stages.add(stage);
+            scheduled.addAll(stage);
             
             // Уменьшаем in-degree для зависимых задач
-            for (String dependentTaskId : dependencies.get(currentTaskId)) {
-                int newInDegree = inDegree.get(dependentTaskId) - 1;
-                inDegree.put(dependentTaskId, newInDegree);
-                if (newInDegree == 0) {
-                    queue.offer(dependentTaskId);
+            Set<String> nextReady = new LinkedHashSet<>();
+            for (String currentTaskId : stage) {
+                for (String dependentTaskId : dependencies.get(currentTaskId)) {
+                    int newInDegree = inDegree.get(dependentTaskId) - 1;
+                    inDegree.put(dependentTaskId, newInDegree);
+                    if (newInDegree == 0 && !scheduled.contains(dependentTaskId)) {
+                        nextReady.add(dependentTaskId);
+                    }
                 }
             }
+            ready = allTaskIds.stream()
+                    .filter(nextReady::contains)
+                    .collect(Collectors.toCollection(ArrayList::new));
         }
         
-        // Если остались задачи, которые не были обработаны, добавляем их в конец
-        for (String taskId : allTaskIds) {
-            if (!executionOrder.contains(taskId)) {
-                executionOrder.add(taskId);
+        ExecutionPlan plan = new ExecutionPlan(
+                stages,
+                processTaskIds,
+                flows,
+                processModel.getGateways() != null ? processModel.getGateways() : List.of(),
+                conditionEvaluator);
+        plan.start(Collections.emptyMap());
+        
+        log.debug("Determined execution stages: {}", stages);
+        return plan;
+    }
+    
+    /**
+     * Полный список потоков; для моделей без него (например, из PlantUML) берется упрощенный граф
+     */
+    private List<ProcessFlow> resolveFlows(ProcessModel processModel) {
+        if (processModel.getFlows() != null) {
+            return processModel.getFlows();
+        }
+        List<ProcessFlow> flows = new ArrayList<>();
+        if (processModel.getSequenceFlows() != null) {
+            processModel.getSequenceFlows().forEach((sourceId, targetId) ->
+                    flows.add(new ProcessFlow(null, sourceId, targetId, null, null)));
+        }
+        return flows;
+    }
+    
+    /**
+     * Находит задачи, следующие за данной, пропуская промежуточные шлюзы и события
+     */
+    private Set<String> findNextTasks(String sourceId, Map<String, List<String>> outgoing, Set<String> allTaskIds) {
+        Set<String> result = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>(outgoing.getOrDefault(sourceId, List.of()));
+        while (!stack.isEmpty()) {
+            String node = stack.pop();
+            if (node == null || !visited.add(node)) {
+                continue;
+            }
+            if (allTaskIds.contains(node)) {
+                if (!node.equals(sourceId)) {
+                    result.add(node);
+                }
+            } else {
+                stack.addAll(outgoing.getOrDefault(node, List.of()));
             }
         }
-        
-        log.debug("Determined execution order: {}", executionOrder);
-        return executionOrder;
+        return result;
+    }
+    
+    private void addDependency(String sourceId, String targetId,
+                               Map<String, Set<String>> dependencies, Map<String, Integer> inDegree) {
+        // Проверяем, нет ли уже такой зависимости
+        if (!sourceId.equals(targetId) && dependencies.get(sourceId).add(targetId)) {
+            inDegree.put(targetId, inDegree.get(targetId) + 1);
+        }
     }
     
     /**
@@ -162,16 +219,14 @@ public class BpmnExecutionEngine {
     
     /**
      * Определяет, должна ли задача быть выполнена на основе условий gateway
-     * В упрощенной версии всегда возвращает true
+     * Без состояния прогона условия вычислить нельзя, поэтому всегда возвращает true;
+     * пропуск задач по условиям шлюзов выполняет {@link ExecutionPlan#shouldExecute(String)}
      * 
      * @param taskId ID задачи
      * @param context контекст выполнения
      * @return true, если задача должна быть выполнена
      */
     public boolean shouldExecuteTask(String taskId, Map<String, Object> context) {
-        // В упрощенной версии всегда выполняем задачу
-        // В полной версии здесь была бы логика для exclusive/parallel gateways
         return true;
     }
 }
-
@@ -0,0 +1,283 @@
+package ru.poib.VTBHack.execution.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Тело ответа, прочитанное потоком один раз: JSON разбирается прямо из потока в дерево для проверки
+ * и извлечения данных, а для отчета сохраняется только ограниченный префикс. Тело больше префикса
+ * при необходимости целиком пишется в файл, в отчете остается ссылка на него.
+ * Тело не в формате JSON без сохранения в файл читается только до заполнения префикса.
+ * Дерево нужно только на время шага; строка полного тела не создается.
+ */
+public final class CapturedBody {
+
+    private final String preview;
+    private final long size;
+    private final boolean truncated;
+    private final boolean complete;
+    private final String file;
+    private final JsonNode json;
+    private final String jsonError;
+
+    /**
+     * Тело ответа превысило допустимый размер; чтение прервано
+     */
+    public static final class TooLargeException extends IOException {
+        TooLargeException(long limit) {
+            super("Response body exceeds limit of " + limit + " bytes");
+        }
+    }
+
+    private CapturedBody(String preview, long size, boolean truncated, boolean complete, String file, JsonNode json,
+                         String jsonError) {
+        this.preview = preview;
+        this.size = size;
+        this.truncated = truncated;
+        this.complete = complete;
+        this.file = file;
+        this.json = json;
+        this.jsonError = jsonError;
+    }
+
+    /**
+     * Тело, уже находящееся в памяти целиком (например, из кассеты)
+     */
+    public static CapturedBody of(String body, ObjectMapper objectMapper) {
+        return of(body, false, null, objectMapper);
+    }
+
+    /**
+     * Тело из кассеты, от которого записан только префикс
+     *
+     * @param truncated body - префикс, а не все тело
+     * @param file      файл с полным телом или null
+     */
+    public static CapturedBody of(String body, boolean truncated, String file, ObjectMapper objectMapper) {
+        if (body == null) {
+            return null;
+        }
+        JsonNode json = null;
+        String jsonError = null;
+        if (!body.isBlank()) {
+            try {
+                json = objectMapper.readTree(body);
+            } catch (JsonProcessingException e) {
+                jsonError = e.getOriginalMessage();
+            }
+        }
+        return new CapturedBody(body, body.getBytes(StandardCharsets.UTF_8).length, truncated, true, file, json, jsonError);
+    }
+
+    /**
+     * Читает тело из потока
+     *
+     * @param captureBytes сколько байт сохранить для отчета
+     * @param maxBytes предельный размер тела, при превышении - {@link TooLargeException}
+     * @param spillDir каталог для тел больше captureBytes или null, если сохранять их не нужно
+     */
+    static CapturedBody read(InputStream in, int captureBytes, long maxBytes, Path spillDir,
+                             ObjectMapper objectMapper) throws IOException {
+        CaptureStream capture = new CaptureStream(in, Math.max(0, captureBytes), maxBytes, spillDir);
+        try {
+            JsonNode json = null;
+            String jsonError = null;
+            try {
+                json = objectMapper.readTree(capture);
+                if (json != null && json.isMissingNode()) {
+                    json = null;
+                }
+            } catch (JsonProcessingException e) {
+                jsonError = e.getOriginalMessage();
+            }
+            // Остаток тела нужен только файлу и проверке, что за JSON документом ничего нет
+            boolean complete = true;
+            if (json != null || spillDir != null) {
+                capture.drain();
+            } else {
+                complete = capture.fillPreview();
+            }
+            capture.finish();
+            return new CapturedBody(capture.preview(), capture.size, !complete || capture.size > captureBytes, complete,
+                    capture.spillFile != null ? capture.spillFile.toString() : null, json, jsonError);
+        } catch (IOException | RuntimeException e) {
+            capture.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Ограниченный префикс тела (все тело, если оно не длиннее лимита захвата)
+     */
+    public String getPreview() {
+        return preview;
+    }
+
+    /**
+     * Полный размер тела в байтах; если тело прочитано не до конца - сколько прочитано
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Тело прочитано до конца. Если нет, остаток не нужен: соединение следует разорвать, а не вычитывать его
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Путь к файлу с полным телом, если оно было сохранено
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Разобранный JSON или null, если тело пустое или не JSON
+     */
+    public JsonNode getJson() {
+        return json;
+    }
+
+    /**
+     * Ошибка разбора JSON или null
+     */
+    public String getJsonError() {
+        return jsonError;
+    }
+
+    /**
+     * Поток, который считает байты, копирует префикс и при необходимости пишет тело в файл.
+     * close() не закрывает исходный поток: им владеет HTTP клиент, а парсер JSON закрывает
+     * источник по окончании документа, хотя после него еще может быть остаток тела
+     */
+    private static final class CaptureStream extends FilterInputStream {
+        private final int captureBytes;
+        private final long maxBytes;
+        private final Path spillDir;
+        private final ByteArrayOutputStream prefix;
+        private long size;
+        private Path spillFile;
+        private OutputStream spill;
+
+        CaptureStream(InputStream in, int captureBytes, long maxBytes, Path spillDir) {
+            super(in);
+            this.captureBytes = captureBytes;
+            this.maxBytes = maxBytes;
+            this.spillDir = spillDir;
+            this.prefix = new ByteArrayOutputStream(Math.min(captureBytes, 8192));
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                capture(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Пропущенные байты тоже должны попасть в захват
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(0, read);
+        }
+
+        private void capture(byte[] b, int off, int n) throws IOException {
+            size += n;
+            if (maxBytes > 0 && size > maxBytes) {
+                throw new TooLargeException(maxBytes);
+            }
+            int toPrefix = (int) Math.min(n, Math.max(0, captureBytes - prefix.size()));
+            if (toPrefix > 0) {
+                prefix.write(b, off, toPrefix);
+            }
+            if (size > captureBytes && spillDir != null) {
+                if (spill == null) {
+                    Files.createDirectories(spillDir);
+                    spillFile = spillDir.resolve(UUID.randomUUID() + ResponseBodyStore.SUFFIX);
+                    spill = Files.newOutputStream(spillFile);
+                    prefix.writeTo(spill);
+                    spill.write(b, off + toPrefix, n - toPrefix);
+                } else {
+                    spill.write(b, off, n);
+                }
+            }
+        }
+
+        void drain() throws IOException {
+            byte[] buffer = new byte[8192];
+            while (read(buffer, 0, buffer.length) >= 0) {
+                // читаем до конца, чтобы узнать размер и дописать файл
+            }
+        }
+
+        /**
+         * Дочитывает тело только до заполнения префикса
+         *
+         * @return true, если тело закончилось раньше
+         */
+        boolean fillPreview() throws IOException {
+            byte[] buffer = new byte[8192];
+            while (size <= captureBytes) {
+                if (read(buffer, 0, (int) Math.min(buffer.length, captureBytes + 1 - size)) < 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String preview() {
+            return prefix.toString(StandardCharsets.UTF_8);
+        }
+
+        void finish() throws IOException {
+            if (spill != null) {
+                spill.close();
+                spill = null;
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Чтение прервано: неполный файл не нужен
+         */
+        void abort() throws IOException {
+            if (spill != null) {
+                spill.close();
+                spill = null;
+                Files.deleteIfExists(spillFile);
+                spillFile = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.poib.VTBHack.execution.service;
+
+import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Автоматы отключения по эндпоинтам (хост + шаблон эндпоинта). Общие для всех прогонов:
+ * если эндпоинт недоступен, это видно всем итерациям и прогонам сразу. Настройки берутся
+ * из прогона, обратившегося последним: при их смене автомат эндпоинта создается заново.
+ * Автоматы, к которым не обращались дольше {@link #IDLE_EVICTION_NANOS}, удаляются.
+ */
+@Service
+public class CircuitBreakerRegistry {
+
+    /**
+     * Префикс сообщения об отклоненном вызове; по нему шаг получает тип проблемы CIRCUIT_OPEN
+     */
+    public static final String OPEN_MESSAGE_PREFIX = "Circuit open";
+
+    static final long IDLE_EVICTION_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, EndpointCircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final AtomicLong lastSweepNanos;
+
+    public CircuitBreakerRegistry() {
+        this(System::nanoTime);
+    }
+
+    CircuitBreakerRegistry(LongSupplier clock) {
+        this.clock = clock;
+        this.lastSweepNanos = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * @param endpointKey шаблон эндпоинта "METHOD /path/{template}"; без него автомат общий на метод и хост
+     * @return автомат или null, если отключение не настроено
+     */
+    EndpointCircuitBreaker forEndpoint(String method, String url, String endpointKey, ExecutionConfig config) {
+        ExecutionConfig.CircuitBreakerConfig settings = config.getCircuitBreaker();
+        if (settings == null) {
+            return null;
+        }
+        evictIdle();
+        String name = URI.create(url).getAuthority() + " " + (endpointKey != null ? endpointKey : method.toUpperCase());
+        EndpointCircuitBreaker breaker = breakers.get(name);
+        if (breaker == null || !breaker.getConfig().equals(settings)) {
+            breaker = breakers.compute(name, (key, current) -> current != null && current.getConfig().equals(settings)
+                    ? current
+                    : new EndpointCircuitBreaker(name, settings, clock));
+        }
+        return breaker;
+    }
+
+    int size() {
+        return breakers.size();
+    }
+
+    private void evictIdle() {
+        long now = clock.getAsLong();
+        long last = lastSweepNanos.get();
+        if (now - last >= SWEEP_INTERVAL_NANOS && lastSweepNanos.compareAndSet(last, now)) {
+            breakers.values().removeIf(breaker -> breaker.isIdle(now, IDLE_EVICTION_NANOS));
+        }
+    }
+}
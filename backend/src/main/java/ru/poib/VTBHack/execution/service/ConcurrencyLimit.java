@@ -0,0 +1,66 @@
+package ru.poib.VTBHack.execution.service;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Счетчик одновременных запросов к хосту или эндпоинту. Предел передается при каждом захвате:
+ * прогоны с разными лимитами делят один счетчик, и каждый ждет, пока занятых мест меньше его предела.
+ * Ожидание на ReentrantLock не закрепляет виртуальный поток за платформенным.
+ */
+final class ConcurrencyLimit {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int inFlight;
+    private long lastUsedNanos;
+
+    /**
+     * @return true, если место занято; false, если за timeoutNanos оно не освободилось
+     */
+    boolean tryAcquire(int maxConcurrent, long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (inFlight >= maxConcurrent) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            // Ожидающие с разными пределами: будим всех, каждый сверяется со своим
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void touch(long nowNanos) {
+        lock.lock();
+        try {
+            lastUsedNanos = nowNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isIdle(long nowNanos, long idleNanos) {
+        lock.lock();
+        try {
+            return inFlight == 0 && nowNanos - lastUsedNanos > idleNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package ru.poib.VTBHack.execution.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +19,44 @@ import java.util.Map;
 @Slf4j
 @Service
 public class DataExtractor {
+
+    private static final Configuration JSON_NODE_CONFIGURATION = Configuration.builder()
+            .jsonProvider(new JacksonJsonNodeJsonProvider())
+            .mappingProvider(new JacksonMappingProvider())
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /**
+     * Извлекает значения из уже разобранного JSON (без повторного разбора тела)
+     *
+     * @param document JSON тело ответа
+     * @param jsonPaths Map: имя переменной -> JSONPath выражение
+     * @return Map: имя переменной -> извлеченное значение (Map, List или простое значение)
+     */
+    public Map<String, Object> extractData(JsonNode document, Map<String, String> jsonPaths) {
+        Map<String, Object> extractedData = new HashMap<>();
+        if (document == null) {
+            log.warn("Empty JSON body, cannot extract data");
+            return extractedData;
+        }
+        for (Map.Entry<String, String> entry : jsonPaths.entrySet()) {
+            try {
+                Object value = JsonPath.using(JSON_NODE_CONFIGURATION).parse(document).read(entry.getValue());
+                if (value instanceof JsonNode node) {
+                    value = objectMapper.convertValue(node, Object.class);
+                }
+                extractedData.put(entry.getKey(), value);
+                log.debug("Extracted {} = {} from JSONPath: {}", entry.getKey(), value, entry.getValue());
+            } catch (PathNotFoundException e) {
+                log.warn("Path not found for variable {} with JSONPath: {}", entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.error("Error extracting data for variable {} with JSONPath {}: {}",
+                        entry.getKey(), entry.getValue(), e.getMessage());
+            }
+        }
+        return extractedData;
+    }
     
     /**
      * Извлекает значения из JSON по JSONPath выражениям
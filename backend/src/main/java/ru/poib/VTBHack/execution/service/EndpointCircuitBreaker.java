@@ -0,0 +1,175 @@
+package ru.poib.VTBHack.execution.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Автомат отключения одного эндпоинта. В закрытом состоянии считает доли ошибок и медленных
+ * вызовов в скользящем окне последних вызовов; при превышении порога размыкается и сразу
+ * отклоняет вызовы. По истечении openDurationMs пропускает несколько пробных вызовов
+ * (полуоткрытое состояние): если все успешны - замыкается, иначе снова размыкается.
+ */
+@Slf4j
+final class EndpointCircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Разрешение на вызов. Помнит поколение состояния, в котором выдано: исход вызова, завершившегося
+     * после смены состояния, не учитывается (например, медленный вызов из закрытого состояния
+     * не считается пробным вызовом полуоткрытого)
+     */
+    static final class Permit {
+        private final long generation;
+
+        private Permit(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final String name;
+    private final ExecutionConfig.CircuitBreakerConfig config;
+    private final LongSupplier clock;
+    // Кольцевое окно исходов: бит 1 - ошибка, бит 2 - медленный вызов
+    private final byte[] window;
+    private int windowPosition;
+    private int windowCalls;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    // Номер текущего состояния; увеличивается при каждом переходе
+    private long generation;
+    private long openUntilNanos;
+    private long lastUsedNanos;
+    private int probesLeft;
+    private int probesSucceeded;
+
+    EndpointCircuitBreaker(String name, ExecutionConfig.CircuitBreakerConfig config, LongSupplier clock) {
+        this.name = name;
+        this.config = config;
+        this.clock = clock;
+        this.window = new byte[Math.max(1, config.getSlidingWindowSize())];
+        this.lastUsedNanos = clock.getAsLong();
+    }
+
+    ExecutionConfig.CircuitBreakerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return разрешение или null, если вызов отклонен; после разрешенного вызова обязателен
+     *         {@link #onResult} или {@link #onIgnored}
+     */
+    synchronized Permit tryAcquire() {
+        lastUsedNanos = clock.getAsLong();
+        switch (state) {
+            case CLOSED:
+                return new Permit(generation);
+            case OPEN:
+                if (clock.getAsLong() - openUntilNanos < 0) {
+                    return null;
+                }
+                transition(State.HALF_OPEN);
+                probesLeft = Math.max(1, config.getHalfOpenProbes());
+                probesSucceeded = 0;
+                // fall through: первый пробный вызов
+            case HALF_OPEN:
+            default:
+                if (probesLeft == 0) {
+                    return null;
+                }
+                probesLeft--;
+                return new Permit(generation);
+        }
+    }
+
+    /**
+     * Исход разрешенного вызова
+     *
+     * @param failed ошибка сети или ответ 5xx
+     */
+    synchronized void onResult(Permit permit, long durationNanos, boolean failed) {
+        if (permit.generation != generation) {
+            return;
+        }
+        boolean slow = durationNanos >= TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDurationMs());
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open();
+            } else if (++probesSucceeded >= Math.max(1, config.getHalfOpenProbes())) {
+                resetWindow();
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        byte outcome = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        if (windowCalls == window.length) {
+            byte evicted = window[windowPosition];
+            failures -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = outcome;
+        windowPosition = (windowPosition + 1) % window.length;
+        failures += outcome & 1;
+        slowCalls += (outcome >> 1) & 1;
+
+        if (windowCalls >= Math.max(1, config.getMinimumCalls())
+                && (failures * 100.0 / windowCalls >= config.getFailureRateThreshold()
+                || slowCalls * 100.0 / windowCalls >= config.getSlowCallRateThreshold())) {
+            open();
+        }
+    }
+
+    /**
+     * Разрешенный вызов не состоялся (например, отклонен ограничителем): пробное место возвращается
+     */
+    synchronized void onIgnored(Permit permit) {
+        if (permit.generation == generation && state == State.HALF_OPEN) {
+            probesLeft++;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * К автомату не обращались дольше idleNanos, а если он разомкнут - и дольше openDurationMs
+     */
+    synchronized boolean isIdle(long nowNanos, long idleNanos) {
+        long idle = Math.max(idleNanos, TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMs()));
+        return nowNanos - lastUsedNanos > idle;
+    }
+
+    private void open() {
+        openUntilNanos = clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMs());
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        windowPosition = 0;
+        windowCalls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            log.warn("Circuit breaker {}: {} -> {}", name, state, next);
+            state = next;
+            generation++;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package ru.poib.VTBHack.execution.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.poib.VTBHack.parser.model.ProcessFlow;
+import ru.poib.VTBHack.parser.model.ProcessGateway;
+
+import java.util.*;
+
+/**
+ * План выполнения процесса: порядок задач, разбитый на этапы, и состояние прохождения шлюзов.
+ *
+ * Задачи одного этапа не зависят друг от друга ни по потоку управления, ни по данным,
+ * поэтому ветви после parallel gateway оказываются в одном этапе. Параллельно выполняются только
+ * такие ветви ({@link #isParallelFanOut}); прочие независимые задачи идут по очереди с общим контекстом.
+ *
+ * Ветвление отслеживается по потокам: после завершения задачи ее исходящие потоки помечаются
+ * как пройденные или мертвые, и отметки распространяются через шлюзы и события.
+ * Exclusive gateway выбирает первую ветвь, условие которой выполняется на контексте,
+ * иначе поток по умолчанию. Задача, все входящие потоки которой мертвые, пропускается.
+ * План хранит состояние одного прогона и не потокобезопасен.
+ */
+@Slf4j
+public class ExecutionPlan {
+
+    private enum FlowState {
+        PENDING, TAKEN, DEAD
+    }
+
+    private final List<List<String>> stages;
+    private final Set<String> taskIds;
+    private final List<ProcessFlow> flows;
+    private final Map<String, List<Integer>> incoming = new HashMap<>();
+    private final Map<String, List<Integer>> outgoing = new HashMap<>();
+    private final Map<String, ProcessGateway> gateways = new HashMap<>();
+    private final FlowState[] flowStates;
+    private final GatewayConditionEvaluator conditionEvaluator;
+    // Задача -> (ID parallel/inclusive шлюза -> номер его ветви, на которой лежит задача)
+    private final Map<String, Map<String, Integer>> branches = new HashMap<>();
+
+    ExecutionPlan(List<List<String>> stages,
+                  Set<String> taskIds,
+                  List<ProcessFlow> flows,
+                  List<ProcessGateway> gateways,
+                  GatewayConditionEvaluator conditionEvaluator) {
+        this.stages = stages;
+        this.taskIds = taskIds;
+        this.flows = flows;
+        this.conditionEvaluator = conditionEvaluator;
+        this.flowStates = new FlowState[flows.size()];
+        Arrays.fill(flowStates, FlowState.PENDING);
+
+        for (int i = 0; i < flows.size(); i++) {
+            ProcessFlow flow = flows.get(i);
+            outgoing.computeIfAbsent(flow.getSourceRef(), k -> new ArrayList<>()).add(i);
+            incoming.computeIfAbsent(flow.getTargetRef(), k -> new ArrayList<>()).add(i);
+        }
+        for (ProcessGateway gateway : gateways) {
+            this.gateways.put(gateway.getId(), gateway);
+            if (gateway.getType() == ProcessGateway.GatewayType.PARALLEL
+                    || gateway.getType() == ProcessGateway.GatewayType.INCLUSIVE) {
+                collectBranches(gateway.getId());
+            }
+        }
+    }
+
+    /**
+     * Отмечает задачи, достижимые только из одной исходящей ветви шлюза.
+     * Задачи после слияния достижимы из всех ветвей и не отмечаются
+     */
+    private void collectBranches(String gatewayId) {
+        List<Integer> out = outgoing.getOrDefault(gatewayId, List.of());
+        if (out.size() < 2) {
+            return;
+        }
+        Map<String, Integer> owner = new HashMap<>();
+        Set<String> shared = new HashSet<>();
+        for (int branch = 0; branch < out.size(); branch++) {
+            Set<String> visited = new HashSet<>();
+            Deque<String> stack = new ArrayDeque<>();
+            stack.push(flows.get(out.get(branch)).getTargetRef());
+            while (!stack.isEmpty()) {
+                String node = stack.pop();
+                if (node == null || node.equals(gatewayId) || !visited.add(node)) {
+                    continue;
+                }
+                if (taskIds.contains(node)) {
+                    Integer previous = owner.putIfAbsent(node, branch);
+                    if (previous != null && previous != branch) {
+                        shared.add(node);
+                    }
+                }
+                for (int index : outgoing.getOrDefault(node, List.of())) {
+                    stack.push(flows.get(index).getTargetRef());
+                }
+            }
+        }
+        owner.forEach((taskId, branch) -> {
+            if (!shared.contains(taskId)) {
+                branches.computeIfAbsent(taskId, k -> new HashMap<>()).put(gatewayId, branch);
+            }
+        });
+    }
+
+    /**
+     * Являются ли задачи этапа параллельными ветвями: каждые две задачи лежат на разных ветвях
+     * одного parallel или inclusive шлюза. Только такие задачи можно выполнять одновременно,
+     * не меняя потока данных между ними
+     */
+    public boolean isParallelFanOut(List<String> stageTaskIds) {
+        if (stageTaskIds.size() < 2) {
+            return false;
+        }
+        for (int i = 0; i < stageTaskIds.size(); i++) {
+            for (int j = i + 1; j < stageTaskIds.size(); j++) {
+                if (!onSiblingBranches(stageTaskIds.get(i), stageTaskIds.get(j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean onSiblingBranches(String first, String second) {
+        Map<String, Integer> firstBranches = branches.get(first);
+        Map<String, Integer> secondBranches = branches.get(second);
+        if (firstBranches == null || secondBranches == null) {
+            return false;
+        }
+        for (Map.Entry<String, Integer> entry : firstBranches.entrySet()) {
+            Integer other = secondBranches.get(entry.getKey());
+            if (other != null && !other.equals(entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Этапы выполнения: задачи этапа независимы друг от друга
+     */
+    public List<List<String>> getStages() {
+        return stages;
+    }
+
+    /**
+     * Плоский порядок выполнения задач
+     */
+    public List<String> getExecutionOrder() {
+        List<String> order = new ArrayList<>();
+        stages.forEach(order::addAll);
+        return order;
+    }
+
+    /**
+     * Запускает прохождение токенов от стартовых элементов (элементов без входящих потоков)
+     */
+    void start(Map<String, Object> context) {
+        Deque<String> worklist = new ArrayDeque<>();
+        for (String node : outgoing.keySet()) {
+            if (!taskIds.contains(node) && !incoming.containsKey(node)) {
+                route(node, true, context, worklist);
+            }
+        }
+        propagate(worklist, context);
+    }
+
+    /**
+     * Определяет, должна ли задача быть выполнена на основе условий gateway.
+     * Задача пропускается, только если все ее входящие потоки известны и мертвы.
+     * Задачи вне графа (виртуальные) и задачи в циклах выполняются всегда.
+     */
+    public boolean shouldExecute(String taskId) {
+        List<Integer> in = incoming.get(taskId);
+        if (in == null) {
+            return true;
+        }
+        boolean anyTaken = false;
+        for (int index : in) {
+            if (flowStates[index] == FlowState.PENDING) {
+                return true;
+            }
+            anyTaken |= flowStates[index] == FlowState.TAKEN;
+        }
+        return anyTaken;
+    }
+
+    /**
+     * Отмечает завершение задачи и продвигает токены дальше по графу.
+     * Условия исходящих потоков вычисляются на текущем контексте, поэтому вызывать
+     * нужно после сохранения извлеченных из ответа данных.
+     *
+     * @param executed false, если задача была пропущена — ее исходящие ветви становятся мертвыми
+     */
+    public void complete(String taskId, boolean executed, Map<String, Object> context) {
+        Deque<String> worklist = new ArrayDeque<>();
+        route(taskId, executed, context, worklist);
+        propagate(worklist, context);
+    }
+
+    private void propagate(Deque<String> worklist, Map<String, Object> context) {
+        while (!worklist.isEmpty()) {
+            String node = worklist.poll();
+            if (taskIds.contains(node)) {
+                continue; // задачи продвигаются только при завершении
+            }
+            Boolean activated = resolveIncoming(node);
+            if (activated != null) {
+                route(node, activated, context, worklist);
+            }
+        }
+    }
+
+    /**
+     * @return null, пока не все входящие потоки известны; иначе признак того, что элемент активирован
+     */
+    private Boolean resolveIncoming(String node) {
+        boolean anyTaken = false;
+        for (int index : incoming.getOrDefault(node, List.of())) {
+            if (flowStates[index] == FlowState.PENDING) {
+                return null;
+            }
+            anyTaken |= flowStates[index] == FlowState.TAKEN;
+        }
+        return anyTaken;
+    }
+
+    /**
+     * Решает судьбу исходящих потоков элемента
+     */
+    private void route(String node, boolean activated, Map<String, Object> context, Deque<String> worklist) {
+        List<Integer> out = outgoing.getOrDefault(node, List.of());
+        ProcessGateway gateway = gateways.get(node);
+        ProcessGateway.GatewayType type = gateway != null ? gateway.getType() : null;
+
+        Set<Integer> taken = new HashSet<>();
+        if (activated) {
+            if (type == ProcessGateway.GatewayType.EXCLUSIVE) {
+                if (!hasConditions(out)) {
+                    // Условий нет — выбрать ветвь нельзя, выполняем все, как раньше
+                    taken.addAll(out);
+                } else {
+                    Integer chosen = chooseExclusive(gateway, out, context);
+                    if (chosen != null) {
+                        taken.add(chosen);
+                    } else {
+                        log.warn("No outgoing flow of exclusive gateway {} matched", node);
+                    }
+                }
+            } else if (type == ProcessGateway.GatewayType.INCLUSIVE) {
+                Integer defaultIndex = null;
+                for (int index : out) {
+                    ProcessFlow flow = flows.get(index);
+                    if (isDefault(gateway, flow)) {
+                        defaultIndex = index;
+                    } else if (conditionEvaluator.evaluate(flow.getConditionExpression(), context)) {
+                        taken.add(index);
+                    }
+                }
+                if (taken.isEmpty() && defaultIndex != null) {
+                    taken.add(defaultIndex);
+                }
+            } else if (type == ProcessGateway.GatewayType.PARALLEL || type == ProcessGateway.GatewayType.EVENT_BASED) {
+                // Parallel: все ветви; event-based: событие заранее неизвестно, ждем на всех ветвях
+                taken.addAll(out);
+            } else {
+                for (int index : out) {
+                    if (conditionEvaluator.evaluate(flows.get(index).getConditionExpression(), context)) {
+                        taken.add(index);
+                    }
+                }
+            }
+        }
+
+        for (int index : out) {
+            if (flowStates[index] == FlowState.PENDING) {
+                flowStates[index] = taken.contains(index) ? FlowState.TAKEN : FlowState.DEAD;
+                worklist.add(flows.get(index).getTargetRef());
+            }
+        }
+    }
+
+    private Integer chooseExclusive(ProcessGateway gateway, List<Integer> out, Map<String, Object> context) {
+        Integer defaultIndex = null;
+        for (int index : out) {
+            ProcessFlow flow = flows.get(index);
+            if (isDefault(gateway, flow)) {
+                defaultIndex = index;
+            } else if (conditionEvaluator.evaluate(flow.getConditionExpression(), context)) {
+                // Как во Flowable: побеждает первая по документу ветвь, безусловная считается истинной
+                return index;
+            }
+        }
+        return defaultIndex;
+    }
+
+    private boolean hasConditions(List<Integer> out) {
+        for (int index : out) {
+            if (flows.get(index).getConditionExpression() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDefault(ProcessGateway gateway, ProcessFlow flow) {
+        return gateway.getDefaultFlow() != null && gateway.getDefaultFlow().equals(flow.getId());
+    }
+}
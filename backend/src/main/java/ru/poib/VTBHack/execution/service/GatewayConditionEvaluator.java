@@ -0,0 +1,99 @@
+package ru.poib.VTBHack.execution.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Вычисляет условия sequence flows (например, {@code ${status == 'APPROVED'}}) на контексте выполнения.
+ * Выражения BPMN в стиле JUEL разбираются как SpEL: операторы сравнения, {@code &&}, {@code ||}, {@code !}
+ * и литералы у них совпадают. Вызовы методов и ссылки на типы запрещены.
+ *
+ * Переменные берутся из контекста выполнения, где ключи имеют вид {@code taskId.field}:
+ * доступны как {@code taskId.field}, так и короткое имя {@code field}.
+ */
+@Slf4j
+class GatewayConditionEvaluator {
+
+    private static final ExpressionParser PARSER = new SpelExpressionParser();
+    private static final int MAX_CACHED_EXPRESSIONS = 10_000;
+
+    private final Map<String, Expression> compiled = new ConcurrentHashMap<>();
+
+    /**
+     * @return true, если условие выполняется; false, если оно ложно, не вычисляется
+     *         или ссылается на отсутствующие в контексте данные
+     */
+    boolean evaluate(String conditionExpression, Map<String, Object> context) {
+        if (conditionExpression == null || conditionExpression.isBlank()) {
+            return true;
+        }
+        try {
+            Expression expression = compile(conditionExpression);
+            EvaluationContext evaluationContext = SimpleEvaluationContext
+                    .forPropertyAccessors(new MapAccessor())
+                    .withRootObject(buildVariables(context))
+                    .build();
+            return Boolean.TRUE.equals(expression.getValue(evaluationContext, Boolean.class));
+        } catch (Exception e) {
+            log.debug("Condition '{}' is not satisfied: {}", conditionExpression, e.getMessage());
+            return false;
+        }
+    }
+
+    private Expression compile(String conditionExpression) {
+        Expression expression = compiled.get(conditionExpression);
+        if (expression == null) {
+            expression = PARSER.parseExpression(unwrap(conditionExpression));
+            if (compiled.size() >= MAX_CACHED_EXPRESSIONS) {
+                compiled.clear();
+            }
+            compiled.put(conditionExpression, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * Снимает обертку {@code ${...}} или {@code #{...}}
+     */
+    private static String unwrap(String conditionExpression) {
+        String text = conditionExpression.trim();
+        if ((text.startsWith("${") || text.startsWith("#{")) && text.endsWith("}")) {
+            text = text.substring(2, text.length() - 1).trim();
+        }
+        return text;
+    }
+
+    /**
+     * Превращает плоские ключи {@code taskId.field} в вложенные карты, доступные через точку
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> buildVariables(Map<String, Object> context) {
+        Map<String, Object> variables = new HashMap<>();
+        Map<String, Object> shortNames = new HashMap<>();
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            String key = entry.getKey();
+            int dot = key.indexOf('.');
+            if (dot < 0) {
+                variables.put(key, entry.getValue());
+                continue;
+            }
+            Object scope = variables.computeIfAbsent(key.substring(0, dot), k -> new HashMap<String, Object>());
+            if (scope instanceof Map) {
+                ((Map<String, Object>) scope).put(key.substring(dot + 1), entry.getValue());
+            }
+            shortNames.put(key.substring(dot + 1), entry.getValue());
+        }
+        // Короткие имена не перекрывают идентификаторы задач
+        shortNames.forEach(variables::putIfAbsent);
+        return variables;
+    }
+}
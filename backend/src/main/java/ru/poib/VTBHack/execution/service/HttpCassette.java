@@ -0,0 +1,151 @@
+package ru.poib.VTBHack.execution.service;
+
+import ru.poib.VTBHack.execution.model.Cassette;
+import ru.poib.VTBHack.execution.model.CassetteEntry;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Индекс кассеты для записи и воспроизведения. Ответ ищется по методу, нормализованному URL
+ * и хэшу тела; если тело отличается (данные сгенерированы без seed), берется ответ
+ * на тот же метод и URL. Одинаковые запросы воспроизводятся в порядке записи,
+ * после исчерпания повторяется последний ответ.
+ * Запись только дописывает в конец: нагрузочный прогон пишет в кассету каждую итерацию.
+ */
+public final class HttpCassette {
+
+    static final String NO_BODY = "-";
+
+    private final String id;
+    private final Instant recordedAt;
+    private final Queue<CassetteEntry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Map<String, Track> exact = new ConcurrentHashMap<>();
+    private final Map<String, Track> byUrl = new ConcurrentHashMap<>();
+
+    /**
+     * Ответы на один ключ и позиция воспроизведения
+     */
+    private static final class Track {
+        final List<CassetteEntry> entries = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger cursor = new AtomicInteger();
+
+        CassetteEntry next() {
+            int index = cursor.getAndIncrement();
+            synchronized (entries) {
+                return entries.get(Math.min(index, entries.size() - 1));
+            }
+        }
+    }
+
+    public HttpCassette(String id) {
+        this(id, Instant.now(), List.of());
+    }
+
+    private HttpCassette(String id, Instant recordedAt, List<CassetteEntry> recorded) {
+        this.id = id;
+        this.recordedAt = recordedAt;
+        recorded.forEach(this::add);
+    }
+
+    public static HttpCassette of(Cassette cassette) {
+        return new HttpCassette(cassette.getId(), cassette.getRecordedAt(),
+                cassette.getEntries() != null ? cassette.getEntries() : List.of());
+    }
+
+    public Cassette toCassette() {
+        return new Cassette(id, recordedAt, new ArrayList<>(entries));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @param requestBody тело запроса в том виде, в каком оно отправлено
+     */
+    public void record(String method, String url, String requestBody, int statusCode,
+                       Map<String, String> headers, String body, long durationMs) {
+        record(method, url, requestBody, statusCode, headers, body, false, null, durationMs);
+    }
+
+    /**
+     * @param bodyTruncated в body только префикс ответа
+     * @param bodyFile      файл с полным телом или null, если оно не сохранялось
+     */
+    public void record(String method, String url, String requestBody, int statusCode,
+                       Map<String, String> headers, String body, boolean bodyTruncated, String bodyFile,
+                       long durationMs) {
+        add(new CassetteEntry(method.toUpperCase(), normalizeUrl(url), bodyHash(requestBody),
+                statusCode, headers, body, durationMs, bodyTruncated, bodyFile));
+    }
+
+    /**
+     * @return записанный ответ или null, если запрос в кассете не встречался
+     */
+    public CassetteEntry replay(String method, String url, String requestBody) {
+        String urlKey = method.toUpperCase() + " " + normalizeUrl(url);
+        Track track = exact.get(urlKey + " " + bodyHash(requestBody));
+        if (track == null) {
+            track = byUrl.get(urlKey);
+        }
+        return track != null ? track.next() : null;
+    }
+
+    private void add(CassetteEntry entry) {
+        entries.add(entry);
+        size.incrementAndGet();
+        String urlKey = entry.getMethod() + " " + entry.getUrl();
+        exact.computeIfAbsent(urlKey + " " + entry.getBodyHash(), key -> new Track()).entries.add(entry);
+        byUrl.computeIfAbsent(urlKey, key -> new Track()).entries.add(entry);
+    }
+
+    /**
+     * Путь без завершающего слэша и query параметры в отсортированном порядке.
+     * Схема, хост и порт отбрасываются, чтобы кассету можно было воспроизвести при другом базовом URL
+     */
+    static String normalizeUrl(String url) {
+        URI uri = URI.create(url);
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return path;
+        }
+        String[] params = query.split("&");
+        Arrays.sort(params);
+        return path + "?" + String.join("&", params);
+    }
+
+    static String bodyHash(String body) {
+        if (body == null || body.isEmpty()) {
+            return NO_BODY;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ru.poib.VTBHack.execution.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.execution.model.Cassette;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Хранилище кассет в data/cassettes: сжатый JSON, по файлу id.cassette.json.gz.
+ * Записываемые кассеты держатся в памяти до конца прогона, воспроизводимые кэшируются
+ * после первого чтения и сбрасываются при перезаписи.
+ * <p>
+ * Кассету могут одновременно держать несколько прогонов (параллельные запуски, итерации нагрузки):
+ * каждый открывает ее через {@link #open} и завершает через finish. Одновременные записи
+ * дописываются в одну кассету, которая сохраняется целиком, когда ее отпускает последний держатель;
+ * одновременные воспроизведения делят позиции, и те сбрасываются тоже только после последнего.
+ */
+@Slf4j
+@Service
+public class HttpCassetteStore {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Path baseDir;
+    private final Map<String, HttpCassette> recording = new ConcurrentHashMap<>();
+    private final Map<String, HttpCassette> replaying = new ConcurrentHashMap<>();
+    // Число прогонов, держащих кассету; изменяется под монитором хранилища
+    private final Map<String, Integer> holders = new HashMap<>();
+
+    public HttpCassetteStore() {
+        this(Paths.get(System.getProperty("user.dir")).resolve("data").resolve("cassettes"));
+    }
+
+    HttpCassetteStore(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Регистрирует прогон, работающий с кассетой; парный вызов - finishRecording или finishReplay
+     */
+    public synchronized void open(String id) {
+        holders.merge(checkId(id), 1, Integer::sum);
+    }
+
+    /**
+     * Кассета, в которую пишется текущий прогон; создается пустой при первом запросе
+     */
+    public HttpCassette recording(String id) {
+        return recording.computeIfAbsent(checkId(id), HttpCassette::new);
+    }
+
+    /**
+     * Кассета для воспроизведения
+     *
+     * @return кассета или null, если она не записана
+     */
+    public HttpCassette replaying(String id) {
+        checkId(id);
+        return replaying.computeIfAbsent(id, key -> {
+            Path file = file(key);
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                return HttpCassette.of(objectMapper.readValue(in, Cassette.class));
+            } catch (IOException e) {
+                log.warn("Failed to read cassette {}: {}", key, e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Отпускает записываемую кассету; последний держатель сохраняет ее на диск и завершает запись
+     */
+    public void finishRecording(String id) throws IOException {
+        HttpCassette cassette;
+        synchronized (this) {
+            if (!release(checkId(id))) {
+                return;
+            }
+            cassette = recording.remove(id);
+        }
+        if (cassette == null) {
+            return;
+        }
+        Files.createDirectories(baseDir);
+        // Свой временный файл: запись следующего поколения кассеты может завершиться одновременно
+        Path tmp = Files.createTempFile(baseDir, id + ".", ".cassette.tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+            objectMapper.writeValue(out, cassette.toCassette());
+        }
+        // Воспроизведение видит либо старую кассету, либо новую целиком
+        Files.move(tmp, file(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        replaying.remove(id);
+        log.info("Cassette {} saved with {} interactions", id, cassette.size());
+    }
+
+    /**
+     * Отпускает воспроизводимую кассету; после последнего держателя позиции сбрасываются,
+     * и следующий прогон снова начнет с первых ответов
+     */
+    public synchronized void finishReplay(String id) {
+        if (release(checkId(id))) {
+            replaying.remove(id);
+        }
+    }
+
+    /**
+     * @return true, если кассету больше никто не держит
+     */
+    private boolean release(String id) {
+        Integer count = holders.get(id);
+        if (count == null || count <= 1) {
+            holders.remove(id);
+            return true;
+        }
+        holders.put(id, count - 1);
+        return false;
+    }
+
+    private Path file(String id) {
+        return baseDir.resolve(id + ".cassette.json.gz");
+    }
+
+    private static String checkId(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("Некорректный идентификатор кассеты: " + id);
+        }
+        return id;
+    }
+}
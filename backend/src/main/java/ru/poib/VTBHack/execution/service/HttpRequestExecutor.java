@@ -5,20 +5,26 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.classic.methods.HttpDelete;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPatch;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.execution.config.ConnectionLeaseTiming;
+import ru.poib.VTBHack.execution.model.CassetteEntry;
 import ru.poib.VTBHack.execution.model.ExecutionConfig;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,10 +38,33 @@ import java.util.concurrent.TimeUnit;
 public class HttpRequestExecutor {
     
     private final HttpClient httpClient;
+    private final HttpCassetteStore cassetteStore;
+    private final OutboundLimiter limiter;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final ResponseBodyStore responseBodies;
     private final ObjectMapper objectMapper;
     
     public HttpRequestExecutor(HttpClient httpClient) {
+        this(httpClient, new HttpCassetteStore());
+    }
+
+    public HttpRequestExecutor(HttpClient httpClient, HttpCassetteStore cassetteStore) {
+        this(httpClient, cassetteStore, new OutboundLimiter(), new CircuitBreakerRegistry());
+    }
+
+    public HttpRequestExecutor(HttpClient httpClient, HttpCassetteStore cassetteStore, OutboundLimiter limiter,
+                               CircuitBreakerRegistry circuitBreakers) {
+        this(httpClient, cassetteStore, limiter, circuitBreakers, new ResponseBodyStore());
+    }
+
+    @Autowired
+    public HttpRequestExecutor(HttpClient httpClient, HttpCassetteStore cassetteStore, OutboundLimiter limiter,
+                               CircuitBreakerRegistry circuitBreakers, ResponseBodyStore responseBodies) {
         this.httpClient = httpClient;
+        this.cassetteStore = cassetteStore;
+        this.limiter = limiter;
+        this.circuitBreakers = circuitBreakers;
+        this.responseBodies = responseBodies;
         this.objectMapper = new ObjectMapper();
     }
     
@@ -51,9 +80,57 @@ public class HttpRequestExecutor {
      */
     public ExecutionResult execute(String method, String url, Map<String, String> headers, 
                                    Object body, ExecutionConfig config) {
+        return execute(method, url, null, headers, body, config);
+    }
+
+    /**
+     * Выполняет HTTP запрос с учетом ограничений на хост и шаблон эндпоинта.
+     * Ожидание ограничителя и соединения из пула не входит в длительность ответа и возвращается отдельно
+     *
+     * @param endpointKey шаблон эндпоинта "METHOD /path/{template}" для ограничений по эндпоинту (может быть null)
+     */
+    public ExecutionResult execute(String method, String url, String endpointKey, Map<String, String> headers,
+                                   Object body, ExecutionConfig config) {
         Instant startTime = Instant.now();
+        long limiterWaitMs = 0;
+        OutboundLimiter.Permit permit = null;
+        EndpointCircuitBreaker breaker = null;
+        EndpointCircuitBreaker.Permit breakerPermit = null;
+        // Исход вызова для автомата отключения: null - запрос не отправлялся
+        Boolean failed = null;
+        long requestNanos = 0;
+        HttpClientContext context = HttpClientContext.create();
         
         try {
+            String bodyString = null;
+            if (body != null && (method.equals("POST") || method.equals("PUT") || method.equals("PATCH"))) {
+                bodyString = body instanceof String ? (String) body : objectMapper.writeValueAsString(body);
+            }
+
+            ExecutionConfig.CassetteMode cassetteMode = config.getCassetteMode();
+            if (cassetteMode == ExecutionConfig.CassetteMode.REPLAY) {
+                return replay(method, url, bodyString, config, startTime);
+            }
+
+            // Отключенный эндпоинт отклоняется сразу, без ожидания таймаута
+            breaker = circuitBreakers.forEndpoint(method, url, endpointKey, config);
+            breakerPermit = breaker != null ? breaker.tryAcquire() : null;
+            if (breaker != null && breakerPermit == null) {
+                String message = CircuitBreakerRegistry.OPEN_MESSAGE_PREFIX + ": "
+                        + (endpointKey != null ? endpointKey : method) + " is failing, call rejected without a request";
+                breaker = null;
+                return new ExecutionResult(false, 0, null, null, 0, message);
+            }
+
+            permit = limiter.acquire(url, endpointKey, config);
+            limiterWaitMs = TimeUnit.NANOSECONDS.toMillis(permit.getWaitNanos());
+            if (!permit.isGranted()) {
+                return new ExecutionResult(false, 0, null, null, 0, permit.getRejection(), limiterWaitMs);
+            }
+            // Длительность ответа считается без ожидания ограничителя
+            Instant requestStart = Instant.now();
+            requestNanos = System.nanoTime();
+
             // Создаем HTTP запрос
             HttpUriRequestBase request = createRequest(method, url);
             
@@ -72,49 +149,137 @@ public class HttpRequestExecutor {
             }
             
             // Устанавливаем тело запроса
-            if (body != null && (method.equals("POST") || method.equals("PUT") || method.equals("PATCH"))) {
-                String bodyString;
-                if (body instanceof String) {
-                    bodyString = (String) body;
-                } else {
-                    bodyString = objectMapper.writeValueAsString(body);
-                }
+            if (bodyString != null) {
                 request.setEntity(new StringEntity(bodyString, StandardCharsets.UTF_8));
             }
             
             // Выполняем запрос
             log.debug("Executing {} request to {}", method, url);
-            return httpClient.execute(request, response -> {
+            String sentBody = bodyString;
+            long waitMs = limiterWaitMs;
+            // Дальше запрос уходит на эндпоинт: исход до этой точки (например, неподдерживаемый метод)
+            // остается ошибкой клиента и автомат отключения не затрагивает
+            failed = Boolean.TRUE;
+            ExecutionResult result = httpClient.execute(request, context, response -> {
                 Instant responseTime = Instant.now();
-                long durationMs = responseTime.toEpochMilli() - startTime.toEpochMilli();
+                long connectionWaitMs = connectionWaitMs(context);
+                long durationMs = responseTime.toEpochMilli() - requestStart.toEpochMilli() - connectionWaitMs;
                 
                 int statusCode = response.getCode();
                 Map<String, String> responseHeaders = extractHeaders(response);
-                String responseBody = extractBody(response);
+                CapturedBody responseBody = captureBody(response, request, config);
                 
                 log.debug("Response received: status={}, duration={}ms", statusCode, durationMs);
+                if (cassetteMode == ExecutionConfig.CassetteMode.RECORD) {
+                    // JSON восстанавливается целиком; от прочих длинных тел остается префикс с пометкой
+                    boolean bodyTruncated = responseBody != null && responseBody.isTruncated()
+                            && responseBody.getJson() == null;
+                    cassetteStore.recording(config.getCassetteId()).record(method, url, sentBody, statusCode,
+                            responseHeaders, fullBody(responseBody), bodyTruncated,
+                            bodyTruncated ? responseBody.getFile() : null, durationMs);
+                }
                 
-                return new ExecutionResult(true, statusCode, responseHeaders, responseBody, durationMs, null);
+                return ExecutionResult.of(statusCode, responseHeaders, responseBody, durationMs, waitMs, connectionWaitMs);
             });
+            failed = result.getStatusCode() >= 500;
+            return result;
             
+        } catch (CapturedBody.TooLargeException e) {
+            // Ответ получен, эндпоинт исправен: для автомата отключения это не ошибка
+            failed = Boolean.FALSE;
+            long durationMs = Instant.now().toEpochMilli() - startTime.toEpochMilli();
+            long connectionWaitMs = connectionWaitMs(context);
+            log.warn("{} {}: {}", method, url, e.getMessage());
+            return new ExecutionResult(false, 0, null, null, durationMs - limiterWaitMs - connectionWaitMs,
+                    e.getMessage(), limiterWaitMs, connectionWaitMs);
         } catch (IOException e) {
             long durationMs = Instant.now().toEpochMilli() - startTime.toEpochMilli();
+            // При таймауте получения соединения все время запроса ушло на ожидание пула
+            long connectionWaitMs = connectionWaitMs(context);
             log.error("Network error for {} {}: {}", method, url, e.getMessage());
-            return new ExecutionResult(false, 0, null, null, durationMs, 
-                    "Network error: " + e.getMessage());
+            return new ExecutionResult(false, 0, null, null, durationMs - limiterWaitMs - connectionWaitMs,
+                    "Network error: " + e.getMessage(), limiterWaitMs, connectionWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            long durationMs = Instant.now().toEpochMilli() - startTime.toEpochMilli();
+            return new ExecutionResult(false, 0, null, null, durationMs, "Interrupted", limiterWaitMs);
         } catch (Exception e) {
             long durationMs = Instant.now().toEpochMilli() - startTime.toEpochMilli();
             log.error("Unexpected error for {} {}: {}", method, url, e.getMessage(), e);
-            return new ExecutionResult(false, 0, null, null, durationMs, 
-                    "Unexpected error: " + e.getMessage());
+            return new ExecutionResult(false, 0, null, null, durationMs - limiterWaitMs,
+                    "Unexpected error: " + e.getMessage(), limiterWaitMs);
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (breaker != null) {
+                if (failed == null) {
+                    breaker.onIgnored(breakerPermit);
+                } else {
+                    breaker.onResult(breakerPermit, System.nanoTime() - requestNanos, failed);
+                }
+            }
         }
     }
     
+    /**
+     * Отвечает из кассеты без обращения к API; при replayTiming выдерживает записанную задержку
+     */
+    private ExecutionResult replay(String method, String url, String bodyString, ExecutionConfig config,
+                                   Instant startTime) throws InterruptedException {
+        HttpCassette cassette = cassetteStore.replaying(config.getCassetteId());
+        CassetteEntry entry = cassette != null ? cassette.replay(method, url, bodyString) : null;
+        if (entry == null) {
+            long durationMs = Instant.now().toEpochMilli() - startTime.toEpochMilli();
+            return new ExecutionResult(false, 0, null, null, durationMs,
+                    (cassette == null ? "Cassette not found: " + config.getCassetteId() : "Cassette miss")
+                            + " for " + method + " " + url);
+        }
+        if (config.isReplayTiming() && entry.getDurationMs() > 0) {
+            Thread.sleep(entry.getDurationMs());
+        }
+        long durationMs = Instant.now().toEpochMilli() - startTime.toEpochMilli();
+        Map<String, String> headers = entry.getHeaders() != null ? new HashMap<>(entry.getHeaders()) : new HashMap<>();
+        CapturedBody body = CapturedBody.of(entry.getBody(), entry.isBodyTruncated(), entry.getBodyFile(), objectMapper);
+        return ExecutionResult.of(entry.getStatusCode(), headers, body, durationMs, 0, 0);
+    }
+
+    /**
+     * Начинает работу прогона с кассетой; парный вызов - {@link #finishCassette}
+     */
+    public void openCassette(ExecutionConfig config) {
+        if (config.getCassetteMode() == ExecutionConfig.CassetteMode.RECORD
+                || config.getCassetteMode() == ExecutionConfig.CassetteMode.REPLAY) {
+            cassetteStore.open(config.getCassetteId());
+        }
+    }
+
+    /**
+     * Завершает работу прогона с кассетой: когда ее отпускает последний прогон,
+     * записанная сохраняется на диск, у воспроизводимой сбрасываются позиции
+     */
+    public void finishCassette(ExecutionConfig config) {
+        try {
+            if (config.getCassetteMode() == ExecutionConfig.CassetteMode.RECORD) {
+                cassetteStore.finishRecording(config.getCassetteId());
+            } else if (config.getCassetteMode() == ExecutionConfig.CassetteMode.REPLAY) {
+                cassetteStore.finishReplay(config.getCassetteId());
+            }
+        } catch (Exception e) {
+            log.error("Failed to finish cassette {}: {}", config.getCassetteId(), e.getMessage());
+        }
+    }
+
+    private static long connectionWaitMs(HttpClientContext context) {
+        return TimeUnit.NANOSECONDS.toMillis(ConnectionLeaseTiming.leaseNanos(context));
+    }
+
     private HttpUriRequestBase createRequest(String method, String url) {
         return switch (method.toUpperCase()) {
             case "GET" -> new HttpGet(url);
             case "POST" -> new HttpPost(url);
             case "PUT" -> new HttpPut(url);
+            case "PATCH" -> new HttpPatch(url);
             case "DELETE" -> new HttpDelete(url);
             default -> throw new IllegalArgumentException("Unsupported HTTP method: " + method);
         };
@@ -128,17 +293,57 @@ public class HttpRequestExecutor {
         return headers;
     }
     
-    private String extractBody(ClassicHttpResponse response) {
+    /**
+     * Читает тело потоком с ограничениями захвата из конфигурации. Если тело дочитано не до конца
+     * (превышен предел или ненужный остаток тела не в формате JSON), запрос отменяется: закрытие потока
+     * HTTP клиентом вычитало бы остаток целиком, а отмена разрывает соединение
+     *
+     * @throws CapturedBody.TooLargeException если тело больше maxResponseBodyBytes
+     */
+    private CapturedBody captureBody(ClassicHttpResponse response, HttpUriRequestBase request, ExecutionConfig config)
+            throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return null;
+        }
+        Path spillDir = config.isSpillResponseBodies() ? responseBodies.directory() : null;
+        InputStream in = entity.getContent();
+        if (in == null) {
+            return null;
+        }
+        CapturedBody body;
         try {
-            HttpEntity entity = response.getEntity();
-            if (entity == null) {
-                return null;
-            }
-            return EntityUtils.toString(entity, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            log.error("Error extracting response body: {}", e.getMessage());
+            body = CapturedBody.read(in, config.getResponseCaptureBytes(), config.getMaxResponseBodyBytes(),
+                    spillDir, objectMapper);
+        } catch (IOException | RuntimeException e) {
+            discard(request, in);
+            throw e;
+        }
+        if (body.isComplete()) {
+            in.close();
+        } else {
+            discard(request, in);
+        }
+        return body;
+    }
+
+    private static void discard(HttpUriRequestBase request, InputStream in) {
+        request.cancel();
+        try {
+            in.close();
+        } catch (IOException e) {
+            // соединение уже разорвано, остаток тела не нужен
+        }
+    }
+
+    /**
+     * Тело для кассеты: JSON восстанавливается из дерева целиком, даже если в отчет попал только префикс
+     */
+    private String fullBody(CapturedBody body) throws IOException {
+        if (body == null) {
             return null;
         }
+        return body.isTruncated() && body.getJson() != null ? objectMapper.writeValueAsString(body.getJson()) : body.getPreview();
     }
     
     /**
@@ -151,15 +356,42 @@ public class HttpRequestExecutor {
         private final String body;
         private final long durationMs;
         private final String errorMessage;
+        private final long limiterWaitMs;
+        private final long connectionWaitMs;
+        private CapturedBody capturedBody;
         
         public ExecutionResult(boolean success, int statusCode, Map<String, String> headers, 
                               String body, long durationMs, String errorMessage) {
+            this(success, statusCode, headers, body, durationMs, errorMessage, 0);
+        }
+
+        public ExecutionResult(boolean success, int statusCode, Map<String, String> headers,
+                              String body, long durationMs, String errorMessage, long limiterWaitMs) {
+            this(success, statusCode, headers, body, durationMs, errorMessage, limiterWaitMs, 0);
+        }
+
+        public ExecutionResult(boolean success, int statusCode, Map<String, String> headers,
+                              String body, long durationMs, String errorMessage, long limiterWaitMs,
+                              long connectionWaitMs) {
             this.success = success;
             this.statusCode = statusCode;
             this.headers = headers;
             this.body = body;
             this.durationMs = durationMs;
             this.errorMessage = errorMessage;
+            this.limiterWaitMs = limiterWaitMs;
+            this.connectionWaitMs = connectionWaitMs;
+        }
+
+        /**
+         * Успешно полученный ответ с телом, прочитанным потоком
+         */
+        static ExecutionResult of(int statusCode, Map<String, String> headers, CapturedBody body,
+                                  long durationMs, long limiterWaitMs, long connectionWaitMs) {
+            ExecutionResult result = new ExecutionResult(true, statusCode, headers,
+                    body != null ? body.getPreview() : null, durationMs, null, limiterWaitMs, connectionWaitMs);
+            result.capturedBody = body;
+            return result;
         }
         
         public boolean isSuccess() { return success; }
@@ -168,6 +400,15 @@ public class HttpRequestExecutor {
         public String getBody() { return body; }
         public long getDurationMs() { return durationMs; }
         public String getErrorMessage() { return errorMessage; }
+        public long getLimiterWaitMs() { return limiterWaitMs; }
+        /**
+         * Ожидание свободного соединения в пуле HTTP клиента (не входит в durationMs)
+         */
+        public long getConnectionWaitMs() { return connectionWaitMs; }
+        /**
+         * Тело с разобранным JSON и сведениями о захвате; null, если тела нет
+         */
+        public CapturedBody getCapturedBody() { return capturedBody; }
     }
 }
 
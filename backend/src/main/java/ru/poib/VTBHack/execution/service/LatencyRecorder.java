@@ -0,0 +1,163 @@
+package ru.poib.VTBHack.execution.service;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SynchronizedHistogram;
+import ru.poib.VTBHack.execution.model.LatencyStatistics;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * Запись задержек шагов одного прогона в HDR гистограммы: общая по прогону и по каждому эндпоинту.
+ * Запись потокобезопасна (параллельные ветви пишут одновременно), диапазон 1 мкс - 1 ч
+ * с точностью 3 значащих цифры. Гистограммы растут по мере записи: память зависит от наибольшего
+ * записанного значения (около 100 КБ при задержках до 10 с), а не от всего диапазона.
+ * Статистика сериализуется вместе со сжатой гистограммой,
+ * поэтому результаты разных прогонов объединяются через {@link #merge(Collection)}.
+ */
+public final class LatencyRecorder {
+
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    static final int SIGNIFICANT_DIGITS = 3;
+    // Точность интервалов временного ряда: 1%, в 8 раз меньше памяти
+    static final int COMPACT_SIGNIFICANT_DIGITS = 2;
+
+    private final int significantDigits;
+    private final Histogram run;
+    private final Map<String, Histogram> endpoints = new ConcurrentHashMap<>();
+
+    public LatencyRecorder() {
+        this(SIGNIFICANT_DIGITS);
+    }
+
+    private LatencyRecorder(int significantDigits) {
+        this.significantDigits = significantDigits;
+        this.run = newHistogram();
+    }
+
+    /**
+     * Запись с точностью 2 значащих цифры для множества мелких интервалов (временной ряд нагрузки)
+     */
+    public static LatencyRecorder compact() {
+        return new LatencyRecorder(COMPACT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * @param method       HTTP метод
+     * @param pathTemplate шаблон пути из спецификации
+     */
+    public void record(String method, String pathTemplate, Duration latency) {
+        long micros = toMicros(latency);
+        run.recordValue(micros);
+        endpoints.computeIfAbsent(endpointKey(method, pathTemplate), key -> newHistogram()).recordValue(micros);
+    }
+
+    /**
+     * Запись без разбивки по эндпоинтам (например, длительность итерации нагрузочного прогона)
+     */
+    public void record(Duration latency) {
+        run.recordValue(toMicros(latency));
+    }
+
+    public LatencyStatistics runStatistics() {
+        return summarize(run);
+    }
+
+    /**
+     * Статистика по эндпоинтам, ключ - "METHOD /path/{template}"
+     */
+    public Map<String, LatencyStatistics> endpointStatistics() {
+        Map<String, LatencyStatistics> statistics = new TreeMap<>();
+        endpoints.forEach((endpoint, histogram) -> statistics.put(endpoint, summarize(histogram)));
+        return statistics;
+    }
+
+    static String endpointKey(String method, String pathTemplate) {
+        return (method != null ? method.toUpperCase() : "UNKNOWN") + " " + (pathTemplate != null ? pathTemplate : "UNKNOWN");
+    }
+
+    /**
+     * Объединяет статистику нескольких прогонов (например, для отчета о динамике)
+     */
+    public static LatencyStatistics merge(Collection<LatencyStatistics> statistics) {
+        Histogram merged = new Histogram(SIGNIFICANT_DIGITS);
+        for (LatencyStatistics item : statistics) {
+            if (item != null && item.getHistogram() != null) {
+                merged.add(decode(item.getHistogram()));
+            }
+        }
+        return summarize(merged);
+    }
+
+    /**
+     * Объединяет статистику по эндпоинтам нескольких прогонов
+     */
+    public static Map<String, LatencyStatistics> mergeByEndpoint(Collection<Map<String, LatencyStatistics>> statistics) {
+        Map<String, Histogram> merged = new TreeMap<>();
+        for (Map<String, LatencyStatistics> run : statistics) {
+            if (run == null) {
+                continue;
+            }
+            run.forEach((endpoint, item) -> {
+                if (item != null && item.getHistogram() != null) {
+                    merged.computeIfAbsent(endpoint, key -> new Histogram(SIGNIFICANT_DIGITS))
+                            .add(decode(item.getHistogram()));
+                }
+            });
+        }
+        Map<String, LatencyStatistics> result = new TreeMap<>();
+        merged.forEach((endpoint, histogram) -> result.put(endpoint, summarize(histogram)));
+        return result;
+    }
+
+    private static long toMicros(Duration latency) {
+        return Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latency.toNanos())));
+    }
+
+    private Histogram newHistogram() {
+        // Без верхней границы гистограмма расширяется под записанные значения
+        return new SynchronizedHistogram(significantDigits);
+    }
+
+    private static LatencyStatistics summarize(Histogram histogram) {
+        Histogram snapshot = histogram.copy();
+        LatencyStatistics statistics = new LatencyStatistics();
+        statistics.setCount(snapshot.getTotalCount());
+        if (snapshot.getTotalCount() > 0) {
+            statistics.setP50Ms(toMillis(snapshot.getValueAtPercentile(50)));
+            statistics.setP95Ms(toMillis(snapshot.getValueAtPercentile(95)));
+            statistics.setP99Ms(toMillis(snapshot.getValueAtPercentile(99)));
+            statistics.setMaxMs(toMillis(snapshot.getMaxValue()));
+        }
+        statistics.setHistogram(encode(snapshot));
+        return statistics;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private static Histogram decode(String encoded) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Некорректная сериализованная гистограмма задержек", e);
+        }
+    }
+}
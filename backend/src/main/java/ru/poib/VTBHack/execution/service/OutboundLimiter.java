@@ -0,0 +1,189 @@
+package ru.poib.VTBHack.execution.service;
+
+import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение исходящих запросов шагов: интенсивность (токен-бакет) и число одновременных
+ * запросов на хост и, при необходимости, на шаблон эндпоинта.
+ * Состояние лимитов ведется по хосту и эндпоинту, а не по настройкам, поэтому параллельные
+ * прогоны против одного стенда вместе не превышают заданную нагрузку, даже если их лимиты различаются.
+ * Состояния, к которым не обращались дольше {@link #IDLE_EVICTION_NANOS}, удаляются.
+ */
+@Service
+public class OutboundLimiter {
+
+    static final long IDLE_EVICTION_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrencyLimit> concurrency = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final AtomicLong lastSweepNanos;
+
+    public OutboundLimiter() {
+        this(System::nanoTime);
+    }
+
+    OutboundLimiter(LongSupplier clock) {
+        this.clock = clock;
+        this.lastSweepNanos = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Разрешение на запрос; закрытие освобождает занятые места
+     */
+    public static final class Permit implements AutoCloseable {
+        private static final Permit UNLIMITED = new Permit(0, null, List.of());
+
+        private final long waitNanos;
+        private final String rejection;
+        private final List<ConcurrencyLimit> held;
+
+        private Permit(long waitNanos, String rejection, List<ConcurrencyLimit> held) {
+            this.waitNanos = waitNanos;
+            this.rejection = rejection;
+            this.held = held;
+        }
+
+        public boolean isGranted() {
+            return rejection == null;
+        }
+
+        /**
+         * Причина отказа, если ожидание превысило таймаут запроса
+         */
+        public String getRejection() {
+            return rejection;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        @Override
+        public void close() {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).release();
+            }
+        }
+    }
+
+    /**
+     * Ждет разрешения на запрос; суммарное ожидание ограничено таймаутом запроса из конфигурации.
+     * Ожидание идет на потоке вызывающего (сон или ожидание места без удерживаемых блокировок):
+     * ветви процесса и итерации нагрузочного прогона - виртуальные потоки и платформенный поток
+     * не занимают, последовательные шаги обычного прогона ждут на потоке своего прогона.
+     *
+     * @param endpointKey шаблон эндпоинта "METHOD /path/{template}" или null
+     */
+    public Permit acquire(String url, String endpointKey, ExecutionConfig config) throws InterruptedException {
+        ExecutionConfig.RateLimit hostLimit = config.getHostLimit();
+        ExecutionConfig.RateLimit endpointLimit = endpointKey != null && config.getEndpointLimits() != null
+                ? config.getEndpointLimits().get(endpointKey) : null;
+        if (!isActive(hostLimit) && !isActive(endpointLimit)) {
+            return Permit.UNLIMITED;
+        }
+
+        String host = host(url);
+        long start = clock.getAsLong();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getRequestTimeoutMs());
+        evictIdle(start);
+        // Порядок одинаков для всех запросов: сначала эндпоинт, затем хост, поэтому взаимных блокировок нет
+        String[] keys = {"endpoint|" + host + "|" + endpointKey, "host|" + host};
+        ExecutionConfig.RateLimit[] limits = {endpointLimit, hostLimit};
+
+        // Резервируем во всех бакетах на один момент; если какой-то отказал, уже взятые резервы возвращаются
+        List<TokenBucket> reserved = new ArrayList<>(2);
+        List<ExecutionConfig.RateLimit> reservedLimits = new ArrayList<>(2);
+        long wait = 0;
+        for (int i = 0; i < keys.length; i++) {
+            ExecutionConfig.RateLimit limit = limits[i];
+            if (limit == null || limit.getRequestsPerSecond() <= 0) {
+                continue;
+            }
+            TokenBucket bucket = buckets.compute(keys[i], (key, current) -> {
+                TokenBucket value = current != null ? current : new TokenBucket();
+                value.touch(start);
+                return value;
+            });
+            long bucketWait = bucket.reserve(start, deadline - start, limit.getRequestsPerSecond(), limit.getBurst());
+            if (bucketWait < 0) {
+                for (int j = 0; j < reserved.size(); j++) {
+                    reserved.get(j).refund(reservedLimits.get(j).getRequestsPerSecond());
+                }
+                return new Permit(clock.getAsLong() - start, "Rate limit wait exceeds request timeout for " + keys[i], List.of());
+            }
+            reserved.add(bucket);
+            reservedLimits.add(limit);
+            wait = Math.max(wait, bucketWait);
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+
+        List<ConcurrencyLimit> held = new ArrayList<>(2);
+        for (int i = 0; i < keys.length; i++) {
+            ExecutionConfig.RateLimit limit = limits[i];
+            if (limit == null || limit.getMaxConcurrent() <= 0) {
+                continue;
+            }
+            ConcurrencyLimit slots = concurrency.compute(keys[i], (key, current) -> {
+                ConcurrencyLimit value = current != null ? current : new ConcurrencyLimit();
+                value.touch(start);
+                return value;
+            });
+            boolean acquired;
+            try {
+                acquired = slots.tryAcquire(limit.getMaxConcurrent(), Math.max(0, deadline - clock.getAsLong()));
+            } catch (InterruptedException e) {
+                held.forEach(ConcurrencyLimit::release);
+                throw e;
+            }
+            if (!acquired) {
+                held.forEach(ConcurrencyLimit::release);
+                return new Permit(clock.getAsLong() - start, "Concurrency limit wait exceeds request timeout for " + keys[i], List.of());
+            }
+            held.add(slots);
+        }
+        return new Permit(clock.getAsLong() - start, null, held);
+    }
+
+    int size() {
+        return buckets.size() + concurrency.size();
+    }
+
+    /**
+     * Удаление идет через compute: обращение к состоянию и его удаление по одному ключу не пересекаются
+     */
+    private void evictIdle(long now) {
+        long last = lastSweepNanos.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweepNanos.compareAndSet(last, now)) {
+            return;
+        }
+        for (String key : buckets.keySet()) {
+            buckets.computeIfPresent(key, (k, bucket) -> bucket.isIdle(now, IDLE_EVICTION_NANOS) ? null : bucket);
+        }
+        for (String key : concurrency.keySet()) {
+            concurrency.computeIfPresent(key, (k, slots) -> slots.isIdle(now, IDLE_EVICTION_NANOS) ? null : slots);
+        }
+    }
+
+    private static boolean isActive(ExecutionConfig.RateLimit limit) {
+        return limit != null && (limit.getRequestsPerSecond() > 0 || limit.getMaxConcurrent() > 0);
+    }
+
+    private static String host(String url) {
+        URI uri = URI.create(url);
+        return uri.getPort() > 0 ? uri.getHost() + ":" + uri.getPort() : String.valueOf(uri.getHost());
+    }
+}
@@ -0,0 +1,116 @@
+package ru.poib.VTBHack.execution.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Каталог data/response-bodies для тел ответов, сохраненных целиком (ExecutionConfig.spillResponseBodies).
+ * Каталог задается только на сервере. Нагрузочный прогон пишет по файлу на ответ, поэтому
+ * файлы старше maxAge удаляются, а сверх maxTotalBytes удаляются самые старые;
+ * очистка идет в фоновом потоке не чаще раза в минуту, пока в каталог пишут.
+ */
+@Slf4j
+@Service
+public class ResponseBodyStore {
+
+    static final String SUFFIX = ".body";
+    private static final long CLEANUP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Path directory;
+    private final Duration maxAge;
+    private final long maxTotalBytes;
+    private final AtomicLong lastCleanupNanos = new AtomicLong(System.nanoTime() - CLEANUP_INTERVAL_NANOS);
+    private final ExecutorService cleanupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "response-bodies-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ResponseBodyStore() {
+        this(24, 1024);
+    }
+
+    @Autowired
+    public ResponseBodyStore(@Value("${execution.response-bodies.max-age-hours:24}") long maxAgeHours,
+                             @Value("${execution.response-bodies.max-total-mb:1024}") long maxTotalMb) {
+        this(Paths.get(System.getProperty("user.dir")).resolve("data").resolve("response-bodies"),
+                Duration.ofHours(maxAgeHours), maxTotalMb * 1024 * 1024);
+    }
+
+    ResponseBodyStore(Path directory, Duration maxAge, long maxTotalBytes) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * Каталог для новых файлов тел; заодно планирует очистку, если она давно не выполнялась
+     */
+    public Path directory() {
+        long now = System.nanoTime();
+        long last = lastCleanupNanos.get();
+        if (now - last >= CLEANUP_INTERVAL_NANOS && lastCleanupNanos.compareAndSet(last, now)) {
+            cleanupExecutor.execute(this::cleanup);
+        }
+        return directory;
+    }
+
+    /**
+     * Удаляет устаревшие файлы и самые старые из тех, что не помещаются в maxTotalBytes
+     */
+    void cleanup() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Instant expiry = Instant.now().minus(maxAge);
+        try (Stream<Path> files = Files.list(directory)) {
+            List<BodyFile> kept = new ArrayList<>();
+            for (Path file : (Iterable<Path>) files.filter(path -> path.toString().endsWith(SUFFIX))::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                Instant modified = attributes.lastModifiedTime().toInstant();
+                if (modified.isBefore(expiry)) {
+                    Files.deleteIfExists(file);
+                } else {
+                    kept.add(new BodyFile(file, modified, attributes.size()));
+                }
+            }
+            kept.sort(Comparator.comparing(BodyFile::modified).reversed());
+            long total = 0;
+            for (BodyFile file : kept) {
+                total += file.size();
+                if (total > maxTotalBytes) {
+                    Files.deleteIfExists(file.path());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up response bodies in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private record BodyFile(Path path, Instant modified, long size) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupExecutor.shutdownNow();
+    }
+}
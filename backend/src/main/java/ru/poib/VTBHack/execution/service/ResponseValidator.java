@@ -9,10 +9,15 @@ import com.networknt.schema.ValidationMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.poib.VTBHack.execution.model.ValidationResult;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Response;
+import ru.poib.VTBHack.parser.service.SchemaRefResolver;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -21,13 +26,21 @@ import java.util.stream.Collectors;
 @Slf4j
 @Service
 public class ResponseValidator {
+
+    // Предельный размер кэша скомпилированных схем, после которого он сбрасывается
+    private static final int MAX_CACHED_SCHEMAS = 1_000;
     
     private final ObjectMapper objectMapper;
     private final JsonSchemaFactory schemaFactory;
+    // Текст JSON схемы -> скомпилированная схема (одна схема проверяет ответы на каждой итерации)
+    private final Map<String, JsonSchema> compiledSchemas = new ConcurrentHashMap<>();
     
     public ResponseValidator() {
         this.objectMapper = new ObjectMapper();
-        this.schemaFactory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7);
+        // Ссылки схем ответов ведут в общий документ компонентов спецификации: он загружается
+        // и компилируется один раз на спецификацию и затем берется из кэша фабрики
+        this.schemaFactory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7, builder ->
+                builder.schemaLoaders(loaders -> loaders.schemas(SchemaRefResolver::componentsDocument)));
     }
     
     /**
@@ -52,6 +65,19 @@ public class ResponseValidator {
             String responseSchema,
             long responseTimeMs,
             long maxResponseTimeMs) {
+        return validate(statusCode, expectedStatusCode, contentType, expectedContentType,
+                CapturedBody.of(responseBody, objectMapper), responseSchema, responseTimeMs, maxResponseTimeMs);
+    }
+
+    private ValidationResult validate(
+            int statusCode,
+            int expectedStatusCode,
+            String contentType,
+            String expectedContentType,
+            CapturedBody responseBody,
+            String responseSchema,
+            long responseTimeMs,
+            long maxResponseTimeMs) {
         
         ValidationResult result = new ValidationResult();
         result.setErrors(new ArrayList<>());
@@ -72,7 +98,7 @@ public class ResponseValidator {
         }
         
         // Валидация схемы JSON (если предоставлена)
-        if (responseSchema != null && responseBody != null && !responseBody.trim().isEmpty()) {
+        if (responseSchema != null && !isEmpty(responseBody)) {
             ValidationResult.SchemaValidation schemaValidation = validateSchema(responseBody, responseSchema);
             result.setSchemaValidation(schemaValidation);
             if (!schemaValidation.isValid()) {
@@ -99,6 +125,50 @@ public class ResponseValidator {
         return result;
     }
     
+    /**
+     * Валидирует ответ по схеме из OpenAPI: ссылки $ref на components разрешаются
+     * по спецификации, к которой относится схема
+     *
+     * @param responseSchema схема ответа из OpenAPI (может быть null)
+     * @param openApiModel спецификация, содержащая схему
+     */
+    public ValidationResult validate(
+            int statusCode,
+            int expectedStatusCode,
+            String contentType,
+            String expectedContentType,
+            String responseBody,
+            Response.Schema responseSchema,
+            OpenApiModel openApiModel,
+            long responseTimeMs,
+            long maxResponseTimeMs) {
+        String schemaJson = SchemaRefResolver.of(openApiModel).toJsonSchema(responseSchema);
+        return validate(statusCode, expectedStatusCode, contentType, expectedContentType,
+                responseBody, schemaJson, responseTimeMs, maxResponseTimeMs);
+    }
+    
+    /**
+     * Валидирует ответ, тело которого уже разобрано при чтении потока
+     *
+     * @param responseBody тело ответа (может быть null)
+     * @param responseSchema схема ответа из OpenAPI (может быть null)
+     * @param openApiModel спецификация, содержащая схему
+     */
+    public ValidationResult validate(
+            int statusCode,
+            int expectedStatusCode,
+            String contentType,
+            String expectedContentType,
+            CapturedBody responseBody,
+            Response.Schema responseSchema,
+            OpenApiModel openApiModel,
+            long responseTimeMs,
+            long maxResponseTimeMs) {
+        String schemaJson = SchemaRefResolver.of(openApiModel).toJsonSchema(responseSchema);
+        return validate(statusCode, expectedStatusCode, contentType, expectedContentType,
+                responseBody, schemaJson, responseTimeMs, maxResponseTimeMs);
+    }
+    
     private ValidationResult.StatusCodeValidation validateStatusCode(int actual, int expected) {
         ValidationResult.StatusCodeValidation validation = new ValidationResult.StatusCodeValidation();
         validation.setExpectedStatusCode(expected);
@@ -114,7 +184,11 @@ public class ResponseValidator {
         return validation;
     }
     
-    private ValidationResult.ContractValidation validateContract(String actualContentType, String expectedContentType, String responseBody) {
+    private static boolean isEmpty(CapturedBody body) {
+        return body == null || (body.getJson() == null && body.getJsonError() == null);
+    }
+
+    private ValidationResult.ContractValidation validateContract(String actualContentType, String expectedContentType, CapturedBody responseBody) {
         ValidationResult.ContractValidation validation = new ValidationResult.ContractValidation();
         validation.setExpectedContentType(expectedContentType);
         validation.setActualContentType(actualContentType);
@@ -131,17 +205,12 @@ public class ResponseValidator {
         
         // Проверка обязательных полей (базовая проверка на наличие JSON)
         if (expectedContentType != null && expectedContentType.contains("json")) {
-            if (responseBody == null || responseBody.trim().isEmpty()) {
+            if (isEmpty(responseBody)) {
                 errors.add("Expected JSON response body, but got empty body");
-            } else {
-                try {
-                    JsonNode jsonNode = objectMapper.readTree(responseBody);
-                    if (!jsonNode.isObject() && !jsonNode.isArray()) {
-                        errors.add("Response body is not a valid JSON object or array");
-                    }
-                } catch (Exception e) {
-                    errors.add("Response body is not valid JSON: " + e.getMessage());
-                }
+            } else if (responseBody.getJsonError() != null) {
+                errors.add("Response body is not valid JSON: " + responseBody.getJsonError());
+            } else if (!responseBody.getJson().isObject() && !responseBody.getJson().isArray()) {
+                errors.add("Response body is not a valid JSON object or array");
             }
         }
         
@@ -155,13 +224,19 @@ public class ResponseValidator {
         return validation;
     }
     
-    private ValidationResult.SchemaValidation validateSchema(String responseBody, String schemaJson) {
+    private ValidationResult.SchemaValidation validateSchema(CapturedBody responseBody, String schemaJson) {
         ValidationResult.SchemaValidation validation = new ValidationResult.SchemaValidation();
         validation.setSchemaErrors(new ArrayList<>());
         
         try {
-            JsonSchema schema = schemaFactory.getSchema(schemaJson);
-            JsonNode jsonNode = objectMapper.readTree(responseBody);
+            if (compiledSchemas.size() >= MAX_CACHED_SCHEMAS) {
+                compiledSchemas.clear();
+            }
+            JsonSchema schema = compiledSchemas.computeIfAbsent(schemaJson, schemaFactory::getSchema);
+            if (responseBody.getJsonError() != null) {
+                throw new IllegalArgumentException(responseBody.getJsonError());
+            }
+            JsonNode jsonNode = responseBody.getJson();
             Set<ValidationMessage> errors = schema.validate(jsonNode);
             
             if (errors.isEmpty()) {
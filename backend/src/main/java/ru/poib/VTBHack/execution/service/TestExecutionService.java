@@ -1,20 +1,30 @@
 package ru.poib.VTBHack.execution.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.poib.VTBHack.execution.model.*;
 import ru.poib.VTBHack.generator.model.TestDataStep;
 import ru.poib.VTBHack.mapping.model.DataFlowEdge;
 import ru.poib.VTBHack.mapping.model.MappingResult;
 import ru.poib.VTBHack.mapping.model.TaskEndpointMapping;
+import ru.poib.VTBHack.metrics.event.ExecutionPhaseEvent;
+import ru.poib.VTBHack.metrics.service.PerformanceMetrics;
 import ru.poib.VTBHack.parser.model.ProcessModel;
 import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 import ru.poib.VTBHack.parser.model.openapi.Operation;
 import ru.poib.VTBHack.parser.model.openapi.Parameter;
+import ru.poib.VTBHack.parser.model.openapi.Response;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 /**
@@ -29,19 +39,63 @@ public class TestExecutionService {
     private final DataExtractor dataExtractor;
     private final BpmnExecutionEngine bpmnExecutionEngine;
     private final ObjectMapper objectMapper;
+    private final PerformanceMetrics metrics;
+    // Виртуальные потоки для параллельных ветвей процесса: запросы и ожидание ограничителя
+    // блокирующие, но не занимают платформенные потоки
+    private final ExecutorService branchExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("process-branch-", 0).factory());
     
     public TestExecutionService(
             HttpRequestExecutor httpRequestExecutor,
             ResponseValidator responseValidator,
             DataExtractor dataExtractor,
             BpmnExecutionEngine bpmnExecutionEngine) {
+        this(httpRequestExecutor, responseValidator, dataExtractor, bpmnExecutionEngine, PerformanceMetrics.noop());
+    }
+
+    @Autowired
+    public TestExecutionService(
+            HttpRequestExecutor httpRequestExecutor,
+            ResponseValidator responseValidator,
+            DataExtractor dataExtractor,
+            BpmnExecutionEngine bpmnExecutionEngine,
+            PerformanceMetrics metrics) {
         this.httpRequestExecutor = httpRequestExecutor;
         this.responseValidator = responseValidator;
         this.dataExtractor = dataExtractor;
         this.bpmnExecutionEngine = bpmnExecutionEngine;
         this.objectMapper = new ObjectMapper();
+        this.metrics = metrics;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        branchExecutor.shutdownNow();
     }
     
+    /**
+     * Удерживает кассету на время серии прогонов (например, итераций нагрузки): запись
+     * сохраняется, а позиции воспроизведения сбрасываются только после {@link #releaseCassette}
+     */
+    public void holdCassette(ExecutionConfig config, ProcessModel processModel) {
+        resolveCassetteId(config, processModel);
+        httpRequestExecutor.openCassette(config);
+    }
+
+    public void releaseCassette(ExecutionConfig config) {
+        httpRequestExecutor.finishCassette(config);
+    }
+
+    /**
+     * Кассета по умолчанию - по идентификатору процесса
+     */
+    private static void resolveCassetteId(ExecutionConfig config, ProcessModel processModel) {
+        if (config.getCassetteMode() != null && config.getCassetteMode() != ExecutionConfig.CassetteMode.OFF
+                && (config.getCassetteId() == null || config.getCassetteId().isBlank())) {
+            config.setCassetteId(processModel.getId());
+        }
+    }
+
     /**
      * Выполняет тест согласно запросу
      * 
@@ -49,6 +103,16 @@ public class TestExecutionService {
      * @return результат выполнения
      */
     public TestExecutionResult executeTest(TestExecutionRequest request) {
+        return executeTest(request, null);
+    }
+
+    /**
+     * Выполняет тест, записывая задержки шагов в запись вызывающего (например, общую для всех итераций
+     * нагрузочного прогона). Перцентили такой записи в статистику прогона не попадают - их снимает владелец
+     *
+     * @param sharedLatency запись задержек вызывающего или null - своя запись прогона
+     */
+    public TestExecutionResult executeTest(TestExecutionRequest request, LatencyRecorder sharedLatency) {
         Instant startTime = Instant.now();
         TestExecutionResult result = new TestExecutionResult();
         result.setStartTime(startTime);
@@ -62,10 +126,12 @@ public class TestExecutionService {
         
         result.setProcessId(processModel.getId());
         result.setProcessName(processModel.getName());
+        resolveCassetteId(config, processModel);
+        httpRequestExecutor.openCassette(config);
         
         try {
-            // Определяем порядок выполнения шагов
-            List<String> executionOrder = bpmnExecutionEngine.determineExecutionOrder(processModel, mappingResult);
+            // Строим план выполнения: этапы независимых задач и состояние шлюзов
+            ExecutionPlan executionPlan = bpmnExecutionEngine.createExecutionPlan(processModel, mappingResult);
             
             // Получаем тестовые данные для выбранного варианта
             List<TestDataStep> testDataSteps = request.getTestData().getVariants().get(request.getTestDataVariantIndex());
@@ -86,141 +152,92 @@ public class TestExecutionService {
 
             // Контекст для хранения извлеченных данных между шагами
             Map<String, Object> executionContext = new HashMap<>();
+            LatencyRecorder latency = sharedLatency != null ? sharedLatency : new LatencyRecorder();
             
-            // Выполняем каждый шаг последовательно
-            for (String taskId : executionOrder) {
-                // Проверяем, не превышено ли максимальное время выполнения
-                if (Instant.now().toEpochMilli() - startTime.toEpochMilli() > config.getMaxExecutionTimeMs()) {
-                    ExecutionProblem problem = createProblem(
-                            ExecutionProblem.ProblemType.TIMEOUT,
-                            taskId,
-                            "Process execution timeout",
-                            "Maximum execution time exceeded",
-                            null,
-                            null,
-                            null
-                    );
-                    result.getProblems().add(problem);
-                    
-                    if (request.isStopOnFirstError()) {
-                        break;
+            // Выполняем этапы последовательно, ветви parallel gateway внутри этапа — параллельно
+            boolean stopped = false;
+            for (List<String> stage : executionPlan.getStages()) {
+                List<String> tasksToRun = new ArrayList<>();
+                List<String> skippedTasks = new ArrayList<>();
+                for (String taskId : stage) {
+                    // Проверяем, должна ли задача быть выполнена
+                    if (!executionPlan.shouldExecute(taskId)) {
+                        log.debug("Skipping task {} based on gateway conditions", taskId);
+                        TestExecutionStep skippedStep = createSkippedStep(taskId, "Task skipped by gateway condition");
+                        result.getSteps().add(skippedStep);
+                        skippedTasks.add(taskId);
+                        continue;
                     }
-                    continue;
-                }
-                
-                // Проверяем, должна ли задача быть выполнена
-                if (!bpmnExecutionEngine.shouldExecuteTask(taskId, executionContext)) {
-                    log.debug("Skipping task {} based on gateway conditions", taskId);
-                    TestExecutionStep skippedStep = createSkippedStep(taskId, "Task skipped by gateway condition");
-                    result.getSteps().add(skippedStep);
-                    continue;
-                }
-                
-                // Получаем маппинг для задачи (если маппинги отсутствуют, считаем, что сопоставления нет)
-                TaskEndpointMapping mapping = safeTaskMappings.get(taskId);
-
-                // Фолбэк: попробуем найти по совпадению taskId внутри значений
-                if (mapping == null) {
-                    for (TaskEndpointMapping m : safeTaskMappings.values()) {
-                        if (m != null && taskId.equals(m.getTaskId())) {
-                            mapping = m;
-                            log.debug("Found mapping by inner taskId for {} -> {} {}", taskId, m.getEndpointMethod(), m.getEndpointPath());
+                    
+                    // Проверяем, не превышено ли максимальное время выполнения
+                    if (Instant.now().toEpochMilli() - startTime.toEpochMilli() > config.getMaxExecutionTimeMs()) {
+                        ExecutionProblem problem = createProblem(
+                                ExecutionProblem.ProblemType.TIMEOUT,
+                                taskId,
+                                "Process execution timeout",
+                                "Maximum execution time exceeded",
+                                null,
+                                null,
+                                null
+                        );
+                        result.getProblems().add(problem);
+                        // Задача не выполнена, но и не пропущена шлюзом: ее ветвь не закрывается,
+                        // следующие за ней задачи тоже завершатся по таймауту
+                        result.getSteps().add(createTimedOutStep(taskId));
+                        
+                        if (request.isStopOnFirstError()) {
+                            stopped = true;
                             break;
                         }
+                        continue;
                     }
+                    tasksToRun.add(taskId);
                 }
-
-                // Фолбэк: попробуем найти по имени задачи
-                if (mapping == null) {
-                    String taskName = taskIdToName.get(taskId);
-                    if (taskName != null) {
-                        for (TaskEndpointMapping m : safeTaskMappings.values()) {
-                            if (m != null && taskName.equalsIgnoreCase(m.getTaskName())) {
-                                mapping = m;
-                                log.debug("Found mapping by taskName for {} ({}) -> {} {}", taskId, taskName, m.getEndpointMethod(), m.getEndpointPath());
-                                break;
-                            }
-                        }
-                    }
-                }
-                // Фолбэк: синтезируем маппинг из BPMN, если указан METHOD/PATH в имени задачи
-                if (mapping == null) {
-                    ru.poib.VTBHack.parser.model.ProcessTask pTask = taskIdToTask.get(taskId);
-                    if (pTask != null && pTask.getApiEndpointInfo() != null &&
-                            pTask.getApiEndpointInfo().getMethod() != null && pTask.getApiEndpointInfo().getPath() != null) {
-                        TaskEndpointMapping synthetic = new TaskEndpointMapping();
-                        synthetic.setTaskId(pTask.getId());
-                        synthetic.setTaskName(pTask.getName());
-                        synthetic.setEndpointMethod(pTask.getApiEndpointInfo().getMethod().toUpperCase());
-                        synthetic.setEndpointPath(pTask.getApiEndpointInfo().getPath());
-                        synthetic.setConfidenceScore(0.5);
-                        synthetic.setMatchingStrategy("BPMN_NAME_INFERRED");
-                        mapping = synthetic;
-                        log.debug("Synthesized mapping for {} from BPMN: {} {}", taskId, synthetic.getEndpointMethod(), synthetic.getEndpointPath());
-                    }
-                }
-                if (mapping == null) {
-                    log.warn("No mapping found for task {}", taskId);
-                    ExecutionProblem problem = createProblem(
-                            ExecutionProblem.ProblemType.BUSINESS_LOGIC_ERROR,
-                            taskId,
-                            "No endpoint mapping",
-                            "Task has no corresponding API endpoint mapping",
-                            null,
-                            null,
-                            null
-                    );
-                    result.getProblems().add(problem);
-                    continue;
+                if (stopped) {
+                    break;
                 }
                 
-                // Выполняем шаг
-                TestExecutionStep stepResult = executeStep(
+                boolean fanOut = executionPlan.isParallelFanOut(tasksToRun);
+                List<TaskOutcome> outcomes = runStage(tasksToRun, fanOut, executionContext, config, (taskId, context, taskConfig) -> executeTask(
                         taskId,
-                        mapping,
-                        testDataMap.get(taskId),
-                        config,
-                        executionContext,
+                        safeTaskMappings,
+                        taskIdToName,
+                        taskIdToTask,
+                        testDataMap,
+                        taskConfig,
+                        context,
                         mappingResult,
-                        openApiModel
-                );
-                
-                result.getSteps().add(stepResult);
+                        openApiModel,
+                        latency
+                ));
                 
-                if (stepResult.getStatus() == TestExecutionStep.StepStatus.SUCCESS && stepResult.getResponse() != null) {
-                    extractAndStoreData(stepResult, taskId, mappingResult, executionContext, request.getConfig());
-                }
-                if (stepResult.getStatus() == TestExecutionStep.StepStatus.FAILED) {
-                    String message = stepResult.getErrorMessage() != null ? stepResult.getErrorMessage() : "HTTP error";
-                    String details = null;
-                    if (stepResult.getResponse() != null && stepResult.getResponse().getBody() != null) {
-                        String body = stepResult.getResponse().getBody();
-                        details = body.length() > 200 ? body.substring(0, 200) + "..." : body;
+                for (TaskOutcome outcome : outcomes) {
+                    if (outcome.step() != null) {
+                        result.getSteps().add(outcome.step());
                     }
-                    ExecutionProblem.ProblemType type = ExecutionProblem.ProblemType.HTTP_ERROR;
-                    if (message.toLowerCase(java.util.Locale.ROOT).contains("network")) {
-                        type = ExecutionProblem.ProblemType.NETWORK_ERROR;
+                    result.getProblems().addAll(outcome.problems());
+                    if (outcome.failed() && request.isStopOnFirstError()) {
+                        log.info("Stopping execution due to error in step {}", outcome.taskId());
+                        stopped = true;
+                        break;
                     }
-                    ExecutionProblem problem = createProblem(
-                            type,
-                            taskId,
-                            mapping != null ? mapping.getTaskName() : taskId,
-                            message,
-                            details,
-                            stepResult.getRequest() != null ? stepResult.getRequest().getUrl() : null,
-                            stepResult.getRequest() != null ? stepResult.getRequest().getMethod() : null
-                    );
-                    result.getProblems().add(problem);
                 }
-                
-                if (stepResult.getStatus() == TestExecutionStep.StepStatus.FAILED && request.isStopOnFirstError()) {
-                    log.info("Stopping execution due to error in step {}", taskId);
+                if (stopped) {
                     break;
                 }
+                
+                // Продвигаем токены: условия шлюзов вычисляются по данным этого этапа.
+                // Задачи, прерванные по таймауту, не продвигаются
+                for (String taskId : tasksToRun) {
+                    executionPlan.complete(taskId, true, executionContext);
+                }
+                for (String taskId : skippedTasks) {
+                    executionPlan.complete(taskId, false, executionContext);
+                }
             }
             
             // Вычисляем статистику
-            result.setStatistics(calculateStatistics(result));
+            result.setStatistics(calculateStatistics(result, sharedLatency == null ? latency : null));
             
             // Определяем общий статус
             result.setStatus(determineOverallStatus(result));
@@ -239,6 +256,7 @@ public class TestExecutionService {
             result.getProblems().add(problem);
             result.setStatus(TestExecutionResult.ExecutionStatus.FAILED);
         } finally {
+            httpRequestExecutor.finishCassette(config);
             result.setEndTime(Instant.now());
             result.setTotalDurationMs(result.getEndTime().toEpochMilli() - result.getStartTime().toEpochMilli());
         }
@@ -246,6 +264,197 @@ public class TestExecutionService {
         return result;
     }
     
+    /**
+     * Результат обработки одной задачи: шаг (если был выполнен запрос) и найденные проблемы
+     */
+    private record TaskOutcome(String taskId, TestExecutionStep step, List<ExecutionProblem> problems, boolean failed) {
+    }
+    
+    /**
+     * Задача этапа: выполняется на переданных контексте и конфигурации
+     */
+    @FunctionalInterface
+    private interface StageTask {
+        TaskOutcome run(String taskId, Map<String, Object> context, ExecutionConfig config);
+    }
+    
+    /**
+     * Выполняет задачи этапа. По умолчанию задачи идут по очереди с общим контекстом и конфигурацией,
+     * как в обычной последовательности. Ветви parallel gateway (fanOut) запускаются параллельно:
+     * каждая работает со своей копией контекста и конфигурации (токен авторизации, полученный
+     * в одной ветви, не попадает в запросы соседних), а извлеченные данные и токены сливаются
+     * в общее состояние в порядке задач этапа, так что результат не зависит от порядка завершения.
+     */
+    private List<TaskOutcome> runStage(List<String> taskIds,
+                                       boolean fanOut,
+                                       Map<String, Object> executionContext,
+                                       ExecutionConfig config,
+                                       StageTask task) {
+        int parallelism = fanOut ? Math.min(taskIds.size(), Math.max(1, config.getMaxParallelBranches())) : 1;
+        if (parallelism <= 1) {
+            List<TaskOutcome> outcomes = new ArrayList<>();
+            for (String taskId : taskIds) {
+                outcomes.add(task.run(taskId, executionContext, config));
+            }
+            return outcomes;
+        }
+        
+        ExecutionConfig.AuthConfig authBefore = config.getAuthConfig();
+        List<Map<String, Object>> branchContexts = new ArrayList<>();
+        List<ExecutionConfig> branchConfigs = new ArrayList<>();
+        List<CompletableFuture<TaskOutcome>> futures = new ArrayList<>();
+        Semaphore permits = new Semaphore(parallelism);
+        for (String taskId : taskIds) {
+            Map<String, Object> branchContext = new HashMap<>(executionContext);
+            ExecutionConfig branchConfig = config.copy();
+            branchContexts.add(branchContext);
+            branchConfigs.add(branchConfig);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    return task.run(taskId, branchContext, branchConfig);
+                } finally {
+                    permits.release();
+                }
+            }, branchExecutor));
+        }
+        
+        List<TaskOutcome> outcomes = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            outcomes.add(futures.get(i).join());
+            executionContext.putAll(branchContexts.get(i));
+            ExecutionConfig.AuthConfig branchAuth = branchConfigs.get(i).getAuthConfig();
+            if (!Objects.equals(branchAuth, authBefore)) {
+                config.setAuthConfig(branchAuth);
+            }
+        }
+        return outcomes;
+    }
+    
+    /**
+     * Находит маппинг задачи, выполняет шаг и сохраняет извлеченные данные в контекст
+     */
+    private TaskOutcome executeTask(
+            String taskId,
+            Map<String, TaskEndpointMapping> safeTaskMappings,
+            Map<String, String> taskIdToName,
+            Map<String, ru.poib.VTBHack.parser.model.ProcessTask> taskIdToTask,
+            Map<String, TestDataStep> testDataMap,
+            ExecutionConfig config,
+            Map<String, Object> executionContext,
+            MappingResult mappingResult,
+            OpenApiModel openApiModel,
+            LatencyRecorder latency) {
+        // Получаем маппинг для задачи (если маппинги отсутствуют, считаем, что сопоставления нет)
+        TaskEndpointMapping mapping = safeTaskMappings.get(taskId);
+
+        // Фолбэк: попробуем найти по совпадению taskId внутри значений
+        if (mapping == null) {
+            for (TaskEndpointMapping m : safeTaskMappings.values()) {
+                if (m != null && taskId.equals(m.getTaskId())) {
+                    mapping = m;
+                    log.debug("Found mapping by inner taskId for {} -> {} {}", taskId, m.getEndpointMethod(), m.getEndpointPath());
+                    break;
+                }
+            }
+        }
+
+        // Фолбэк: попробуем найти по имени задачи
+        if (mapping == null) {
+            String taskName = taskIdToName.get(taskId);
+            if (taskName != null) {
+                for (TaskEndpointMapping m : safeTaskMappings.values()) {
+                    if (m != null && taskName.equalsIgnoreCase(m.getTaskName())) {
+                        mapping = m;
+                        log.debug("Found mapping by taskName for {} ({}) -> {} {}", taskId, taskName, m.getEndpointMethod(), m.getEndpointPath());
+                        break;
+                    }
+                }
+            }
+        }
+        // Фолбэк: синтезируем маппинг из BPMN, если указан METHOD/PATH в имени задачи
+        if (mapping == null) {
+            ru.poib.VTBHack.parser.model.ProcessTask pTask = taskIdToTask.get(taskId);
+            if (pTask != null && pTask.getApiEndpointInfo() != null &&
+                    pTask.getApiEndpointInfo().getMethod() != null && pTask.getApiEndpointInfo().getPath() != null) {
+                TaskEndpointMapping synthetic = new TaskEndpointMapping();
+                synthetic.setTaskId(pTask.getId());
+                synthetic.setTaskName(pTask.getName());
+                synthetic.setEndpointMethod(pTask.getApiEndpointInfo().getMethod().toUpperCase());
+                synthetic.setEndpointPath(pTask.getApiEndpointInfo().getPath());
+                synthetic.setConfidenceScore(0.5);
+                synthetic.setMatchingStrategy("BPMN_NAME_INFERRED");
+                mapping = synthetic;
+                log.debug("Synthesized mapping for {} from BPMN: {} {}", taskId, synthetic.getEndpointMethod(), synthetic.getEndpointPath());
+            }
+        }
+        if (mapping == null) {
+            log.warn("No mapping found for task {}", taskId);
+            ExecutionProblem problem = createProblem(
+                    ExecutionProblem.ProblemType.BUSINESS_LOGIC_ERROR,
+                    taskId,
+                    "No endpoint mapping",
+                    "Task has no corresponding API endpoint mapping",
+                    null,
+                    null,
+                    null
+            );
+            return new TaskOutcome(taskId, null, List.of(problem), false);
+        }
+        
+        // Выполняем шаг
+        TestExecutionStep stepResult = executeStep(
+                taskId,
+                mapping,
+                testDataMap.get(taskId),
+                config,
+                executionContext,
+                mappingResult,
+                openApiModel
+        );
+        if (stepResult.getEndTime() != null) {
+            latency.record(mapping.getEndpointMethod(), mapping.getEndpointPath(),
+                    Duration.between(stepResult.getStartTime(), stepResult.getEndTime())
+                            .minusMillis(stepResult.getLimiterWaitMs() + stepResult.getConnectionWaitMs()));
+        }
+        
+        if (stepResult.getStatus() == TestExecutionStep.StepStatus.SUCCESS && stepResult.getResponse() != null) {
+            ExecutionPhaseEvent phase = ExecutionPhaseEvent.start(
+                    ExecutionPhaseEvent.EXTRACTION, taskId, mapping.getEndpointMethod(), mapping.getEndpointPath());
+            extractAndStoreData(stepResult, taskId, mappingResult, executionContext, config);
+            phase.finish(stepResult.getResponse().getBodySize());
+        }
+        if (stepResult.getResponse() != null) {
+            // Дерево ответа нужно только для проверки и извлечения; в отчете остается ограниченное тело
+            stepResult.getResponse().setJson(null);
+        }
+        if (stepResult.getStatus() == TestExecutionStep.StepStatus.FAILED) {
+            String message = stepResult.getErrorMessage() != null ? stepResult.getErrorMessage() : "HTTP error";
+            String details = null;
+            if (stepResult.getResponse() != null && stepResult.getResponse().getBody() != null) {
+                String body = stepResult.getResponse().getBody();
+                details = body.length() > 200 ? body.substring(0, 200) + "..." : body;
+            }
+            ExecutionProblem.ProblemType type = ExecutionProblem.ProblemType.HTTP_ERROR;
+            if (message.startsWith(CircuitBreakerRegistry.OPEN_MESSAGE_PREFIX)) {
+                type = ExecutionProblem.ProblemType.CIRCUIT_OPEN;
+            } else if (message.toLowerCase(java.util.Locale.ROOT).contains("network")) {
+                type = ExecutionProblem.ProblemType.NETWORK_ERROR;
+            }
+            ExecutionProblem problem = createProblem(
+                    type,
+                    taskId,
+                    mapping.getTaskName(),
+                    message,
+                    details,
+                    stepResult.getRequest() != null ? stepResult.getRequest().getUrl() : null,
+                    stepResult.getRequest() != null ? stepResult.getRequest().getMethod() : null
+            );
+            return new TaskOutcome(taskId, stepResult, List.of(problem), true);
+        }
+        return new TaskOutcome(taskId, stepResult, List.of(), false);
+    }
+    
     private TestExecutionStep executeStep(
             String taskId,
             TaskEndpointMapping mapping,
@@ -263,44 +472,70 @@ public class TestExecutionService {
         step.setStatus(TestExecutionStep.StepStatus.FAILED);
         
         try {
+            String method = mapping.getEndpointMethod();
+            String path = mapping.getEndpointPath();
+            
             // Получаем Operation из OpenAPI для правильного разделения параметров
-            Operation operation = findOperation(openApiModel, mapping.getEndpointPath(), mapping.getEndpointMethod());
+            Operation operation = findOperation(openApiModel, path, method);
             
             // Формируем URL с query параметрами и подстановкой path
-            String url = buildUrl(config.getBaseUrl(), mapping.getEndpointPath(), executionContext, testData, operation);
+            ExecutionPhaseEvent phase = ExecutionPhaseEvent.start(ExecutionPhaseEvent.URL, taskId, method, path);
+            String url = buildUrl(config.getBaseUrl(), path, executionContext, testData, operation);
+            phase.finish();
             
             // Формируем тело запроса (до формирования заголовков, чтобы извлечь x-* поля)
+            phase = ExecutionPhaseEvent.start(ExecutionPhaseEvent.BODY, taskId, method, path);
             Object requestBody = buildRequestBody(testData, mapping, executionContext, operation);
+            phase.finish();
             
-            // Извлекаем x-* поля из requestData для заголовков
+            // Извлекаем x-* поля из requestData и формируем заголовки
+            // (с учётом данных из предыдущих шагов и зависимостей)
+            phase = ExecutionPhaseEvent.start(ExecutionPhaseEvent.HEADERS, taskId, method, path);
             Map<String, String> xHeaders = extractXHeaders(testData, requestBody, operation);
-            
-            // Формируем заголовки (с учётом данных из предыдущих шагов и зависимостей)
             Map<String, String> headers = buildHeaders(config, mapping, taskId, mappingResult, executionContext, xHeaders, operation, testData);
+            phase.finish();
             
             // Выполняем HTTP запрос
+            phase = ExecutionPhaseEvent.start(ExecutionPhaseEvent.HTTP, taskId, method, path);
             HttpRequestExecutor.ExecutionResult httpResult = httpRequestExecutor.execute(
-                    mapping.getEndpointMethod(),
+                    method,
                     url,
+                    LatencyRecorder.endpointKey(method, path),
                     headers,
                     requestBody,
                     config
             );
+            CapturedBody capturedBody = httpResult.getCapturedBody();
+            long bodySize = capturedBody != null ? capturedBody.getSize() : 0;
+            phase.finish(bodySize);
             
             Instant stepEndTime = Instant.now();
             step.setEndTime(stepEndTime);
             step.setDurationMs(stepEndTime.toEpochMilli() - stepStartTime.toEpochMilli());
+            step.setLimiterWaitMs(httpResult.getLimiterWaitMs());
+            step.setConnectionWaitMs(httpResult.getConnectionWaitMs());
+            // Ожидание ограничителя и пула соединений учитывается отдельно и не искажает задержку сервера
+            metrics.recordStep(method, path, httpResult.getStatusCode(), Duration.between(stepStartTime, stepEndTime)
+                    .minusMillis(httpResult.getLimiterWaitMs() + httpResult.getConnectionWaitMs()));
+            if (httpResult.getLimiterWaitMs() > 0) {
+                metrics.recordLimiterWait(method, path, Duration.ofMillis(httpResult.getLimiterWaitMs()));
+            }
+            if (httpResult.getConnectionWaitMs() > 0) {
+                metrics.recordConnectionWait(method, path, Duration.ofMillis(httpResult.getConnectionWaitMs()));
+            }
             
             // Сохраняем детали запроса
             TestExecutionStep.RequestDetails requestDetails = new TestExecutionStep.RequestDetails();
             requestDetails.setUrl(url);
-            requestDetails.setMethod(mapping.getEndpointMethod());
+            requestDetails.setMethod(method);
             requestDetails.setHeaders(headers);
+            phase = ExecutionPhaseEvent.start(ExecutionPhaseEvent.SERIALIZATION, taskId, method, path);
             try {
                 requestDetails.setBody(requestBody != null ? objectMapper.writeValueAsString(requestBody) : null);
             } catch (Exception e) {
                 requestDetails.setBody(requestBody != null ? requestBody.toString() : null);
             }
+            phase.finish(requestDetails.getBody());
             requestDetails.setTimestamp(stepStartTime);
             step.setRequest(requestDetails);
             
@@ -315,23 +550,35 @@ public class TestExecutionService {
             responseDetails.setStatusCode(httpResult.getStatusCode());
             responseDetails.setHeaders(httpResult.getHeaders());
             responseDetails.setBody(httpResult.getBody());
+            if (capturedBody != null) {
+                responseDetails.setBodySize(capturedBody.getSize());
+                responseDetails.setBodyTruncated(capturedBody.isTruncated());
+                responseDetails.setBodyFile(capturedBody.getFile());
+                responseDetails.setJson(capturedBody.getJson());
+            }
             responseDetails.setResponseTimeMs(httpResult.getDurationMs());
             responseDetails.setTimestamp(stepEndTime);
             step.setResponse(responseDetails);
             
             // Валидируем ответ
+            phase = ExecutionPhaseEvent.start(ExecutionPhaseEvent.VALIDATION, taskId, method, path);
             String contentType = httpResult.getHeaders() != null ? 
                     httpResult.getHeaders().get("Content-Type") : null;
+            Response.Schema responseSchema = config.isValidateResponseSchema()
+                    ? findResponseSchema(operation, httpResult.getStatusCode())
+                    : null;
             ValidationResult validation = responseValidator.validate(
                     httpResult.getStatusCode(),
                     200, // Ожидаемый статус код (можно сделать настраиваемым)
                     contentType,
                     "application/json", // Ожидаемый Content-Type (можно сделать настраиваемым)
-                    httpResult.getBody(),
-                    null, // JSON схема (можно извлечь из OpenAPI)
+                    capturedBody,
+                    responseSchema,
+                    openApiModel,
                     httpResult.getDurationMs(),
                     config.getRequestTimeoutMs()
             );
+            phase.finish(bodySize);
             step.setValidation(validation);
             
             // Определяем статус шага
@@ -357,6 +604,24 @@ public class TestExecutionService {
         return step;
     }
     
+    /**
+     * Находит JSON схему ответа операции для полученного статуса (или default)
+     */
+    private Response.Schema findResponseSchema(Operation operation, int statusCode) {
+        if (operation == null || operation.getResponses() == null) {
+            return null;
+        }
+        Response response = operation.getResponses().get(String.valueOf(statusCode));
+        if (response == null) {
+            response = operation.getResponses().get("default");
+        }
+        if (response == null || response.getContent() == null) {
+            return null;
+        }
+        Response.MediaType mediaType = response.getContent().get("application/json");
+        return mediaType != null ? mediaType.getSchema() : null;
+    }
+
     /**
      * Находит Operation из OpenAPI по path и method
      */
@@ -889,9 +1154,10 @@ public class TestExecutionService {
     }
     
     private void extractAndStoreData(TestExecutionStep step, String taskId, MappingResult mappingResult, Map<String, Object> context, ExecutionConfig config) {
-        if (step.getResponse() == null || step.getResponse().getBody() == null) {
+        if (step.getResponse() == null || step.getResponse().getJson() == null) {
             return;
         }
+        com.fasterxml.jackson.databind.JsonNode document = step.getResponse().getJson();
         
         // Получаем зависимости данных для этой задачи
         List<DataFlowEdge> dataDependencies = bpmnExecutionEngine.getDataDependencies(taskId, mappingResult);
@@ -912,7 +1178,7 @@ public class TestExecutionService {
         }
         
         // Извлекаем данные
-        Map<String, Object> extractedData = dataExtractor.extractData(step.getResponse().getBody(), jsonPaths);
+        Map<String, Object> extractedData = dataExtractor.extractData(document, jsonPaths);
         step.setExtractedData(extractedData);
         
         // Сохраняем в контекст для следующих шагов
@@ -923,9 +1189,7 @@ public class TestExecutionService {
 
         // Дополнительно: если ответ содержит access_token, сохраняем его в конфигурацию авторизации
         try {
-            String rawBody = step.getResponse().getBody();
-            if (rawBody == null) return;
-            com.fasterxml.jackson.databind.JsonNode root = objectMapper.readTree(rawBody);
+            com.fasterxml.jackson.databind.JsonNode root = document;
             // Если корневой узел — строка с вложенным JSON, парсим повторно
             if (root != null && root.isTextual()) {
                 String text = root.asText();
@@ -976,6 +1240,17 @@ public class TestExecutionService {
         return step;
     }
     
+    private TestExecutionStep createTimedOutStep(String taskId) {
+        TestExecutionStep step = new TestExecutionStep();
+        step.setTaskId(taskId);
+        step.setStatus(TestExecutionStep.StepStatus.FAILED);
+        step.setStartTime(Instant.now());
+        step.setEndTime(Instant.now());
+        step.setDurationMs(0);
+        step.setErrorMessage("Process execution timeout");
+        return step;
+    }
+    
     private ExecutionProblem createProblem(
             ExecutionProblem.ProblemType type,
             String stepId,
@@ -997,7 +1272,7 @@ public class TestExecutionService {
         return problem;
     }
     
-    private TestExecutionResult.ExecutionStatistics calculateStatistics(TestExecutionResult result) {
+    private TestExecutionResult.ExecutionStatistics calculateStatistics(TestExecutionResult result, LatencyRecorder latency) {
         TestExecutionResult.ExecutionStatistics stats = new TestExecutionResult.ExecutionStatistics();
         
         int totalSteps = result.getSteps().size();
@@ -1044,6 +1319,10 @@ public class TestExecutionService {
         stats.setMaxStepDurationMs(maxDuration);
         stats.setSuccessfulRequests(successfulRequests);
         stats.setValidationErrors(validationErrors);
+        if (latency != null) {
+            stats.setLatency(latency.runStatistics());
+            stats.setEndpointLatency(latency.endpointStatistics());
+        }
         
         return stats;
     }
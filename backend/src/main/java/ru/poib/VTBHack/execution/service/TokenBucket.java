@@ -0,0 +1,64 @@
+package ru.poib.VTBHack.execution.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничитель интенсивности "токен-бакет" в форме GCRA: состояние - одно теоретическое время
+ * следующего запроса, резервирование выполняется CAS без блокировок. Вызывающий получает время
+ * ожидания и сам ждет, не удерживая никаких блокировок.
+ * Интенсивность передается при каждом резервировании: прогоны с разными лимитами делят
+ * одну шкалу времени хоста, и каждый соблюдает на ней свой интервал.
+ */
+final class TokenBucket {
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+    private volatile long lastUsedNanos;
+
+    /**
+     * Резервирует разрешение на запрос
+     *
+     * @param requestsPerSecond средняя интенсивность
+     * @param burst             сколько запросов можно выполнить подряд без ожидания
+     * @return сколько наносекунд нужно подождать до запроса или -1, если ожидание
+     *         превысило бы maxWaitNanos (в этом случае разрешение не резервируется)
+     */
+    long reserve(long nowNanos, long maxWaitNanos, double requestsPerSecond, int burst) {
+        long intervalNanos = intervalNanos(requestsPerSecond);
+        long toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = tat == Long.MIN_VALUE || tat - nowNanos < 0 ? nowNanos : tat;
+            long wait = Math.max(0, base - toleranceNanos - nowNanos);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + intervalNanos)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Возвращает резервирование, запрос по которому не состоялся
+     */
+    void refund(double requestsPerSecond) {
+        theoreticalArrival.addAndGet(-intervalNanos(requestsPerSecond));
+    }
+
+    void touch(long nowNanos) {
+        lastUsedNanos = nowNanos;
+    }
+
+    /**
+     * Бакет не использовался дольше idleNanos и не несет резервирований в будущем
+     */
+    boolean isIdle(long nowNanos, long idleNanos) {
+        long tat = theoreticalArrival.get();
+        return nowNanos - lastUsedNanos > idleNanos && (tat == Long.MIN_VALUE || tat - nowNanos < 0);
+    }
+
+    private static long intervalNanos(double requestsPerSecond) {
+        return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+    }
+}
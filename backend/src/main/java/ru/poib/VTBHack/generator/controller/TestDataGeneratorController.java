@@ -1,7 +1,10 @@
 package ru.poib.VTBHack.generator.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.AllArgsConstructor;
 
@@ -10,8 +13,11 @@ import org.slf4j.LoggerFactory;
 import ru.poib.VTBHack.generator.model.GenerationType;
 import ru.poib.VTBHack.generator.model.TestDataGenerationRequest;
 import ru.poib.VTBHack.generator.model.TestDataGenerationResult;
+import ru.poib.VTBHack.generator.model.TestDataVariant;
 import ru.poib.VTBHack.generator.service.TestDataGeneratorService;
 
+import java.util.Iterator;
+
 /**
  * REST контроллер для генерации тестовых данных
  */
@@ -20,7 +26,10 @@ import ru.poib.VTBHack.generator.service.TestDataGeneratorService;
 @CrossOrigin(origins = "*")
 @AllArgsConstructor
 public class TestDataGeneratorController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final TestDataGeneratorService generatorService;
+    private final ObjectMapper objectMapper;
     private static final Logger log = LoggerFactory.getLogger(TestDataGeneratorController.class);
     
     /**
@@ -48,6 +57,26 @@ public class TestDataGeneratorController {
         }
     }
     
+    /**
+     * Потоковая генерация: по одному варианту ({@link TestDataVariant}) на строку NDJSON.
+     * Подходит для десятков тысяч вариантов - в памяти держится только текущая пачка
+     * 
+     * @param request запрос на генерацию данных
+     */
+    @PostMapping("/generate/stream")
+    public ResponseEntity<StreamingResponseBody> streamTestData(
+            @RequestBody TestDataGenerationRequest request) {
+        Iterator<TestDataVariant> variants = generatorService.streamVariants(request);
+        StreamingResponseBody body = out -> {
+            while (variants.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(variants.next()));
+                out.write('\n');
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
     /**
      * Получает доступные типы генерации
      */
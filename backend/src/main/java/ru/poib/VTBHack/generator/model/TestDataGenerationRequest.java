@@ -6,6 +6,8 @@ import lombok.NoArgsConstructor;
 import ru.poib.VTBHack.mapping.model.MappingResult;
 import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 
+import java.util.Set;
+
 /**
  * Запрос на генерацию тестовых данных
  */
@@ -37,6 +39,16 @@ public class TestDataGenerationRequest {
      * Количество вариантов данных для генерации
      */
     private int variantsCount = 1;
-}
 
+    /**
+     * Seed генерации для воспроизводимых данных (если не задан, выбирается случайно
+     * и возвращается в результате)
+     */
+    private Long seed;
 
+    /**
+     * Виды полей, значения которых не должны повторяться во всех вариантах прогона
+     * (по умолчанию уникальность не проверяется)
+     */
+    private Set<UniqueFieldType> uniqueFields;
+}
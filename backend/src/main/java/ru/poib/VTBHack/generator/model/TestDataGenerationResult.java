@@ -40,6 +40,11 @@ public class TestDataGenerationResult {
      * Статистика генерации
      */
     private GenerationStatistics statistics;
+
+    /**
+     * Seed прогона; вариант i воспроизводится контекстом GenerationContext.seeded(seed).forVariant(i)
+     */
+    private Long seed;
     
     /**
      * Статистика генерации
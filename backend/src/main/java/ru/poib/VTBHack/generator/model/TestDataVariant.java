@@ -0,0 +1,30 @@
+package ru.poib.VTBHack.generator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Один вариант тестовых данных при потоковой генерации
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestDataVariant {
+    /**
+     * Порядковый номер варианта
+     */
+    private int index;
+
+    /**
+     * Seed варианта: GenerationContext.seeded(seed) воспроизводит его данные
+     */
+    private long seed;
+
+    /**
+     * Данные для всех шагов процесса
+     */
+    private List<TestDataStep> steps;
+}
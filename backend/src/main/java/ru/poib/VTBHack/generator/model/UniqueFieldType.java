@@ -0,0 +1,18 @@
+package ru.poib.VTBHack.generator.model;
+
+/**
+ * Виды полей, для которых можно потребовать уникальность значений в пределах прогона
+ */
+public enum UniqueFieldType {
+    ID,
+    UUID,
+    EMAIL,
+    PHONE,
+    INN,
+    SNILS,
+    PASSPORT,
+    /**
+     * Расчетные и корреспондентские счета (общее пространство значений)
+     */
+    ACCOUNT
+}
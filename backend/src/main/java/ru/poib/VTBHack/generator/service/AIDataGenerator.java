@@ -33,6 +33,13 @@ public class AIDataGenerator {
     public List<TestDataStep> generateTestData(MappingResult mappingResult, 
                                                 OpenApiModel openApiModel,
                                                 String scenario) {
+        return generateTestData(mappingResult, openApiModel, scenario, GenerationContext.unseeded());
+    }
+
+    public List<TestDataStep> generateTestData(MappingResult mappingResult,
+                                                OpenApiModel openApiModel,
+                                                String scenario,
+                                                GenerationContext ctx) {
         // Заглушка: пока что используем классическую генерацию
         // В будущем здесь будет:
         // 1. Анализ контекста бизнес-процесса
@@ -40,8 +47,16 @@ public class AIDataGenerator {
         // 3. Генерация реалистичных текстов на русском языке
         // 4. Использование ONNX Runtime + GPT-2/GPT-J для текстовой генерации
         
-        return classicDataGenerator.generateTestData(mappingResult, openApiModel, scenario);
+        return classicDataGenerator.generateTestData(mappingResult, openApiModel, scenario, ctx);
     }
-}
-
 
+    /**
+     * Генерирует тестовые данные по скомпилированному плану
+     */
+    public List<TestDataStep> generateTestData(GenerationPlan plan,
+                                                String scenario,
+                                                GenerationContext ctx) {
+        // Заглушка: пока что используем классическую генерацию
+        return classicDataGenerator.generateTestData(plan, scenario, ctx);
+    }
+}
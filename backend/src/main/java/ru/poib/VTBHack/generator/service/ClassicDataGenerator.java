@@ -10,15 +10,19 @@ import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 import ru.poib.VTBHack.parser.model.openapi.Operation;
 import ru.poib.VTBHack.parser.model.openapi.Parameter;
 import ru.poib.VTBHack.parser.model.openapi.Response;
+import ru.poib.VTBHack.parser.service.SchemaRefResolver;
 
 import java.util.*;
-import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Классический генератор тестовых данных на основе правил и шаблонов
  */
 @Component
 public class ClassicDataGenerator {
+    private static final Pattern PATH_PARAMETER = Pattern.compile("\\{([^}]+)\\}");
+
     private final SchemaDataGenerator schemaDataGenerator;
     private final SmartFieldGenerator smartFieldGenerator;
     
@@ -35,87 +39,89 @@ public class ClassicDataGenerator {
     public List<TestDataStep> generateTestData(MappingResult mappingResult, 
                                                 OpenApiModel openApiModel,
                                                 String scenario) {
-        List<TestDataStep> steps = new ArrayList<>();
-        
+        return generateTestData(mappingResult, openApiModel, scenario, GenerationContext.unseeded());
+    }
+
+
+    /**
+     * Генерирует тестовые данные для всех шагов процесса; одинаковый seed контекста
+     * дает одинаковые данные
+     */
+    public List<TestDataStep> generateTestData(MappingResult mappingResult,
+                                                OpenApiModel openApiModel,
+                                                String scenario,
+                                                GenerationContext ctx) {
+        return generateTestData(compile(mappingResult, openApiModel), scenario, ctx);
+    }
+
+    /**
+     * Компилирует результат маппинга в план генерации: операции, схемы, размещение
+     * переопределений и зависимости находятся один раз, а не для каждого варианта
+     */
+    public GenerationPlan compile(MappingResult mappingResult, OpenApiModel openApiModel) {
+        List<GenerationPlan.StepPlan> steps = new ArrayList<>();
         if (mappingResult == null || mappingResult.getTaskMappings() == null) {
-            return steps;
+            return new GenerationPlan(steps);
         }
-        
+        for (Map.Entry<String, TaskEndpointMapping> entry : mappingResult.getTaskMappings().entrySet()) {
+            steps.add(compileStep(entry.getKey(), entry.getValue(), openApiModel, mappingResult.getDataFlowEdges()));
+        }
+        return new GenerationPlan(steps);
+    }
+
+    /**
+     * Выполняет план: генерирует данные для всех шагов процесса.
+     * План не изменяется, поэтому один план можно выполнять параллельно для разных вариантов
+     */
+    public List<TestDataStep> generateTestData(GenerationPlan plan,
+                                                String scenario,
+                                                GenerationContext ctx) {
+        List<TestDataStep> steps = new ArrayList<>(plan.size());
+
         // Создаем маппинг для хранения сгенерированных данных из предыдущих шагов
         Map<String, Map<String, Object>> stepResponseData = new HashMap<>();
-        
-        // Генерируем данные для каждой задачи
-        for (Map.Entry<String, TaskEndpointMapping> entry : mappingResult.getTaskMappings().entrySet()) {
-            String taskId = entry.getKey();
-            TaskEndpointMapping mapping = entry.getValue();
-            
-            TestDataStep step = generateStepData(taskId, mapping, openApiModel, 
-                                                mappingResult.getDataFlowEdges(), 
-                                                stepResponseData, scenario);
+
+        for (GenerationPlan.StepPlan stepPlan : plan.steps()) {
+            TestDataStep step = executeStep(stepPlan, stepResponseData, ctx);
             steps.add(step);
-            
+
             // Сохраняем response данные для использования в следующих шагах
             if (step.getResponseData() != null) {
-                stepResponseData.put(taskId, step.getResponseData());
+                stepResponseData.put(stepPlan.taskId(), step.getResponseData());
             }
         }
-        
+
         return steps;
     }
-    
+
     /**
-     * Генерирует данные для одного шага
+     * Компилирует план одного шага
      */
-    private TestDataStep generateStepData(String taskId, 
-                                         TaskEndpointMapping mapping,
-                                         OpenApiModel openApiModel,
-                                         List<DataFlowEdge> dataFlowEdges,
-                                         Map<String, Map<String, Object>> previousStepData,
-                                         String scenario) {
-        TestDataStep step = new TestDataStep();
-        step.setTaskId(taskId);
-        step.setTaskName(mapping.getTaskName());
-        
+    private GenerationPlan.StepPlan compileStep(String taskId,
+                                                TaskEndpointMapping mapping,
+                                                OpenApiModel openApiModel,
+                                                List<DataFlowEdge> dataFlowEdges) {
+        String endpointPath = mapping.getEndpointPath();
+        String endpointMethod = mapping.getEndpointMethod();
+
         // Находим Operation для этого эндпоинта
-        Operation operation = findOperation(openApiModel, mapping.getEndpointPath(), mapping.getEndpointMethod());
-        
-        // Генерируем request и query данные (даже если operation null)
-        generateRequestData(step, operation, openApiModel, dataFlowEdges,
-                taskId, previousStepData, scenario,
-                mapping.getEndpointPath(),
-                mapping.getEndpointMethod(),
-                mapping.getCustomRequestData());
-        
-        // responseData не генерируется здесь - этим занимается другой модуль
-        step.setResponseData(new HashMap<>());
-        
-        // Определяем зависимости данных
-        Map<String, String> dependencies = extractDependencies(dataFlowEdges, taskId);
-        step.setDataDependencies(dependencies);
-        
-        return step;
-    }
-    
-    /**
-     * Генерирует request данные на основе Operation
-     */
-    private void generateRequestData(TestDataStep step,
-                                     Operation operation,
-                                     OpenApiModel openApiModel,
-                                     List<DataFlowEdge> dataFlowEdges,
-                                     String taskId,
-                                     Map<String, Map<String, Object>> previousStepData,
-                                     String scenario,
-                                     String endpointPath,
-                                     String endpointMethod,
-                                     Map<String, Object> requestOverrides) {
-        Map<String, Object> requestData = new HashMap<>();
-        Map<String, Object> queryParams = new HashMap<>();
-        
-        // Извлекаем path parameters из endpointPath (например, {account_id} -> account_id)
-        extractPathParameters(endpointPath, requestData, taskId, dataFlowEdges, previousStepData);
-        
-        // Обрабатываем parameters из Operation
+        Operation operation = findOperation(openApiModel, endpointPath, endpointMethod);
+        SchemaRefResolver resolver = SchemaRefResolver.of(openApiModel);
+
+        // Path parameters из endpointPath (например, {account_id} -> account_id)
+        List<GenerationPlan.PathParamPlan> pathParams = new ArrayList<>();
+        if (endpointPath != null) {
+            Matcher matcher = PATH_PARAMETER.matcher(endpointPath);
+            while (matcher.find()) {
+                String paramName = matcher.group(1);
+                // Убираем подчеркивания для умной генерации
+                pathParams.add(new GenerationPlan.PathParamPlan(paramName, paramName.replace("_", ""),
+                        dependencySources(paramName, taskId, dataFlowEdges)));
+            }
+        }
+
+        // Parameters из Operation
+        List<GenerationPlan.ParamPlan> params = new ArrayList<>();
         Set<String> queryNames = new HashSet<>();
         Set<String> pathNames = new HashSet<>();
         Set<String> headerNames = new HashSet<>();
@@ -128,284 +134,323 @@ public class ClassicDataGenerator {
                 } else if ("path".equalsIgnoreCase(paramIn)) {
                     pathNames.add(paramName);
                 } else if ("header".equalsIgnoreCase(paramIn)) {
+                    // header параметры не должны попадать в requestData или queryParams
                     headerNames.add(paramName);
-                }
-                
-                // Пропускаем path параметры, так как они уже обработаны в extractPathParameters
-                if ("path".equalsIgnoreCase(paramIn) && requestData.containsKey(paramName)) {
                     continue;
                 }
-                
-                // Пропускаем header параметры - они не должны попадать в requestData или queryParams
-                if ("header".equalsIgnoreCase(paramIn)) {
-                    continue;
-                }
-                
-                if (param.isRequired() || new Random().nextBoolean()) {
-                    // Проверяем, есть ли зависимость от предыдущих шагов
-                    Object value = resolveDependency(paramName, taskId, dataFlowEdges, previousStepData);
-                    
-                    if (value == null) {
-                        // Генерируем новое значение
-                        if (param.getSchema() != null) {
-                            // Используем Schema из Parameter
-                            Response.Schema schema = convertParameterSchema(param.getSchema());
-                            value = schemaDataGenerator.generateFromSchema(schema, paramName, param.getDescription());
-                        } else if (param.getExample() != null) {
-                            value = param.getExample();
-                        } else {
-                            value = smartFieldGenerator.generateByFieldName(paramName, param.getDescription(), 
-                                                                          null, null);
-                        }
+                params.add(new GenerationPlan.ParamPlan(paramName,
+                        "query".equalsIgnoreCase(paramIn),
+                        "path".equalsIgnoreCase(paramIn),
+                        param.isRequired(),
+                        dependencySources(paramName, taskId, dataFlowEdges),
+                        param.getSchema() != null ? resolver.resolveParameter(param.getSchema()) : null,
+                        param.getExample(),
+                        param.getDescription()));
+            }
+        }
+
+        boolean hasRequestBody = operation != null && operation.getRequestBody() != null;
+
+        // requestBody генерируется только если он определён в OpenAPI
+        GenerationPlan.BodyPlan body = null;
+        if (("POST".equalsIgnoreCase(endpointMethod) || "PUT".equalsIgnoreCase(endpointMethod)) && hasRequestBody) {
+            body = compileRequestBody(operation, resolver);
+        }
+
+        // Переопределения пользователя с размещением по OpenAPI или эвристике
+        List<GenerationPlan.OverridePlan> overrides = new ArrayList<>();
+        Map<String, Object> requestOverrides = mapping.getCustomRequestData();
+        if (requestOverrides != null) {
+            for (Map.Entry<String, Object> e : requestOverrides.entrySet()) {
+                String key = e.getKey();
+                GenerationPlan.OverrideTarget target;
+                if (queryNames.contains(key)) {
+                    target = GenerationPlan.OverrideTarget.QUERY;
+                } else if (pathNames.contains(key)) {
+                    // path-параметры идут в requestData (для подстановки в URL)
+                    target = GenerationPlan.OverrideTarget.REQUEST_DATA;
+                } else if (headerNames.contains(key)) {
+                    // header параметры будут обработаны отдельно при формировании заголовков
+                    target = GenerationPlan.OverrideTarget.HEADER;
+                } else {
+                    Placement placement = determinePlacementForOverride(key, operation, openApiModel,
+                            endpointPath, endpointMethod, queryNames);
+                    if (placement == Placement.QUERY) {
+                        target = GenerationPlan.OverrideTarget.QUERY;
+                    } else if (placement == Placement.PATH || hasRequestBody) {
+                        target = GenerationPlan.OverrideTarget.REQUEST_DATA;
+                    } else {
+                        // Если нет requestBody, возможно это query параметр
+                        target = GenerationPlan.OverrideTarget.QUERY;
                     }
-                    
-                    // Query параметры идут в queryParams, остальные (кроме header) - в requestData
-                    // Но только если это не query и не header
-                    if ("query".equalsIgnoreCase(paramIn)) {
-                        queryParams.put(paramName, value);
-                    } else if (!"header".equalsIgnoreCase(paramIn)) {
-                        // Только если это не header и не query
-                        requestData.put(paramName, value);
+                }
+                overrides.add(new GenerationPlan.OverridePlan(key, e.getValue(), target));
+            }
+        }
+
+        return new GenerationPlan.StepPlan(taskId,
+                mapping.getTaskName(),
+                pathParams,
+                params,
+                Collections.unmodifiableSet(pathNames),
+                Collections.unmodifiableSet(headerNames),
+                body,
+                basicData(endpointPath, endpointMethod),
+                overrides,
+                operation != null,
+                hasRequestBody,
+                "GET".equalsIgnoreCase(endpointMethod),
+                Collections.unmodifiableMap(extractDependencies(dataFlowEdges, taskId)));
+    }
+
+    /**
+     * Выбирает схему requestBody: application/json или первый доступный медиа-тип
+     */
+    private GenerationPlan.BodyPlan compileRequestBody(Operation operation, SchemaRefResolver resolver) {
+        Map<String, Object> content = operation.getRequestBody().getContent();
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
+        Object media = content.get("application/json");
+        if (media == null) {
+            media = content.values().iterator().next();
+        }
+        if (!(media instanceof Map<?, ?> mt)) {
+            return null;
+        }
+        Response.Schema schema = resolver.resolveRaw(mt.get("schema"));
+        if (schema != null) {
+            return new GenerationPlan.BodyPlan(GenerationPlan.BodyKind.SCHEMA, schema);
+        }
+        // Фолбэк: если нет явной схемы — эвристики по summary
+        String summary = operation.getSummary() != null ? operation.getSummary().toLowerCase() : "";
+        if (summary.contains("payment")) {
+            return new GenerationPlan.BodyPlan(GenerationPlan.BodyKind.PAYMENT_SUMMARY, null);
+        }
+        if (summary.contains("auth")) {
+            return new GenerationPlan.BodyPlan(GenerationPlan.BodyKind.AUTH_SUMMARY, null);
+        }
+        return null;
+    }
+
+    /**
+     * Базовые данные на основе пути и метода, если ничего не сгенерировано
+     */
+    private static GenerationPlan.BasicData basicData(String endpointPath, String endpointMethod) {
+        if (endpointPath == null) {
+            return GenerationPlan.BasicData.NONE;
+        }
+        String pathLower = endpointPath.toLowerCase();
+        if (pathLower.contains("payment")) {
+            return GenerationPlan.BasicData.PAYMENT;
+        }
+        // Для GET запросов по счетам обычно не нужен body, но можем добавить параметры пагинации
+        if (pathLower.contains("account") && "GET".equalsIgnoreCase(endpointMethod)) {
+            return GenerationPlan.BasicData.ACCOUNT_LISTING;
+        }
+        return GenerationPlan.BasicData.NONE;
+    }
+
+    /**
+     * Задачи, из ответов которых берется значение поля (в порядке DataFlowEdge)
+     */
+    private static List<String> dependencySources(String fieldName, String taskId, List<DataFlowEdge> dataFlowEdges) {
+        if (dataFlowEdges == null) {
+            return List.of();
+        }
+        List<String> sources = new ArrayList<>();
+        for (DataFlowEdge edge : dataFlowEdges) {
+            if (edge.getTargetTaskId().equals(taskId) &&
+                edge.getFields() != null &&
+                edge.getFields().contains(fieldName)) {
+                sources.add(edge.getSourceTaskId());
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Выполняет план одного шага
+     */
+    private TestDataStep executeStep(GenerationPlan.StepPlan plan,
+                                     Map<String, Map<String, Object>> previousStepData,
+                                     GenerationContext ctx) {
+        TestDataStep step = new TestDataStep();
+        step.setTaskId(plan.taskId());
+        step.setTaskName(plan.taskName());
+
+        Map<String, Object> requestData = new HashMap<>();
+        Map<String, Object> queryParams = new HashMap<>();
+
+        for (GenerationPlan.PathParamPlan pathParam : plan.pathParams()) {
+            // Проверяем, есть ли зависимость от предыдущих шагов
+            Object value = resolveDependency(pathParam.name(), pathParam.sources(), previousStepData);
+            if (value == null) {
+                value = smartFieldGenerator.generateByFieldName(pathParam.generatorFieldName(), null, "string", null, ctx);
+            }
+            requestData.put(pathParam.name(), value);
+        }
+
+        for (GenerationPlan.ParamPlan param : plan.params()) {
+            // Пропускаем path параметры, уже извлеченные из шаблона пути
+            if (param.path() && requestData.containsKey(param.name())) {
+                continue;
+            }
+            if (param.required() || ctx.nextBoolean()) {
+                Object value = resolveDependency(param.name(), param.sources(), previousStepData);
+                if (value == null) {
+                    if (param.schema() != null) {
+                        value = schemaDataGenerator.generateFromSchema(param.schema(), param.name(), param.description(), ctx);
+                    } else if (param.example() != null) {
+                        value = param.example();
+                    } else {
+                        value = smartFieldGenerator.generateByFieldName(param.name(), param.description(),
+                                                                      null, null, ctx);
                     }
                 }
+                // Query параметры идут в queryParams, остальные - в requestData
+                if (param.query()) {
+                    queryParams.put(param.name(), value);
+                } else {
+                    requestData.put(param.name(), value);
+                }
             }
         }
-        
-        // Генерируем requestBody только если он определён в OpenAPI (operation.requestBody присутствует)
-        if (("POST".equalsIgnoreCase(endpointMethod) || "PUT".equalsIgnoreCase(endpointMethod))
-                && operation != null && operation.getRequestBody() != null) {
-            generateRequestBody(operation, requestData, taskId, dataFlowEdges, previousStepData);
+
+        if (plan.body() != null) {
+            generateRequestBody(plan.body(), requestData, ctx);
         }
-        
+
         // Если данных все еще нет, генерируем базовые данные на основе метода и пути
         if (requestData.isEmpty() && queryParams.isEmpty()) {
-            generateBasicRequestData(endpointPath, endpointMethod, requestData);
+            generateBasicRequestData(plan.basicData(), requestData, ctx);
         }
 
         // Применяем пользовательские переопределения: если пользователь указал значения,
         // они должны сохраняться, а недостающие поля — генерироваться автоматически.
-        if (requestOverrides != null && !requestOverrides.isEmpty()) {
-            // Переопределяем / добавляем значения из requestOverrides с учетом размещения
-            for (Map.Entry<String, Object> e : requestOverrides.entrySet()) {
-                String key = e.getKey();
-                Object val = e.getValue();
-                
-                // Проверяем, является ли параметр query/path/header согласно OpenAPI
-                boolean isQuery = queryNames.contains(key);
-                boolean isPath = pathNames.contains(key);
-                boolean isHeader = headerNames.contains(key);
-                
-                // Если параметр определен в OpenAPI, используем его размещение
-                if (isQuery) {
-                    queryParams.put(key, val);
-                    // Удаляем из requestData, если там есть
-                    requestData.remove(key);
-                } else if (isPath) {
-                    // path-параметры идут в requestData (для подстановки в URL)
-                    requestData.put(key, val);
-                } else if (isHeader) {
-                    // header параметры не должны попадать ни в requestData, ни в queryParams
-                    // Они будут обработаны отдельно при формировании заголовков
-                    requestData.remove(key);
-                } else {
-                    // Если параметр не определен в OpenAPI, определяем размещение эвристически
-                    Placement placement = determinePlacementForOverride(key, operation, openApiModel, endpointPath, endpointMethod, queryNames);
-                    if (placement == Placement.QUERY) {
-                        queryParams.put(key, val);
-                        requestData.remove(key);
-                    } else if (placement == Placement.PATH) {
-                        requestData.put(key, val);
-                    } else {
-                        // По умолчанию в body (requestData), но только если есть requestBody в OpenAPI
-                        if (operation != null && operation.getRequestBody() != null) {
-                            requestData.put(key, val);
-                        } else {
-                            // Если нет requestBody, возможно это query параметр
-                            queryParams.put(key, val);
-                        }
-                    }
+        for (GenerationPlan.OverridePlan override : plan.overrides()) {
+            switch (override.target()) {
+                case QUERY -> {
+                    queryParams.put(override.key(), override.value());
+                    requestData.remove(override.key());
                 }
+                case REQUEST_DATA -> requestData.put(override.key(), override.value());
+                case HEADER -> requestData.remove(override.key());
             }
         }
 
-        // Финальная очистка: удаляем query параметры из requestData
-        // (они должны быть только в queryParams)
+        // Финальная очистка: query и header параметры не должны оставаться в requestData
         for (String queryKey : queryParams.keySet()) {
             requestData.remove(queryKey);
         }
-        
-        // Также удаляем header параметры из requestData
-        for (String headerKey : headerNames) {
+        for (String headerKey : plan.headerNames()) {
             requestData.remove(headerKey);
         }
-        
+
         // Эвристика для GET: если остались overrides в body, перенести их в query
-        if ("GET".equalsIgnoreCase(endpointMethod)) {
-            if (requestOverrides != null) {
-                for (String key : requestOverrides.keySet()) {
-                    if (!pathNames.contains(key) && !queryParams.containsKey(key) && requestData.containsKey(key)) {
-                        Object val = requestData.remove(key);
-                        queryParams.put(key, val);
-                    }
+        if (plan.get()) {
+            for (GenerationPlan.OverridePlan override : plan.overrides()) {
+                String key = override.key();
+                if (!plan.pathNames().contains(key) && !queryParams.containsKey(key) && requestData.containsKey(key)) {
+                    queryParams.put(key, requestData.remove(key));
                 }
             }
         }
-        
-        // Если в OpenAPI нет requestBody, очищаем requestData от всех параметров, кроме path
-        if (operation != null && operation.getRequestBody() == null) {
-            // Оставляем только path параметры
+
+        // Если в OpenAPI нет requestBody, оставляем в requestData только path параметры
+        if (plan.operationKnown() && !plan.hasRequestBody()) {
             Map<String, Object> pathParamsOnly = new HashMap<>();
-            for (String pathKey : pathNames) {
+            for (String pathKey : plan.pathNames()) {
                 if (requestData.containsKey(pathKey)) {
                     pathParamsOnly.put(pathKey, requestData.get(pathKey));
                 }
             }
             requestData = pathParamsOnly;
         }
-        
+
         step.setRequestData(requestData);
         step.setQueryParams(queryParams);
+
+        // responseData не генерируется здесь - этим занимается другой модуль
+        step.setResponseData(new HashMap<>());
+        Map<String, String> dependencies = new HashMap<>();
+        plan.dependencies().forEach(dependencies::put);
+        step.setDataDependencies(dependencies);
+
+        return step;
     }
-    
-    /**
-     * Извлекает path parameters из пути (например, /accounts/{account_id} -> account_id)
-     */
-    private void extractPathParameters(String path, Map<String, Object> requestData,
-                                      String taskId, List<DataFlowEdge> dataFlowEdges,
-                                      Map<String, Map<String, Object>> previousStepData) {
-        if (path == null) {
-            return;
-        }
-        
-        // Ищем паттерны {paramName}
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\{([^}]+)\\}");
-        java.util.regex.Matcher matcher = pattern.matcher(path);
-        
-        while (matcher.find()) {
-            String paramName = matcher.group(1);
-            
-            // Проверяем, есть ли зависимость от предыдущих шагов
-            Object value = resolveDependency(paramName, taskId, dataFlowEdges, previousStepData);
-            
-            if (value == null) {
-                // Генерируем значение на основе имени параметра
-                // Убираем подчеркивания и преобразуем в camelCase для умной генерации
-                String fieldName = paramName.replace("_", "");
-                value = smartFieldGenerator.generateByFieldName(fieldName, null, "string", null);
-            }
-            
-            requestData.put(paramName, value);
-        }
-    }
-    
+
     /**
      * Генерирует requestBody для POST/PUT запросов
      */
-    private void generateRequestBody(Operation operation, Map<String, Object> requestData,
-                                     String taskId, List<DataFlowEdge> dataFlowEdges,
-                                     Map<String, Map<String, Object>> previousStepData) {
-        // Генерация requestBody на основе схемы из OpenAPI, если доступна
-        if (operation == null || operation.getRequestBody() == null || operation.getRequestBody().getContent() == null) {
-            return;
-        }
-        Map<String, Object> content = operation.getRequestBody().getContent();
-        if (content.isEmpty()) {
-            return;
-        }
-        Object media = content.get("application/json");
-        if (media == null) {
-            // Берем первый доступный медиа-тип
-            media = content.values().iterator().next();
-        }
-        if (!(media instanceof Map)) {
-            return;
-        }
-        @SuppressWarnings("unchecked")
-        Map<String, Object> mt = (Map<String, Object>) media;
-        Object rawSchema = mt.get("schema");
-        Response.Schema schema = convertRawRequestSchema(rawSchema);
-        if (schema == null) {
-            // Фолбэк: если нет явной схемы— эвристики по summary
-            String summary = operation.getSummary();
-            if (summary != null && summary.toLowerCase().contains("payment")) {
-                requestData.put("amount", smartFieldGenerator.generateByFieldName("amount", null, "number", null));
+    private void generateRequestBody(GenerationPlan.BodyPlan body, Map<String, Object> requestData,
+                                     GenerationContext ctx) {
+        switch (body.kind()) {
+            case PAYMENT_SUMMARY -> {
+                requestData.put("amount", smartFieldGenerator.generateByFieldName("amount", null, "number", null, ctx));
                 requestData.put("currency", "RUB");
                 requestData.put("description", "Test payment");
-            } else if (summary != null && summary.toLowerCase().contains("auth")) {
-                requestData.put("username", smartFieldGenerator.generateByFieldName("username", null, "string", null));
-                requestData.put("password", smartFieldGenerator.generateByFieldName("password", null, "string", null));
             }
-            return;
-        }
-        Object generated = schemaDataGenerator.generateFromSchema(schema, null, null);
-        if (generated instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> body = (Map<String, Object>) generated;
-            requestData.putAll(body);
-        } else if (generated != null) {
-            // Если схема не объект — кладем под ключ data
-            requestData.put("data", generated);
+            case AUTH_SUMMARY -> {
+                requestData.put("username", smartFieldGenerator.generateByFieldName("username", null, "string", null, ctx));
+                requestData.put("password", smartFieldGenerator.generateByFieldName("password", null, "string", null, ctx));
+            }
+            case SCHEMA -> {
+                Object generated = schemaDataGenerator.generateFromSchema(body.schema(), null, null, ctx);
+                if (generated instanceof Map) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> values = (Map<String, Object>) generated;
+                    requestData.putAll(values);
+                } else if (generated != null) {
+                    // Если схема не объект — кладем под ключ data
+                    requestData.put("data", generated);
+                }
+            }
         }
     }
-    
+
     /**
      * Генерирует базовые request данные на основе пути и метода
      */
-    private void generateBasicRequestData(String endpointPath, String endpointMethod, 
-                                         Map<String, Object> requestData) {
-        if (endpointPath == null) {
-            return;
-        }
-        
-        // Генерируем данные на основе пути
-        String pathLower = endpointPath.toLowerCase();
-        
-        if (pathLower.contains("payment")) {
-            requestData.put("amount", smartFieldGenerator.generateByFieldName("amount", null, "number", null));
-            requestData.put("currency", "RUB");
-        } else if (pathLower.contains("account")) {
-            // Для GET запросов обычно не нужен body, но можем добавить query параметры
-            if ("GET".equalsIgnoreCase(endpointMethod)) {
+    private void generateBasicRequestData(GenerationPlan.BasicData basicData,
+                                         Map<String, Object> requestData,
+                                         GenerationContext ctx) {
+        switch (basicData) {
+            case PAYMENT -> {
+                requestData.put("amount", smartFieldGenerator.generateByFieldName("amount", null, "number", null, ctx));
+                requestData.put("currency", "RUB");
+            }
+            case ACCOUNT_LISTING -> {
                 requestData.put("limit", 10);
                 requestData.put("offset", 0);
             }
+            case NONE -> {
+            }
         }
     }
-    
+
     /**
-     * Разрешает зависимость от предыдущих шагов
+     * Разрешает зависимость от предыдущих шагов: значение берется из ответа первого
+     * выполненного шага-источника
      */
-    private Object resolveDependency(String fieldName, 
-                                     String taskId,
-                                     List<DataFlowEdge> dataFlowEdges,
+    private Object resolveDependency(String fieldName,
+                                     List<String> sources,
                                      Map<String, Map<String, Object>> previousStepData) {
-        if (dataFlowEdges == null || previousStepData == null) {
-            return null;
-        }
-        
-        // Ищем edge, где targetTaskId = taskId и fieldName в списке полей
-        for (DataFlowEdge edge : dataFlowEdges) {
-            if (edge.getTargetTaskId().equals(taskId) && 
-                edge.getFields() != null && 
-                edge.getFields().contains(fieldName)) {
-                
-                // Получаем данные из source шага
-                Map<String, Object> sourceData = previousStepData.get(edge.getSourceTaskId());
-                if (sourceData != null) {
-                    return sourceData.get(fieldName);
-                }
+        for (String sourceTaskId : sources) {
+            Map<String, Object> sourceData = previousStepData.get(sourceTaskId);
+            if (sourceData != null) {
+                return sourceData.get(fieldName);
             }
         }
-        
         return null;
     }
-    
+
     /**
      * Извлекает зависимости для шага
      */
     private Map<String, String> extractDependencies(List<DataFlowEdge> dataFlowEdges, String taskId) {
-        Map<String, String> dependencies = new HashMap<>();
-        
+        Map<String, String> dependencies = new LinkedHashMap<>();
+
         if (dataFlowEdges != null) {
             for (DataFlowEdge edge : dataFlowEdges) {
                 if (edge.getSourceTaskId().equals(taskId) && edge.getFields() != null) {
@@ -415,9 +460,10 @@ public class ClassicDataGenerator {
                 }
             }
         }
-        
+
         return dependencies;
     }
+
     
     /**
      * Находит Operation по path и method
@@ -484,61 +530,6 @@ public class ClassicDataGenerator {
         return null;
     }
     
-    /**
-     * Конвертирует Parameter.Schema в Response.Schema
-     */
-    private Response.Schema convertParameterSchema(Parameter.Schema paramSchema) {
-        Response.Schema schema = new Response.Schema();
-        schema.setType(paramSchema.getType());
-        schema.setDescription(paramSchema.getDescription());
-        return schema;
-    }
-
-    // Конвертация сырой схемы из requestBody.content[*].schema в Response.Schema
-    private Response.Schema convertRawRequestSchema(Object raw) {
-        if (!(raw instanceof Map)) {
-            return null;
-        }
-        @SuppressWarnings("unchecked")
-        Map<String, Object> map = (Map<String, Object>) raw;
-        Response.Schema schema = new Response.Schema();
-        Object type = map.get("type");
-        if (type instanceof String) schema.setType((String) type);
-        Object format = map.get("format");
-        if (format instanceof String) schema.setFormat((String) format);
-        Object description = map.get("description");
-        if (description instanceof String) schema.setDescription((String) description);
-
-        // required
-        Object required = map.get("required");
-        if (required instanceof java.util.List<?>) {
-            schema.getAdditionalProperties().put("required", required);
-        }
-
-        // properties
-        Object props = map.get("properties");
-        if (props instanceof Map<?, ?>) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> propsMap = (Map<String, Object>) props;
-            Map<String, Response.Schema> properties = new java.util.HashMap<>();
-            for (Map.Entry<String, Object> e : propsMap.entrySet()) {
-                Response.Schema child = convertRawRequestSchema(e.getValue());
-                if (child == null) child = new Response.Schema();
-                properties.put(e.getKey(), child);
-            }
-            schema.setProperties(properties);
-        }
-
-        // array items
-        if ("array".equals(schema.getType())) {
-            Object items = map.get("items");
-            if (items instanceof Map<?, ?>) {
-                schema.getAdditionalProperties().put("items", items);
-            }
-        }
-        return schema;
-    }
-
     // Размещение параметров при применении overrides
     private enum Placement { QUERY, PATH, BODY }
 
@@ -0,0 +1,143 @@
+package ru.poib.VTBHack.generator.service;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Источник случайности одного прогона генерации на основе {@link SplittableRandom}.
+ * Контекст создается из seed прогона, а для варианта и виртуального пользователя
+ * выводится дочерний контекст с собственным seed: он зависит только от seed родителя и индекса,
+ * поэтому любой вариант воспроизводится отдельно и в любом порядке.
+ * Экземпляр не потокобезопасен: каждый поток (вариант, пользователь) получает свой контекст.
+ */
+public final class GenerationContext {
+
+    // Соли, разводящие seed вариантов и виртуальных пользователей с одинаковыми индексами
+    private static final long VARIANT_SALT = 0x56415249414E5453L;
+    private static final long VIRTUAL_USER_SALT = 0x5553455253454544L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final boolean seeded;
+    private final UniquenessScope uniqueness;
+    private final SplittableRandom random;
+
+    private GenerationContext(long seed, boolean seeded) {
+        this(seed, seeded, null);
+    }
+
+    private GenerationContext(long seed, boolean seeded, UniquenessScope uniqueness) {
+        this.seed = seed;
+        this.seeded = seeded;
+        this.uniqueness = uniqueness;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Контекст с заданным seed
+     */
+    public static GenerationContext seeded(long seed) {
+        return new GenerationContext(seed, true);
+    }
+
+    /**
+     * Контекст со случайным seed; seed доступен через {@link #getSeed()} для воспроизведения
+     */
+    public static GenerationContext unseeded() {
+        return new GenerationContext(new SplittableRandom().nextLong(), false);
+    }
+
+    /**
+     * Контекст с seed из запроса или случайным, если seed не задан
+     */
+    public static GenerationContext of(Long seed) {
+        return seed != null ? seeded(seed) : unseeded();
+    }
+
+    /**
+     * Дочерний контекст варианта данных
+     */
+    public GenerationContext forVariant(int variantIndex) {
+        return new GenerationContext(derive(VARIANT_SALT, variantIndex), seeded, uniqueness);
+    }
+
+    /**
+     * Дочерний контекст виртуального пользователя
+     */
+    public GenerationContext forVirtualUser(int userIndex) {
+        return new GenerationContext(derive(VIRTUAL_USER_SALT, userIndex), seeded, uniqueness);
+    }
+
+    /**
+     * Контекст с тем же seed и областью уникальности, которую наследуют все дочерние контексты
+     */
+    public GenerationContext withUniqueness(UniquenessScope scope) {
+        return new GenerationContext(seed, seeded, scope);
+    }
+
+    /**
+     * Область уникальности прогона или null, если уникальность не требуется
+     */
+    public UniquenessScope getUniqueness() {
+        return uniqueness;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * true, если seed задан явно (или унаследован от такого контекста) и данные должны воспроизводиться
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    public int nextInt(int origin, int bound) {
+        return random.nextInt(origin, bound);
+    }
+
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    public boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+
+    /**
+     * Случайный элемент непустого списка
+     */
+    public <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * UUID версии 4, построенный из потока контекста
+     */
+    public UUID nextUuid() {
+        long most = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long least = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(most, least);
+    }
+
+    private long derive(long salt, int index) {
+        return mix64(seed ^ salt ^ (GOLDEN_GAMMA * (index + 1L)));
+    }
+
+    // Финализатор SplitMix64: соседние индексы дают некоррелированные seed
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
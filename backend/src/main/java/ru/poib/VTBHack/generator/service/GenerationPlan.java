@@ -0,0 +1,98 @@
+package ru.poib.VTBHack.generator.service;
+
+import ru.poib.VTBHack.parser.model.openapi.Response;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Скомпилированный план генерации для результата маппинга.
+ * Для каждой задачи заранее найдены операция, разрешенные схемы, размещение переопределений
+ * и источники зависимостей, поэтому выполнение плана для очередного варианта сводится
+ * к случайным выборкам по полям. План неизменяем и может выполняться из нескольких потоков.
+ * Строится {@link ClassicDataGenerator#compile}.
+ */
+public final class GenerationPlan {
+
+    private final List<StepPlan> steps;
+
+    GenerationPlan(List<StepPlan> steps) {
+        this.steps = List.copyOf(steps);
+    }
+
+    List<StepPlan> steps() {
+        return steps;
+    }
+
+    /**
+     * Количество шагов в плане
+     */
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * План одного шага
+     *
+     * @param operationKnown операция найдена в OpenAPI
+     * @param hasRequestBody у операции объявлен requestBody
+     * @param pathNames     имена path параметров операции
+     * @param body          план тела запроса или null, если тело не генерируется
+     * @param dependencies  поле -> задача, которая его использует
+     */
+    record StepPlan(String taskId,
+                    String taskName,
+                    List<PathParamPlan> pathParams,
+                    List<ParamPlan> params,
+                    Set<String> pathNames,
+                    Set<String> headerNames,
+                    BodyPlan body,
+                    BasicData basicData,
+                    List<OverridePlan> overrides,
+                    boolean operationKnown,
+                    boolean hasRequestBody,
+                    boolean get,
+                    Map<String, String> dependencies) {
+    }
+
+    /**
+     * Параметр из шаблона пути; sources - задачи, из ответов которых берется значение
+     */
+    record PathParamPlan(String name, String generatorFieldName, List<String> sources) {
+    }
+
+    /**
+     * Параметр операции (кроме header и уже извлеченных из шаблона пути)
+     */
+    record ParamPlan(String name,
+                     boolean query,
+                     boolean path,
+                     boolean required,
+                     List<String> sources,
+                     Response.Schema schema,
+                     String example,
+                     String description) {
+    }
+
+    record BodyPlan(BodyKind kind, Response.Schema schema) {
+    }
+
+    /**
+     * Тело по схеме или фолбэк по summary операции, если схемы нет
+     */
+    enum BodyKind { SCHEMA, PAYMENT_SUMMARY, AUTH_SUMMARY }
+
+    /**
+     * Базовые данные, которые подставляются, если ничего не сгенерировано
+     */
+    enum BasicData { PAYMENT, ACCOUNT_LISTING, NONE }
+
+    /**
+     * Переопределение пользователя с заранее определенным размещением
+     */
+    record OverridePlan(String key, Object value, OverrideTarget target) {
+    }
+
+    enum OverrideTarget { QUERY, REQUEST_DATA, HEADER }
+}
@@ -2,23 +2,26 @@ package ru.poib.VTBHack.generator.service;
 
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
-
 /**
- * Генератор российских данных (ИНН, СНИЛС, паспорта)
+ * Генератор российских данных (ИНН, СНИЛС, паспорта).
+ * Случайность берется из переданного {@link GenerationContext}; перегрузки без контекста
+ * используют новый контекст со случайным seed
  */
 @Component
 public class RussianDataGenerator {
-    private final Random random = new Random();
     
     /**
      * Генерирует валидный ИНН (10 или 12 цифр)
      */
     public String generateINN() {
+        return generateINN(GenerationContext.unseeded());
+    }
+
+    public String generateINN(GenerationContext ctx) {
         // Генерируем 10-значный ИНН для юридических лиц
         int[] inn = new int[10];
         for (int i = 0; i < 9; i++) {
-            inn[i] = random.nextInt(10);
+            inn[i] = ctx.nextInt(10);
         }
         
         // Вычисляем контрольную сумму для 10-значного ИНН
@@ -40,9 +43,13 @@ public class RussianDataGenerator {
      * Генерирует валидный СНИЛС (11 цифр в формате XXX-XXX-XXX XX)
      */
     public String generateSNILS() {
+        return generateSNILS(GenerationContext.unseeded());
+    }
+
+    public String generateSNILS(GenerationContext ctx) {
         int[] snils = new int[11];
         for (int i = 0; i < 9; i++) {
-            snils[i] = random.nextInt(10);
+            snils[i] = ctx.nextInt(10);
         }
         
         // Вычисляем контрольную сумму
@@ -70,10 +77,14 @@ public class RussianDataGenerator {
      * Генерирует номер паспорта РФ (10 цифр в формате XXXX XXXXXX)
      */
     public String generatePassportNumber() {
+        return generatePassportNumber(GenerationContext.unseeded());
+    }
+
+    public String generatePassportNumber(GenerationContext ctx) {
         // Серия (4 цифры)
-        int series = 1000 + random.nextInt(9000);
+        int series = 1000 + ctx.nextInt(9000);
         // Номер (6 цифр)
-        int number = 100000 + random.nextInt(900000);
+        int number = 100000 + ctx.nextInt(900000);
         
         return String.format("%04d %06d", series, number);
     }
@@ -82,9 +93,13 @@ public class RussianDataGenerator {
      * Генерирует БИК банка (9 цифр)
      */
     public String generateBIK() {
+        return generateBIK(GenerationContext.unseeded());
+    }
+
+    public String generateBIK(GenerationContext ctx) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < 9; i++) {
-            sb.append(random.nextInt(10));
+            sb.append(ctx.nextInt(10));
         }
         return sb.toString();
     }
@@ -93,9 +108,13 @@ public class RussianDataGenerator {
      * Генерирует корреспондентский счет (20 цифр)
      */
     public String generateCorrespondentAccount() {
+        return generateCorrespondentAccount(GenerationContext.unseeded());
+    }
+
+    public String generateCorrespondentAccount(GenerationContext ctx) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < 20; i++) {
-            sb.append(random.nextInt(10));
+            sb.append(ctx.nextInt(10));
         }
         return sb.toString();
     }
@@ -104,9 +123,13 @@ public class RussianDataGenerator {
      * Генерирует расчетный счет (20 цифр)
      */
     public String generateSettlementAccount() {
+        return generateSettlementAccount(GenerationContext.unseeded());
+    }
+
+    public String generateSettlementAccount(GenerationContext ctx) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < 20; i++) {
-            sb.append(random.nextInt(10));
+            sb.append(ctx.nextInt(10));
         }
         return sb.toString();
     }
@@ -2,7 +2,9 @@ package ru.poib.VTBHack.generator.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 import ru.poib.VTBHack.parser.model.openapi.Response;
+import ru.poib.VTBHack.parser.service.SchemaRefResolver;
 
 import java.util.*;
 
@@ -11,6 +13,9 @@ import java.util.*;
  */
 @Component
 public class SchemaDataGenerator {
+    // Глубина вложенности, после которой объекты и массивы генерируются пустыми (рекурсивные схемы)
+    private static final int MAX_DEPTH = 8;
+
     private final SmartFieldGenerator smartFieldGenerator;
     
     @Autowired
@@ -18,12 +23,36 @@ public class SchemaDataGenerator {
         this.smartFieldGenerator = smartFieldGenerator;
     }
     
+    /**
+     * Генерирует данные на основе Schema из OpenAPI, предварительно разрешая $ref
+     * по components спецификации
+     */
+    public Object generateFromSchema(Response.Schema schema, String fieldName, String description,
+                                     OpenApiModel openApiModel) {
+        return generateFromSchema(schema, fieldName, description, openApiModel, GenerationContext.unseeded());
+    }
+
+    public Object generateFromSchema(Response.Schema schema, String fieldName, String description,
+                                     OpenApiModel openApiModel, GenerationContext ctx) {
+        return generateFromSchema(SchemaRefResolver.of(openApiModel).resolve(schema), fieldName, description, ctx);
+    }
+
     /**
      * Генерирует данные на основе Schema из OpenAPI
      */
     public Object generateFromSchema(Response.Schema schema, String fieldName, String description) {
+        return generateFromSchema(schema, fieldName, description, GenerationContext.unseeded());
+    }
+
+    public Object generateFromSchema(Response.Schema schema, String fieldName, String description,
+                                     GenerationContext ctx) {
+        return generate(schema, fieldName, description, 0, ctx);
+    }
+
+    private Object generate(Response.Schema schema, String fieldName, String description, int depth,
+                            GenerationContext ctx) {
         if (schema == null) {
-            return smartFieldGenerator.generateByFieldName(fieldName, description, "string", null);
+            return smartFieldGenerator.generateByFieldName(fieldName, description, "string", null, ctx);
         }
         
         // Проверяем наличие example
@@ -42,31 +71,32 @@ public class SchemaDataGenerator {
             Object enumValue = schema.getAdditionalProperties().get("enum");
             if (enumValue instanceof List && !((List<?>) enumValue).isEmpty()) {
                 List<?> enumList = (List<?>) enumValue;
-                return enumList.get(new Random().nextInt(enumList.size()));
+                return enumList.get(ctx.nextInt(enumList.size()));
             }
         }
         
         // Обрабатываем объект с properties
         if ("object".equals(type) || schema.getProperties() != null && !schema.getProperties().isEmpty()) {
-            return generateObject(schema, fieldName);
+            return generateObject(schema, fieldName, depth, ctx);
         }
         
         // Обрабатываем массив
         if ("array".equals(type)) {
-            return generateArray(schema, fieldName);
+            return generateArray(schema, fieldName, depth, ctx);
         }
         
         // Генерируем примитивные типы с учетом constraints
-        return generatePrimitive(schema, fieldName, description, type, format);
+        return generatePrimitive(schema, fieldName, description, type, format, ctx);
     }
     
     /**
      * Генерирует объект на основе Schema
      */
-    private Map<String, Object> generateObject(Response.Schema schema, String parentFieldName) {
+    private Map<String, Object> generateObject(Response.Schema schema, String parentFieldName, int depth,
+                                               GenerationContext ctx) {
         Map<String, Object> result = new HashMap<>();
         
-        if (schema.getProperties() == null || schema.getProperties().isEmpty()) {
+        if (schema.getProperties() == null || schema.getProperties().isEmpty() || depth >= MAX_DEPTH) {
             return result;
         }
         
@@ -88,11 +118,11 @@ public class SchemaDataGenerator {
             
             // Генерируем только required поля или случайные опциональные
             boolean isRequired = requiredFields.contains(fieldName);
-            if (isRequired || new Random().nextBoolean()) {
+            if (isRequired || ctx.nextBoolean()) {
                 String fullFieldName = parentFieldName != null ? parentFieldName + "." + fieldName : fieldName;
                 String description = fieldSchema.getDescription();
                 
-                Object value = generateFromSchema(fieldSchema, fullFieldName, description);
+                Object value = generate(fieldSchema, fullFieldName, description, depth + 1, ctx);
                 result.put(fieldName, value);
             }
         }
@@ -103,14 +133,21 @@ public class SchemaDataGenerator {
     /**
      * Генерирует массив на основе Schema
      */
-    private List<Object> generateArray(Response.Schema schema, String fieldName) {
+    private List<Object> generateArray(Response.Schema schema, String fieldName, int depth,
+                                       GenerationContext ctx) {
         List<Object> result = new ArrayList<>();
+        if (depth >= MAX_DEPTH) {
+            return result;
+        }
         
         // Получаем items schema
         Response.Schema itemsSchema = null;
         if (schema.getAdditionalProperties() != null) {
             Object items = schema.getAdditionalProperties().get("items");
-            if (items instanceof Map) {
+            if (items instanceof Response.Schema) {
+                // Схема, уже разрешенная SchemaRefResolver
+                itemsSchema = (Response.Schema) items;
+            } else if (items instanceof Map) {
                 // Преобразуем Map в Schema (упрощенная версия)
                 itemsSchema = new Response.Schema();
                 @SuppressWarnings("unchecked")
@@ -148,13 +185,13 @@ public class SchemaDataGenerator {
         // Генерируем от 1 до 3 элементов
         int minItems = getIntValue(schema, "minItems", 1);
         int maxItems = getIntValue(schema, "maxItems", 3);
-        int count = minItems + new Random().nextInt(maxItems - minItems + 1);
+        int count = minItems + ctx.nextInt(maxItems - minItems + 1);
         
         for (int i = 0; i < count; i++) {
             if (itemsSchema != null) {
-                result.add(generateFromSchema(itemsSchema, fieldName + "[" + i + "]", null));
+                result.add(generate(itemsSchema, fieldName + "[" + i + "]", null, depth + 1, ctx));
             } else {
-                result.add(smartFieldGenerator.generateByFieldName(fieldName, null, "string", null));
+                result.add(smartFieldGenerator.generateByFieldName(fieldName, null, "string", null, ctx));
             }
         }
         
@@ -165,13 +202,13 @@ public class SchemaDataGenerator {
      * Генерирует примитивное значение с учетом constraints
      */
     private Object generatePrimitive(Response.Schema schema, String fieldName, String description, 
-                                     String type, String format) {
+                                     String type, String format, GenerationContext ctx) {
         // Получаем constraints из additionalProperties
         Map<String, Object> additionalProps = schema.getAdditionalProperties();
         
         // Для строковых типов
         if ("string".equals(type)) {
-            Object generated = smartFieldGenerator.generateByFieldName(fieldName, description, type, format);
+            Object generated = smartFieldGenerator.generateByFieldName(fieldName, description, type, format, ctx);
             String value = generated != null ? String.valueOf(generated) : "";
             
             // Применяем pattern если есть
@@ -204,7 +241,7 @@ public class SchemaDataGenerator {
         
         // Для числовых типов
         if ("integer".equals(type) || "number".equals(type)) {
-            Object generated = smartFieldGenerator.generateByFieldName(fieldName, description, type, format);
+            Object generated = smartFieldGenerator.generateByFieldName(fieldName, description, type, format, ctx);
             Double baseValue = null;
             if (generated instanceof Number) {
                 baseValue = ((Number) generated).doubleValue();
@@ -222,7 +259,7 @@ public class SchemaDataGenerator {
                 if (min != null || max != null) {
                     double minVal = min != null ? min : Double.MIN_VALUE;
                     double maxVal = max != null ? max : Double.MAX_VALUE;
-                    double seed = baseValue != null ? baseValue : new Random().nextDouble();
+                    double seed = baseValue != null ? baseValue : ctx.nextDouble();
                     double range = maxVal - minVal;
                     double randomValue = minVal + (Math.abs(seed) % 1.0) * range;
                     if ("integer".equals(type)) {
@@ -241,17 +278,17 @@ public class SchemaDataGenerator {
             }
             // Фолбэк при невозможности преобразования
             return "integer".equals(type)
-                    ? Integer.valueOf(new java.util.Random().nextInt(10000))
-                    : Double.valueOf(new java.util.Random().nextDouble() * 10000);
+                    ? Integer.valueOf(ctx.nextInt(10000))
+                    : Double.valueOf(ctx.nextDouble() * 10000);
         }
         
         // Для boolean
         if ("boolean".equals(type)) {
-            return smartFieldGenerator.generateByFieldName(fieldName, description, type, format);
+            return smartFieldGenerator.generateByFieldName(fieldName, description, type, format, ctx);
         }
         
         // По умолчанию
-        return smartFieldGenerator.generateByFieldName(fieldName, description, type, format);
+        return smartFieldGenerator.generateByFieldName(fieldName, description, type, format, ctx);
     }
     
     /**
@@ -4,204 +4,367 @@ import com.github.javafaker.Faker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import ru.poib.VTBHack.mapping.service.KeywordAutomaton;
+
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 /**
  * Умный генератор данных на основе имен полей и описаний
  */
 @Component
 public class SmartFieldGenerator {
+    // Группы ключевых слов в имени поля (теги автомата)
+    private static final int EMAIL_WORDS = 1;
+    private static final int PHONE_WORDS = 1 << 1;
+    private static final int INN_WORDS = 1 << 2;
+    private static final int SNILS_WORDS = 1 << 3;
+    private static final int PASSPORT_WORDS = 1 << 4;
+    private static final int BIK_WORDS = 1 << 5;
+    private static final int ACCOUNT_WORDS = 1 << 6;
+    private static final int CORRESPONDENT_WORDS = 1 << 7;
+    private static final int AMOUNT_WORDS = 1 << 8;
+    private static final int BIRTH_WORDS = 1 << 9;
+    private static final int FIRST_NAME_WORDS = 1 << 10;
+    private static final int NAME_WORDS = 1 << 11;
+    private static final int LAST_WORDS = 1 << 12;
+    private static final int LAST_NAME_WORDS = 1 << 13;
+    private static final int MIDDLE_NAME_WORDS = 1 << 14;
+    private static final int ADDRESS_WORDS = 1 << 15;
+    private static final int CITY_WORDS = 1 << 16;
+    private static final int COUNTRY_WORDS = 1 << 17;
+    private static final int ID_WORDS = 1 << 18;
+    private static final int UUID_WORDS = 1 << 19;
+    private static final int URL_WORDS = 1 << 20;
+
+    private static final KeywordAutomaton NAME_KEYWORDS = KeywordAutomaton.builder()
+            .addAll(List.of("email", "e-mail"), EMAIL_WORDS)
+            .addAll(List.of("phone", "tel"), PHONE_WORDS)
+            .add("inn", INN_WORDS)
+            .add("snils", SNILS_WORDS)
+            .add("passport", PASSPORT_WORDS)
+            .add("bik", BIK_WORDS)
+            .addAll(List.of("account", "счет"), ACCOUNT_WORDS)
+            .addAll(List.of("correspondent", "корреспондентский"), CORRESPONDENT_WORDS)
+            .addAll(List.of("amount", "sum", "price", "cost", "сумма", "цена"), AMOUNT_WORDS)
+            .addAll(List.of("birthdate", "birth", "дата рождения"), BIRTH_WORDS)
+            .addAll(List.of("firstname", "имя"), FIRST_NAME_WORDS)
+            .add("name", NAME_WORDS)
+            .add("last", LAST_WORDS)
+            .addAll(List.of("lastname", "surname", "фамилия"), LAST_NAME_WORDS)
+            .addAll(List.of("middlename", "отчество"), MIDDLE_NAME_WORDS)
+            .addAll(List.of("address", "адрес"), ADDRESS_WORDS)
+            .addAll(List.of("city", "город"), CITY_WORDS)
+            .addAll(List.of("country", "страна"), COUNTRY_WORDS)
+            .add("id", ID_WORDS)
+            .addAll(List.of("uuid", "guid"), UUID_WORDS)
+            .addAll(List.of("url", "link"), URL_WORDS)
+            .build();
+
+    // Предельный размер кэша классификации, после которого он сбрасывается
+    private static final int MAX_CACHED_FIELDS = 10_000;
+
+    // Попыток получить еще не выданное значение в режиме уникальности
+    private static final int MAX_UNIQUE_ATTEMPTS = 64;
+
+    // Виды значений, которые дорого генерировать по одному: берутся из пулов, если они включены
+    private static final Set<FieldKind> POOLED_KINDS = EnumSet.of(
+            FieldKind.INN, FieldKind.SNILS, FieldKind.PASSPORT, FieldKind.BIK,
+            FieldKind.CORRESPONDENT_ACCOUNT, FieldKind.SETTLEMENT_ACCOUNT,
+            FieldKind.FIRST_NAME, FieldKind.LAST_NAME, FieldKind.MIDDLE_NAME,
+            FieldKind.ADDRESS, FieldKind.CITY);
+
+    // (имя, тип, формат) -> вид значения
+    private final Map<FieldKey, FieldKind> kindCache = new ConcurrentHashMap<>();
+
+    private final ContextBoundRandom fakerRandom = new ContextBoundRandom();
     private final Faker faker;
     private final RussianDataGenerator russianDataGenerator;
+    private final ValuePools valuePools;
     
-    @Autowired
     public SmartFieldGenerator(RussianDataGenerator russianDataGenerator) {
-        this.faker = new Faker(Locale.forLanguageTag("ru"));
+        this(russianDataGenerator, ValuePools.disabled());
+    }
+
+    @Autowired
+    public SmartFieldGenerator(RussianDataGenerator russianDataGenerator, ValuePools valuePools) {
+        this.faker = new Faker(Locale.forLanguageTag("ru"), fakerRandom);
         this.russianDataGenerator = russianDataGenerator;
+        this.valuePools = valuePools;
+        for (FieldKind kind : POOLED_KINDS) {
+            valuePools.register(kind, ctx -> (String) withContext(ctx, () -> produceDirect(kind, ctx)));
+        }
     }
     
     /**
      * Генерирует значение на основе имени поля и описания
      */
     public Object generateByFieldName(String fieldName, String description, String type, String format) {
-        if (fieldName == null) {
-            return generateByType(type, format);
-        }
-        
-        String lowerFieldName = fieldName.toLowerCase();
-        
-        // Email
-        if (lowerFieldName.contains("email") || lowerFieldName.contains("e-mail")) {
-            return faker.internet().emailAddress();
-        }
-        
-        // Телефон
-        if (lowerFieldName.contains("phone") || lowerFieldName.contains("tel")) {
-            return generatePhoneNumber();
-        }
-        
-        // ИНН
-        if (lowerFieldName.contains("inn")) {
-            return russianDataGenerator.generateINN();
-        }
-        
-        // СНИЛС
-        if (lowerFieldName.contains("snils")) {
-            return russianDataGenerator.generateSNILS();
-        }
-        
-        // Паспорт
-        if (lowerFieldName.contains("passport")) {
-            return russianDataGenerator.generatePassportNumber();
-        }
-        
-        // БИК
-        if (lowerFieldName.contains("bik")) {
-            return russianDataGenerator.generateBIK();
-        }
-        
-        // Счет
-        if (lowerFieldName.contains("account") || lowerFieldName.contains("счет")) {
-            if (lowerFieldName.contains("correspondent") || lowerFieldName.contains("корреспондентский")) {
-                return russianDataGenerator.generateCorrespondentAccount();
-            }
-            return russianDataGenerator.generateSettlementAccount();
-        }
-        
-        // Сумма, деньги
-        if (lowerFieldName.contains("amount") || lowerFieldName.contains("sum") || 
-            lowerFieldName.contains("price") || lowerFieldName.contains("cost") ||
-            lowerFieldName.contains("сумма") || lowerFieldName.contains("цена")) {
-            return generateRealisticAmount();
-        }
-        
-        // Дата рождения
-        if (lowerFieldName.contains("birthdate") || lowerFieldName.contains("birth") ||
-            lowerFieldName.contains("дата рождения")) {
-            return faker.date().birthday().toString();
-        }
-        
-        // Имя
-        if (lowerFieldName.contains("firstname") || lowerFieldName.contains("имя") ||
-            (lowerFieldName.contains("name") && !lowerFieldName.contains("last"))) {
-            return faker.name().firstName();
-        }
-        
-        // Фамилия
-        if (lowerFieldName.contains("lastname") || lowerFieldName.contains("surname") ||
-            lowerFieldName.contains("фамилия")) {
-            return faker.name().lastName();
-        }
-        
-        // Отчество
-        if (lowerFieldName.contains("middlename") || lowerFieldName.contains("отчество")) {
-            return faker.name().firstName() + "ович"; // Упрощенная генерация отчества
-        }
-        
-        // Адрес
-        if (lowerFieldName.contains("address") || lowerFieldName.contains("адрес")) {
-            return faker.address().fullAddress();
-        }
-        
-        // Город
-        if (lowerFieldName.contains("city") || lowerFieldName.contains("город")) {
-            return faker.address().city();
-        }
-        
-        // Страна
-        if (lowerFieldName.contains("country") || lowerFieldName.contains("страна")) {
-            return "Россия";
+        return generateByFieldName(fieldName, description, type, format, GenerationContext.unseeded());
+    }
+
+    /**
+     * Генерирует значение на основе имени поля и описания, беря случайность из контекста
+     */
+    public Object generateByFieldName(String fieldName, String description, String type, String format,
+                                      GenerationContext ctx) {
+        return withContext(ctx, () -> generate(fieldName, type, format, ctx));
+    }
+
+    /**
+     * Выполняет генерацию с Faker, привязанным к контексту
+     */
+    private Object withContext(GenerationContext ctx, Supplier<Object> generation) {
+        GenerationContext previous = fakerRandom.bind(ctx);
+        try {
+            return generation.get();
+        } finally {
+            fakerRandom.bind(previous);
         }
-        
-        // ID
-        if (lowerFieldName.contains("id") && !lowerFieldName.contains("guid") && !lowerFieldName.contains("uuid")) {
-            return faker.number().randomNumber(10, true);
+    }
+
+    private Object generate(String fieldName, String type, String format, GenerationContext ctx) {
+        return produce(classify(fieldName, type, format), ctx);
+    }
+
+    /**
+     * Возвращает вид значения для поля; результат кэшируется по (имя, тип, формат)
+     */
+    FieldKind classify(String fieldName, String type, String format) {
+        FieldKey key = new FieldKey(fieldName, type, format);
+        FieldKind cached = kindCache.get(key);
+        if (cached != null) {
+            return cached;
         }
-        
-        // UUID
-        if (lowerFieldName.contains("uuid") || lowerFieldName.contains("guid")) {
-            return java.util.UUID.randomUUID().toString();
+        if (kindCache.size() >= MAX_CACHED_FIELDS) {
+            kindCache.clear();
         }
-        
-        // URL
-        if (lowerFieldName.contains("url") || lowerFieldName.contains("link")) {
-            return faker.internet().url();
+        FieldKind kind = fieldName != null ? classifyByName(NAME_KEYWORDS.tagsIn(fieldName)) : null;
+        if (kind == null) {
+            kind = classifyByType(type, format);
         }
-        
-        // Если не найдено специальное правило, генерируем по типу
-        return generateByType(type, format);
+        kindCache.put(key, kind);
+        return kind;
     }
-    
+
     /**
-     * Генерирует телефонный номер в российском формате
+     * Правила по имени поля в порядке приоритета; mask - группы ключевых слов, найденные в имени
      */
-    private String generatePhoneNumber() {
-        String[] prefixes = {"+7", "8"};
-        String prefix = prefixes[random.nextInt(prefixes.length)];
-        return prefix + " (" + (900 + random.nextInt(100)) + ") " + 
-               (100 + random.nextInt(900)) + "-" + (10 + random.nextInt(90)) + "-" + (10 + random.nextInt(90));
+    private static FieldKind classifyByName(int mask) {
+        if (has(mask, EMAIL_WORDS)) return FieldKind.EMAIL;
+        if (has(mask, PHONE_WORDS)) return FieldKind.PHONE;
+        if (has(mask, INN_WORDS)) return FieldKind.INN;
+        if (has(mask, SNILS_WORDS)) return FieldKind.SNILS;
+        if (has(mask, PASSPORT_WORDS)) return FieldKind.PASSPORT;
+        if (has(mask, BIK_WORDS)) return FieldKind.BIK;
+        if (has(mask, ACCOUNT_WORDS)) {
+            return has(mask, CORRESPONDENT_WORDS) ? FieldKind.CORRESPONDENT_ACCOUNT : FieldKind.SETTLEMENT_ACCOUNT;
+        }
+        if (has(mask, AMOUNT_WORDS)) return FieldKind.AMOUNT;
+        if (has(mask, BIRTH_WORDS)) return FieldKind.DATE;
+        if (has(mask, FIRST_NAME_WORDS) || (has(mask, NAME_WORDS) && !has(mask, LAST_WORDS))) return FieldKind.FIRST_NAME;
+        if (has(mask, LAST_NAME_WORDS)) return FieldKind.LAST_NAME;
+        if (has(mask, MIDDLE_NAME_WORDS)) return FieldKind.MIDDLE_NAME;
+        if (has(mask, ADDRESS_WORDS)) return FieldKind.ADDRESS;
+        if (has(mask, CITY_WORDS)) return FieldKind.CITY;
+        if (has(mask, COUNTRY_WORDS)) return FieldKind.COUNTRY;
+        if (has(mask, ID_WORDS) && !has(mask, UUID_WORDS)) return FieldKind.NUMERIC_ID;
+        if (has(mask, UUID_WORDS)) return FieldKind.UUID;
+        if (has(mask, URL_WORDS)) return FieldKind.URL;
+        return null;
     }
-    
-    /**
-     * Генерирует реалистичную сумму
-     */
-    private Object generateRealisticAmount() {
-        // Генерируем суммы от 100 до 1,000,000 рублей
-        double amount = 100.0 + random.nextDouble() * 999900.0;
-        return Math.round(amount * 100.0) / 100.0; // Округляем до 2 знаков
+
+    private static boolean has(int mask, int group) {
+        return (mask & group) != 0;
     }
-    
+
     /**
-     * Генерирует значение по типу и формату
+     * Вид значения по типу и формату схемы
      */
-    private Object generateByType(String type, String format) {
+    private static FieldKind classifyByType(String type, String format) {
         if (type == null) {
-            return faker.lorem().word();
+            return FieldKind.WORD;
         }
-        
         switch (type.toLowerCase()) {
             case "string":
                 if (format != null) {
                     switch (format.toLowerCase()) {
                         case "email":
-                            return faker.internet().emailAddress();
+                            return FieldKind.EMAIL;
                         case "uri":
                         case "url":
-                            return faker.internet().url();
+                            return FieldKind.URL;
                         case "date":
-                            return faker.date().birthday().toString();
+                            return FieldKind.DATE;
                         case "date-time":
-                            return java.time.Instant.now().toString();
+                            return FieldKind.DATE_TIME;
                         case "uuid":
-                            return java.util.UUID.randomUUID().toString();
+                            return FieldKind.UUID;
                     }
                 }
-                return faker.lorem().word();
-                
+                return FieldKind.WORD;
             case "integer":
             case "int":
-                return faker.number().numberBetween(1, 10000);
-                
+                return FieldKind.INTEGER;
             case "number":
             case "float":
             case "double":
-                return faker.number().randomDouble(2, 1, 10000);
-                
+                return FieldKind.DECIMAL;
             case "boolean":
             case "bool":
-                return faker.bool().bool();
-                
+                return FieldKind.BOOLEAN;
             case "array":
-                return new java.util.ArrayList<>();
-                
+                return FieldKind.ARRAY;
             case "object":
+                return FieldKind.OBJECT;
+            default:
+                return FieldKind.WORD;
+        }
+    }
+
+    private Object produce(FieldKind kind, GenerationContext ctx) {
+        Object value = producePooled(kind, ctx);
+        UniquenessScope uniqueness = ctx.getUniqueness();
+        if (uniqueness != null && uniqueness.tracks(kind)) {
+            // Повтор генерируется заново; исчерпанное пространство значений - ошибка, а не тихий дубликат
+            for (int attempt = 1; !uniqueness.claim(kind, value); attempt++) {
+                if (attempt >= MAX_UNIQUE_ATTEMPTS) {
+                    throw new IllegalStateException("Не удалось сгенерировать уникальное значение вида " + kind
+                            + " за " + MAX_UNIQUE_ATTEMPTS + " попыток");
+                }
+                value = producePooled(kind, ctx);
+            }
+        }
+        return value;
+    }
+
+    private Object producePooled(FieldKind kind, GenerationContext ctx) {
+        String pooled = valuePools.poll(kind, ctx);
+        return pooled != null ? pooled : produceDirect(kind, ctx);
+    }
+
+    private Object produceDirect(FieldKind kind, GenerationContext ctx) {
+        switch (kind) {
+            case EMAIL:
+                return faker.internet().emailAddress();
+            case PHONE:
+                return generatePhoneNumber(ctx);
+            case INN:
+                return russianDataGenerator.generateINN(ctx);
+            case SNILS:
+                return russianDataGenerator.generateSNILS(ctx);
+            case PASSPORT:
+                return russianDataGenerator.generatePassportNumber(ctx);
+            case BIK:
+                return russianDataGenerator.generateBIK(ctx);
+            case CORRESPONDENT_ACCOUNT:
+                return russianDataGenerator.generateCorrespondentAccount(ctx);
+            case SETTLEMENT_ACCOUNT:
+                return russianDataGenerator.generateSettlementAccount(ctx);
+            case AMOUNT:
+                return generateRealisticAmount(ctx);
+            case DATE:
+                return faker.date().birthday().toString();
+            case FIRST_NAME:
+                return faker.name().firstName();
+            case LAST_NAME:
+                return faker.name().lastName();
+            case MIDDLE_NAME:
+                return faker.name().firstName() + "ович"; // Упрощенная генерация отчества
+            case ADDRESS:
+                return faker.address().fullAddress();
+            case CITY:
+                return faker.address().city();
+            case COUNTRY:
+                return "Россия";
+            case NUMERIC_ID:
+                return faker.number().randomNumber(10, true);
+            case UUID:
+                return ctx.nextUuid().toString();
+            case URL:
+                return faker.internet().url();
+            case DATE_TIME:
+                return java.time.Instant.now().toString();
+            case INTEGER:
+                return faker.number().numberBetween(1, 10000);
+            case DECIMAL:
+                return faker.number().randomDouble(2, 1, 10000);
+            case BOOLEAN:
+                return faker.bool().bool();
+            case ARRAY:
+                return new java.util.ArrayList<>();
+            case OBJECT:
                 return new java.util.HashMap<>();
-                
+            case WORD:
             default:
                 return faker.lorem().word();
         }
     }
     
-    private final java.util.Random random = new java.util.Random();
+    /**
+     * Генерирует телефонный номер в российском формате
+     */
+    private String generatePhoneNumber(GenerationContext ctx) {
+        String[] prefixes = {"+7", "8"};
+        String prefix = prefixes[ctx.nextInt(prefixes.length)];
+        return prefix + " (" + (900 + ctx.nextInt(100)) + ") " + 
+               (100 + ctx.nextInt(900)) + "-" + (10 + ctx.nextInt(90)) + "-" + (10 + ctx.nextInt(90));
+    }
+    
+    /**
+     * Генерирует реалистичную сумму
+     */
+    private Object generateRealisticAmount(GenerationContext ctx) {
+        // Генерируем суммы от 100 до 1,000,000 рублей
+        double amount = 100.0 + ctx.nextDouble() * 999900.0;
+        return Math.round(amount * 100.0) / 100.0; // Округляем до 2 знаков
+    }
+    
+    /**
+     * Вид генерируемого значения: результат классификации поля по имени, типу и формату
+     */
+    enum FieldKind {
+        EMAIL, PHONE, INN, SNILS, PASSPORT, BIK, CORRESPONDENT_ACCOUNT, SETTLEMENT_ACCOUNT, AMOUNT,
+        DATE, FIRST_NAME, LAST_NAME, MIDDLE_NAME, ADDRESS, CITY, COUNTRY, NUMERIC_ID, UUID, URL,
+        DATE_TIME, INTEGER, DECIMAL, BOOLEAN, ARRAY, OBJECT, WORD
+    }
+
+    private record FieldKey(String name, String type, String format) {
+    }
+
+    /**
+     * Random для Faker: значения берутся из контекста, привязанного к текущему потоку
+     * на время generateByFieldName, поэтому один экземпляр Faker обслуживает все контексты
+     */
+    private static final class ContextBoundRandom extends Random {
+        private final ThreadLocal<GenerationContext> current = new ThreadLocal<>();
+
+        /**
+         * Привязывает контекст к потоку и возвращает предыдущий
+         */
+        GenerationContext bind(GenerationContext ctx) {
+            GenerationContext previous = current.get();
+            if (ctx != null) {
+                current.set(ctx);
+            } else {
+                current.remove();
+            }
+            return previous;
+        }
+
+        @Override
+        protected int next(int bits) {
+            GenerationContext ctx = current.get();
+            long value = ctx != null ? ctx.nextLong() : ThreadLocalRandom.current().nextLong();
+            return (int) (value >>> (64 - bits));
+        }
+    }
 }
 
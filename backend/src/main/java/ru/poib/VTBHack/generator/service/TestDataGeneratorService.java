@@ -6,11 +6,12 @@ import ru.poib.VTBHack.generator.model.GenerationType;
 import ru.poib.VTBHack.generator.model.TestDataGenerationRequest;
 import ru.poib.VTBHack.generator.model.TestDataGenerationResult;
 import ru.poib.VTBHack.generator.model.TestDataStep;
+import ru.poib.VTBHack.generator.model.TestDataVariant;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Основной сервис для генерации тестовых данных
@@ -18,6 +19,9 @@ import java.util.Map;
  */
 @Service
 public class TestDataGeneratorService {
+    // Начиная с этого количества вариантов они генерируются параллельно
+    private static final int PARALLEL_THRESHOLD = 8;
+
     private final ClassicDataGenerator classicDataGenerator;
     private final AIDataGenerator aiDataGenerator;
     
@@ -29,53 +33,70 @@ public class TestDataGeneratorService {
     }
     
     /**
-     * Генерирует тестовые данные на основе запроса
+     * Генерирует тестовые данные на основе запроса.
+     * Маппинг компилируется в план один раз, варианты только выполняют его.
+     * Начиная с PARALLEL_THRESHOLD вариантов они строятся параллельно; у каждого варианта
+     * собственный контекст, поэтому результат не зависит от числа потоков
      */
     public TestDataGenerationResult generateTestData(TestDataGenerationRequest request) {
+        return generate(request, GenerationContext::forVariant);
+    }
+
+    /**
+     * Данные виртуальных пользователей нагрузочного прогона: пользователь i получает данные
+     * из контекста runContext.forVirtualUser(i), а запрошенная уникальность общая для всех
+     * пользователей прогона. Число пользователей задает variantsCount запроса
+     */
+    public TestDataGenerationResult generateVirtualUserData(TestDataGenerationRequest request) {
+        return generate(request, GenerationContext::forVirtualUser);
+    }
+
+    /**
+     * Данные виртуального пользователя по его номеру
+     */
+    @FunctionalInterface
+    public interface VirtualUsers {
+        List<TestDataStep> data(int userIndex);
+    }
+
+    /**
+     * Виртуальные пользователи, данные которых строятся по одному по запросу, а не заранее:
+     * пользователь i получает данные из runContext.forVirtualUser(i), запрошенная уникальность
+     * общая для всех. Без уникальности данные совпадают с {@link #generateVirtualUserData}
+     *
+     * @param expectedUsers ожидаемое число пользователей (для размера области уникальности)
+     */
+    public VirtualUsers virtualUsers(TestDataGenerationRequest request, long expectedUsers) {
+        GenerationType generationType = generationType(request);
+        String scenario = scenario(request);
+        GenerationPlan plan = classicDataGenerator.compile(request.getMappingResult(), request.getOpenApiModel());
+        GenerationContext runContext = runContext(request, plan, Math.max(1, expectedUsers));
+        return userIndex -> generateVariant(plan, generationType, scenario, runContext.forVirtualUser(userIndex));
+    }
+
+    private TestDataGenerationResult generate(TestDataGenerationRequest request,
+                                              BiFunction<GenerationContext, Integer, GenerationContext> childContext) {
         long startTime = System.currentTimeMillis();
         
-        GenerationType generationType = request.getGenerationType() != null 
-            ? request.getGenerationType() 
-            : GenerationType.CLASSIC;
-        
-        String scenario = request.getScenario() != null ? request.getScenario() : "positive";
+        GenerationType generationType = generationType(request);
+        String scenario = scenario(request);
         int variantsCount = request.getVariantsCount() > 0 ? request.getVariantsCount() : 1;
+        GenerationPlan plan = classicDataGenerator.compile(request.getMappingResult(), request.getOpenApiModel());
+        GenerationContext runContext = runContext(request, plan, variantsCount);
+        
+        IntStream indexes = IntStream.range(0, variantsCount);
+        boolean parallel = variantsCount >= PARALLEL_THRESHOLD && canRunInParallel(runContext);
+        List<List<TestDataStep>> variants = (parallel ? indexes.parallel() : indexes)
+                .mapToObj(i -> generateVariant(plan, generationType, scenario, childContext.apply(runContext, i)))
+                .collect(Collectors.toList());
         
-        List<List<TestDataStep>> variants = new ArrayList<>();
         int totalFieldsGenerated = 0;
         int smartFieldsGenerated = 0;
         int exampleBasedFields = 0;
         
-        // Генерируем указанное количество вариантов
-        for (int i = 0; i < variantsCount; i++) {
-            List<TestDataStep> variant;
-            
-            // Выбираем генератор в зависимости от типа
-            if (generationType == GenerationType.AI) {
-                variant = aiDataGenerator.generateTestData(
-                    request.getMappingResult(),
-                    request.getOpenApiModel(),
-                    scenario
-                );
-            } else {
-                variant = classicDataGenerator.generateTestData(
-                    request.getMappingResult(),
-                    request.getOpenApiModel(),
-                    scenario
-                );
-            }
-            
-            variants.add(variant);
-            
-            // Подсчитываем статистику
-            for (TestDataStep step : variant) {
-                if (step.getRequestData() != null) {
-                    totalFieldsGenerated += step.getRequestData().size();
-                }
-                if (step.getResponseData() != null) {
-                    totalFieldsGenerated += step.getResponseData().size();
-                }
-            }
+        // Подсчитываем статистику
+        for (List<TestDataStep> variant : variants) {
+            totalFieldsGenerated += countFields(variant);
         }
         
         // Извлекаем зависимости между шагами
@@ -102,10 +123,109 @@ public class TestDataGeneratorService {
         result.setVariants(variants);
         result.setCrossStepDependencies(crossStepDependencies);
         result.setStatistics(statistics);
+        result.setSeed(runContext.getSeed());
         
         return result;
     }
     
+    /**
+     * Потоковая генерация: варианты строятся пачками по числу ядер и отдаются по одному,
+     * поэтому в памяти одновременно находится не больше одной пачки.
+     * Варианты совпадают с теми, что вернул бы {@link #generateTestData} с тем же seed
+     */
+    public Iterator<TestDataVariant> streamVariants(TestDataGenerationRequest request) {
+        GenerationType generationType = generationType(request);
+        String scenario = scenario(request);
+        int variantsCount = request.getVariantsCount() > 0 ? request.getVariantsCount() : 1;
+        GenerationPlan plan = classicDataGenerator.compile(request.getMappingResult(), request.getOpenApiModel());
+        GenerationContext runContext = runContext(request, plan, variantsCount);
+        boolean parallel = canRunInParallel(runContext);
+        int batchSize = Math.max(1, Runtime.getRuntime().availableProcessors() * 2);
+
+        return new Iterator<>() {
+            private int nextIndex = 0;
+            private Iterator<TestDataVariant> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                return batch.hasNext() || nextIndex < variantsCount;
+            }
+
+            @Override
+            public TestDataVariant next() {
+                if (!batch.hasNext()) {
+                    if (nextIndex >= variantsCount) {
+                        throw new NoSuchElementException();
+                    }
+                    int from = nextIndex;
+                    int to = Math.min(variantsCount, from + batchSize);
+                    nextIndex = to;
+                    IntStream indexes = IntStream.range(from, to);
+                    batch = (parallel && to - from > 1 ? indexes.parallel() : indexes)
+                            .mapToObj(i -> {
+                                GenerationContext variantContext = runContext.forVariant(i);
+                                return new TestDataVariant(i, variantContext.getSeed(),
+                                        generateVariant(plan, generationType, scenario, variantContext));
+                            })
+                            .collect(Collectors.toList())
+                            .iterator();
+                }
+                return batch.next();
+            }
+        };
+    }
+
+    private List<TestDataStep> generateVariant(GenerationPlan plan, GenerationType generationType,
+                                               String scenario, GenerationContext variantContext) {
+        // Выбираем генератор в зависимости от типа
+        if (generationType == GenerationType.AI) {
+            return aiDataGenerator.generateTestData(plan, scenario, variantContext);
+        }
+        return classicDataGenerator.generateTestData(plan, scenario, variantContext);
+    }
+
+    /**
+     * Контекст прогона; при запрошенной уникальности к нему привязывается общая для всех вариантов область
+     */
+    private static GenerationContext runContext(TestDataGenerationRequest request, GenerationPlan plan,
+                                                long variantsCount) {
+        GenerationContext runContext = GenerationContext.of(request.getSeed());
+        if (request.getUniqueFields() == null || request.getUniqueFields().isEmpty()) {
+            return runContext;
+        }
+        long expectedValues = variantsCount * Math.max(1, plan.size());
+        return runContext.withUniqueness(new UniquenessScope(request.getUniqueFields(), expectedValues));
+    }
+
+    /**
+     * При уникальности с заданным seed варианты строятся по порядку: какой вариант получит значение,
+     * а какой сгенерирует его заново, не должно зависеть от планирования потоков
+     */
+    private static boolean canRunInParallel(GenerationContext runContext) {
+        return runContext.getUniqueness() == null || !runContext.isSeeded();
+    }
+
+    private static GenerationType generationType(TestDataGenerationRequest request) {
+        return request.getGenerationType() != null ? request.getGenerationType() : GenerationType.CLASSIC;
+    }
+
+    private static String scenario(TestDataGenerationRequest request) {
+        return request.getScenario() != null ? request.getScenario() : "positive";
+    }
+
+    private static int countFields(List<TestDataStep> variant) {
+        int count = 0;
+        for (TestDataStep step : variant) {
+            if (step.getRequestData() != null) {
+                count += step.getRequestData().size();
+            }
+            if (step.getResponseData() != null) {
+                count += step.getResponseData().size();
+            }
+        }
+        return count;
+    }
+    
     /**
      * Извлекает зависимости между шагами
      */
@@ -0,0 +1,145 @@
+package ru.poib.VTBHack.generator.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Фильтр уже выданных значений: фильтр Блума отсекает заведомо новые значения,
+ * а положительный ответ подтверждается точно по 64-битным отпечаткам.
+ * Строки не хранятся: на значение приходится 8 байт отпечатка и несколько бит фильтра.
+ * Совпадение отпечатков у разных строк (вероятность порядка n^2 / 2^64) считается повтором,
+ * что безопасно: значение просто генерируется заново.
+ * <p>
+ * Таблица отпечатков ограничена {@link #MAX_EXACT_VALUES} значениями (32 МБ). Сверх этого числа
+ * значения попадают только в фильтр Блума, и его срабатывание считается повтором без точной проверки:
+ * повторы по-прежнему не выдаются, но часть новых значений отбрасывается зря. Доля таких отказов -
+ * ложные срабатывания фильтра, около 1% при ожидаемом числе значений и растет, если оно превышено.
+ */
+final class UniqueValueFilter {
+
+    // Бит фильтра на ожидаемое значение (~1% ложных срабатываний при 7 хэшах)
+    private static final int BITS_PER_VALUE = 10;
+    private static final int HASH_COUNT = 7;
+    // Верхняя граница фильтра: 2^30 бит = 128 МБ
+    private static final long MAX_BITS = 1L << 30;
+    private static final int INITIAL_TABLE_SIZE = 1024;
+    // Верхняя граница точной проверки: 2^21 отпечатков в таблице из 2^22 ячеек
+    static final int MAX_EXACT_VALUES = 1 << 21;
+
+    private final long[] bloom;
+    private final long bloomBits;
+    private final int maxExactValues;
+
+    // Открытая адресация по отпечаткам; 0 - пустая ячейка
+    private long[] fingerprints = new long[INITIAL_TABLE_SIZE];
+    private int exactCount;
+    private long count;
+
+    UniqueValueFilter(long expectedValues) {
+        this(expectedValues, MAX_EXACT_VALUES);
+    }
+
+    UniqueValueFilter(long expectedValues, int maxExactValues) {
+        this.maxExactValues = maxExactValues;
+        long bits = Math.min(MAX_BITS, Math.max(64, expectedValues * BITS_PER_VALUE));
+        this.bloomBits = (bits + 63) & ~63L;
+        this.bloom = new long[(int) (bloomBits >>> 6)];
+    }
+
+    /**
+     * Регистрирует значение
+     *
+     * @return true, если значение встречается впервые
+     */
+    synchronized boolean add(String value) {
+        long h1 = fingerprint(value);
+        long h2 = mix64(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        if (mightContain(h1, h2) && (exactCount >= maxExactValues || containsFingerprint(h1))) {
+            return false;
+        }
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bloomBits);
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        if (exactCount < maxExactValues) {
+            insertFingerprint(h1);
+        }
+        count++;
+        return true;
+    }
+
+    /**
+     * Число принятых значений
+     */
+    synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Число отпечатков в таблице точной проверки
+     */
+    synchronized int exactSize() {
+        return exactCount;
+    }
+
+    private boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bloomBits);
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean containsFingerprint(long fingerprint) {
+        int mask = fingerprints.length - 1;
+        for (int i = (int) fingerprint & mask; fingerprints[i] != 0; i = (i + 1) & mask) {
+            if (fingerprints[i] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insertFingerprint(long fingerprint) {
+        if ((exactCount + 1) * 2 > fingerprints.length) {
+            long[] old = fingerprints;
+            fingerprints = new long[old.length * 2];
+            for (long f : old) {
+                if (f != 0) {
+                    place(f);
+                }
+            }
+        }
+        place(fingerprint);
+        exactCount++;
+    }
+
+    private void place(long fingerprint) {
+        int mask = fingerprints.length - 1;
+        int i = (int) fingerprint & mask;
+        while (fingerprints[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        fingerprints[i] = fingerprint;
+    }
+
+    /**
+     * 64-битный отпечаток строки (FNV-1a по UTF-8 с финальным перемешиванием), никогда не 0
+     */
+    private static long fingerprint(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        long mixed = mix64(hash);
+        return mixed != 0 ? mixed : 1;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.poib.VTBHack.generator.service;
+
+import ru.poib.VTBHack.generator.model.UniqueFieldType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Область уникальности прогона: для выбранных видов полей помнит выданные значения
+ * во всех вариантах и у всех виртуальных пользователей. Передается через {@link GenerationContext}
+ * и наследуется дочерними контекстами. Потокобезопасна.
+ */
+public final class UniquenessScope {
+
+    private final Map<SmartFieldGenerator.FieldKind, UniqueValueFilter> filters =
+            new EnumMap<>(SmartFieldGenerator.FieldKind.class);
+
+    /**
+     * @param fieldTypes     виды полей, значения которых не должны повторяться
+     * @param expectedValues ожидаемое число значений одного вида (для размера фильтра)
+     */
+    public UniquenessScope(Collection<UniqueFieldType> fieldTypes, long expectedValues) {
+        for (UniqueFieldType type : fieldTypes) {
+            UniqueValueFilter filter = new UniqueValueFilter(expectedValues);
+            switch (type) {
+                case ID -> filters.put(SmartFieldGenerator.FieldKind.NUMERIC_ID, filter);
+                case UUID -> filters.put(SmartFieldGenerator.FieldKind.UUID, filter);
+                case EMAIL -> filters.put(SmartFieldGenerator.FieldKind.EMAIL, filter);
+                case PHONE -> filters.put(SmartFieldGenerator.FieldKind.PHONE, filter);
+                case INN -> filters.put(SmartFieldGenerator.FieldKind.INN, filter);
+                case SNILS -> filters.put(SmartFieldGenerator.FieldKind.SNILS, filter);
+                case PASSPORT -> filters.put(SmartFieldGenerator.FieldKind.PASSPORT, filter);
+                case ACCOUNT -> {
+                    filters.put(SmartFieldGenerator.FieldKind.SETTLEMENT_ACCOUNT, filter);
+                    filters.put(SmartFieldGenerator.FieldKind.CORRESPONDENT_ACCOUNT, filter);
+                }
+            }
+        }
+    }
+
+    boolean tracks(SmartFieldGenerator.FieldKind kind) {
+        return filters.containsKey(kind);
+    }
+
+    /**
+     * Закрепляет значение за прогоном
+     *
+     * @return false, если такое значение уже выдавалось
+     */
+    boolean claim(SmartFieldGenerator.FieldKind kind, Object value) {
+        UniqueValueFilter filter = filters.get(kind);
+        return filter == null || filter.add(String.valueOf(value));
+    }
+}
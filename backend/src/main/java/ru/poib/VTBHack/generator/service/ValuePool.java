@@ -0,0 +1,118 @@
+package ru.poib.VTBHack.generator.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Кольцевой буфер заранее сгенерированных значений одного вида.
+ * Когда в буфере остается не больше refillThreshold значений, пополнение ставится в фоновый executor;
+ * {@link #poll()} не ждет пополнения и возвращает null, если буфер пуст.
+ * Значения уникальны в окне из 2 * capacity последних сгенерированных: повторы отбрасываются при пополнении.
+ */
+final class ValuePool {
+
+    // Во сколько раз попыток больше, чем недостающих значений (повторы при малом пространстве значений)
+    private static final int ATTEMPTS_PER_VALUE = 4;
+
+    private final String[] ring;
+    private final int refillThreshold;
+    private final Function<GenerationContext, String> generator;
+    private final Executor refillExecutor;
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+
+    // Значения в буфере и недавно выданные, в порядке добавления
+    private final Set<String> recent = new LinkedHashSet<>();
+
+    private int head;
+    private int size;
+
+    ValuePool(int capacity, int refillThreshold, Function<GenerationContext, String> generator, Executor refillExecutor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер пула должен быть положительным");
+        }
+        this.ring = new String[capacity];
+        this.refillThreshold = Math.max(0, Math.min(refillThreshold, capacity - 1));
+        this.generator = generator;
+        this.refillExecutor = refillExecutor;
+    }
+
+    /**
+     * Забирает значение из буфера или возвращает null, если он пуст
+     */
+    String poll() {
+        String value;
+        int remaining;
+        synchronized (this) {
+            if (size == 0) {
+                value = null;
+            } else {
+                value = ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+            }
+            remaining = size;
+        }
+        if (remaining <= refillThreshold) {
+            scheduleRefill();
+        }
+        return value;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * Ставит пополнение в очередь, если оно еще не запланировано
+     */
+    void scheduleRefill() {
+        if (refillScheduled.compareAndSet(false, true)) {
+            refillExecutor.execute(() -> {
+                try {
+                    refill();
+                } finally {
+                    refillScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Заполняет буфер до конца. Значения генерируются вне блокировки,
+     * чтобы потребители не ждали генерации
+     */
+    void refill() {
+        GenerationContext ctx = GenerationContext.unseeded();
+        int missing = ring.length - size();
+        for (int attempts = missing * ATTEMPTS_PER_VALUE; missing > 0 && attempts > 0; attempts--) {
+            String value = generator.apply(ctx);
+            if (value != null && offer(value)) {
+                missing = ring.length - size();
+            }
+        }
+    }
+
+    private synchronized boolean offer(String value) {
+        if (size == ring.length || !recent.add(value)) {
+            return false;
+        }
+        ring[(head + size) % ring.length] = value;
+        size++;
+        // Самые старые значения уже выданы: в буфере не больше capacity значений
+        if (recent.size() > 2 * ring.length) {
+            Iterator<String> oldest = recent.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        return true;
+    }
+}
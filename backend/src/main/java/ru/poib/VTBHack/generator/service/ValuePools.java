@@ -0,0 +1,79 @@
+package ru.poib.VTBHack.generator.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Пулы заранее сгенерированных значений для дорогих полей (ИНН, счета, ФИО, адреса).
+ * Включаются настройкой generator.pools.enabled. Пулы обслуживают только контексты без явного seed:
+ * значения из фонового пополнения не зависят от seed прогона, поэтому воспроизводимые прогоны
+ * всегда генерируют значения напрямую.
+ */
+@Component
+public class ValuePools {
+
+    private static final ValuePools DISABLED = new ValuePools(false, 0, 0);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int refillThreshold;
+    private final Map<SmartFieldGenerator.FieldKind, ValuePool> pools = new ConcurrentHashMap<>();
+    // Пополнение идет в одном фоновом потоке, чтобы не конкурировать с генерацией вариантов
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "value-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ValuePools(@Value("${generator.pools.enabled:false}") boolean enabled,
+                      @Value("${generator.pools.size:1024}") int capacity,
+                      @Value("${generator.pools.refill-threshold:256}") int refillThreshold) {
+        this.enabled = enabled && capacity > 0;
+        this.capacity = capacity;
+        this.refillThreshold = refillThreshold;
+    }
+
+    /**
+     * Выключенные пулы: все значения генерируются напрямую
+     */
+    public static ValuePools disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Регистрирует пул для вида значения и запускает его первое заполнение
+     */
+    void register(SmartFieldGenerator.FieldKind kind, Function<GenerationContext, String> generator) {
+        if (!enabled) {
+            return;
+        }
+        pools.computeIfAbsent(kind, k -> {
+            ValuePool pool = new ValuePool(capacity, refillThreshold, generator, refillExecutor);
+            pool.scheduleRefill();
+            return pool;
+        });
+    }
+
+    /**
+     * Значение из пула или null, если пула нет, он пуст или контекст требует воспроизводимости
+     */
+    String poll(SmartFieldGenerator.FieldKind kind, GenerationContext ctx) {
+        if (!enabled || ctx.isSeeded()) {
+            return null;
+        }
+        ValuePool pool = pools.get(kind);
+        return pool != null ? pool.poll() : null;
+    }
+}
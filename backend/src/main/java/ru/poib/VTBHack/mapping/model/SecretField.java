@@ -47,6 +47,11 @@ public class SecretField {
      * Причина, по которой поле считается секретом (например, "contains 'password' in name")
      */
     private String reason;
+    
+    /**
+     * Сработавшее правило: фрагмент имени (например, "api[_-]?key") или "known-secret-header"
+     */
+    private String matchedRule;
 }
 
 
@@ -5,15 +5,32 @@ import ru.poib.VTBHack.mapping.model.CommonField;
 import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 import ru.poib.VTBHack.parser.model.openapi.Operation;
 import ru.poib.VTBHack.parser.model.openapi.Parameter;
+import ru.poib.VTBHack.parser.model.openapi.Response;
+import ru.poib.VTBHack.parser.service.SchemaRefResolver;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Анализирует общие поля между эндпоинтами OpenAPI
+ * Анализирует общие поля между эндпоинтами OpenAPI.
+ * На больших спецификациях операции делятся между ядрами: каждый поток собирает
+ * собственную карту использования полей, карты объединяются в конце в исходном порядке операций.
  */
 @Service
 public class CommonFieldAnalyzer {
 
+    // Начиная с этого количества операций анализ выполняется параллельно
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    // Предельный размер кэша нормализованных имен, после которого он сбрасывается
+    private static final int MAX_CACHED_NAMES = 10_000;
+
+    /**
+     * Кэш нормализации: исходное имя -> единственный экземпляр нормализованного имени.
+     * Одни и те же имена повторяются в сотнях операций, поэтому нормализуем каждое один раз.
+     */
+    private final Map<String, String> normalizedNames = new ConcurrentHashMap<>();
+
     /**
      * Анализирует все эндпоинты и находит общие поля (параметры, заголовки, query параметры)
      * Исключает поля, которые являются ответами других эндпоинтов (зависимости)
@@ -50,17 +67,27 @@ public class CommonFieldAnalyzer {
         // Собираем информацию о всех полях из всех эндпоинтов
         // Группируем по имени поля (без учета типа), чтобы объединить path, query, header версии одного поля
         // Ключ: нормализованное имя поля, значение: информация об использовании
-        Map<String, FieldUsageInfo> fieldUsageMap = new HashMap<>();
-
+        List<OperationRef> operations = new ArrayList<>();
         openApiModel.getPaths().forEach((path, pathItem) -> {
             if (pathItem == null) return;
             
-            analyzeOperationFields(fieldUsageMap, "GET", path, pathItem.getGet());
-            analyzeOperationFields(fieldUsageMap, "POST", path, pathItem.getPost());
-            analyzeOperationFields(fieldUsageMap, "PUT", path, pathItem.getPut());
-            analyzeOperationFields(fieldUsageMap, "DELETE", path, pathItem.getDelete());
+            addOperation(operations, "GET", path, pathItem.getGet());
+            addOperation(operations, "POST", path, pathItem.getPost());
+            addOperation(operations, "PUT", path, pathItem.getPut());
+            addOperation(operations, "DELETE", path, pathItem.getDelete());
         });
 
+        SchemaRefResolver schemaResolver = SchemaRefResolver.of(openApiModel);
+
+        // Упорядоченный параллельный collect объединяет частичные карты слева направо,
+        // поэтому "первое найденное" описание и тип совпадают с последовательным обходом
+        Map<String, FieldUsageInfo> fieldUsageMap = (operations.size() >= PARALLEL_THRESHOLD
+                ? operations.parallelStream()
+                : operations.stream())
+                .collect(HashMap::new,
+                        (acc, op) -> analyzeOperationFields(acc, op.method(), op.path(), op.operation(), schemaResolver),
+                        CommonFieldAnalyzer::mergeUsage);
+
         // Фильтруем поля, которые используются в нескольких эндпоинтах и не являются зависимостями
         for (Map.Entry<String, FieldUsageInfo> entry : fieldUsageMap.entrySet()) {
             String fieldNameKey = entry.getKey();
@@ -107,6 +134,19 @@ public class CommonFieldAnalyzer {
         return analyzeCommonFields(openApiModel, dependencies, 2);
     }
 
+    private static void addOperation(List<OperationRef> operations, String method, String path, Operation operation) {
+        if (operation != null) {
+            operations.add(new OperationRef(method, path, operation));
+        }
+    }
+
+    /**
+     * Дописывает в левую карту использования полей данные правой
+     */
+    private static void mergeUsage(Map<String, FieldUsageInfo> left, Map<String, FieldUsageInfo> right) {
+        right.forEach((name, usage) -> left.merge(name, usage, FieldUsageInfo::merge));
+    }
+
     /**
      * Анализирует поля операции (параметры)
      * Группирует поля по имени (без учета типа), чтобы объединить path, query, header версии одного поля
@@ -114,7 +154,8 @@ public class CommonFieldAnalyzer {
     private void analyzeOperationFields(Map<String, FieldUsageInfo> fieldUsageMap,
                                         String method,
                                         String path,
-                                        Operation operation) {
+                                        Operation operation,
+                                        SchemaRefResolver schemaResolver) {
         if (operation == null) return;
 
         String endpointKey = method + " " + path;
@@ -148,9 +189,10 @@ public class CommonFieldAnalyzer {
                     usageInfo.description = param.getDescription();
                 }
                 
-                // Сохраняем тип данных
-                if (usageInfo.dataType == null && param.getSchema() != null && param.getSchema().getType() != null) {
-                    usageInfo.dataType = param.getSchema().getType();
+                // Сохраняем тип данных (схема параметра может ссылаться на components)
+                if (usageInfo.dataType == null && param.getSchema() != null) {
+                    Response.Schema schema = schemaResolver.resolveParameter(param.getSchema());
+                    usageInfo.dataType = schema.getType();
                 }
             }
         }
@@ -167,6 +209,17 @@ public class CommonFieldAnalyzer {
      */
     private String normalizeFieldName(String fieldName) {
         if (fieldName == null) return "";
+        String cached = normalizedNames.get(fieldName);
+        if (cached != null) {
+            return cached;
+        }
+        if (normalizedNames.size() >= MAX_CACHED_NAMES) {
+            normalizedNames.clear();
+        }
+        return normalizedNames.computeIfAbsent(fieldName, CommonFieldAnalyzer::doNormalizeFieldName);
+    }
+
+    private static String doNormalizeFieldName(String fieldName) {
         String normalized = fieldName.toLowerCase();
         // Убираем префиксы x- или X-
         if (normalized.startsWith("x-")) {
@@ -175,7 +228,7 @@ public class CommonFieldAnalyzer {
         // Заменяем дефисы и подчеркивания на единый разделитель для унификации
         // Это позволяет считать consent-id и consent_id одним полем
         normalized = normalized.replace('-', '_');
-        return normalized;
+        return normalized.intern();
     }
 
     /**
@@ -219,6 +272,30 @@ public class CommonFieldAnalyzer {
                 this.fieldTypes.add(fieldType);
             }
         }
+
+        /**
+         * Объединяет информацию, собранную по следующей части операций.
+         * Имя, описание и тип данных берутся из более ранней части, если там они уже есть.
+         */
+        FieldUsageInfo merge(FieldUsageInfo later) {
+            this.fieldTypes.addAll(later.fieldTypes);
+            this.usageCount += later.usageCount;
+            this.endpoints.addAll(later.endpoints);
+            this.isRequired |= later.isRequired;
+            if (this.description == null) {
+                this.description = later.description;
+            }
+            if (this.dataType == null) {
+                this.dataType = later.dataType;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Операция вместе с методом и путем, под которыми она объявлена
+     */
+    private record OperationRef(String method, String path, Operation operation) {
     }
 }
 
@@ -0,0 +1,207 @@
+package ru.poib.VTBHack.mapping.service;
+
+import java.util.*;
+
+/**
+ * Автомат Ахо-Корасик для поиска набора ключевых слов за один проход по тексту.
+ * Сравнение регистронезависимое: и ключевые слова, и текст приводятся к одному регистру
+ * посимвольно, поэтому позиции совпадений совпадают с позициями в исходной строке.
+ * Каждому ключевому слову можно назначить битовую маску тегов (категорий),
+ * чтобы за один проход узнать, какие категории встречаются в тексте.
+ * Экземпляр неизменяемый и потокобезопасный.
+ */
+public final class KeywordAutomaton {
+
+    private final String[] keywords;
+    private final int[] tags;
+
+    // Узлы бора: переходы, суффиксные ссылки и выходы (индексы ключевых слов)
+    private final List<Map<Character, Integer>> transitions;
+    private final int[] fail;
+    private final int[][] outputs;
+
+    private KeywordAutomaton(List<String> keywords, List<Integer> tags) {
+        this.keywords = keywords.toArray(new String[0]);
+        this.tags = tags.stream().mapToInt(Integer::intValue).toArray();
+        this.transitions = new ArrayList<>();
+        this.transitions.add(new HashMap<>());
+
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        nodeOutputs.add(new ArrayList<>());
+
+        // Строим бор
+        for (int k = 0; k < this.keywords.length; k++) {
+            String keyword = this.keywords[k];
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                Integer next = transitions.get(node).get(c);
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.add(new HashMap<>());
+                    nodeOutputs.add(new ArrayList<>());
+                    transitions.get(node).put(c, next);
+                }
+                node = next;
+            }
+            nodeOutputs.get(node).add(k);
+        }
+
+        // Суффиксные ссылки обходом в ширину
+        this.fail = new int[transitions.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int f = fail[node];
+                while (f != 0 && !transitions.get(f).containsKey(c)) {
+                    f = fail[f];
+                }
+                Integer target = transitions.get(f).get(c);
+                fail[child] = (target != null && target != child) ? target : 0;
+                nodeOutputs.get(child).addAll(nodeOutputs.get(fail[child]));
+                queue.add(child);
+            }
+        }
+
+        this.outputs = new int[nodeOutputs.size()][];
+        for (int i = 0; i < nodeOutputs.size(); i++) {
+            this.outputs[i] = nodeOutputs.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Приводит символ к единому регистру. Двойное преобразование нужно для символов
+     * вроде турецкой «ı» или «ſ», которые регулярные выражения с (?iu) считают равными латинским.
+     */
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Обходит текст и сообщает о каждом вхождении ключевого слова.
+     * Вхождения сообщаются в порядке позиции их конца.
+     *
+     * @param text текст для поиска
+     * @param consumer обработчик совпадений; если он возвращает false, обход прекращается
+     */
+    public void scan(CharSequence text, HitConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            Integer next = transitions.get(node).get(c);
+            while (next == null && node != 0) {
+                node = fail[node];
+                next = transitions.get(node).get(c);
+            }
+            node = next != null ? next : 0;
+            for (int k : outputs[node]) {
+                int end = i + 1;
+                if (!consumer.accept(end - keywords[k].length(), end, k)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает объединение тегов всех ключевых слов, встречающихся в тексте
+     */
+    public int tagsIn(CharSequence text) {
+        int[] mask = {0};
+        scan(text, (start, end, k) -> {
+            mask[0] |= tags[k];
+            return true;
+        });
+        return mask[0];
+    }
+
+    /**
+     * Возвращает первое по позиции конца ключевое слово, встречающееся в тексте, или -1
+     */
+    public int firstMatch(CharSequence text) {
+        int[] found = {-1};
+        scan(text, (start, end, k) -> {
+            found[0] = k;
+            return false;
+        });
+        return found[0];
+    }
+
+    public String keyword(int index) {
+        return keywords[index];
+    }
+
+    public int tag(int index) {
+        return tags[index];
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    @FunctionalInterface
+    public interface HitConsumer {
+        /**
+         * @param start позиция начала совпадения (включительно)
+         * @param end позиция конца совпадения (не включительно)
+         * @param keywordIndex индекс ключевого слова в порядке добавления
+         * @return true, чтобы продолжить обход
+         */
+        boolean accept(int start, int end, int keywordIndex);
+    }
+
+    public static final class Builder {
+        private final Map<String, Integer> indexByKeyword = new LinkedHashMap<>();
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> tags = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Добавляет ключевое слово с тегом. Повторное добавление объединяет теги.
+         */
+        public Builder add(String keyword, int tag) {
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("Ключевое слово не может быть пустым");
+            }
+            StringBuilder folded = new StringBuilder(keyword.length());
+            for (int i = 0; i < keyword.length(); i++) {
+                folded.append(fold(keyword.charAt(i)));
+            }
+            String key = folded.toString();
+            Integer existing = indexByKeyword.get(key);
+            if (existing != null) {
+                tags.set(existing, tags.get(existing) | tag);
+            } else {
+                indexByKeyword.put(key, keywords.size());
+                keywords.add(key);
+                tags.add(tag);
+            }
+            return this;
+        }
+
+        public Builder addAll(Collection<String> keywords, int tag) {
+            keywords.forEach(k -> add(k, tag));
+            return this;
+        }
+
+        public KeywordAutomaton build() {
+            return new KeywordAutomaton(keywords, tags);
+        }
+    }
+}
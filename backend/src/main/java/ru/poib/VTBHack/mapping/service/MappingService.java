@@ -4,10 +4,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.poib.VTBHack.mapping.model.*;
+import ru.poib.VTBHack.metrics.event.MappingPhaseEvent;
+import ru.poib.VTBHack.metrics.service.PerformanceMetrics;
 import ru.poib.VTBHack.parser.model.ProcessModel;
 import ru.poib.VTBHack.parser.model.ProcessTask;
 import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -25,6 +28,7 @@ public class MappingService {
     private final CommonFieldAnalyzer commonFieldAnalyzer;
     private final SecretFieldAnalyzer secretFieldAnalyzer;
     private final AIVerificationService aiVerificationService;
+    private final PerformanceMetrics metrics;
     
     // Пороги уверенности для различных стратегий
     private static final double EXACT_MATCH_THRESHOLD = 0.95;
@@ -38,7 +42,8 @@ public class MappingService {
                           OpenApiDependencyAnalyzer openApiDependencyAnalyzer,
                           CommonFieldAnalyzer commonFieldAnalyzer,
                           SecretFieldAnalyzer secretFieldAnalyzer,
-                          AIVerificationService aiVerificationService) {
+                          AIVerificationService aiVerificationService,
+                          PerformanceMetrics metrics) {
         this.endpointExtractor = endpointExtractor;
         this.semanticAnalysisService = semanticAnalysisService;
         this.dataFlowAnalyzer = dataFlowAnalyzer;
@@ -46,6 +51,7 @@ public class MappingService {
         this.commonFieldAnalyzer = commonFieldAnalyzer;
         this.secretFieldAnalyzer = secretFieldAnalyzer;
         this.aiVerificationService = aiVerificationService;
+        this.metrics = metrics;
     }
 
     // Backward-compatible constructor for tests/manual usage
@@ -53,7 +59,7 @@ public class MappingService {
                           SemanticAnalysisService semanticAnalysisService,
                           DataFlowAnalyzer dataFlowAnalyzer) {
         this(endpointExtractor, semanticAnalysisService, dataFlowAnalyzer, 
-             new OpenApiDependencyAnalyzer(), new CommonFieldAnalyzer(), new SecretFieldAnalyzer(), null);
+             new OpenApiDependencyAnalyzer(), new CommonFieldAnalyzer(), new SecretFieldAnalyzer(), null, PerformanceMetrics.noop());
     }
     
     // Конструктор для тестов без AIVerificationService
@@ -64,7 +70,7 @@ public class MappingService {
                           CommonFieldAnalyzer commonFieldAnalyzer,
                           SecretFieldAnalyzer secretFieldAnalyzer) {
         this(endpointExtractor, semanticAnalysisService, dataFlowAnalyzer, 
-             openApiDependencyAnalyzer, commonFieldAnalyzer, secretFieldAnalyzer, null);
+             openApiDependencyAnalyzer, commonFieldAnalyzer, secretFieldAnalyzer, null, PerformanceMetrics.noop());
     }
     
     /**
@@ -94,8 +100,12 @@ public class MappingService {
         
         // Извлекаем эндпоинты из OpenAPI
         long extractStartTime = System.currentTimeMillis();
+        MappingPhaseEvent phase = MappingPhaseEvent.start(MappingPhaseEvent.ENDPOINTS, null, 0);
         List<EndpointInfo> endpoints = endpointExtractor.extractEndpoints(openApiModel);
-        log.debug("Extracted {} endpoints in {}ms", endpoints.size(), System.currentTimeMillis() - extractStartTime);
+        phase.finish();
+        long extractDuration = System.currentTimeMillis() - extractStartTime;
+        metrics.record(PerformanceMetrics.Phase.MAPPING_ENDPOINTS, Duration.ofMillis(extractDuration));
+        log.debug("Extracted {} endpoints in {}ms", endpoints.size(), extractDuration);
         
         // Создаем маппинг для каждой задачи
         long matchingStartTime = System.currentTimeMillis();
@@ -106,7 +116,9 @@ public class MappingService {
         log.debug("Starting task matching for {} tasks...", processModel.getTasks().size());
         // Сначала пробуем найти точные совпадения
         for (ProcessTask task : processModel.getTasks()) {
+            phase = MappingPhaseEvent.start(MappingPhaseEvent.EXACT_MATCH, task.getId(), endpoints.size());
             TaskEndpointMapping exactMatch = tryExactMatch(task, endpoints);
+            phase.finish();
             if (exactMatch != null && exactMatch.getConfidenceScore() >= EXACT_MATCH_THRESHOLD) {
                 taskMappings.put(task.getId(), exactMatch);
                 matchedEndpointIds.add(exactMatch.getEndpointPath() + ":" + exactMatch.getEndpointMethod());
@@ -114,7 +126,9 @@ public class MappingService {
             }
             
             // Если точного совпадения нет, ищем наилучшее возможное
+            phase = MappingPhaseEvent.start(MappingPhaseEvent.SIMILARITY, task.getId(), endpoints.size());
             TaskEndpointMapping mapping = findBestMatch(task, endpoints);
+            phase.finish();
             if (mapping != null && mapping.getConfidenceScore() >= MIN_CONFIDENCE_THRESHOLD) {
                 taskMappings.put(task.getId(), mapping);
                 matchedEndpointIds.add(mapping.getEndpointPath() + ":" + mapping.getEndpointMethod());
@@ -125,16 +139,21 @@ public class MappingService {
         }
         
         long matchingDuration = System.currentTimeMillis() - matchingStartTime;
+        metrics.record(PerformanceMetrics.Phase.MAPPING_MATCHING, Duration.ofMillis(matchingDuration));
         log.debug("Task matching completed in {}ms: {} matched, {} unmatched", 
             matchingDuration, taskMappings.size(), unmatchedTasks.size());
         
         // Анализируем поток данных на основе последовательности задач
         long dataFlowStartTime = System.currentTimeMillis();
+        phase = MappingPhaseEvent.start(MappingPhaseEvent.DATA_FLOW, null, endpoints.size());
         List<DataFlowEdge> dataFlowEdges = dataFlowAnalyzer.analyzeDataFlow(processModel, taskMappings);
-        log.debug("Data flow analysis completed in {}ms: {} edges", 
-            System.currentTimeMillis() - dataFlowStartTime, dataFlowEdges.size());
+        phase.finish();
+        long dataFlowDuration = System.currentTimeMillis() - dataFlowStartTime;
+        metrics.record(PerformanceMetrics.Phase.MAPPING_DATA_FLOW, Duration.ofMillis(dataFlowDuration));
+        log.debug("Data flow analysis completed in {}ms: {} edges", dataFlowDuration, dataFlowEdges.size());
 
         // Анализируем зависимости из описаний OpenAPI
+        phase = MappingPhaseEvent.start(MappingPhaseEvent.DEPENDENCIES, null, endpoints.size());
         Map<String, List<OpenApiDependencyAnalyzer.OpenApiDependency>> dependencies = 
                 openApiDependencyAnalyzer.analyze(openApiModel);
         
@@ -142,7 +161,8 @@ public class MappingService {
         addMissingDependencyTasks(taskMappings, dependencies, endpoints, matchedEndpointIds);
         
         // Создаем ребра зависимостей
-        List<DataFlowEdge> dependencyEdges = buildEdgesFromOpenApiDependencies(taskMappings, openApiModel);
+        List<DataFlowEdge> dependencyEdges = buildEdgesFromOpenApiDependencies(taskMappings, dependencies);
+        phase.finish();
         // Избегаем дубликатов
         for (DataFlowEdge de : dependencyEdges) {
             boolean exists = dataFlowEdges.stream().anyMatch(e ->
@@ -162,10 +182,14 @@ public class MappingService {
         double overallConfidence = calculateBpmnTaskMatchingConfidence(taskMappings, processModel.getTasks().size());
         
         // Анализируем общие поля между эндпоинтами (исключаем поля-зависимости)
+        phase = MappingPhaseEvent.start(MappingPhaseEvent.COMMON_FIELDS, null, endpoints.size());
         List<CommonField> commonFields = commonFieldAnalyzer.analyzeCommonFields(openApiModel, dependencies);
+        phase.finish();
         
         // Анализируем секретные поля, которые требуют ввода пользователем
+        phase = MappingPhaseEvent.start(MappingPhaseEvent.SECRET_FIELDS, null, endpoints.size());
         List<SecretField> secretFields = secretFieldAnalyzer.analyzeSecretFields(openApiModel);
+        phase.finish();
         
         // Выполняем проверку файлов с помощью ИИ (если переданы исходные строки)
         // Делаем это с таймаутом, чтобы не блокировать основной процесс
@@ -173,15 +197,20 @@ public class MappingService {
         if (openApiJson != null && bpmnXml != null && aiVerificationService != null) {
             long aiCheckStartTime = System.currentTimeMillis();
             log.info("Starting AI verification check...");
+            phase = MappingPhaseEvent.start(MappingPhaseEvent.AI_VERIFICATION, null, endpoints.size());
             try {
                 aiVerificationReport = aiVerificationService.verifyFiles(openApiJson, bpmnXml);
                 long aiCheckDuration = System.currentTimeMillis() - aiCheckStartTime;
+                metrics.record(PerformanceMetrics.Phase.MAPPING_AI_VERIFICATION, Duration.ofMillis(aiCheckDuration));
                 log.info("AI verification check completed in {}ms", aiCheckDuration);
             } catch (Exception e) {
                 long aiCheckDuration = System.currentTimeMillis() - aiCheckStartTime;
+                metrics.record(PerformanceMetrics.Phase.MAPPING_AI_VERIFICATION, Duration.ofMillis(aiCheckDuration));
                 log.warn("AI verification check failed after {}ms, continuing without AI report", aiCheckDuration, e);
                 // Логируем ошибку, но не прерываем выполнение
                 // В случае ошибки проверки ИИ, просто не добавляем отчет
+            } finally {
+                phase.finish();
             }
         } else {
             if (aiVerificationService == null) {
@@ -208,6 +237,7 @@ public class MappingService {
         result.setAiVerificationReport(aiVerificationReport);
         
         long totalMappingDuration = System.currentTimeMillis() - mappingStartTime;
+        metrics.record(PerformanceMetrics.Phase.MAPPING_TOTAL, Duration.ofMillis(totalMappingDuration));
         log.info("Mapping process completed in {}ms: {} tasks matched, confidence: {:.2f}%", 
             totalMappingDuration, result.getMatchedTasks(), result.getOverallConfidence() * 100.0);
         log.info("Mapping result summary: {} dataFlowEdges, {} commonFields, {} secretFields", 
@@ -410,9 +440,9 @@ public class MappingService {
      * Учитывает зависимости на уровне параметров (например, когда параметр требует значение из другого эндпоинта).
      */
     private List<DataFlowEdge> buildEdgesFromOpenApiDependencies(Map<String, TaskEndpointMapping> taskMappings,
-                                                                 OpenApiModel openApiModel) {
+                                                                 Map<String, List<OpenApiDependencyAnalyzer.OpenApiDependency>> depsByEndpoint) {
         List<DataFlowEdge> edges = new ArrayList<>();
-        if (openApiModel == null || taskMappings == null || taskMappings.isEmpty()) {
+        if (depsByEndpoint == null || taskMappings == null || taskMappings.isEmpty()) {
             return edges;
         }
 
@@ -425,9 +455,6 @@ public class MappingService {
             }
         });
 
-        Map<String, List<OpenApiDependencyAnalyzer.OpenApiDependency>> depsByEndpoint =
-                openApiDependencyAnalyzer.analyze(openApiModel);
-
         for (Map.Entry<String, List<OpenApiDependencyAnalyzer.OpenApiDependency>> entry : depsByEndpoint.entrySet()) {
             String targetEndpointKey = entry.getKey();
             String targetTaskId = endpointToTask.get(targetEndpointKey);
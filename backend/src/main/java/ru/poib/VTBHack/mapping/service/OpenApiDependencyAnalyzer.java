@@ -17,16 +17,28 @@ import java.util.regex.Pattern;
 @Service
 public class OpenApiDependencyAnalyzer {
 
-    // Ищем явные упоминания HTTP-метода и пути (учитываем скобки и другие символы)
-    private static final Pattern ENDPOINT_PATTERN = Pattern.compile("(?i)(GET|POST|PUT|DELETE|PATCH)\\s+(/[-\\w{}./]+)");
-    // Подсказки, что это именно зависимость (а не просто упоминание)
-    private static final Pattern DEP_HINT_PATTERN = Pattern.compile("(?iu)(получите|получить|подставить|возьмите|используйте|из ответа|response of|через|via|through|get from)");
     // Эвристика извлечения имени поля из ответа рядом с упоминанием
     private static final Pattern FIELD_HINT_PATTERN = Pattern.compile("(?iu)(поле|field|значение|token|id|identifier|consent[_-]?id|data)[:\n\r\s]*([A-Za-z0-9_.-]+)");
     // Паттерн для поиска упоминаний эндпоинтов в описаниях (более гибкий, учитывает скобки)
     // Пример: "(получите через POST /account-consents/request)"
     private static final Pattern ENDPOINT_IN_TEXT_PATTERN = Pattern.compile("(?i)(?:через|via|through|get from|получите через|получить через)\\s+(GET|POST|PUT|DELETE|PATCH)\\s+(/[-\\w{}./]+)");
 
+    // Категории ключевых слов для однопроходного сканирования
+    private static final int TAG_HINT = 1;           // подсказки, что это именно зависимость (а не просто упоминание)
+    private static final int TAG_VERB = 1 << 1;      // HTTP-методы, после которых ищем путь
+    private static final int TAG_CONNECTOR = 1 << 2; // связки из ENDPOINT_IN_TEXT_PATTERN
+    private static final int TAG_FIELD = 1 << 3;     // начала альтернатив FIELD_HINT_PATTERN
+
+    // Все ключевые слова в одном автомате: текст сканируется один раз,
+    // а регулярные выражения запускаются только там, где ключевое слово действительно есть
+    private static final KeywordAutomaton KEYWORDS = KeywordAutomaton.builder()
+            .addAll(List.of("получите", "получить", "подставить", "возьмите", "используйте",
+                    "из ответа", "response of", "через", "via", "through", "get from"), TAG_HINT)
+            .addAll(List.of("get", "post", "put", "delete", "patch"), TAG_VERB)
+            .addAll(List.of("через", "via", "through", "get from"), TAG_CONNECTOR)
+            .addAll(List.of("поле", "field", "значение", "token", "id", "identifier", "consent", "data"), TAG_FIELD)
+            .build();
+
     /**
      * Возвращает зависимости: для каждой операции список эндпоинтов, из ответа которых нужно подставить данные
      * Ключ: method:path текущей операции. Значение: список зависимых эндпоинтов с информацией о параметре и поле.
@@ -94,6 +106,9 @@ public class OpenApiDependencyAnalyzer {
 
     /**
      * Извлекает зависимости из текста описания.
+     * Текст сначала один раз проходит через автомат ключевых слов; регулярные выражения
+     * запускаются только если в тексте встретились HTTP-метод, связка или подсказка о поле,
+     * и только начиная с позиции первого такого ключевого слова.
      * @param text Текст для анализа
      * @param parameterName Имя параметра, если анализ идет на уровне параметра (null для уровня операции)
      * @param parameterIn Тип параметра (header, query, path) или null
@@ -107,18 +122,43 @@ public class OpenApiDependencyAnalyzer {
             return deps;
         }
 
+        TextScan scan = TextScan.of(text);
+        // Без упоминания HTTP-метода зависимостей быть не может
+        if (scan.verbHits.isEmpty()) {
+            return deps;
+        }
+
         // Проверяем наличие подсказок о зависимости
-        Matcher hintMatcher = DEP_HINT_PATTERN.matcher(text);
-        boolean hasDependencyHint = hintMatcher.find();
-
-        // Ищем упоминания эндпоинтов
-        Matcher endpointMatcher = ENDPOINT_PATTERN.matcher(text);
-        while (endpointMatcher.find()) {
-            String depMethod = endpointMatcher.group(1).toUpperCase(Locale.ROOT);
-            String depPath = endpointMatcher.group(2);
-            
+        boolean hasDependencyHint = scan.has(TAG_HINT);
+
+        // Если паттерн "через POST /path" найден явно, это очень надежно
+        boolean explicitEndpoint = scan.firstConnectorStart >= 0
+                && ENDPOINT_IN_TEXT_PATTERN.matcher(text).find(scan.firstConnectorStart);
+
+        // Подсказка о поле одинакова для всех упоминаний в тексте, вычисляем ее один раз
+        String fieldHint = null;
+        boolean fieldHintResolved = false;
+
+        // Ищем упоминания эндпоинтов (неперекрывающиеся, слева направо, как Matcher.find)
+        int lastEnd = 0;
+        for (int[] hit : scan.verbHits) {
+            if (hit[0] < lastEnd) {
+                continue;
+            }
+            int matchEnd = matchEndpointAt(text, hit[1]);
+            if (matchEnd < 0) {
+                continue;
+            }
+            lastEnd = matchEnd;
+
+            String depMethod = text.substring(hit[0], hit[1]).toUpperCase(Locale.ROOT);
+            String depPath = text.substring(text.indexOf('/', hit[1]), matchEnd);
+
             // Пытаемся извлечь подсказку о поле из ответа
-            String fieldHint = extractFieldHint(text, parameterName);
+            if (!fieldHintResolved) {
+                fieldHint = extractFieldHint(text, parameterName, scan.firstFieldStart);
+                fieldHintResolved = true;
+            }
             
             // Определяем уверенность на основе наличия подсказок
             double confidence = 0.5; // базовая уверенность
@@ -129,9 +169,7 @@ public class OpenApiDependencyAnalyzer {
                 confidence = 0.8;
             }
             
-            // Если паттерн "через POST /path" найден явно, это очень надежно
-            Matcher explicitMatcher = ENDPOINT_IN_TEXT_PATTERN.matcher(text);
-            if (explicitMatcher.find()) {
+            if (explicitEndpoint) {
                 confidence = 0.95;
             }
 
@@ -148,11 +186,43 @@ public class OpenApiDependencyAnalyzer {
         return deps;
     }
 
+    /**
+     * Проверяет, что после HTTP-метода идет путь, и возвращает позицию конца совпадения.
+     * Эквивалентно хвосту регулярного выражения {@code (GET|POST|...) \s+(/[-\w{}./]+)}.
+     * @param text Текст
+     * @param verbEnd Позиция сразу после HTTP-метода
+     * @return Позиция конца пути или -1, если путь не найден
+     */
+    private static int matchEndpointAt(String text, int verbEnd) {
+        int i = verbEnd;
+        while (i < text.length() && isRegexWhitespace(text.charAt(i))) {
+            i++;
+        }
+        if (i == verbEnd || i >= text.length() || text.charAt(i) != '/') {
+            return -1;
+        }
+        int pathStart = ++i;
+        while (i < text.length() && isPathChar(text.charAt(i))) {
+            i++;
+        }
+        return i > pathStart ? i : -1;
+    }
+
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isPathChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '-' || c == '{' || c == '}' || c == '.' || c == '/';
+    }
+
     /**
      * Извлекает подсказку о поле из ответа из текста.
      * Пытается найти упоминание конкретного поля, которое нужно извлечь из ответа.
+     * @param firstFieldStart Позиция первого ключевого слова подсказки о поле или -1
      */
-    private String extractFieldHint(String text, String parameterName) {
+    private String extractFieldHint(String text, String parameterName, int firstFieldStart) {
         // Если имя параметра содержит подсказку (например, x-consent-id -> consent-id)
         if (parameterName != null) {
             // Убираем префиксы типа x-, X-
@@ -165,16 +235,69 @@ public class OpenApiDependencyAnalyzer {
             }
         }
 
-        // Ищем явные упоминания полей в тексте
-        Matcher fieldMatcher = FIELD_HINT_PATTERN.matcher(text);
-        if (fieldMatcher.find()) {
-            return fieldMatcher.group(2);
+        // Ищем явные упоминания полей в тексте (совпадение не может начаться раньше первого ключевого слова)
+        if (firstFieldStart >= 0) {
+            Matcher fieldMatcher = FIELD_HINT_PATTERN.matcher(text);
+            if (fieldMatcher.find(firstFieldStart)) {
+                return fieldMatcher.group(2);
+            }
         }
 
         // По умолчанию возвращаем null - будет использоваться логика по умолчанию
         return null;
     }
 
+    /**
+     * Результат однопроходного сканирования текста автоматом ключевых слов
+     */
+    private static final class TextScan {
+        int mask;
+        int firstConnectorStart = -1;
+        int firstFieldStart = -1;
+        // Пары [start, end] упоминаний HTTP-методов, упорядоченные по start
+        final List<int[]> verbHits = new ArrayList<>(2);
+
+        static TextScan of(String text) {
+            TextScan scan = new TextScan();
+            KEYWORDS.scan(text, (start, end, k) -> {
+                int tag = KEYWORDS.tag(k);
+                scan.mask |= tag;
+                if ((tag & TAG_VERB) != 0 && isAscii(text, start, end)) {
+                    scan.verbHits.add(new int[]{start, end});
+                }
+                if ((tag & TAG_CONNECTOR) != 0) {
+                    scan.firstConnectorStart = minStart(scan.firstConnectorStart, start);
+                }
+                if ((tag & TAG_FIELD) != 0) {
+                    scan.firstFieldStart = minStart(scan.firstFieldStart, start);
+                }
+                return true;
+            });
+            if (scan.verbHits.size() > 1) {
+                scan.verbHits.sort(Comparator.comparingInt(h -> h[0]));
+            }
+            return scan;
+        }
+
+        boolean has(int tag) {
+            return (mask & tag) != 0;
+        }
+
+        private static int minStart(int current, int start) {
+            return current < 0 ? start : Math.min(current, start);
+        }
+
+        // HTTP-методы сравниваются без учета регистра только в ASCII
+        private static boolean isAscii(String text, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (text.charAt(i) > 127) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Модель зависимости текущего эндпоинта от другого эндпоинта (для подстановки ответа)
      */
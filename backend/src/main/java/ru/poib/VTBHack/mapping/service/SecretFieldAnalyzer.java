@@ -7,7 +7,7 @@ import ru.poib.VTBHack.parser.model.openapi.Operation;
 import ru.poib.VTBHack.parser.model.openapi.Parameter;
 
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Анализирует секретные поля (пароли, токены, API ключи) из всех эндпоинтов OpenAPI
@@ -15,36 +15,38 @@ import java.util.regex.Pattern;
 @Service
 public class SecretFieldAnalyzer {
 
-    // Паттерны для определения секретных полей по имени
-    private static final List<Pattern> SECRET_NAME_PATTERNS = Arrays.asList(
-        Pattern.compile("(?i).*password.*"),
-        Pattern.compile("(?i).*secret.*"),
-        Pattern.compile("(?i).*token.*"),
-        Pattern.compile("(?i).*api[_-]?key.*"),
-        Pattern.compile("(?i).*api[_-]?token.*"),
-        Pattern.compile("(?i).*auth[_-]?token.*"),
-        Pattern.compile("(?i).*access[_-]?token.*"),
-        Pattern.compile("(?i).*refresh[_-]?token.*"),
-        Pattern.compile("(?i).*bearer.*"),
-        Pattern.compile("(?i).*credential.*"),
-        Pattern.compile("(?i).*authorization.*"),
-        Pattern.compile("(?i).*x[_-]?api[_-]?key.*"),
-        Pattern.compile("(?i).*x[_-]?auth.*"),
-        Pattern.compile("(?i).*x[_-]?token.*"),
-        Pattern.compile("(?i).*private[_-]?key.*"),
-        Pattern.compile("(?i).*session[_-]?id.*")
+    // Правила для определения секретных полей по имени: имя секретно, если содержит фрагмент правила.
+    // "[_-]?" означает необязательный разделитель. Порядок важен: в отчет попадает первое сработавшее правило.
+    private static final List<String> SECRET_NAME_RULES = Arrays.asList(
+        "password",
+        "secret",
+        "token",
+        "api[_-]?key",
+        "api[_-]?token",
+        "auth[_-]?token",
+        "access[_-]?token",
+        "refresh[_-]?token",
+        "bearer",
+        "credential",
+        "authorization",
+        "x[_-]?api[_-]?key",
+        "x[_-]?auth",
+        "x[_-]?token",
+        "private[_-]?key",
+        "session[_-]?id"
     );
 
-    // Имена заголовков, которые обычно содержат секреты
-    private static final Set<String> SECRET_HEADER_NAMES = new HashSet<>(Arrays.asList(
-        "authorization",
-        "x-api-key",
-        "x-auth-token",
-        "x-access-token",
-        "api-key",
-        "auth-token",
-        "x-authorization"
-    ));
+    // Все варианты всех правил в одном автомате; тег ключевого слова — бит индекса правила
+    private static final KeywordAutomaton SECRET_NAME_AUTOMATON = buildSecretNameAutomaton();
+
+    // Предельный размер кэша классификации, после которого он сбрасывается
+    private static final int MAX_CACHED_NAMES = 10_000;
+
+    /**
+     * Кэш классификации имен: нормализованное имя -> индекс сработавшего правила или -1.
+     * Одни и те же имена полей повторяются в сотнях операций, поэтому имя разбирается один раз.
+     */
+    private final Map<String, Integer> ruleIndexByName = new ConcurrentHashMap<>();
 
     /**
      * Анализирует все эндпоинты и находит секретные поля
@@ -81,6 +83,7 @@ public class SecretFieldAnalyzer {
             secretField.setRequired(info.isRequired);
             secretField.setUsedInEndpoints(new ArrayList<>(info.endpoints));
             secretField.setReason(info.reason);
+            secretField.setMatchedRule(info.matchedRule);
             
             secretFields.add(secretField);
         }
@@ -108,12 +111,12 @@ public class SecretFieldAnalyzer {
                 String fieldType = param.getIn() != null ? param.getIn() : "unknown";
                 
                 // Проверяем, является ли поле секретным
-                String reason = isSecretField(fieldName, fieldType);
-                if (reason != null) {
+                SecretRuleMatch match = isSecretField(fieldName, fieldType);
+                if (match != null) {
                     String key = fieldName + ":" + fieldType;
                     
                     SecretFieldInfo info = secretFieldsMap.computeIfAbsent(key, 
-                        k -> new SecretFieldInfo(fieldName, fieldType, reason));
+                        k -> new SecretFieldInfo(fieldName, fieldType, match));
                     
                     info.endpoints.add(endpointKey);
                     
@@ -138,33 +141,78 @@ public class SecretFieldAnalyzer {
     }
 
     /**
-     * Проверяет, является ли поле секретным
+     * Проверяет, является ли поле секретным. Отдельного списка известных заголовков нет:
+     * все такие имена (authorization, x-api-key, auth-token, ...) уже покрываются правилами по имени
      * @param fieldName Имя поля
      * @param fieldType Тип поля (header, query, path)
-     * @return Причина, по которой поле считается секретом, или null если это не секрет
+     * @return Сработавшее правило, или null если это не секрет
      */
-    private String isSecretField(String fieldName, String fieldType) {
+    private SecretRuleMatch isSecretField(String fieldName, String fieldType) {
         if (fieldName == null) {
             return null;
         }
         
         String lowerFieldName = fieldName.toLowerCase();
         
-        // Проверяем паттерны по имени
-        for (Pattern pattern : SECRET_NAME_PATTERNS) {
-            if (pattern.matcher(lowerFieldName).matches()) {
-                return "Field name matches secret pattern: " + pattern.pattern();
-            }
+        // Проверяем правила по имени
+        int ruleIndex = classifyName(lowerFieldName);
+        if (ruleIndex >= 0) {
+            String rule = SECRET_NAME_RULES.get(ruleIndex);
+            return new SecretRuleMatch(rule, "Field name matches secret pattern: (?i).*" + rule + ".*");
         }
         
-        // Проверяем специальные заголовки
-        if ("header".equalsIgnoreCase(fieldType)) {
-            if (SECRET_HEADER_NAMES.contains(lowerFieldName)) {
-                return "Known secret header name";
+        return null;
+    }
+
+    /**
+     * Возвращает индекс первого правила, которому соответствует имя, или -1.
+     * Один проход автомата по имени находит все сработавшие правила сразу.
+     */
+    private int classifyName(String lowerFieldName) {
+        Integer cached = ruleIndexByName.get(lowerFieldName);
+        if (cached != null) {
+            return cached;
+        }
+        int mask = SECRET_NAME_AUTOMATON.tagsIn(lowerFieldName);
+        int ruleIndex = mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask);
+        if (ruleIndexByName.size() >= MAX_CACHED_NAMES) {
+            ruleIndexByName.clear();
+        }
+        ruleIndexByName.put(lowerFieldName, ruleIndex);
+        return ruleIndex;
+    }
+
+    private static KeywordAutomaton buildSecretNameAutomaton() {
+        KeywordAutomaton.Builder builder = KeywordAutomaton.builder();
+        for (int i = 0; i < SECRET_NAME_RULES.size(); i++) {
+            builder.addAll(expandSeparators(SECRET_NAME_RULES.get(i)), 1 << i);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Раскрывает необязательные разделители "[_-]?" во все варианты написания:
+     * "api[_-]?key" -> apikey, api_key, api-key
+     */
+    private static List<String> expandSeparators(String rule) {
+        String[] parts = rule.split("\\[_-]\\?", -1);
+        List<String> variants = List.of(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            List<String> next = new ArrayList<>();
+            for (String prefix : variants) {
+                for (String separator : new String[]{"", "_", "-"}) {
+                    next.add(prefix + separator + parts[i]);
+                }
             }
+            variants = next;
         }
-        
-        return null;
+        return variants;
+    }
+
+    /**
+     * Сработавшее правило и человекочитаемая причина
+     */
+    private record SecretRuleMatch(String rule, String reason) {
     }
 
     /**
@@ -174,15 +222,17 @@ public class SecretFieldAnalyzer {
         String fieldName;
         String fieldType;
         String reason;
+        String matchedRule;
         Set<String> endpoints = new HashSet<>();
         boolean isRequired = false;
         String description;
         String dataType;
 
-        SecretFieldInfo(String fieldName, String fieldType, String reason) {
+        SecretFieldInfo(String fieldName, String fieldType, SecretRuleMatch match) {
             this.fieldName = fieldName;
             this.fieldType = fieldType;
-            this.reason = reason;
+            this.reason = match.reason();
+            this.matchedRule = match.rule();
         }
     }
 }
@@ -0,0 +1,82 @@
+package ru.poib.VTBHack.metrics.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.poib.VTBHack.metrics.model.RecordingInfo;
+import ru.poib.VTBHack.metrics.service.FlightRecorderService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Записи Java Flight Recorder по запросу для профилирования прогонов
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/profiling/recordings")
+@CrossOrigin(origins = "*")
+@AllArgsConstructor
+public class FlightRecorderController {
+
+    private final FlightRecorderService flightRecorderService;
+
+    /**
+     * Запускает запись на заданное время
+     */
+    @PostMapping
+    public ResponseEntity<RecordingInfo> start(@RequestParam(defaultValue = "60") long durationSeconds,
+                                               @RequestParam(defaultValue = "default") String settings) {
+        try {
+            return ResponseEntity.ok(flightRecorderService.start(Duration.ofSeconds(durationSeconds), settings));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("JFR recording was not started: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Failed to start JFR recording", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<RecordingInfo>> list() {
+        return ResponseEntity.ok(flightRecorderService.list());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<RecordingInfo> get(@PathVariable long id) {
+        RecordingInfo info = flightRecorderService.get(id);
+        if (info == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(info);
+    }
+
+    /**
+     * Останавливает запись (если она еще идет) и отдает файл .jfr для JDK Mission Control или jfr print
+     */
+    @GetMapping("/{id}/file")
+    public ResponseEntity<Resource> download(@PathVariable long id) {
+        Path file = flightRecorderService.stop(id);
+        if (file == null || !Files.exists(file)) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(file));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable long id) {
+        try {
+            return flightRecorderService.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Failed to delete JFR recording {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
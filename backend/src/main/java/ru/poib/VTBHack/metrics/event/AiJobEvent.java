@@ -0,0 +1,58 @@
+package ru.poib.VTBHack.metrics.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR событие обработки AI задачи воркером очереди
+ */
+@Name("ru.poib.VTBHack.AiJob")
+@Label("Обработка AI задачи")
+@Category({"VTBHack", "AI queue"})
+@StackTrace(false)
+public class AiJobEvent extends Event {
+
+    @Label("ID задачи")
+    private String jobId;
+
+    @Label("ID проекта")
+    private String projectId;
+
+    @Label("Модель")
+    private String modelName;
+
+    @Label("Ожидание в очереди, мс")
+    private long queueWaitMs;
+
+    @Label("Объем входных данных")
+    @DataAmount
+    private long bytes;
+
+    @Label("Итог")
+    private String outcome;
+
+    public static AiJobEvent start(String jobId, String projectId, String modelName, long queueWaitMs,
+                                   String openApiJson, String bpmnXml) {
+        AiJobEvent event = new AiJobEvent();
+        if (event.isEnabled()) {
+            event.jobId = jobId;
+            event.projectId = projectId;
+            event.modelName = modelName;
+            event.queueWaitMs = queueWaitMs;
+            event.bytes = Utf8.length(openApiJson) + Utf8.length(bpmnXml);
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(String outcome) {
+        if (isEnabled()) {
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
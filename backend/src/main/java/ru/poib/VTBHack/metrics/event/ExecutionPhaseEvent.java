@@ -0,0 +1,82 @@
+package ru.poib.VTBHack.metrics.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR событие фазы выполнения шага: построение URL, тела и заголовков, сериализация,
+ * ожидание HTTP ответа, валидация и извлечение данных.
+ * Пока запись не включена, поля не заполняются и событие не фиксируется.
+ */
+@Name("ru.poib.VTBHack.ExecutionPhase")
+@Label("Фаза выполнения шага")
+@Category({"VTBHack", "Execution"})
+@StackTrace(false)
+public class ExecutionPhaseEvent extends Event {
+
+    public static final String URL = "url";
+    public static final String BODY = "body";
+    public static final String HEADERS = "headers";
+    public static final String SERIALIZATION = "serialization";
+    public static final String HTTP = "http";
+    public static final String VALIDATION = "validation";
+    public static final String EXTRACTION = "extraction";
+
+    @Label("Фаза")
+    private String phase;
+
+    @Label("ID задачи")
+    private String taskId;
+
+    @Label("Эндпоинт")
+    @Description("HTTP метод и шаблон пути")
+    private String endpoint;
+
+    @Label("Объем данных")
+    @Description("Размер тела запроса или ответа в UTF-8")
+    @DataAmount
+    private long bytes;
+
+    /**
+     * Начинает измерение фазы
+     */
+    public static ExecutionPhaseEvent start(String phase, String taskId, String method, String path) {
+        ExecutionPhaseEvent event = new ExecutionPhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase;
+            event.taskId = taskId;
+            event.endpoint = method + " " + path;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish() {
+        commit();
+    }
+
+    /**
+     * Завершает фазу с размером обработанных данных
+     */
+    public void finish(String payload) {
+        if (isEnabled()) {
+            bytes = Utf8.length(payload);
+            commit();
+        }
+    }
+
+    /**
+     * Завершает фазу с уже известным размером данных в байтах
+     */
+    public void finish(long payloadBytes) {
+        if (isEnabled()) {
+            bytes = payloadBytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.poib.VTBHack.metrics.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR событие фазы сопоставления: извлечение эндпоинтов, оценка сходства для задачи,
+ * анализ потока данных, зависимостей, общих и секретных полей, проверка ИИ
+ */
+@Name("ru.poib.VTBHack.MappingPhase")
+@Label("Фаза сопоставления")
+@Category({"VTBHack", "Mapping"})
+@StackTrace(false)
+public class MappingPhaseEvent extends Event {
+
+    public static final String ENDPOINTS = "endpoints";
+    public static final String EXACT_MATCH = "exact-match";
+    public static final String SIMILARITY = "similarity";
+    public static final String DATA_FLOW = "dataflow";
+    public static final String DEPENDENCIES = "dependencies";
+    public static final String COMMON_FIELDS = "common-fields";
+    public static final String SECRET_FIELDS = "secret-fields";
+    public static final String AI_VERIFICATION = "ai-verification";
+
+    @Label("Фаза")
+    private String phase;
+
+    @Label("ID задачи")
+    @Description("Задача BPMN для фаз, выполняемых по задачам")
+    private String taskId;
+
+    @Label("Эндпоинтов")
+    @Description("Число эндпоинтов-кандидатов")
+    private int endpoints;
+
+    public static MappingPhaseEvent start(String phase, String taskId, int endpoints) {
+        MappingPhaseEvent event = new MappingPhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase;
+            event.taskId = taskId;
+            event.endpoints = endpoints;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish() {
+        commit();
+    }
+}
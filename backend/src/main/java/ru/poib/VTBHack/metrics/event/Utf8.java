@@ -0,0 +1,31 @@
+package ru.poib.VTBHack.metrics.event;
+
+/**
+ * Размер строки в UTF-8 без кодирования в массив байт
+ */
+final class Utf8 {
+
+    private Utf8() {
+    }
+
+    static long length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
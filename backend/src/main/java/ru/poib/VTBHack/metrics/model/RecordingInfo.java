@@ -0,0 +1,28 @@
+package ru.poib.VTBHack.metrics.model;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Запись Java Flight Recorder, запущенная по запросу
+ */
+@Data
+public class RecordingInfo {
+    private long id;
+    private String name;
+    /**
+     * Набор настроек JFR: default (накладные расходы около 1%) или profile
+     */
+    private String settings;
+    /**
+     * Состояние записи: RUNNING, STOPPED, CLOSED
+     */
+    private String state;
+    private Instant startedAt;
+    private long durationSeconds;
+    /**
+     * Размер записанного файла в байтах (после остановки)
+     */
+    private Long sizeBytes;
+}
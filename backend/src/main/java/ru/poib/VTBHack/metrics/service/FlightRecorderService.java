@@ -0,0 +1,160 @@
+package ru.poib.VTBHack.metrics.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.metrics.event.AiJobEvent;
+import ru.poib.VTBHack.metrics.event.ExecutionPhaseEvent;
+import ru.poib.VTBHack.metrics.event.MappingPhaseEvent;
+import ru.poib.VTBHack.metrics.model.RecordingInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Записи Java Flight Recorder по запросу: запуск на ограниченное время, остановка и выгрузка файла.
+ * Помимо стандартных событий JVM включаются события фаз выполнения, сопоставления и AI очереди.
+ * Запись ограничена по времени, поэтому забытая запись не растет бесконечно.
+ */
+@Slf4j
+@Service
+public class FlightRecorderService {
+
+    static final Duration MAX_DURATION = Duration.ofMinutes(30);
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+    // Одновременно хранимых записей (запущенных и остановленных, но не удаленных)
+    private static final int MAX_RECORDINGS = 5;
+
+    private final Map<Long, ManagedRecording> recordings = new ConcurrentHashMap<>();
+    private final Path baseDir;
+
+    private record ManagedRecording(Recording recording, String settings) {
+    }
+
+    public FlightRecorderService() {
+        this(Paths.get(System.getProperty("user.dir")).resolve("data").resolve("recordings"));
+    }
+
+    FlightRecorderService(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Запускает запись
+     *
+     * @param duration длительность, после которой запись останавливается и сохраняется в файл
+     * @param settings набор настроек JFR: default или profile
+     */
+    public synchronized RecordingInfo start(Duration duration, String settings) throws IOException {
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(MAX_DURATION) > 0) {
+            throw new IllegalArgumentException("Длительность записи должна быть от 1 секунды до " + MAX_DURATION.toMinutes() + " минут");
+        }
+        if (!SETTINGS.contains(settings)) {
+            throw new IllegalArgumentException("Неизвестный набор настроек JFR: " + settings);
+        }
+        if (recordings.size() >= MAX_RECORDINGS) {
+            throw new IllegalStateException("Слишком много записей, удалите ненужные");
+        }
+
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (ParseException e) {
+            throw new IOException("Не удалось загрузить настройки JFR " + settings, e);
+        }
+        Files.createDirectories(baseDir);
+
+        Recording recording = new Recording(configuration);
+        recording.setName("vtbhack-" + settings + "-" + recording.getId());
+        recording.enable(ExecutionPhaseEvent.class).withoutThreshold();
+        recording.enable(MappingPhaseEvent.class).withoutThreshold();
+        recording.enable(AiJobEvent.class).withoutThreshold();
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        recording.setDestination(fileOf(recording));
+        recording.start();
+        ManagedRecording managed = new ManagedRecording(recording, settings);
+        recordings.put(recording.getId(), managed);
+        log.info("Started JFR recording {} for {}s with '{}' settings", recording.getId(), duration.toSeconds(), settings);
+        return toInfo(managed);
+    }
+
+    public List<RecordingInfo> list() {
+        List<RecordingInfo> result = new ArrayList<>();
+        for (ManagedRecording managed : recordings.values()) {
+            result.add(toInfo(managed));
+        }
+        result.sort(Comparator.comparingLong(RecordingInfo::getId));
+        return result;
+    }
+
+    public RecordingInfo get(long id) {
+        ManagedRecording managed = recordings.get(id);
+        return managed != null ? toInfo(managed) : null;
+    }
+
+    /**
+     * Останавливает запись (если она еще идет) и возвращает файл с данными
+     *
+     * @return путь к файлу .jfr или null, если записи нет
+     */
+    public Path stop(long id) {
+        ManagedRecording managed = recordings.get(id);
+        if (managed == null) {
+            return null;
+        }
+        Recording recording = managed.recording();
+        if (recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED) {
+            recording.stop();
+            log.info("Stopped JFR recording {}", id);
+        }
+        return fileOf(recording);
+    }
+
+    /**
+     * Закрывает запись и удаляет ее файл
+     */
+    public boolean delete(long id) throws IOException {
+        ManagedRecording managed = recordings.remove(id);
+        if (managed == null) {
+            return false;
+        }
+        managed.recording().close();
+        Files.deleteIfExists(fileOf(managed.recording()));
+        return true;
+    }
+
+    private Path fileOf(Recording recording) {
+        return baseDir.resolve(recording.getName() + ".jfr");
+    }
+
+    private RecordingInfo toInfo(ManagedRecording managed) {
+        Recording recording = managed.recording();
+        RecordingInfo info = new RecordingInfo();
+        info.setId(recording.getId());
+        info.setName(recording.getName());
+        info.setSettings(managed.settings());
+        info.setState(recording.getState().name());
+        info.setStartedAt(recording.getStartTime());
+        info.setDurationSeconds(recording.getDuration() != null ? recording.getDuration().toSeconds() : 0);
+        Path file = fileOf(recording);
+        if (recording.getState() == RecordingState.STOPPED && Files.exists(file)) {
+            try {
+                info.setSizeBytes(Files.size(file));
+            } catch (IOException ignored) {}
+        }
+        return info;
+    }
+}
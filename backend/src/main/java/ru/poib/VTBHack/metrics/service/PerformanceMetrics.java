@@ -0,0 +1,175 @@
+package ru.poib.VTBHack.metrics.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Метрики производительности: задержки шагов по эндпоинтам, длительность и ожидание прогонов,
+ * ожидание и обработка AI задач, фазы разбора и сопоставления.
+ * Все таймеры публикуют гистограмму, поэтому перцентили считаются на стороне Prometheus
+ * (histogram_quantile) и агрегируются между экземплярами.
+ */
+@Component
+public class PerformanceMetrics {
+
+    public static final String STEP_LATENCY = "vtbhack.step.latency";
+    public static final String LIMITER_WAIT = "vtbhack.limiter.wait";
+    public static final String CONNECTION_WAIT = "vtbhack.http.connection.wait";
+    public static final String RUN_DURATION = "vtbhack.run.duration";
+    public static final String RUN_QUEUE_WAIT = "vtbhack.run.queue.wait";
+    public static final String AI_JOB_WAIT = "vtbhack.ai.job.wait";
+    public static final String AI_JOB_SERVICE = "vtbhack.ai.job.service";
+    public static final String AI_QUEUE_SIZE = "vtbhack.ai.queue.size";
+    public static final String PHASE = "vtbhack.phase";
+
+    // Реестр без дочерних реестров: таймеры создаются, но ничего не записывают
+    private static final PerformanceMetrics NOOP = new PerformanceMetrics(new CompositeMeterRegistry());
+
+    /**
+     * Фазы разбора и сопоставления
+     */
+    public enum Phase {
+        PARSE_BPMN("parse.bpmn"),
+        PARSE_OPENAPI("parse.openapi"),
+        PARSE_OPENAPI_LAZY("parse.openapi.lazy"),
+        PARSE_PLANTUML("parse.plantuml"),
+        MAPPING_TOTAL("mapping.total"),
+        MAPPING_ENDPOINTS("mapping.endpoints"),
+        MAPPING_MATCHING("mapping.matching"),
+        MAPPING_DATA_FLOW("mapping.dataflow"),
+        MAPPING_AI_VERIFICATION("mapping.ai");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Действие, время которого измеряется; пробрасывает проверяемое исключение действия
+     */
+    @FunctionalInterface
+    public interface TimedAction<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final MeterRegistry registry;
+
+    public PerformanceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Метрики, которые никуда не записываются (для сервисов, созданных вне Spring)
+     */
+    public static PerformanceMetrics noop() {
+        return NOOP;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Выполняет действие и записывает его длительность как фазу, в том числе при исключении
+     */
+    public <T, E extends Exception> T time(Phase phase, TimedAction<T, E> action) throws E {
+        long start = System.nanoTime();
+        try {
+            return action.call();
+        } finally {
+            record(phase, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    public void record(Phase phase, Duration duration) {
+        timer(PHASE, "Длительность фаз разбора и сопоставления", "phase", phase.tag).record(duration);
+    }
+
+    /**
+     * Задержка шага прогона
+     *
+     * @param method       HTTP метод
+     * @param pathTemplate шаблон пути из спецификации (без подставленных значений)
+     * @param statusCode   код ответа; 0, если ответ не получен
+     */
+    public void recordStep(String method, String pathTemplate, int statusCode, Duration duration) {
+        Timer.builder(STEP_LATENCY)
+                .description("Задержка шагов прогона по эндпоинтам")
+                .tag("method", method != null ? method.toUpperCase() : "UNKNOWN")
+                .tag("path", pathTemplate != null ? pathTemplate : "UNKNOWN")
+                .tag("status", statusClass(statusCode))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(duration);
+    }
+
+    /**
+     * Ожидание ограничителя исходящих запросов перед шагом
+     */
+    public void recordLimiterWait(String method, String pathTemplate, Duration duration) {
+        timer(LIMITER_WAIT, "Ожидание ограничителя исходящих запросов",
+                "method", method != null ? method.toUpperCase() : "UNKNOWN",
+                "path", pathTemplate != null ? pathTemplate : "UNKNOWN").record(duration);
+    }
+
+    /**
+     * Ожидание свободного соединения в пуле HTTP клиента перед отправкой шага
+     */
+    public void recordConnectionWait(String method, String pathTemplate, Duration duration) {
+        timer(CONNECTION_WAIT, "Ожидание соединения из пула HTTP клиента",
+                "method", method != null ? method.toUpperCase() : "UNKNOWN",
+                "path", pathTemplate != null ? pathTemplate : "UNKNOWN").record(duration);
+    }
+
+    public void recordRunQueueWait(Duration duration) {
+        timer(RUN_QUEUE_WAIT, "Ожидание прогона в очереди до начала выполнения").record(duration);
+    }
+
+    /**
+     * @param outcome итог прогона (completed, failed)
+     */
+    public void recordRun(String outcome, Duration duration) {
+        timer(RUN_DURATION, "Длительность прогона", "outcome", outcome).record(duration);
+    }
+
+    public void recordAiJobWait(Duration duration) {
+        timer(AI_JOB_WAIT, "Ожидание AI задачи в очереди").record(duration);
+    }
+
+    /**
+     * @param outcome итог задачи (completed, error)
+     */
+    public void recordAiJobService(String outcome, Duration duration) {
+        timer(AI_JOB_SERVICE, "Время обработки AI задачи", "outcome", outcome).record(duration);
+    }
+
+    /**
+     * Размер очереди AI задач; коллекция опрашивается при каждом съеме метрик
+     */
+    public void registerAiQueue(Collection<?> queue) {
+        registry.gaugeCollectionSize(AI_QUEUE_SIZE, Tags.empty(), queue);
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    static String statusClass(int statusCode) {
+        if (statusCode < 100 || statusCode > 599) {
+            return "NONE";
+        }
+        return (statusCode / 100) + "xx";
+    }
+}
@@ -0,0 +1,16 @@
+package ru.poib.VTBHack.parser.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessFlow {
+    private String id;
+    private String sourceRef;
+    private String targetRef;
+    private String name;
+    private String conditionExpression; // ${status == 'APPROVED'}, null для безусловного потока
+}
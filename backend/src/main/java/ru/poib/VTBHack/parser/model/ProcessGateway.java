@@ -0,0 +1,19 @@
+package ru.poib.VTBHack.parser.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessGateway {
+    private String id;
+    private String name;
+    private GatewayType type;
+    private String defaultFlow; // id потока по умолчанию (для exclusive/inclusive)
+
+    public enum GatewayType {
+        EXCLUSIVE, PARALLEL, INCLUSIVE, EVENT_BASED
+    }
+}
@@ -10,7 +10,11 @@ public class ProcessModel {
     private String id;
     private String name;
     private List<ProcessTask> tasks;
+    // Упрощенный граф: источник -> одна цель. Для ветвлений используйте flows
     private Map<String, String> sequenceFlows;
+    // Все sequence flows в порядке документа, включая несколько исходящих из одного элемента
+    private List<ProcessFlow> flows;
+    private List<ProcessGateway> gateways;
     private String startEventName;
     private String endEventName;
 }
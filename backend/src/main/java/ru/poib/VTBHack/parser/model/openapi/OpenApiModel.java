@@ -18,6 +18,9 @@ public class OpenApiModel {
     @JsonProperty("paths")
     private Map<String, PathItem> paths;
 
+    @JsonProperty("components")
+    private Components components;
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Info {
         private String title;
@@ -79,4 +82,21 @@ public class OpenApiModel {
             this.delete = delete;
         }
     }
+
+    /**
+     * Раздел components. Схемы хранятся в исходном виде (JSON-объекты как Map),
+     * ссылки на них разрешает {@link ru.poib.VTBHack.parser.service.SchemaRefResolver}
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Components {
+        private Map<String, Object> schemas;
+
+        public Map<String, Object> getSchemas() {
+            return schemas;
+        }
+
+        public void setSchemas(Map<String, Object> schemas) {
+            this.schemas = schemas;
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package ru.poib.VTBHack.parser.model.openapi;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Parameter {
@@ -64,6 +65,8 @@ public class Parameter {
         private String type;
         private String description;
         private String title;
+        @JsonProperty("$ref")
+        private String ref;
 
         public String getType() {
             return type;
@@ -88,5 +91,13 @@ public class Parameter {
         public void setTitle(String title) {
             this.title = title;
         }
+
+        public String getRef() {
+            return ref;
+        }
+
+        public void setRef(String ref) {
+            this.ref = ref;
+        }
     }
 }
\ No newline at end of file
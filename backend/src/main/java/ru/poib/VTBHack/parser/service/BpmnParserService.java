@@ -1,24 +1,70 @@
 package ru.poib.VTBHack.parser.service;
 
+import lombok.extern.slf4j.Slf4j;
 import org.flowable.bpmn.model.Process;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.flowable.bpmn.converter.BpmnXMLConverter;
 import org.flowable.bpmn.model.*;
 import ru.poib.VTBHack.parser.model.ApiEndpointInfo;
+import ru.poib.VTBHack.parser.model.ProcessFlow;
+import ru.poib.VTBHack.parser.model.ProcessGateway;
 import ru.poib.VTBHack.parser.model.ProcessModel;
 import ru.poib.VTBHack.parser.model.ProcessTask;
+import ru.poib.VTBHack.metrics.service.PerformanceMetrics;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Разбирает BPMN в ProcessModel.
+ * Основной путь — однопроходный потоковый разбор {@link StreamingBpmnReader}, который читает только
+ * нужные ProcessModel элементы. Если документ выходит за поддерживаемое им подмножество
+ * или содержит ошибки XML, используется полный разбор через Flowable BpmnXMLConverter.
+ */
+@Slf4j
 @Service
 public class BpmnParserService {
     private final BpmnXMLConverter bpmnXMLConverter = new BpmnXMLConverter();
+    private final PerformanceMetrics metrics;
+
+    public BpmnParserService() {
+        this(PerformanceMetrics.noop());
+    }
+
+    @Autowired
+    public BpmnParserService(PerformanceMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     public ProcessModel parse(String bpmnXml) throws Exception {
+        return metrics.time(PerformanceMetrics.Phase.PARSE_BPMN, () -> parseProcess(bpmnXml));
+    }
+
+    private ProcessModel parseProcess(String bpmnXml) throws Exception {
+        StreamingBpmnReader.ParsedProcess process;
+        try {
+            process = StreamingBpmnReader.read(bpmnXml);
+        } catch (StreamingBpmnReader.UnsupportedBpmnException | XMLStreamException e) {
+            log.debug("Streaming BPMN parse is not applicable ({}), falling back to Flowable", e.getMessage());
+            process = parseWithFlowable(bpmnXml);
+        }
+
+        if (process == null) {
+            throw new IllegalArgumentException("BPMN не содержит главного процесса");
+        }
+
+        return buildProcessModel(process);
+    }
+
+    /**
+     * Полный разбор через Flowable: строит BpmnModel целиком, включая диаграмму
+     */
+    private StreamingBpmnReader.ParsedProcess parseWithFlowable(String bpmnXml) {
         InputStream inputStream = new ByteArrayInputStream(bpmnXml.getBytes(StandardCharsets.UTF_8));
         BpmnModel bpmnModel = bpmnXMLConverter.convertToBpmnModel(
                 () -> inputStream,
@@ -27,39 +73,104 @@ public class BpmnParserService {
         );
 
         Process process = bpmnModel.getMainProcess();
-        if (process == null) {
-            throw new IllegalArgumentException("BPMN не содержит главного процесса");
+        return process != null ? fromFlowableProcess(process) : null;
+    }
+
+    /**
+     * Переводит процесс Flowable в то же промежуточное представление, что строит потоковый разбор
+     */
+    private StreamingBpmnReader.ParsedProcess fromFlowableProcess(Process process) {
+        StreamingBpmnReader.ParsedProcess parsed = new StreamingBpmnReader.ParsedProcess();
+        parsed.id = process.getId();
+        parsed.name = process.getName();
+
+        for (ServiceTask serviceTask : process.findFlowElementsOfType(ServiceTask.class)) {
+            parsed.serviceTasks.add(fromFlowableTask(serviceTask, StreamingBpmnReader.TaskKind.SERVICE));
+        }
+        for (UserTask userTask : process.findFlowElementsOfType(UserTask.class)) {
+            parsed.userTasks.add(fromFlowableTask(userTask, StreamingBpmnReader.TaskKind.USER));
+        }
+        for (Task task : process.findFlowElementsOfType(Task.class)) {
+            if (!(task instanceof ServiceTask) && !(task instanceof UserTask)) {
+                parsed.genericTasks.add(fromFlowableTask(task, StreamingBpmnReader.TaskKind.GENERIC));
+            }
+        }
+
+        for (SequenceFlow flow : process.findFlowElementsOfType(SequenceFlow.class)) {
+            parsed.sequenceFlows.add(new StreamingBpmnReader.ParsedFlow(
+                    flow.getId(), flow.getSourceRef(), flow.getTargetRef(), flow.getName(), flow.getConditionExpression()));
+        }
+
+        for (Gateway gateway : process.findFlowElementsOfType(Gateway.class)) {
+            ProcessGateway.GatewayType type = null;
+            if (gateway instanceof ExclusiveGateway) {
+                type = ProcessGateway.GatewayType.EXCLUSIVE;
+            } else if (gateway instanceof ParallelGateway) {
+                type = ProcessGateway.GatewayType.PARALLEL;
+            } else if (gateway instanceof InclusiveGateway) {
+                type = ProcessGateway.GatewayType.INCLUSIVE;
+            } else if (gateway instanceof EventGateway) {
+                type = ProcessGateway.GatewayType.EVENT_BASED;
+            }
+            if (type != null) {
+                parsed.gateways.add(new ProcessGateway(gateway.getId(), gateway.getName(), type, gateway.getDefaultFlow()));
+            }
         }
 
-        return buildProcessModel(process, bpmnModel);
+        process.findFlowElementsOfType(StartEvent.class).stream()
+                .findFirst()
+                .ifPresent(start -> {
+                    parsed.hasStartEvent = true;
+                    parsed.startEventId = start.getId();
+                    parsed.startEventName = start.getName();
+                });
+
+        process.findFlowElementsOfType(EndEvent.class).stream()
+                .findFirst()
+                .ifPresent(end -> {
+                    parsed.hasEndEvent = true;
+                    parsed.endEventName = end.getName();
+                });
+
+        return parsed;
+    }
+
+    private StreamingBpmnReader.ParsedTask fromFlowableTask(FlowElement element, StreamingBpmnReader.TaskKind kind) {
+        StreamingBpmnReader.ParsedTask task = new StreamingBpmnReader.ParsedTask();
+        task.kind = kind;
+        task.id = element.getId();
+        task.name = element.getName();
+        task.documentation = element.getDocumentation();
+        task.extensionElements.putAll(extractExtensionElements(element));
+        return task;
     }
 
     /**
      * Строит внутреннюю модель процесса
      */
-    private ProcessModel buildProcessModel(Process process, BpmnModel bpmnModel) {
+    private ProcessModel buildProcessModel(StreamingBpmnReader.ParsedProcess process) {
         ProcessModel model = new ProcessModel();
-        model.setId(process.getId());
-        model.setName(process.getName());
+        model.setId(process.id);
+        model.setName(process.name);
 
         // Извлекаем все задачи
         List<ProcessTask> tasks = new ArrayList<>();
 
         // Service Tasks - задачи, которые обычно соответствуют API вызовам
-        for (ServiceTask serviceTask : process.findFlowElementsOfType(ServiceTask.class)) {
+        for (StreamingBpmnReader.ParsedTask serviceTask : process.serviceTasks) {
             tasks.add(createTaskFromServiceTask(serviceTask));
         }
 
         // User Tasks - для полноты картины
-        for (UserTask userTask : process.findFlowElementsOfType(UserTask.class)) {
+        for (StreamingBpmnReader.ParsedTask userTask : process.userTasks) {
             tasks.add(createTaskFromUserTask(userTask));
         }
 
         // Обычные Tasks (generic)
-        for (Task task : process.findFlowElementsOfType(Task.class)) {
+        for (StreamingBpmnReader.ParsedTask task : process.genericTasks) {
             // Проверяем, не добавили ли мы уже эту задачу как ServiceTask или UserTask
             boolean alreadyAdded = tasks.stream()
-                    .anyMatch(t -> t.getId().equals(task.getId()));
+                    .anyMatch(t -> t.getId().equals(task.id));
             if (!alreadyAdded) {
                 tasks.add(createTaskFromGenericTask(task));
             }
@@ -71,19 +182,24 @@ public class BpmnParserService {
 
         // Извлекаем sequence flows (связи между задачами)
         Map<String, String> flows = new HashMap<>();
-        for (SequenceFlow flow : process.findFlowElementsOfType(SequenceFlow.class)) {
-            flows.put(flow.getSourceRef(), flow.getTargetRef());
+        for (StreamingBpmnReader.ParsedFlow flow : process.sequenceFlows) {
+            flows.put(flow.sourceRef(), flow.targetRef());
         }
         model.setSequenceFlows(flows);
 
-        // Извлекаем start и end события
-        process.findFlowElementsOfType(StartEvent.class).stream()
-                .findFirst()
-                .ifPresent(start -> model.setStartEventName(start.getName()));
+        // Полный граф: несколько исходящих потоков, условия и шлюзы
+        model.setFlows(process.sequenceFlows.stream()
+                .map(flow -> new ProcessFlow(flow.id(), flow.sourceRef(), flow.targetRef(), flow.name(), flow.conditionExpression()))
+                .collect(Collectors.toList()));
+        model.setGateways(new ArrayList<>(process.gateways));
 
-        process.findFlowElementsOfType(EndEvent.class).stream()
-                .findFirst()
-                .ifPresent(end -> model.setEndEventName(end.getName()));
+        // Извлекаем start и end события
+        if (process.hasStartEvent) {
+            model.setStartEventName(process.startEventName);
+        }
+        if (process.hasEndEvent) {
+            model.setEndEventName(process.endEventName);
+        }
 
         return model;
     }
@@ -91,20 +207,19 @@ public class BpmnParserService {
     /**
      * Создает ProcessTask из ServiceTask
      */
-    private ProcessTask createTaskFromServiceTask(ServiceTask serviceTask) {
+    private ProcessTask createTaskFromServiceTask(StreamingBpmnReader.ParsedTask serviceTask) {
         ProcessTask task = new ProcessTask();
-        task.setId(serviceTask.getId());
-        task.setName(serviceTask.getName());
+        task.setId(serviceTask.id);
+        task.setName(serviceTask.name);
         task.setType("ServiceTask");
-        task.setDescription(serviceTask.getDocumentation());
+        task.setDescription(serviceTask.documentation);
 
         // Извлекаем custom properties (extensionElements)
         // Например: <flowable:field name="apiEndpoint" stringValue="POST /auth/token"/>
-        Map<String, String> properties = extractExtensionElements(serviceTask);
-        task.setCustomProperties(properties);
+        task.setCustomProperties(new HashMap<>(serviceTask.extensionElements));
 
         // Извлекаем информацию об API endpoint из имени задачи
-        ApiEndpointInfo apiInfo = extractApiInfoFromTaskName(serviceTask.getName());
+        ApiEndpointInfo apiInfo = extractApiInfoFromTaskName(serviceTask.name);
         task.setApiEndpointInfo(apiInfo);
 
         return task;
@@ -113,15 +228,13 @@ public class BpmnParserService {
     /**
      * Создает ProcessTask из UserTask
      */
-    private ProcessTask createTaskFromUserTask(UserTask userTask) {
+    private ProcessTask createTaskFromUserTask(StreamingBpmnReader.ParsedTask userTask) {
         ProcessTask task = new ProcessTask();
-        task.setId(userTask.getId());
-        task.setName(userTask.getName());
+        task.setId(userTask.id);
+        task.setName(userTask.name);
         task.setType("UserTask");
-        task.setDescription(userTask.getDocumentation());
-
-        Map<String, String> properties = extractExtensionElements(userTask);
-        task.setCustomProperties(properties);
+        task.setDescription(userTask.documentation);
+        task.setCustomProperties(new HashMap<>(userTask.extensionElements));
 
         return task;
     }
@@ -129,18 +242,16 @@ public class BpmnParserService {
     /**
      * Создает ProcessTask из обычного Task
      */
-    private ProcessTask createTaskFromGenericTask(Task task) {
+    private ProcessTask createTaskFromGenericTask(StreamingBpmnReader.ParsedTask task) {
         ProcessTask processTask = new ProcessTask();
-        processTask.setId(task.getId());
-        processTask.setName(task.getName());
+        processTask.setId(task.id);
+        processTask.setName(task.name);
         processTask.setType("Task");
-        processTask.setDescription(task.getDocumentation());
-
-        Map<String, String> properties = extractExtensionElements(task);
-        processTask.setCustomProperties(properties);
+        processTask.setDescription(task.documentation);
+        processTask.setCustomProperties(new HashMap<>(task.extensionElements));
 
         // Пытаемся извлечь API информацию из имени
-        ApiEndpointInfo apiInfo = extractApiInfoFromTaskName(task.getName());
+        ApiEndpointInfo apiInfo = extractApiInfoFromTaskName(task.name);
         processTask.setApiEndpointInfo(apiInfo);
 
         return processTask;
@@ -195,46 +306,84 @@ public class BpmnParserService {
     }
 
     /**
-     * Сортирует задачи по порядку их выполнения в процессе
+     * Сортирует задачи по порядку их выполнения в процессе.
+     * Учитываются все ветви после шлюзов: задачи упорядочиваются топологически
+     * по элементам, достижимым из start event. Задача после слияния ветвей идет
+     * после задач всех ветвей, задачи в циклах — в порядке обхода в ширину.
      */
-    private List<ProcessTask> sortTasksBySequence(List<ProcessTask> tasks, Process process) {
-        List<ProcessTask> sorted = new ArrayList<>();
+    private List<ProcessTask> sortTasksBySequence(List<ProcessTask> tasks, StreamingBpmnReader.ParsedProcess process) {
         Map<String, ProcessTask> taskMap = tasks.stream()
                 .collect(Collectors.toMap(ProcessTask::getId, t -> t));
 
         // Находим start event
-        StartEvent startEvent = process.findFlowElementsOfType(StartEvent.class)
-                .stream()
-                .findFirst()
-                .orElse(null);
-
-        if (startEvent == null) {
+        if (!process.hasStartEvent) {
             return tasks; // Возвращаем как есть, если нет start event
         }
 
-        // Обходим граф начиная со start event
-        String currentId = startEvent.getId();
+        // Исходящие потоки каждого элемента в порядке документа
+        Map<String, List<String>> outgoing = new HashMap<>();
+        for (StreamingBpmnReader.ParsedFlow flow : process.sequenceFlows) {
+            outgoing.computeIfAbsent(flow.sourceRef(), k -> new ArrayList<>()).add(flow.targetRef());
+        }
+
+        // Обходим граф в ширину начиная со start event
+        List<String> reachable = new ArrayList<>();
         Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(process.startEventId);
+        visited.add(process.startEventId);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            reachable.add(current);
+            for (String next : outgoing.getOrDefault(current, List.of())) {
+                if (next != null && visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        // Топологическая сортировка достижимой части (Kahn's algorithm)
+        Map<String, Integer> inDegree = new HashMap<>();
+        for (String node : reachable) {
+            for (String next : outgoing.getOrDefault(node, List.of())) {
+                if (visited.contains(next)) {
+                    inDegree.merge(next, 1, Integer::sum);
+                }
+            }
+        }
 
-        while (currentId != null && !visited.contains(currentId)) {
-            visited.add(currentId);
+        List<String> ordered = new ArrayList<>();
+        Set<String> emitted = new HashSet<>();
+        Deque<String> ready = new ArrayDeque<>();
+        ready.add(process.startEventId);
+        int cursor = 0;
+        while (ordered.size() < reachable.size()) {
+            if (ready.isEmpty()) {
+                // Цикл: берем первый по обходу в ширину необработанный элемент
+                while (emitted.contains(reachable.get(cursor))) {
+                    cursor++;
+                }
+                ready.add(reachable.get(cursor));
+            }
+            String current = ready.poll();
+            if (!emitted.add(current)) {
+                continue;
+            }
+            ordered.add(current);
+            for (String next : outgoing.getOrDefault(current, List.of())) {
+                if (next != null && !emitted.contains(next) && inDegree.merge(next, -1, Integer::sum) == 0) {
+                    ready.add(next);
+                }
+            }
+        }
 
-            ProcessTask task = taskMap.get(currentId);
+        List<ProcessTask> sorted = new ArrayList<>();
+        for (String id : ordered) {
+            ProcessTask task = taskMap.get(id);
             if (task != null) {
                 sorted.add(task);
             }
-
-            // Находим следующий элемент
-            String finalCurrentId = currentId;
-            SequenceFlow outgoing = process.findFlowElementsOfType(SequenceFlow.class)
-                    .stream()
-                    .filter(sf -> sf.getSourceRef().equals(finalCurrentId))
-                    .findFirst()
-                    .orElse(null);
-
-            currentId = (outgoing != null) ? outgoing.getTargetRef() : null;
         }
-
         return sorted;
     }
 
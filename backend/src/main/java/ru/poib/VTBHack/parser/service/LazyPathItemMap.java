@@ -0,0 +1,166 @@
+package ru.poib.VTBHack.parser.service;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Карта paths, которая хранит для каждого пути только диапазон символов в исходном JSON
+ * и превращает его в {@link OpenApiModel.PathItem} при первом обращении.
+ * Ключи, размер и порядок известны сразу; итерация по entrySet материализует значение,
+ * только когда вызывается getValue().
+ */
+final class LazyPathItemMap extends AbstractMap<String, OpenApiModel.PathItem> {
+
+    // Диапазон [start, end) объекта PathItem в исходной строке
+    private record Slice(int start, int end) {
+    }
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final String source;
+    private final ObjectReader pathItemReader;
+    // Путь -> Slice, NULL_VALUE или уже построенный PathItem
+    private final LinkedHashMap<String, Object> entries = new LinkedHashMap<>();
+
+    LazyPathItemMap(String source, ObjectReader pathItemReader) {
+        this.source = source;
+        this.pathItemReader = pathItemReader;
+    }
+
+    void putSlice(String path, int start, int end) {
+        entries.put(path, new Slice(start, end));
+    }
+
+    void putNull(String path) {
+        entries.put(path, NULL_VALUE);
+    }
+
+    /**
+     * Количество путей, для которых PathItem уже построен
+     */
+    synchronized int materializedCount() {
+        int count = 0;
+        for (Object value : entries.values()) {
+            if (value instanceof OpenApiModel.PathItem) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized OpenApiModel.PathItem get(Object key) {
+        Object value = entries.get(key);
+        if (value instanceof Slice slice) {
+            OpenApiModel.PathItem pathItem = materialize(slice);
+            entries.put((String) key, pathItem != null ? pathItem : NULL_VALUE);
+            return pathItem;
+        }
+        return value instanceof OpenApiModel.PathItem pathItem ? pathItem : null;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized OpenApiModel.PathItem put(String key, OpenApiModel.PathItem value) {
+        OpenApiModel.PathItem previous = get(key);
+        entries.put(key, value != null ? value : NULL_VALUE);
+        return previous;
+    }
+
+    @Override
+    public synchronized OpenApiModel.PathItem remove(Object key) {
+        OpenApiModel.PathItem previous = get(key);
+        entries.remove(key);
+        return previous;
+    }
+
+    @Override
+    public synchronized Set<String> keySet() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(entries.keySet()));
+    }
+
+    @Override
+    public Set<Entry<String, OpenApiModel.PathItem>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, OpenApiModel.PathItem>> iterator() {
+                Iterator<String> keys = keySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, OpenApiModel.PathItem> next() {
+                        return new LazyEntry(keys.next());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyPathItemMap.this.size();
+            }
+        };
+    }
+
+    private OpenApiModel.PathItem materialize(Slice slice) {
+        try {
+            return pathItemReader.readValue(source.substring(slice.start(), slice.end()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось разобрать PathItem", e);
+        }
+    }
+
+    /**
+     * Элемент, значение которого строится при первом вызове getValue()
+     */
+    private final class LazyEntry implements Entry<String, OpenApiModel.PathItem> {
+        private final String key;
+
+        private LazyEntry(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public OpenApiModel.PathItem getValue() {
+            return get(key);
+        }
+
+        @Override
+        public OpenApiModel.PathItem setValue(OpenApiModel.PathItem value) {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> other
+                    && Objects.equals(key, other.getKey())
+                    && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package ru.poib.VTBHack.parser.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.metrics.service.PerformanceMetrics;
 import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 import java.io.IOException;
 import java.io.InputStream;
@@ -10,18 +15,101 @@ import java.io.InputStream;
 @Service
 public class OpenApiParserService {
     private final ObjectMapper objectMapper;
+    private final ObjectReader pathItemReader;
+    private final PerformanceMetrics metrics;
 
     public OpenApiParserService() {
+        this(PerformanceMetrics.noop());
+    }
+
+    @Autowired
+    public OpenApiParserService(PerformanceMetrics metrics) {
+        this.metrics = metrics;
         this.objectMapper = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.pathItemReader = objectMapper.readerFor(OpenApiModel.PathItem.class);
     }
 
     public OpenApiModel parseOpenApi(String jsonContent) throws IOException {
-        return objectMapper.readValue(jsonContent, OpenApiModel.class);
+        return metrics.time(PerformanceMetrics.Phase.PARSE_OPENAPI,
+                () -> objectMapper.readValue(jsonContent, OpenApiModel.class));
     }
 
     public OpenApiModel parseOpenApi(InputStream inputStream) throws IOException {
-        return objectMapper.readValue(inputStream, OpenApiModel.class);
+        return metrics.time(PerformanceMetrics.Phase.PARSE_OPENAPI,
+                () -> objectMapper.readValue(inputStream, OpenApiModel.class));
+    }
+
+    /**
+     * Потоковый разбор спецификации: info, components и версия связываются сразу, а для paths строится
+     * только индекс "путь -> диапазон в исходной строке". PathItem и его операции создаются
+     * при первом обращении к пути, поэтому запуск, которому нужны несколько эндпоинтов
+     * из маппинга, не платит за связывание всей спецификации.
+     * Синтаксис JSON проверяется целиком сразу; ошибки связывания отдельного PathItem
+     * проявляются при обращении к нему как UncheckedIOException.
+     * Для полной модели используйте {@link #parseOpenApi(String)}.
+     */
+    public OpenApiModel parseOpenApiLazy(String jsonContent) throws IOException {
+        return metrics.time(PerformanceMetrics.Phase.PARSE_OPENAPI_LAZY, () -> indexOpenApi(jsonContent));
+    }
+
+    private OpenApiModel indexOpenApi(String jsonContent) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(jsonContent)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return parseOpenApi(jsonContent);
+            }
+
+            OpenApiModel model = new OpenApiModel();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "openapi" -> model.setOpenApiVersion(objectMapper.readValue(parser, String.class));
+                    case "info" -> model.setInfo(objectMapper.readValue(parser, OpenApiModel.Info.class));
+                    case "components" -> model.setComponents(objectMapper.readValue(parser, OpenApiModel.Components.class));
+                    case "paths" -> {
+                        if (value == JsonToken.VALUE_NULL) {
+                            model.setPaths(null);
+                        } else if (value == JsonToken.START_OBJECT) {
+                            LazyPathItemMap paths = indexPaths(parser, jsonContent);
+                            if (paths == null) {
+                                // Нестандартная структура paths: связываем как обычно, с теми же ошибками
+                                return parseOpenApi(jsonContent);
+                            }
+                            model.setPaths(paths);
+                        } else {
+                            return parseOpenApi(jsonContent);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Читает объект paths, запоминая для каждого пути только границы его значения
+     *
+     * @return индекс или null, если значение какого-то пути не объект и не null
+     */
+    private LazyPathItemMap indexPaths(JsonParser parser, String source) throws IOException {
+        LazyPathItemMap paths = new LazyPathItemMap(source, pathItemReader);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                paths.putNull(path);
+            } else if (value == JsonToken.START_OBJECT) {
+                int start = (int) parser.currentTokenLocation().getCharOffset();
+                parser.skipChildren();
+                int end = (int) parser.currentLocation().getCharOffset();
+                paths.putSlice(path, start, end);
+            } else {
+                return null;
+            }
+        }
+        return paths;
     }
 
     // Additional methods for specific parsing needs can be added here
@@ -32,4 +120,4 @@ public class OpenApiParserService {
     public String getApiVersion(OpenApiModel openApi) {
         return openApi.getInfo() != null ? openApi.getInfo().getVersion() : null;
     }
-}
\ No newline at end of file
+}
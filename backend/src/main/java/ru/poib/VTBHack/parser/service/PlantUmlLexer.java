@@ -0,0 +1,391 @@
+package ru.poib.VTBHack.parser.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Однопроходный лексер PlantUML Sequence диаграмм.
+ * Делит контент на строки за один проход, определяет вид строки по первому слову
+ * и разбирает ее вручную, без регулярных выражений.
+ *
+ * Грамматика строк та же, что у прежних регулярных выражений парсера: ключевые слова
+ * регистронезависимы (только ASCII), \w — это [A-Za-z0-9_], \s — ASCII-пробелы.
+ */
+final class PlantUmlLexer {
+
+    enum Keyword {
+        ACTOR, PARTICIPANT, ACTIVATE, DEACTIVATE, NOTE, ALT, ELSE, LOOP, END, NONE
+    }
+
+    record ActorDecl(String name, String alias) {
+    }
+
+    record InteractionLine(String from, String arrow, String to, String message) {
+    }
+
+    record NoteLine(String position, String participant, String text) {
+    }
+
+    record HttpCall(String method, String path, String parameters) {
+    }
+
+    // Стрелки в порядке, в котором их пробовало регулярное выражение
+    private static final String[] ARROWS = {"->", "-->", "->>", "<<-", "<--", "<<--", "->x", "x<-"};
+
+    private static final String[] HTTP_METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS"};
+
+    private PlantUmlLexer() {
+    }
+
+    /**
+     * Делит контент на строки (\r\n, \r и \n) и заменяет табы на четыре пробела.
+     * Пустые строки в конце отбрасываются, как у String.split
+     */
+    static List<String> splitLines(String content) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int length = content.length();
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (c == '\r' || c == '\n') {
+                lines.add(current.toString());
+                current.setLength(0);
+                if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else if (c == '\t') {
+                current.append("    ");
+            } else {
+                current.append(c);
+            }
+        }
+        lines.add(current.toString());
+        int end = lines.size();
+        while (end > 0 && lines.get(end - 1).isEmpty()) {
+            end--;
+        }
+        return end == 0 ? List.of("") : lines.subList(0, end);
+    }
+
+    /**
+     * Определяет ключевое слово в начале строки (строка уже обрезана)
+     */
+    static Keyword keyword(String line) {
+        if (line.isEmpty()) {
+            return Keyword.NONE;
+        }
+        switch (Character.toLowerCase(line.charAt(0))) {
+            case 'a':
+                if (startsWithWord(line, "actor")) return Keyword.ACTOR;
+                if (startsWithWord(line, "activate")) return Keyword.ACTIVATE;
+                if (startsWithWord(line, "alt")) return Keyword.ALT;
+                break;
+            case 'p':
+                if (startsWithWord(line, "participant")) return Keyword.PARTICIPANT;
+                break;
+            case 'd':
+                if (startsWithWord(line, "deactivate")) return Keyword.DEACTIVATE;
+                break;
+            case 'n':
+                if (startsWithWord(line, "note")) return Keyword.NOTE;
+                break;
+            case 'e':
+                if (startsWithWord(line, "else")) return Keyword.ELSE;
+                if (line.length() == 3 && regionMatchesAscii(line, 0, "end")) return Keyword.END;
+                break;
+            case 'l':
+                if (startsWithWord(line, "loop")) return Keyword.LOOP;
+                break;
+            default:
+                break;
+        }
+        return Keyword.NONE;
+    }
+
+    /**
+     * actor Client as C — как actor\s+([\w\s]+?)\s+as\s+(\w+)
+     */
+    static ActorDecl actor(String line) {
+        int pos = skipRequiredSpaces(line, "actor".length());
+        if (pos < 0) {
+            return null;
+        }
+        // Имя — кратчайший отрезок из [\w\s], за которым идет \s+as\s+\w
+        for (int end = pos + 1; end <= line.length(); end++) {
+            char last = line.charAt(end - 1);
+            if (!isWord(last) && !isSpace(last)) {
+                return null;
+            }
+            String alias = aliasAfter(line, end);
+            if (alias != null) {
+                return new ActorDecl(line.substring(pos, end).trim(), alias);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * participant "API Bank" as Bank или participant APIBank as Bank
+     */
+    static ActorDecl participant(String line) {
+        int pos = skipRequiredSpaces(line, "participant".length());
+        if (pos < 0 || pos >= line.length()) {
+            return null;
+        }
+        if (line.charAt(pos) == '"') {
+            int close = line.indexOf('"', pos + 1);
+            if (close > pos + 1) {
+                String alias = aliasAfter(line, close + 1);
+                if (alias != null) {
+                    return new ActorDecl(line.substring(pos + 1, close).trim(), alias);
+                }
+            }
+            return null;
+        }
+        int end = wordEnd(line, pos);
+        if (end == pos) {
+            return null;
+        }
+        String alias = aliasAfter(line, end);
+        return alias != null ? new ActorDecl(line.substring(pos, end), alias) : null;
+    }
+
+    /**
+     * C -> Bank: POST /auth/token — как (\w+)\s*(стрелка)\s*(\w+)\s*:\s*(.+), найденное в любом месте строки
+     */
+    static InteractionLine interaction(String line) {
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            if (!isWord(line.charAt(i))) {
+                i++;
+                continue;
+            }
+            int runEnd = wordEnd(line, i);
+            // Сначала все слово, затем без завершающего 'x' (для стрелки x<-)
+            InteractionLine match = interactionAfter(line, i, runEnd);
+            if (match == null && runEnd - i >= 2 && line.charAt(runEnd - 1) == 'x') {
+                match = interactionAfter(line, i, runEnd - 1);
+            }
+            if (match != null) {
+                return match;
+            }
+            i = runEnd;
+        }
+        return null;
+    }
+
+    private static InteractionLine interactionAfter(String line, int fromStart, int fromEnd) {
+        int arrowStart = skipSpaces(line, fromEnd);
+        for (String arrow : ARROWS) {
+            if (!line.startsWith(arrow, arrowStart)) {
+                continue;
+            }
+            int toStart = skipSpaces(line, arrowStart + arrow.length());
+            int toEnd = wordEnd(line, toStart);
+            if (toEnd == toStart) {
+                continue;
+            }
+            int colon = skipSpaces(line, toEnd);
+            if (colon >= line.length() - 1 || line.charAt(colon) != ':') {
+                continue;
+            }
+            return new InteractionLine(
+                    line.substring(fromStart, fromEnd),
+                    arrow,
+                    line.substring(toStart, toEnd),
+                    line.substring(colon + 1).trim());
+        }
+        return null;
+    }
+
+    /**
+     * Имя участника после activate/deactivate
+     */
+    static String activationTarget(String line, Keyword keyword) {
+        int pos = skipRequiredSpaces(line, keyword.name().length());
+        if (pos < 0) {
+            return null;
+        }
+        int end = wordEnd(line, pos);
+        return end > pos ? line.substring(pos, end) : null;
+    }
+
+    /**
+     * note left of A: текст — как note\s+(left|right|over)\s*(?:of\s+(\w+))?\s*:\s*(.+)
+     */
+    static NoteLine note(String line) {
+        int pos = skipRequiredSpaces(line, "note".length());
+        if (pos < 0) {
+            return null;
+        }
+        String position = null;
+        for (String candidate : new String[]{"left", "right", "over"}) {
+            if (regionMatchesAscii(line, pos, candidate)) {
+                position = line.substring(pos, pos + candidate.length());
+                break;
+            }
+        }
+        if (position == null) {
+            return null;
+        }
+        pos = skipSpaces(line, pos + position.length());
+
+        String participant = null;
+        if (regionMatchesAscii(line, pos, "of")) {
+            int nameStart = skipRequiredSpaces(line, pos + 2);
+            int nameEnd = nameStart < 0 ? -1 : wordEnd(line, nameStart);
+            if (nameEnd > nameStart) {
+                participant = line.substring(nameStart, nameEnd);
+                pos = skipSpaces(line, nameEnd);
+            }
+        }
+        if (pos >= line.length() - 1 || line.charAt(pos) != ':') {
+            return null;
+        }
+        int textStart = skipSpaces(line, pos + 1);
+        if (textStart >= line.length()) {
+            textStart = line.length() - 1; // .+ требует хотя бы один символ
+        }
+        return new NoteLine(position, participant, line.substring(textStart));
+    }
+
+    /**
+     * Условие блока alt/loop: обязательны пробелы и непустой текст после ключевого слова
+     */
+    static String blockCondition(String line, Keyword keyword) {
+        int pos = skipRequiredSpaces(line, keyword.name().length());
+        if (pos < 0) {
+            return null;
+        }
+        if (pos >= line.length()) {
+            pos = line.length() - 1;
+        }
+        return line.substring(pos);
+    }
+
+    /**
+     * Условие else: необязательный текст после ключевого слова
+     */
+    static String elseCondition(String line) {
+        int pos = skipSpaces(line, "else".length());
+        if (pos >= line.length()) {
+            return pos > "else".length() ? line.substring(pos - 1) : null;
+        }
+        return line.substring(pos);
+    }
+
+    /**
+     * GET /path (a, b) в начале сообщения — как ^(GET|POST|...)\s+([^\s(]+)(?:\s*\(([^)]+)\))?
+     */
+    static HttpCall httpCall(String message) {
+        String method = null;
+        for (String candidate : HTTP_METHODS) {
+            if (regionMatchesAscii(message, 0, candidate)) {
+                method = message.substring(0, candidate.length());
+                break;
+            }
+        }
+        if (method == null) {
+            return null;
+        }
+        int pathStart = skipRequiredSpaces(message, method.length());
+        if (pathStart < 0) {
+            return null;
+        }
+        int pathEnd = pathStart;
+        while (pathEnd < message.length() && !isSpace(message.charAt(pathEnd)) && message.charAt(pathEnd) != '(') {
+            pathEnd++;
+        }
+        if (pathEnd == pathStart) {
+            return null;
+        }
+
+        String parameters = null;
+        int open = skipSpaces(message, pathEnd);
+        if (open < message.length() && message.charAt(open) == '(') {
+            int close = message.indexOf(')', open + 1);
+            if (close > open + 1) {
+                parameters = message.substring(open + 1, close);
+            }
+        }
+        return new HttpCall(method, message.substring(pathStart, pathEnd), parameters);
+    }
+
+    /**
+     * Ищет \s+as\s+(\w+) начиная с позиции
+     */
+    private static String aliasAfter(String line, int pos) {
+        int asStart = skipRequiredSpaces(line, pos);
+        if (asStart < 0 || !regionMatchesAscii(line, asStart, "as")) {
+            return null;
+        }
+        int aliasStart = skipRequiredSpaces(line, asStart + 2);
+        if (aliasStart < 0) {
+            return null;
+        }
+        int aliasEnd = wordEnd(line, aliasStart);
+        return aliasEnd > aliasStart ? line.substring(aliasStart, aliasEnd) : null;
+    }
+
+    private static boolean startsWithWord(String line, String word) {
+        if (!regionMatchesAscii(line, 0, word)) {
+            return false;
+        }
+        // else допускает текст сразу после слова, остальные ключевые слова требуют пробела
+        return line.length() == word.length() || isSpace(line.charAt(word.length())) || "else".equals(word);
+    }
+
+    /**
+     * Регистронезависимое сравнение только для ASCII-букв, как у Pattern.CASE_INSENSITIVE
+     */
+    private static boolean regionMatchesAscii(String text, int offset, String word) {
+        if (offset < 0 || offset + word.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char a = text.charAt(offset + i);
+            char b = word.charAt(i);
+            if (a != b && toLowerAscii(a) != toLowerAscii(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Пропускает обязательные пробелы (\s+)
+     *
+     * @return позиция после пробелов или -1, если пробелов нет
+     */
+    private static int skipRequiredSpaces(String line, int pos) {
+        int end = skipSpaces(line, pos);
+        return end > pos ? end : -1;
+    }
+
+    private static int skipSpaces(String line, int pos) {
+        while (pos < line.length() && isSpace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int wordEnd(String line, int pos) {
+        while (pos < line.length() && isWord(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    static boolean isWord(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
@@ -2,12 +2,13 @@ package ru.poib.VTBHack.parser.service;
 
 import ru.poib.VTBHack.parser.model.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.metrics.service.PerformanceMetrics;
 import ru.poib.VTBHack.parser.model.puml.*;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -18,76 +19,25 @@ import java.util.stream.Collectors;
 @Service
 public class PlantUmlParserService {
 
-    // Регулярные выражения для различных элементов PlantUML
-
-    // Actor: actor Client as C
-    private static final Pattern ACTOR_PATTERN = Pattern.compile(
-            "actor\\s+([\\w\\s]+?)\\s+as\\s+(\\w+)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Participant: participant "API Bank" as Bank
-    private static final Pattern PARTICIPANT_PATTERN = Pattern.compile(
-            "participant\\s+\"([^\"]+)\"\\s+as\\s+(\\w+)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Participant без кавычек: participant APIBank as Bank
-    private static final Pattern PARTICIPANT_NO_QUOTES_PATTERN = Pattern.compile(
-            "participant\\s+([\\w]+)\\s+as\\s+(\\w+)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Взаимодействие: C -> Bank: POST /auth/token
-    private static final Pattern INTERACTION_PATTERN = Pattern.compile(
-            "(\\w+)\\s*(->|-->|->>|<<-|<--|<<--|->x|x<-)\\s*(\\w+)\\s*:\\s*(.+)"
-    );
-
-    // HTTP методы: GET, POST, PUT, DELETE, PATCH
-    private static final Pattern HTTP_METHOD_PATTERN = Pattern.compile(
-            "^(GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS)\\s+([^\\s(]+)(?:\\s*\\(([^)]+)\\))?",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Активация: activate Bank
-    private static final Pattern ACTIVATE_PATTERN = Pattern.compile(
-            "activate\\s+(\\w+)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Деактивация: deactivate Bank
-    private static final Pattern DEACTIVATE_PATTERN = Pattern.compile(
-            "deactivate\\s+(\\w+)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Note: note left/right/over: текст
-    private static final Pattern NOTE_PATTERN = Pattern.compile(
-            "note\\s+(left|right|over)\\s*(?:of\\s+(\\w+))?\\s*:\\s*(.+)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Alt/Else блоки
-    private static final Pattern ALT_PATTERN = Pattern.compile(
-            "alt\\s+(.+)",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    private static final Pattern ELSE_PATTERN = Pattern.compile(
-            "else\\s*(.+)?",
-            Pattern.CASE_INSENSITIVE
-    );
-
-    // Loop блоки
-    private static final Pattern LOOP_PATTERN = Pattern.compile(
-            "loop\\s+(.+)",
-            Pattern.CASE_INSENSITIVE
-    );
+    private final PerformanceMetrics metrics;
+
+    public PlantUmlParserService() {
+        this(PerformanceMetrics.noop());
+    }
+
+    @Autowired
+    public PlantUmlParserService(PerformanceMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     /**
      * Основной метод парсинга PlantUML диаграммы
      */
     public SequenceDiagramModel parse(String plantUmlContent) {
+        return metrics.time(PerformanceMetrics.Phase.PARSE_PLANTUML, () -> parseDiagram(plantUmlContent));
+    }
+
+    private SequenceDiagramModel parseDiagram(String plantUmlContent) {
         log.info("Начало парсинга PlantUML диаграммы");
 
         if (plantUmlContent == null || plantUmlContent.trim().isEmpty()) {
@@ -96,9 +46,8 @@ public class PlantUmlParserService {
 
         SequenceDiagramModel model = new SequenceDiagramModel();
 
-        // Нормализация контента
-        String normalizedContent = normalizeContent(plantUmlContent);
-        String[] lines = normalizedContent.split("\n");
+        // Нормализация контента и разбиение на строки за один проход
+        List<String> lines = PlantUmlLexer.splitLines(plantUmlContent);
 
         Map<String, Participant> participants = new LinkedHashMap<>();
         List<Interaction> interactions = new ArrayList<>();
@@ -124,17 +73,25 @@ public class PlantUmlParserService {
             }
 
             try {
-                // Парсим различные элементы
-                if (tryParseActor(line, participants)) continue;
-                if (tryParseParticipant(line, participants)) continue;
+                // Вид строки определяется по первому слову
+                PlantUmlLexer.Keyword keyword = PlantUmlLexer.keyword(line);
+
+                // Объявления участников разбираются раньше взаимодействий
+                if (keyword == PlantUmlLexer.Keyword.ACTOR && tryParseActor(line, participants)) continue;
+                if (keyword == PlantUmlLexer.Keyword.PARTICIPANT && tryParseParticipant(line, participants)) continue;
                 if (tryParseInteraction(line, participants, interactions, blockStack)) continue;
-                if (tryParseActivate(line)) continue;
-                if (tryParseDeactivate(line)) continue;
-                if (tryParseNote(line, notes)) continue;
-                if (tryParseAlt(line, blockStack)) continue;
-                if (tryParseElse(line, blockStack)) continue;
-                if (tryParseLoop(line, blockStack)) continue;
-                if (tryParseEnd(line, blockStack)) continue;
+
+                boolean parsed = switch (keyword) {
+                    case ACTIVATE -> tryParseActivate(line);
+                    case DEACTIVATE -> tryParseDeactivate(line);
+                    case NOTE -> tryParseNote(line, notes);
+                    case ALT -> tryParseAlt(line, blockStack);
+                    case ELSE -> tryParseElse(line, blockStack);
+                    case LOOP -> tryParseLoop(line, blockStack);
+                    case END -> tryParseEnd(line, blockStack);
+                    default -> false;
+                };
+                if (parsed) continue;
 
                 // Если ничего не распарсилось, логируем предупреждение
                 log.debug("Не удалось распарсить строку {}: {}", lineNumber, line);
@@ -158,24 +115,14 @@ public class PlantUmlParserService {
         return model;
     }
 
-    /**
-     * Нормализация контента: удаление лишних пробелов, унификация переносов строк
-     */
-    private String normalizeContent(String content) {
-        return content
-                .replaceAll("\\r\\n", "\n")  // Windows → Unix
-                .replaceAll("\\r", "\n")     // Mac → Unix
-                .replaceAll("\\t", "    ");  // Табы → пробелы
-    }
-
     /**
      * Парсинг Actor
      */
     private boolean tryParseActor(String line, Map<String, Participant> participants) {
-        Matcher matcher = ACTOR_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String name = matcher.group(1).trim();
-            String alias = matcher.group(2).trim();
+        PlantUmlLexer.ActorDecl actor = PlantUmlLexer.actor(line);
+        if (actor != null) {
+            String name = actor.name();
+            String alias = actor.alias();
 
             Participant participant = new Participant();
             participant.setAlias(alias);
@@ -193,27 +140,11 @@ public class PlantUmlParserService {
      * Парсинг Participant
      */
     private boolean tryParseParticipant(String line, Map<String, Participant> participants) {
-        // С кавычками
-        Matcher matcher = PARTICIPANT_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String name = matcher.group(1).trim();
-            String alias = matcher.group(2).trim();
-
-            Participant participant = new Participant();
-            participant.setAlias(alias);
-            participant.setName(name);
-            participant.setType(ParticipantType.SYSTEM);
-
-            participants.put(alias, participant);
-            log.debug("Найден Participant: {} as {}", name, alias);
-            return true;
-        }
-
-        // Без кавычек
-        matcher = PARTICIPANT_NO_QUOTES_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String name = matcher.group(1).trim();
-            String alias = matcher.group(2).trim();
+        // С кавычками или без: participant "API Bank" as Bank, participant APIBank as Bank
+        PlantUmlLexer.ActorDecl declaration = PlantUmlLexer.participant(line);
+        if (declaration != null) {
+            String name = declaration.name();
+            String alias = declaration.alias();
 
             Participant participant = new Participant();
             participant.setAlias(alias);
@@ -235,12 +166,12 @@ public class PlantUmlParserService {
                                         Map<String, Participant> participants,
                                         List<Interaction> interactions,
                                         Stack<BlockContext> blockStack) {
-        Matcher matcher = INTERACTION_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String fromAlias = matcher.group(1).trim();
-            String arrow = matcher.group(2).trim();
-            String toAlias = matcher.group(3).trim();
-            String message = matcher.group(4).trim();
+        PlantUmlLexer.InteractionLine parsed = PlantUmlLexer.interaction(line);
+        if (parsed != null) {
+            String fromAlias = parsed.from();
+            String arrow = parsed.arrow();
+            String toAlias = parsed.to();
+            String message = parsed.message();
 
             Interaction interaction = new Interaction();
 
@@ -318,14 +249,14 @@ public class PlantUmlParserService {
         ApiCallInfo apiInfo = new ApiCallInfo();
 
         // Пытаемся найти HTTP метод
-        Matcher httpMatcher = HTTP_METHOD_PATTERN.matcher(message);
-        if (httpMatcher.find()) {
+        PlantUmlLexer.HttpCall httpCall = PlantUmlLexer.httpCall(message);
+        if (httpCall != null) {
             apiInfo.setRequest(true);
-            apiInfo.setMethod(httpMatcher.group(1).toUpperCase());
-            apiInfo.setPath(httpMatcher.group(2));
+            apiInfo.setMethod(httpCall.method().toUpperCase());
+            apiInfo.setPath(httpCall.path());
 
             // Парсим параметры, если есть
-            String paramsString = httpMatcher.group(3);
+            String paramsString = httpCall.parameters();
             if (paramsString != null && !paramsString.trim().isEmpty()) {
                 List<String> params = Arrays.stream(paramsString.split(","))
                         .map(String::trim)
@@ -348,9 +279,8 @@ public class PlantUmlParserService {
      * Парсинг activate
      */
     private boolean tryParseActivate(String line) {
-        Matcher matcher = ACTIVATE_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String participant = matcher.group(1);
+        String participant = PlantUmlLexer.activationTarget(line, PlantUmlLexer.Keyword.ACTIVATE);
+        if (participant != null) {
             log.debug("Активация участника: {}", participant);
             // В MVP можем просто логировать, полная обработка - позже
             return true;
@@ -362,9 +292,8 @@ public class PlantUmlParserService {
      * Парсинг deactivate
      */
     private boolean tryParseDeactivate(String line) {
-        Matcher matcher = DEACTIVATE_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String participant = matcher.group(1);
+        String participant = PlantUmlLexer.activationTarget(line, PlantUmlLexer.Keyword.DEACTIVATE);
+        if (participant != null) {
             log.debug("Деактивация участника: {}", participant);
             return true;
         }
@@ -375,11 +304,9 @@ public class PlantUmlParserService {
      * Парсинг note
      */
     private boolean tryParseNote(String line, List<String> notes) {
-        Matcher matcher = NOTE_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String position = matcher.group(1);
-            String participant = matcher.group(2);
-            String text = matcher.group(3);
+        PlantUmlLexer.NoteLine note = PlantUmlLexer.note(line);
+        if (note != null) {
+            String text = note.text();
 
             notes.add(text);
             log.debug("Найдена заметка: {}", text);
@@ -392,9 +319,8 @@ public class PlantUmlParserService {
      * Парсинг alt блока
      */
     private boolean tryParseAlt(String line, Stack<BlockContext> blockStack) {
-        Matcher matcher = ALT_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String condition = matcher.group(1);
+        String condition = PlantUmlLexer.blockCondition(line, PlantUmlLexer.Keyword.ALT);
+        if (condition != null) {
 
             BlockContext block = new BlockContext();
             block.setType(BlockType.ALT);
@@ -411,14 +337,11 @@ public class PlantUmlParserService {
      * Парсинг else
      */
     private boolean tryParseElse(String line, Stack<BlockContext> blockStack) {
-        Matcher matcher = ELSE_PATTERN.matcher(line);
-        if (matcher.find()) {
-            if (!blockStack.isEmpty() && blockStack.peek().getType() == BlockType.ALT) {
-                String condition = matcher.group(1);
-                blockStack.peek().setElseCondition(condition);
-                log.debug("ELSE блок: {}", condition);
-                return true;
-            }
+        if (!blockStack.isEmpty() && blockStack.peek().getType() == BlockType.ALT) {
+            String condition = PlantUmlLexer.elseCondition(line);
+            blockStack.peek().setElseCondition(condition);
+            log.debug("ELSE блок: {}", condition);
+            return true;
         }
         return false;
     }
@@ -427,9 +350,8 @@ public class PlantUmlParserService {
      * Парсинг loop блока
      */
     private boolean tryParseLoop(String line, Stack<BlockContext> blockStack) {
-        Matcher matcher = LOOP_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String condition = matcher.group(1);
+        String condition = PlantUmlLexer.blockCondition(line, PlantUmlLexer.Keyword.LOOP);
+        if (condition != null) {
 
             BlockContext block = new BlockContext();
             block.setType(BlockType.LOOP);
@@ -528,6 +450,17 @@ public class PlantUmlParserService {
      * Валидация PlantUML диаграммы
      */
     public ValidationResult validate(String plantUmlContent) {
+        return validate(plantUmlContent, () -> parse(plantUmlContent));
+    }
+
+    /**
+     * Валидация PlantUML диаграммы по модели, уже полученной из {@link #parse(String)} для того же текста
+     */
+    public ValidationResult validate(String plantUmlContent, SequenceDiagramModel model) {
+        return validate(plantUmlContent, () -> model);
+    }
+
+    private ValidationResult validate(String plantUmlContent, Supplier<SequenceDiagramModel> parsed) {
         ValidationResult result = new ValidationResult();
         List<String> errors = new ArrayList<>();
         List<String> warnings = new ArrayList<>();
@@ -549,7 +482,7 @@ public class PlantUmlParserService {
         }
 
         try {
-            SequenceDiagramModel model = parse(plantUmlContent);
+            SequenceDiagramModel model = parsed.get();
 
             // Проверка участников
             if (model.getParticipants().isEmpty()) {
@@ -595,7 +528,13 @@ public class PlantUmlParserService {
      * Извлечение списка всех API endpoints
      */
     public List<ApiEndpointSummary> extractApiEndpoints(String plantUmlContent) {
-        SequenceDiagramModel model = parse(plantUmlContent);
+        return extractApiEndpoints(parse(plantUmlContent));
+    }
+
+    /**
+     * Извлечение списка всех API endpoints из разобранной диаграммы
+     */
+    public List<ApiEndpointSummary> extractApiEndpoints(SequenceDiagramModel model) {
         List<ApiEndpointSummary> endpoints = new ArrayList<>();
 
         for (Interaction interaction : model.getInteractions()) {
@@ -620,8 +559,13 @@ public class PlantUmlParserService {
      * Получение статистики по диаграмме
      */
     public DiagramStatistics getStatistics(String plantUmlContent) {
-        SequenceDiagramModel model = parse(plantUmlContent);
+        return getStatistics(parse(plantUmlContent));
+    }
 
+    /**
+     * Получение статистики по разобранной диаграмме
+     */
+    public DiagramStatistics getStatistics(SequenceDiagramModel model) {
         DiagramStatistics stats = new DiagramStatistics();
         stats.setParticipantCount(model.getParticipants().size());
         stats.setInteractionCount(model.getInteractions().size());
@@ -0,0 +1,422 @@
+package ru.poib.VTBHack.parser.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Parameter;
+import ru.poib.VTBHack.parser.model.openapi.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Разрешает ссылки $ref на components.schemas спецификации.
+ * Экземпляр создается один раз на спецификацию ({@link #of(OpenApiModel)}), компоненты
+ * превращаются в {@link Response.Schema} при первом обращении и кэшируются, поэтому все ссылки
+ * на один компонент получают один и тот же объект.
+ * Разрешенные схемы после публикации не изменяются, поэтому чтение кэшей идет без блокировок;
+ * под монитором строятся только еще не разрешенные компоненты.
+ * Рекурсивные схемы (Node.children -> Node) дают циклический граф схем; цепочка псевдонимов
+ * без собственного содержимого (A -> B -> A) разрешается в пустую схему.
+ * В разрешенных схемах items хранится в additionalProperties как {@link Response.Schema}.
+ */
+public final class SchemaRefResolver {
+
+    private static final String COMPONENT_PREFIX = "#/components/schemas/";
+
+    // Предельный размер кэшей по исходным схемам операций, после которого они сбрасываются
+    private static final int MAX_CACHED_SCHEMAS = 10_000;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final SchemaRefResolver EMPTY = new SchemaRefResolver(Map.of());
+
+    // Components -> резолвер; Components не переопределяет equals, поэтому ключи сравниваются по ссылке
+    private static final Map<OpenApiModel.Components, SchemaRefResolver> RESOLVERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final String COMPONENTS_IRI_PREFIX = "urn:vtbhack:components:";
+
+    private final Map<String, Object> rawSchemas;
+    // Имя компонента -> разрешенная схема; сюда попадают только полностью заполненные схемы
+    private final Map<String, Response.Schema> components = new ConcurrentHashMap<>();
+    // Компоненты, которые строятся сейчас (вместе с циклическими ссылками); под монитором
+    private final Map<String, Response.Schema> building = new HashMap<>();
+    private int buildDepth;
+    // Исходная схема операции (Map или Response.Schema) -> разрешенная схема
+    private final Map<IdentityKey, Response.Schema> resolved = new ConcurrentHashMap<>();
+    // Исходная схема ответа -> JSON Schema для валидатора
+    private final Map<IdentityKey, String> jsonSchemas = new ConcurrentHashMap<>();
+    // Общий документ components.schemas для валидатора и его адрес (по хэшу содержимого)
+    private volatile String componentsDocument;
+    private volatile String componentsIri;
+
+    private SchemaRefResolver(Map<String, Object> rawSchemas) {
+        this.rawSchemas = rawSchemas;
+    }
+
+    /**
+     * Ключ кэша по ссылке: схемы операций сравниваются как объекты, а не по содержимому
+     */
+    private record IdentityKey(Object value) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdentityKey key && key.value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+
+    /**
+     * Возвращает резолвер спецификации, создавая его при первом обращении
+     */
+    public static SchemaRefResolver of(OpenApiModel openApiModel) {
+        if (openApiModel == null || openApiModel.getComponents() == null
+                || openApiModel.getComponents().getSchemas() == null) {
+            return EMPTY;
+        }
+        OpenApiModel.Components componentsSection = openApiModel.getComponents();
+        return RESOLVERS.computeIfAbsent(componentsSection, c -> new SchemaRefResolver(c.getSchemas()));
+    }
+
+    /**
+     * Разрешает типизированную схему (например, из responses): $ref в самой схеме,
+     * в properties и items заменяются схемами компонентов
+     */
+    public Response.Schema resolve(Response.Schema schema) {
+        if (schema == null) {
+            return null;
+        }
+        IdentityKey key = new IdentityKey(schema);
+        Response.Schema cached = resolved.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return cacheResolved(key, convert(toRaw(schema, new IdentityHashMap<>())));
+    }
+
+    /**
+     * Разрешает схему в исходном виде (requestBody.content[*].schema)
+     *
+     * @return схема или null, если raw не JSON-объект
+     */
+    public Response.Schema resolveRaw(Object raw) {
+        if (!(raw instanceof Map<?, ?>)) {
+            return null;
+        }
+        IdentityKey key = new IdentityKey(raw);
+        Response.Schema cached = resolved.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return cacheResolved(key, convert(raw));
+    }
+
+    /**
+     * Разрешает схему параметра; без $ref переносит тип и описание
+     */
+    public Response.Schema resolveParameter(Parameter.Schema schema) {
+        if (schema == null) {
+            return null;
+        }
+        if (schema.getRef() != null) {
+            Response.Schema target = lookup(schema.getRef());
+            if (target != null) {
+                return target;
+            }
+        }
+        Response.Schema result = new Response.Schema();
+        result.setType(schema.getType());
+        result.setDescription(schema.getDescription());
+        return result;
+    }
+
+    /**
+     * Строит JSON Schema для проверки ответа: ссылки не раскрываются, а указывают на общий
+     * документ компонентов спецификации ({@link #componentsDocument(String)}), который валидатор
+     * загружает и компилирует один раз, а не копирует в каждую схему ответа
+     */
+    public String toJsonSchema(Response.Schema schema) {
+        if (schema == null) {
+            return null;
+        }
+        IdentityKey key = new IdentityKey(schema);
+        String cached = jsonSchemas.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Object document = toRaw(schema, new IdentityHashMap<>());
+        if (!rawSchemas.isEmpty()) {
+            document = withComponentsIri(document, componentsIri() + COMPONENT_PREFIX);
+        }
+        String json = writeJson(document);
+        if (jsonSchemas.size() >= MAX_CACHED_SCHEMAS) {
+            jsonSchemas.clear();
+        }
+        jsonSchemas.put(key, json);
+        return json;
+    }
+
+    /**
+     * Документ {"components": {"schemas": ...}} спецификации по адресу из ссылок {@link #toJsonSchema}
+     *
+     * @return JSON документа или null, если адрес не относится ни к одной загруженной спецификации
+     */
+    public static String componentsDocument(String iri) {
+        if (iri == null || !iri.startsWith(COMPONENTS_IRI_PREFIX)) {
+            return null;
+        }
+        synchronized (RESOLVERS) {
+            for (SchemaRefResolver resolver : RESOLVERS.values()) {
+                // Документ есть только у резолверов, уже строивших схемы ответов
+                if (iri.equals(resolver.componentsIri)) {
+                    return resolver.componentsDocument;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String componentsIri() {
+        if (componentsIri == null) {
+            synchronized (this) {
+                if (componentsIri == null) {
+                    String document = writeJson(Map.of("components", Map.of("schemas", rawSchemas)));
+                    componentsDocument = document;
+                    // Адрес по содержимому: одна и та же спецификация из разных прогонов дает один документ
+                    componentsIri = COMPONENTS_IRI_PREFIX + sha256(document);
+                }
+            }
+        }
+        return componentsIri;
+    }
+
+    private Response.Schema cacheResolved(IdentityKey key, Response.Schema schema) {
+        if (schema == null) {
+            return null;
+        }
+        if (resolved.size() >= MAX_CACHED_SCHEMAS) {
+            resolved.clear();
+        }
+        Response.Schema previous = resolved.putIfAbsent(key, schema);
+        return previous != null ? previous : schema;
+    }
+
+    /**
+     * Возвращает схему компонента по ссылке или null, если ссылка внешняя или компонента нет
+     */
+    private Response.Schema lookup(Object ref) {
+        String name = componentName(ref);
+        if (name == null) {
+            return null;
+        }
+        Response.Schema published = components.get(name);
+        return published != null ? published : build(name);
+    }
+
+    /**
+     * Строит компонент со всеми компонентами, на которые он ссылается; результат публикуется,
+     * когда завершается внешнее построение, поэтому без монитора видны только заполненные схемы
+     */
+    private synchronized Response.Schema build(String name) {
+        buildDepth++;
+        boolean completed = false;
+        try {
+            Response.Schema schema = component(name, new HashSet<>());
+            completed = true;
+            return schema;
+        } finally {
+            if (--buildDepth == 0) {
+                if (completed) {
+                    components.putAll(building);
+                }
+                building.clear();
+            }
+        }
+    }
+
+    private Response.Schema component(String name, Set<String> aliasChain) {
+        Response.Schema cached = components.get(name);
+        if (cached == null) {
+            cached = building.get(name);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        if (!(rawSchemas.get(name) instanceof Map<?, ?> raw)) {
+            return null;
+        }
+
+        String alias = componentName(raw.get("$ref"));
+        if (alias != null) {
+            // Компонент-псевдоним: следуем по цепочке, запоминая пройденные имена
+            Response.Schema target = aliasChain.add(name) ? component(alias, aliasChain) : null;
+            Response.Schema result = target != null ? target : new Response.Schema();
+            building.put(name, result);
+            return result;
+        }
+
+        // Схема попадает в кэш до заполнения: обратные ссылки из ее свойств получат этот же объект
+        Response.Schema schema = new Response.Schema();
+        building.put(name, schema);
+        fill(schema, raw);
+        return schema;
+    }
+
+    private Response.Schema convert(Object raw) {
+        if (!(raw instanceof Map<?, ?> map)) {
+            return null;
+        }
+        Object ref = map.get("$ref");
+        if (ref != null) {
+            Response.Schema target = lookup(ref);
+            if (target != null) {
+                return target;
+            }
+        }
+        Response.Schema schema = new Response.Schema();
+        fill(schema, map);
+        return schema;
+    }
+
+    private void fill(Response.Schema schema, Map<?, ?> raw) {
+        for (Map.Entry<?, ?> entry : raw.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object value = entry.getValue();
+            switch (key) {
+                case "type" -> {
+                    if (value instanceof String type) schema.setType(type);
+                }
+                case "format" -> {
+                    if (value instanceof String format) schema.setFormat(format);
+                }
+                case "description" -> {
+                    if (value instanceof String description) schema.setDescription(description);
+                }
+                case "properties" -> {
+                    if (value instanceof Map<?, ?> properties) {
+                        properties.forEach((name, property) -> {
+                            Response.Schema child = convert(property);
+                            schema.getProperties().put(String.valueOf(name), child != null ? child : new Response.Schema());
+                        });
+                    }
+                }
+                case "items" -> {
+                    Response.Schema items = convert(value);
+                    if (items != null) {
+                        schema.getAdditionalProperties().put("items", items);
+                    }
+                }
+                case "allOf" -> {
+                    if (value instanceof List<?> parts) {
+                        parts.forEach(part -> mergeAllOfPart(schema, convert(part)));
+                    }
+                }
+                default -> schema.getAdditionalProperties().put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Объединяет часть allOf со схемой: тип и формат берутся, если еще не заданы,
+     * свойства и required складываются
+     */
+    private static void mergeAllOfPart(Response.Schema schema, Response.Schema part) {
+        if (part == null) {
+            return;
+        }
+        if (schema.getType() == null) {
+            schema.setType(part.getType() != null ? part.getType() : (part.getProperties().isEmpty() ? null : "object"));
+        }
+        if (schema.getFormat() == null) {
+            schema.setFormat(part.getFormat());
+        }
+        if (schema.getDescription() == null) {
+            schema.setDescription(part.getDescription());
+        }
+        part.getProperties().forEach(schema.getProperties()::putIfAbsent);
+        if (part.getAdditionalProperties().get("required") instanceof List<?> partRequired) {
+            Set<Object> required = new LinkedHashSet<>();
+            if (schema.getAdditionalProperties().get("required") instanceof List<?> own) {
+                required.addAll(own);
+            }
+            required.addAll(partRequired);
+            schema.getAdditionalProperties().put("required", new ArrayList<>(required));
+        }
+        part.getAdditionalProperties().forEach(schema.getAdditionalProperties()::putIfAbsent);
+    }
+
+    /**
+     * Переводит типизированную схему обратно в JSON-объект без раскрытия $ref
+     */
+    private static Map<String, Object> toRaw(Response.Schema schema, Map<Response.Schema, Boolean> visiting) {
+        Map<String, Object> raw = new LinkedHashMap<>();
+        if (visiting.put(schema, Boolean.TRUE) != null) {
+            // Цикл в уже разрешенном графе: дальше не спускаемся
+            return raw;
+        }
+        if (schema.getType() != null) raw.put("type", schema.getType());
+        if (schema.getFormat() != null) raw.put("format", schema.getFormat());
+        if (schema.getDescription() != null) raw.put("description", schema.getDescription());
+        if (schema.getProperties() != null && !schema.getProperties().isEmpty()) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            schema.getProperties().forEach((name, property) ->
+                    properties.put(name, property != null ? toRaw(property, visiting) : Map.of()));
+            raw.put("properties", properties);
+        }
+        schema.getAdditionalProperties().forEach((key, value) ->
+                raw.put(key, value instanceof Response.Schema nested ? toRaw(nested, visiting) : value));
+        visiting.remove(schema);
+        return raw;
+    }
+
+    /**
+     * Копия JSON-объекта, в которой локальные ссылки на компоненты ведут в общий документ компонентов
+     */
+    private static Object withComponentsIri(Object value, String componentPrefix) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((key, nested) -> copy.put(String.valueOf(key),
+                    "$ref".equals(key) && componentName(nested) != null
+                            ? componentPrefix + componentName(nested)
+                            : withComponentsIri(nested, componentPrefix)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(withComponentsIri(item, componentPrefix)));
+            return copy;
+        }
+        return value;
+    }
+
+    private static String writeJson(Object document) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(document);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать схему ответа", e);
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String componentName(Object ref) {
+        if (ref instanceof String s && s.startsWith(COMPONENT_PREFIX)) {
+            return s.substring(COMPONENT_PREFIX.length());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,342 @@
+package ru.poib.VTBHack.parser.service;
+
+import ru.poib.VTBHack.parser.model.ProcessGateway;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Потоковый (StAX) читатель BPMN, который за один проход извлекает только то,
+ * что нужно для ProcessModel: главный процесс, задачи, шлюзы, sequence flows с условиями, документацию,
+ * extension elements, а также start/end события. Диаграмма и остальные элементы
+ * пропускаются без построения объектной модели.
+ *
+ * Читатель повторяет семантику Flowable BpmnXMLConverter на поддерживаемом подмножестве BPMN.
+ * Если встречается конструкция за его пределами (пулы, подпроцессы, незнакомые элементы),
+ * выбрасывается {@link UnsupportedBpmnException}, и разбор выполняется через Flowable.
+ */
+final class StreamingBpmnReader {
+
+    // Элементы, которые Flowable превращает в подклассы Task
+    private static final Set<String> GENERIC_TASK_ELEMENTS = Set.of(
+            "task", "scriptTask", "sendTask", "receiveTask", "manualTask", "businessRuleTask");
+
+    // Элементы процесса, которые не влияют на ProcessModel и пропускаются целиком
+    private static final Set<String> SKIPPED_PROCESS_ELEMENTS = Set.of(
+            "complexGateway",
+            "intermediateCatchEvent", "intermediateThrowEvent", "boundaryEvent", "callActivity",
+            "laneSet", "textAnnotation", "association", "dataObject", "dataObjectReference",
+            "dataStoreReference", "documentation", "extensionElements", "ioSpecification", "property");
+
+    // Шлюзы, которые сохраняются в модели процесса
+    private static final Map<String, ProcessGateway.GatewayType> GATEWAY_ELEMENTS = Map.of(
+            "exclusiveGateway", ProcessGateway.GatewayType.EXCLUSIVE,
+            "parallelGateway", ProcessGateway.GatewayType.PARALLEL,
+            "inclusiveGateway", ProcessGateway.GatewayType.INCLUSIVE,
+            "eventBasedGateway", ProcessGateway.GatewayType.EVENT_BASED);
+
+    // Подпроцессы: Flowable ищет задачи и внутри них, этот случай отдаем Flowable
+    private static final Set<String> SUB_PROCESS_ELEMENTS = Set.of("subProcess", "transaction", "adHocSubProcess");
+
+    // Дочерние элементы, которые Flowable разбирает специальными парсерами, а не как extension elements
+    private static final Set<String> SPECIAL_CHILD_ELEMENTS = Set.of(
+            "compensateEventDefinition", "errorEventDefinition", "formProperty", "escalationEventDefinition",
+            "conditionalEventDefinition", "ioSpecification", "taskListener", "flowNodeRef",
+            "failedJobRetryTimeCycle", "messageEventDefinition", "dataInputAssociation", "eventListener",
+            "terminateEventDefinition", "dataOutputAssociation", "signalEventDefinition", "httpRequestHandler",
+            "conditionExpression", "timerEventDefinition", "httpResponseHandler", "dataState", "script",
+            "timeDuration", "element-name", "condition", "cancelEventDefinition",
+            "multiInstanceLoopCharacteristics", "timeDate", "mapException", "timeCycle",
+            "humanPerformer", "potentialOwner", "customResource");
+
+    private StreamingBpmnReader() {
+    }
+
+    /**
+     * Читает главный процесс (первый процесс документа).
+     *
+     * @return процесс или null, если в документе нет ни одного процесса
+     * @throws XMLStreamException если XML некорректен
+     * @throws UnsupportedBpmnException если документ выходит за поддерживаемое подмножество
+     */
+    static ParsedProcess read(String bpmnXml) throws XMLStreamException, UnsupportedBpmnException {
+        XMLStreamReader reader = createFactory().createXMLStreamReader(new StringReader(bpmnXml));
+        try {
+            ParsedProcess main = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String element = reader.getLocalName();
+                if ("participant".equals(element)) {
+                    // С пулами Flowable выбирает главный процесс по первому пулу
+                    throw new UnsupportedBpmnException("pools are not supported");
+                } else if ("process".equals(element)) {
+                    if (main == null) {
+                        main = readProcess(reader);
+                    } else {
+                        skipElement(reader);
+                    }
+                } else if ("BPMNDiagram".equals(element)) {
+                    skipElement(reader);
+                } else if (isTaskElement(element) || SUB_PROCESS_ELEMENTS.contains(element)) {
+                    throw new UnsupportedBpmnException("flow element outside of process: " + element);
+                }
+            }
+            return main;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Те же настройки, что использует Flowable: от них зависит, на какие фрагменты
+     * разбивается текст, а значит и текст extension elements
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        setIfSupported(factory, XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        setIfSupported(factory, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        setIfSupported(factory, XMLInputFactory.SUPPORT_DTD, false);
+        return factory;
+    }
+
+    private static void setIfSupported(XMLInputFactory factory, String property, Object value) {
+        if (factory.isPropertySupported(property)) {
+            factory.setProperty(property, value);
+        }
+    }
+
+    private static ParsedProcess readProcess(XMLStreamReader reader) throws XMLStreamException, UnsupportedBpmnException {
+        ParsedProcess process = new ParsedProcess();
+        process.id = reader.getAttributeValue(null, "id");
+        process.name = reader.getAttributeValue(null, "name");
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                // Дочерние элементы читаются целиком, поэтому первый END_ELEMENT — конец процесса
+                return process;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            String element = reader.getLocalName();
+            if ("serviceTask".equals(element)) {
+                process.serviceTasks.add(readTask(reader, TaskKind.SERVICE));
+            } else if ("userTask".equals(element)) {
+                process.userTasks.add(readTask(reader, TaskKind.USER));
+            } else if (GENERIC_TASK_ELEMENTS.contains(element)) {
+                process.genericTasks.add(readTask(reader, TaskKind.GENERIC));
+            } else if ("sequenceFlow".equals(element)) {
+                process.sequenceFlows.add(readSequenceFlow(reader));
+            } else if (GATEWAY_ELEMENTS.containsKey(element)) {
+                process.gateways.add(new ProcessGateway(
+                        reader.getAttributeValue(null, "id"),
+                        reader.getAttributeValue(null, "name"),
+                        GATEWAY_ELEMENTS.get(element),
+                        reader.getAttributeValue(null, "default")));
+                skipElement(reader);
+            } else if ("startEvent".equals(element)) {
+                if (!process.hasStartEvent) {
+                    process.startEventId = reader.getAttributeValue(null, "id");
+                    process.startEventName = reader.getAttributeValue(null, "name");
+                    process.hasStartEvent = true;
+                }
+                skipElement(reader);
+            } else if ("endEvent".equals(element)) {
+                if (!process.hasEndEvent) {
+                    process.endEventName = reader.getAttributeValue(null, "name");
+                    process.hasEndEvent = true;
+                }
+                skipElement(reader);
+            } else if (SKIPPED_PROCESS_ELEMENTS.contains(element)) {
+                skipElement(reader);
+            } else {
+                throw new UnsupportedBpmnException("unsupported process element: " + element);
+            }
+        }
+        throw new XMLStreamException("Unexpected end of document inside process");
+    }
+
+    private static ParsedFlow readSequenceFlow(XMLStreamReader reader) throws XMLStreamException {
+        String id = reader.getAttributeValue(null, "id");
+        String sourceRef = reader.getAttributeValue(null, "sourceRef");
+        String targetRef = reader.getAttributeValue(null, "targetRef");
+        String name = reader.getAttributeValue(null, "name");
+        String condition = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("conditionExpression".equals(reader.getLocalName())) {
+                    condition = reader.getElementText().trim();
+                } else {
+                    skipElement(reader);
+                }
+            }
+        }
+        return new ParsedFlow(id, sourceRef, targetRef, name, condition);
+    }
+
+    private static ParsedTask readTask(XMLStreamReader reader, TaskKind kind) throws XMLStreamException, UnsupportedBpmnException {
+        ParsedTask task = new ParsedTask();
+        task.kind = kind;
+        task.id = reader.getAttributeValue(null, "id");
+        task.name = reader.getAttributeValue(null, "name");
+
+        // depth: 1 — прямые дети задачи, 2 — дети extensionElements
+        int depth = 0;
+        boolean inExtensionElements = false;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 0) {
+                    return task;
+                }
+                depth--;
+                inExtensionElements = false;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            String element = reader.getLocalName();
+            if ("documentation".equals(element)) {
+                // Как и во Flowable: берется последний непустой текст, обрезанный по краям
+                String text = reader.getElementText();
+                if (text != null && !text.trim().isEmpty()) {
+                    task.documentation = text.trim();
+                }
+            } else if (!inExtensionElements && "extensionElements".equals(element)) {
+                inExtensionElements = true;
+                depth++;
+            } else if (inExtensionElements) {
+                readExtensionChild(reader, task, element);
+            } else if (skipElement(reader)) {
+                // Документация или extension elements внутри незнакомого элемента: решение за Flowable
+                throw new UnsupportedBpmnException("nested documentation or extension elements in " + element);
+            }
+        }
+        throw new XMLStreamException("Unexpected end of document inside task " + task.id);
+    }
+
+    private static void readExtensionChild(XMLStreamReader reader, ParsedTask task, String element)
+            throws XMLStreamException, UnsupportedBpmnException {
+        if ("executionListener".equals(element)
+                || ("field".equals(element) && task.kind == TaskKind.SERVICE)) {
+            // Flowable разбирает их в слушатели и field extensions, а не в extension elements
+            skipElement(reader);
+        } else if (SPECIAL_CHILD_ELEMENTS.contains(element)
+                || ("field".equals(element) && task.kind != TaskKind.USER)) {
+            throw new UnsupportedBpmnException("special extension child: " + element);
+        } else {
+            String text = readExtensionText(reader);
+            if (!task.extensionElements.containsKey(element)) {
+                task.extensionElements.put(element, text);
+            }
+        }
+    }
+
+    /**
+     * Повторяет BpmnXMLUtil.parseExtensionElement: текстом элемента становится
+     * последний непустой фрагмент символьных данных, дочерние элементы поглощаются
+     */
+    private static String readExtensionText(XMLStreamReader reader) throws XMLStreamException {
+        String name = reader.getLocalName();
+        String text = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (reader.isCharacters() || event == XMLStreamConstants.CDATA) {
+                String chunk = reader.getText().trim();
+                if (!chunk.isEmpty()) {
+                    text = chunk;
+                }
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                readExtensionText(reader);
+            } else if (event == XMLStreamConstants.END_ELEMENT && name.equalsIgnoreCase(reader.getLocalName())) {
+                return text;
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Пропускает текущий элемент вместе с содержимым
+     *
+     * @return true, если внутри встретились documentation или extensionElements
+     */
+    private static boolean skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        boolean sawRelevant = false;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String element = reader.getLocalName();
+                if ("documentation".equals(element) || "extensionElements".equals(element)) {
+                    sawRelevant = true;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return sawRelevant;
+    }
+
+    private static boolean isTaskElement(String element) {
+        return "serviceTask".equals(element) || "userTask".equals(element) || GENERIC_TASK_ELEMENTS.contains(element);
+    }
+
+    enum TaskKind {
+        SERVICE, USER, GENERIC
+    }
+
+    /**
+     * Главный процесс в том виде, в каком он нужен для построения ProcessModel
+     */
+    static final class ParsedProcess {
+        String id;
+        String name;
+        // Задачи в порядке документа, разложенные так же, как их перечисляет Flowable
+        final List<ParsedTask> serviceTasks = new ArrayList<>();
+        final List<ParsedTask> userTasks = new ArrayList<>();
+        final List<ParsedTask> genericTasks = new ArrayList<>();
+        final List<ParsedFlow> sequenceFlows = new ArrayList<>();
+        final List<ProcessGateway> gateways = new ArrayList<>();
+        boolean hasStartEvent;
+        String startEventId;
+        String startEventName;
+        boolean hasEndEvent;
+        String endEventName;
+    }
+
+    static final class ParsedTask {
+        TaskKind kind;
+        String id;
+        String name;
+        String documentation;
+        // Имя extension element -> текст первого вхождения
+        final Map<String, String> extensionElements = new HashMap<>();
+    }
+
+    record ParsedFlow(String id, String sourceRef, String targetRef, String name, String conditionExpression) {
+    }
+
+    /**
+     * Документ выходит за подмножество BPMN, которое читатель разбирает так же, как Flowable
+     */
+    static final class UnsupportedBpmnException extends Exception {
+        UnsupportedBpmnException(String message) {
+            super(message);
+        }
+    }
+}
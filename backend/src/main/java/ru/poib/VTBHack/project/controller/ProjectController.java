@@ -10,6 +10,8 @@ import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 import ru.poib.VTBHack.parser.service.BpmnParserService;
 import ru.poib.VTBHack.parser.service.OpenApiParserService;
 import ru.poib.VTBHack.project.model.Project;
+import ru.poib.VTBHack.project.model.ProjectSnapshot;
+import ru.poib.VTBHack.project.service.ProjectModelService;
 import ru.poib.VTBHack.project.service.ProjectStoreService;
 
 import java.util.List;
@@ -20,6 +22,7 @@ import java.util.List;
 @AllArgsConstructor
 public class ProjectController {
     private final ProjectStoreService store;
+    private final ProjectModelService modelService;
     private final MappingService mappingService;
     private final BpmnParserService bpmnParserService;
     private final OpenApiParserService openApiParserService;
@@ -36,6 +39,16 @@ public class ProjectController {
         return ResponseEntity.ok(p);
     }
 
+    /**
+     * Разобранные BPMN, OpenAPI и маппинг проекта из бинарного снимка (без повторного разбора)
+     */
+    @GetMapping("/{id}/model")
+    public ResponseEntity<ProjectSnapshot> model(@PathVariable String id) throws Exception {
+        Project p = store.get(id);
+        if (p == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(modelService.load(p));
+    }
+
     @PostMapping
     public ResponseEntity<Project> create(@RequestParam String name,
                                           @RequestParam String bpmnXml,
@@ -48,6 +61,7 @@ public class ProjectController {
             MappingResult result = mappingService.mapProcessToEndpoints(processModel, openApiModel, openApiJson, bpmnXml);
             p.setMappingResult(result);
             store.save(p);
+            store.saveSnapshot(p, processModel, openApiModel, result);
         } catch (Exception ignored) {}
         return ResponseEntity.ok(p);
     }
@@ -71,6 +85,7 @@ public class ProjectController {
             MappingResult result = mappingService.mapProcessToEndpoints(processModel, openApiModel, openapi, bpmn);
             p.setMappingResult(result);
             store.save(p);
+            store.saveSnapshot(p, processModel, openApiModel, result);
         } catch (Exception ignored) {}
         return ResponseEntity.ok(p);
     }
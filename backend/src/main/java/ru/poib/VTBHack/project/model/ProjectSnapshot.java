@@ -0,0 +1,20 @@
+package ru.poib.VTBHack.project.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+
+/**
+ * Разобранные артефакты проекта, сохраняемые в бинарном снимке рядом с проектом
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectSnapshot {
+    private ProcessModel processModel;
+    private OpenApiModel openApiModel;
+    private MappingResult mappingResult;
+}
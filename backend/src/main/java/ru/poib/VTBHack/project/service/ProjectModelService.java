@@ -0,0 +1,90 @@
+package ru.poib.VTBHack.project.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.BpmnParserService;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+import ru.poib.VTBHack.project.model.Project;
+import ru.poib.VTBHack.project.model.ProjectSnapshot;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Разобранные артефакты проекта: из бинарного снимка, а если он устарел или отсутствует -
+ * разбор исходников с записью нового снимка. Снимок всегда строится по полной модели OpenAPI:
+ * сериализация ленивой модели связала бы все пути, и прогон потерял бы выигрыш от ленивого разбора.
+ */
+@Slf4j
+@Service
+public class ProjectModelService {
+
+    private final ProjectStoreService store;
+    private final BpmnParserService bpmnParserService;
+    private final OpenApiParserService openApiParserService;
+    // Снимки пересобираются в одном фоновом потоке, не конкурируя с прогонами
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "project-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<String> pendingRefresh = ConcurrentHashMap.newKeySet();
+
+    public ProjectModelService(ProjectStoreService store,
+                               BpmnParserService bpmnParserService,
+                               OpenApiParserService openApiParserService) {
+        this.store = store;
+        this.bpmnParserService = bpmnParserService;
+        this.openApiParserService = openApiParserService;
+    }
+
+    /**
+     * Модели проекта для просмотра: из снимка или полным разбором исходников
+     */
+    public ProjectSnapshot load(Project project) throws Exception {
+        ProjectSnapshot snapshot = store.loadSnapshot(project);
+        if (snapshot != null && snapshot.getProcessModel() != null && snapshot.getOpenApiModel() != null) {
+            return snapshot;
+        }
+        ProcessModel processModel = bpmnParserService.parse(project.getBpmnXml());
+        OpenApiModel openApiModel = openApiParserService.parseOpenApi(project.getOpenApiJson());
+        MappingResult mappingResult = project.getMappingResult();
+        if (mappingResult != null) {
+            store.saveSnapshot(project, processModel, openApiModel, mappingResult);
+        }
+        return new ProjectSnapshot(processModel, openApiModel, mappingResult);
+    }
+
+    /**
+     * Пересобирает снимок в фоне по собственному полному разбору исходников.
+     * Модели вызывающего (например, ленивая модель прогона) не затрагиваются;
+     * повторный запрос для проекта, снимок которого уже строится, игнорируется
+     */
+    public void refreshAsync(Project project) {
+        if (project.getMappingResult() == null || !pendingRefresh.add(project.getId())) {
+            return;
+        }
+        snapshotExecutor.execute(() -> {
+            try {
+                ProcessModel processModel = bpmnParserService.parse(project.getBpmnXml());
+                OpenApiModel openApiModel = openApiParserService.parseOpenApi(project.getOpenApiJson());
+                store.saveSnapshot(project, processModel, openApiModel, project.getMappingResult());
+            } catch (Exception e) {
+                log.warn("Failed to rebuild snapshot of project {}: {}", project.getId(), e.getMessage());
+            } finally {
+                pendingRefresh.remove(project.getId());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshotExecutor.shutdownNow();
+    }
+}
@@ -1,27 +1,69 @@
 package ru.poib.VTBHack.project.service;
 
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Response;
 import ru.poib.VTBHack.project.model.Project;
+import ru.poib.VTBHack.project.model.ProjectSnapshot;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 public class ProjectStoreService {
+    // Заголовок снимка: сигнатура, версия формата и SHA-256 исходных BPMN и OpenAPI
+    private static final byte[] SNAPSHOT_MAGIC = {'V', 'T', 'B', 'S'};
+    // Увеличивается при несовместимом изменении моделей: старые снимки просто пересоздаются
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int SNAPSHOT_HEADER_LENGTH = SNAPSHOT_MAGIC.length + Integer.BYTES + HASH_LENGTH;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper snapshotMapper = SmileMapper.builder()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .addMixIn(Response.Schema.class, SnapshotSchemaMixIn.class)
+            .build();
     private final Path baseDir;
 
+    /**
+     * Дополнительные ключевые слова схемы пишутся в снимок на уровне схемы, чтобы пережить
+     * запись и чтение; JSON API сохраняет прежний вид (поле additionalProperties)
+     */
+    private abstract static class SnapshotSchemaMixIn {
+        @JsonAnyGetter
+        abstract Map<String, Object> getAdditionalProperties();
+    }
+
     public ProjectStoreService() {
-        String cwd = System.getProperty("user.dir");
-        this.baseDir = Paths.get(cwd).resolve("data").resolve("projects");
+        this(Paths.get(System.getProperty("user.dir")).resolve("data").resolve("projects"));
+    }
+
+    ProjectStoreService(Path baseDir) {
+        this.baseDir = baseDir;
         try {
             Files.createDirectories(baseDir);
         } catch (IOException ignored) {}
@@ -68,4 +110,84 @@ public class ProjectStoreService {
         } catch (IOException ignored) {}
         return res;
     }
+
+    /**
+     * Записывает бинарный снимок разобранных артефактов проекта (Smile) в файл id.snapshot.
+     * Снимок привязан к хэшу текущих BPMN и OpenAPI проекта
+     */
+    public void saveSnapshot(Project p, ProcessModel processModel, OpenApiModel openApiModel, MappingResult mappingResult) {
+        Path file = snapshotFile(p.getId());
+        Path tmp = baseDir.resolve(p.getId() + ".snapshot.tmp");
+        try {
+            byte[] payload = snapshotMapper.writeValueAsBytes(new ProjectSnapshot(processModel, openApiModel, mappingResult));
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_LENGTH)
+                    .put(SNAPSHOT_MAGIC)
+                    .putInt(SNAPSHOT_VERSION)
+                    .put(contentHash(p));
+            header.flip();
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                channel.write(new ByteBuffer[]{header, ByteBuffer.wrap(payload)});
+            }
+            // Читатель видит либо старый снимок, либо новый целиком
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignoredToo) {}
+        }
+    }
+
+    /**
+     * Читает снимок проекта через отображение файла в память
+     *
+     * @return снимок или null, если его нет, он устарел (BPMN или OpenAPI изменились),
+     *         записан другой версией формата или поврежден
+     */
+    public ProjectSnapshot loadSnapshot(Project p) {
+        Path file = snapshotFile(p.getId());
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() <= SNAPSHOT_HEADER_LENGTH) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            byte[] magic = new byte[SNAPSHOT_MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, SNAPSHOT_MAGIC) || buffer.getInt() != SNAPSHOT_VERSION) return null;
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            if (!MessageDigest.isEqual(hash, contentHash(p))) return null;
+
+            try (InputStream in = new ByteBufferBackedInputStream(buffer.slice())) {
+                return snapshotMapper.readValue(in, ProjectSnapshot.class);
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Path snapshotFile(String id) {
+        return baseDir.resolve(id + ".snapshot");
+    }
+
+    /**
+     * SHA-256 исходных BPMN и OpenAPI: от них зависят все артефакты снимка
+     */
+    private static byte[] contentHash(Project p) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            updateWithPart(digest, p.getBpmnXml());
+            updateWithPart(digest, p.getOpenApiJson());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static void updateWithPart(MessageDigest digest, String part) {
+        // Длина перед содержимым, чтобы ("ab", "c") и ("a", "bc") давали разные хэши
+        byte[] bytes = part != null ? part.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        digest.update(ByteBuffer.allocate(Integer.BYTES + 1).put((byte) (part != null ? 1 : 0)).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
 }
\ No newline at end of file
@@ -7,6 +7,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+import ru.poib.VTBHack.runner.model.LoadProfile;
 import ru.poib.VTBHack.runner.model.RunExecution;
 import ru.poib.VTBHack.runner.service.RunnerService;
 
@@ -33,6 +35,26 @@ public class RunnerController {
         private String projectId;
         private Integer parallelism;
         private String dataTemplateId;
+        /**
+         * Базовый URL API; не задан - боевой стенд по умолчанию
+         */
+        private String baseUrl;
+        /**
+         * Выполнить против встроенной заглушки по OpenAPI спецификации проекта
+         */
+        private boolean useStub;
+        /**
+         * Профиль нагрузки; не задан - один проход сценария
+         */
+        private LoadProfile loadProfile;
+        /**
+         * Режим кассеты: RECORD - записать ответы API, REPLAY - выполнить по записи без обращения к API
+         */
+        private ExecutionConfig.CassetteMode cassetteMode;
+        /**
+         * Идентификатор кассеты; не задан - ID процесса
+         */
+        private String cassetteId;
     }
 
     @PostMapping("/run")
@@ -42,7 +64,12 @@ public class RunnerController {
                 request.getScenarioId(),
                 request.getProjectId(),
                 request.getParallelism(),
-                request.getDataTemplateId()
+                request.getDataTemplateId(),
+                request.getBaseUrl(),
+                request.isUseStub(),
+                request.getLoadProfile(),
+                request.getCassetteMode(),
+                request.getCassetteId()
             );
             return ResponseEntity.ok(new StartRunResponse(execution.getId()));
         } catch (Exception e) {
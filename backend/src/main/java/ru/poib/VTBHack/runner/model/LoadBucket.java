@@ -0,0 +1,40 @@
+package ru.poib.VTBHack.runner.model;
+
+import lombok.Data;
+import ru.poib.VTBHack.execution.model.LatencyStatistics;
+
+/**
+ * Интервал временного ряда нагрузочного прогона; итерация относится к интервалу
+ * по запланированному времени запуска
+ */
+@Data
+public class LoadBucket {
+    /**
+     * Смещение начала интервала от старта прогона в миллисекундах
+     */
+    private long offsetMs;
+
+    /**
+     * Целевая интенсивность в начале интервала, итераций в секунду
+     */
+    private double targetRate;
+
+    private long completed;
+
+    private long failed;
+
+    /**
+     * Итерации, отброшенные из-за переполнения очереди
+     */
+    private long dropped;
+
+    /**
+     * Задержка итераций от запланированного времени запуска (с поправкой на coordinated omission)
+     */
+    private LatencyStatistics latency;
+
+    /**
+     * Время выполнения итераций без учета ожидания в очереди
+     */
+    private LatencyStatistics serviceTime;
+}
@@ -0,0 +1,117 @@
+package ru.poib.VTBHack.runner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.poib.VTBHack.generator.model.UniqueFieldType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Профиль нагрузочного прогона по открытой модели: итерации сценария запускаются с заданной
+ * интенсивностью независимо от того, как быстро отвечает API.
+ * Профиль задается либо списком этапов, либо разгоном, удержанием (soak) и снижением до targetRate.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadProfile {
+    /**
+     * Этапы с линейным изменением интенсивности; если заданы, поля разгона и удержания не используются
+     */
+    private List<Stage> stages = new ArrayList<>();
+
+    /**
+     * Целевая интенсивность, итераций в секунду
+     */
+    private double targetRate;
+
+    /**
+     * Длительность разгона от 0 до targetRate в секундах
+     */
+    private long rampUpSeconds;
+
+    /**
+     * Длительность удержания targetRate в секундах
+     */
+    private long soakSeconds;
+
+    /**
+     * Длительность снижения от targetRate до 0 в секундах
+     */
+    private long rampDownSeconds;
+
+    /**
+     * Максимум одновременно выполняемых итераций; остальные ждут в очереди
+     */
+    private int maxInFlight = 50;
+
+    /**
+     * Максимум итераций, ожидающих свободного места; при переполнении итерация отбрасывается
+     */
+    private int maxQueued = 50;
+
+    /**
+     * Ширина интервала временного ряда в секундах
+     */
+    private int bucketSeconds = 1;
+
+    /**
+     * Количество виртуальных пользователей со своими тестовыми данными (контекст генерации
+     * пользователя выводится из seed прогона), итерации используют их по кругу.
+     * При заданных uniqueFields не используется
+     */
+    private int dataVariants = 1;
+
+    /**
+     * Seed тестовых данных прогона; если не задан, выбирается случайно и пишется в журнал прогона
+     */
+    private Long seed;
+
+    /**
+     * Виды полей, значения которых не повторяются во всем прогоне. Если заданы, каждая итерация -
+     * отдельный виртуальный пользователь: его данные строятся при запуске итерации в одной
+     * области уникальности на весь прогон (dataVariants не используется), а время генерации
+     * входит в задержку итерации. Какая итерация получит значение, а какая сгенерирует его заново,
+     * зависит от порядка запусков, поэтому с seed воспроизводимы только данные без повторов
+     */
+    private Set<UniqueFieldType> uniqueFields;
+
+    /**
+     * Этап профиля: интенсивность линейно меняется от конечной интенсивности предыдущего этапа
+     * (0 для первого) до targetRate
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stage {
+        private long durationSeconds;
+        private double targetRate;
+    }
+
+    /**
+     * Этапы прогона: явно заданные или построенные из разгона, удержания и снижения
+     */
+    public List<Stage> effectiveStages() {
+        if (stages != null && !stages.isEmpty()) {
+            return stages;
+        }
+        List<Stage> result = new ArrayList<>();
+        if (rampUpSeconds > 0) {
+            result.add(new Stage(rampUpSeconds, targetRate));
+        }
+        if (soakSeconds > 0) {
+            if (result.isEmpty()) {
+                // Без разгона интенсивность сразу равна целевой
+                result.add(new Stage(0, targetRate));
+            }
+            result.add(new Stage(soakSeconds, targetRate));
+        }
+        if (rampDownSeconds > 0) {
+            result.add(new Stage(rampDownSeconds, 0));
+        }
+        return result;
+    }
+}
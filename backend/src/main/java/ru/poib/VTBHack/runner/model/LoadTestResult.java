@@ -0,0 +1,49 @@
+package ru.poib.VTBHack.runner.model;
+
+import lombok.Data;
+import ru.poib.VTBHack.execution.model.LatencyStatistics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Результат нагрузочного прогона: итоги и временной ряд, который пополняется по ходу прогона
+ */
+@Data
+public class LoadTestResult {
+    private long scheduled;
+
+    private long completed;
+
+    private long failed;
+
+    private long dropped;
+
+    /**
+     * Наибольшее число одновременно выполнявшихся итераций
+     */
+    private int maxInFlightObserved;
+
+    /**
+     * Фактическая интенсивность завершенных итераций, итераций в секунду
+     */
+    private double achievedRate;
+
+    /**
+     * Задержка итераций от запланированного времени запуска (с поправкой на coordinated omission)
+     */
+    private LatencyStatistics latency;
+
+    /**
+     * Время выполнения итераций без учета ожидания в очереди
+     */
+    private LatencyStatistics serviceTime;
+
+    /**
+     * Перцентили задержки шагов по эндпоинтам за весь прогон, ключ - "METHOD /path/{template}"
+     */
+    private Map<String, LatencyStatistics> endpointLatency;
+
+    private List<LoadBucket> series = new CopyOnWriteArrayList<>();
+}
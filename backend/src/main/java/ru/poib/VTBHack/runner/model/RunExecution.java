@@ -2,6 +2,7 @@ package ru.poib.VTBHack.runner.model;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import lombok.Data;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
 import ru.poib.VTBHack.execution.model.TestExecutionResult;
 
 import java.time.Instant;
@@ -38,6 +39,18 @@ public class RunExecution {
     private Instant finishedAt;
     private double progress = 0.0;
     private int parallelism = 1;
+
+    // Базовый URL API, против которого выполняется прогон
+    private String baseUrl;
+    private boolean useStub;
+
+    // Запись или воспроизведение ответов API по кассете
+    private ExecutionConfig.CassetteMode cassetteMode = ExecutionConfig.CassetteMode.OFF;
+    private String cassetteId;
+
+    // Нагрузочный прогон: профиль и результат с временным рядом
+    private LoadProfile loadProfile;
+    private LoadTestResult loadResult;
     
     // Детали выполнения
     private TestExecutionResult executionResult;
@@ -79,6 +92,10 @@ public class RunExecution {
         private Instant startedAt;
         private Instant finishedAt;
         private Long durationMs;
+        // Ожидание ограничителя исходящих запросов (входит в durationMs)
+        private long limiterWaitMs;
+        // Ожидание соединения из пула HTTP клиента (входит в durationMs)
+        private long connectionWaitMs;
         private String errorMessage;
         private StepRequest request;
         private StepResponse response;
@@ -98,6 +115,10 @@ public class RunExecution {
         private Integer statusCode;
         private java.util.Map<String, String> headers;
         private String body;
+        // Полный размер тела; body может быть усечен до лимита захвата
+        private long bodySize;
+        private boolean bodyTruncated;
+        private String bodyFile;
         private Long responseTimeMs;
         private Instant timestamp;
     }
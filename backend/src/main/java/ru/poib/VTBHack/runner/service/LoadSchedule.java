@@ -0,0 +1,91 @@
+package ru.poib.VTBHack.runner.service;
+
+import ru.poib.VTBHack.runner.model.LoadProfile;
+
+import java.util.List;
+
+/**
+ * Расписание запусков итераций по этапам профиля. Интенсивность внутри этапа меняется линейно,
+ * поэтому число запущенных к моменту t итераций N(t) - кусочно-квадратичная функция,
+ * а время k-й итерации находится как решение N(t) = k.
+ */
+final class LoadSchedule {
+
+    private final double[] starts;
+    private final double[] durations;
+    private final double[] fromRates;
+    private final double[] toRates;
+    private final double[] cumulative;
+    private final double totalSeconds;
+
+    LoadSchedule(List<LoadProfile.Stage> stages) {
+        int n = stages.size();
+        starts = new double[n];
+        durations = new double[n];
+        fromRates = new double[n];
+        toRates = new double[n];
+        cumulative = new double[n + 1];
+        double time = 0;
+        double rate = 0;
+        for (int i = 0; i < n; i++) {
+            LoadProfile.Stage stage = stages.get(i);
+            starts[i] = time;
+            durations[i] = stage.getDurationSeconds();
+            fromRates[i] = rate;
+            toRates[i] = stage.getTargetRate();
+            cumulative[i + 1] = cumulative[i] + (fromRates[i] + toRates[i]) / 2 * durations[i];
+            time += durations[i];
+            rate = stage.getTargetRate();
+        }
+        totalSeconds = time;
+    }
+
+    double totalSeconds() {
+        return totalSeconds;
+    }
+
+    /**
+     * Ожидаемое число итераций за весь профиль
+     */
+    long totalIterations() {
+        return (long) Math.ceil(cumulative[cumulative.length - 1]);
+    }
+
+    /**
+     * Целевая интенсивность в момент времени, итераций в секунду
+     */
+    double rateAt(double seconds) {
+        for (int i = 0; i < starts.length; i++) {
+            if (seconds < starts[i] + durations[i]) {
+                double fraction = durations[i] > 0 ? (seconds - starts[i]) / durations[i] : 1;
+                return fromRates[i] + (toRates[i] - fromRates[i]) * Math.max(0, fraction);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Запланированное время запуска k-й итерации (с нуля) от начала прогона в секундах
+     *
+     * @return время или NaN, если профиль завершается раньше
+     */
+    double arrivalSeconds(long k) {
+        for (int i = 0; i < starts.length; i++) {
+            if (k >= cumulative[i + 1]) {
+                continue;
+            }
+            double remaining = k - cumulative[i];
+            double r0 = fromRates[i];
+            double acceleration = (toRates[i] - r0) / durations[i];
+            double offset;
+            if (Math.abs(acceleration) < 1e-12) {
+                offset = remaining / r0;
+            } else {
+                // r0 * t + a * t^2 / 2 = remaining
+                offset = (-r0 + Math.sqrt(Math.max(0, r0 * r0 + 2 * acceleration * remaining))) / acceleration;
+            }
+            return starts[i] + Math.min(durations[i], Math.max(0, offset));
+        }
+        return Double.NaN;
+    }
+}
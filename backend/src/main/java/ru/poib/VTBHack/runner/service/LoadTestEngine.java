@@ -0,0 +1,223 @@
+package ru.poib.VTBHack.runner.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.execution.service.LatencyRecorder;
+import ru.poib.VTBHack.runner.model.LoadBucket;
+import ru.poib.VTBHack.runner.model.LoadProfile;
+import ru.poib.VTBHack.runner.model.LoadTestResult;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Нагрузочный прогон по открытой модели: итерации запускаются по расписанию профиля
+ * независимо от времени ответа API, каждая на своем виртуальном потоке.
+ * Одновременно выполняется не больше maxInFlight итераций, остальные ждут в ограниченной очереди.
+ * Задержка итерации считается от запланированного времени запуска, поэтому ожидание в очереди
+ * и отставание планировщика попадают в перцентили (поправка на coordinated omission);
+ * время выполнения без ожидания записывается отдельно.
+ */
+@Slf4j
+@Service
+public class LoadTestEngine {
+
+    /**
+     * Бюджет памяти на опубликованный временной ряд и оценка одного интервала в нем
+     * (две сжатые гистограммы по 2 значащих цифры и счетчики)
+     */
+    static final long SERIES_BUDGET_BYTES = 64L * 1024 * 1024;
+    static final int BUCKET_ESTIMATE_BYTES = 4 * 1024;
+    /**
+     * Наибольшее число интервалов временного ряда в одном прогоне
+     */
+    public static final int MAX_BUCKETS = (int) (SERIES_BUDGET_BYTES / BUCKET_ESTIMATE_BYTES);
+
+    /**
+     * Одна итерация сценария
+     */
+    @FunctionalInterface
+    public interface Iteration {
+        /**
+         * @param index номер итерации с нуля
+         * @return true, если итерация прошла успешно
+         */
+        boolean run(long index) throws Exception;
+    }
+
+    /**
+     * Интервал временного ряда в процессе накопления. Создается при первом запуске в его окне
+     * и освобождается после публикации, поэтому в памяти живут только неопубликованные интервалы
+     */
+    private static final class Bucket {
+        final LatencyRecorder latency = LatencyRecorder.compact();
+        final LatencyRecorder serviceTime = LatencyRecorder.compact();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicInteger pending = new AtomicInteger();
+    }
+
+    /**
+     * Выполняет профиль; временной ряд публикуется в результат по мере завершения интервалов
+     *
+     * @param progress доля пройденного профиля от 0 до 1
+     */
+    public LoadTestResult run(LoadProfile profile, Iteration iteration, LoadTestResult result, DoubleConsumer progress) {
+        LoadSchedule schedule = new LoadSchedule(profile.effectiveStages());
+        int bucketSeconds = Math.max(1, profile.getBucketSeconds());
+        int bucketCount = Math.max(1, (int) Math.ceil(schedule.totalSeconds() / bucketSeconds));
+        Bucket[] buckets = new Bucket[bucketCount];
+        // Итоги прогона пишутся с полной точностью напрямую, а не собираются из интервалов
+        LatencyRecorder latency = new LatencyRecorder();
+        LatencyRecorder serviceTime = new LatencyRecorder();
+
+        Semaphore slots = new Semaphore(profile.getMaxInFlight());
+        int maxPending = profile.getMaxInFlight() + Math.max(0, profile.getMaxQueued());
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        int published = 0;
+        long scheduled = 0;
+
+        log.info("Load run started: {} s, ~{} iterations, max in flight {}",
+                schedule.totalSeconds(), schedule.totalIterations(), profile.getMaxInFlight());
+        long startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (long k = 0; ; k++) {
+                double arrival = schedule.arrivalSeconds(k);
+                if (Double.isNaN(arrival)) {
+                    break;
+                }
+                long intendedNanos = startNanos + (long) (arrival * 1_000_000_000L);
+                sleepUntil(intendedNanos);
+                int bucketIndex = Math.min(bucketCount - 1, (int) (arrival / bucketSeconds));
+                // Запуск мог отстать от своего окна: его интервал и более поздние еще не публикуются
+                published = publish(buckets, published, bucketIndex, bucketSeconds, schedule, startNanos,
+                        result, progress);
+
+                if (buckets[bucketIndex] == null) {
+                    buckets[bucketIndex] = new Bucket();
+                }
+                Bucket bucket = buckets[bucketIndex];
+                scheduled++;
+                if (pending.incrementAndGet() > maxPending) {
+                    pending.decrementAndGet();
+                    bucket.dropped.incrementAndGet();
+                    continue;
+                }
+                bucket.pending.incrementAndGet();
+                long index = k;
+                executor.execute(() -> {
+                    try {
+                        slots.acquire();
+                        long startedNanos = System.nanoTime();
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        boolean success;
+                        try {
+                            success = iteration.run(index);
+                        } catch (Exception e) {
+                            log.debug("Load iteration {} failed: {}", index, e.getMessage());
+                            success = false;
+                        } finally {
+                            running.decrementAndGet();
+                            slots.release();
+                        }
+                        long endNanos = System.nanoTime();
+                        Duration iterationLatency = Duration.ofNanos(endNanos - intendedNanos);
+                        Duration iterationServiceTime = Duration.ofNanos(endNanos - startedNanos);
+                        bucket.latency.record(iterationLatency);
+                        bucket.serviceTime.record(iterationServiceTime);
+                        latency.record(iterationLatency);
+                        serviceTime.record(iterationServiceTime);
+                        (success ? bucket.completed : bucket.failed).incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        bucket.dropped.incrementAndGet();
+                    } finally {
+                        bucket.pending.decrementAndGet();
+                        pending.decrementAndGet();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Load run interrupted, cancelling in-flight iterations");
+            executor.shutdownNow();
+        } finally {
+            // Дожидаемся итераций в полете, чтобы последние интервалы были полными
+            executor.close();
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        publish(buckets, published, bucketCount, bucketSeconds, schedule, Long.MIN_VALUE, result, progress);
+
+        long completed = 0;
+        long failed = 0;
+        long dropped = 0;
+        for (LoadBucket bucket : result.getSeries()) {
+            completed += bucket.getCompleted();
+            failed += bucket.getFailed();
+            dropped += bucket.getDropped();
+        }
+        result.setScheduled(scheduled);
+        result.setCompleted(completed);
+        result.setFailed(failed);
+        result.setDropped(dropped);
+        result.setMaxInFlightObserved(maxRunning.get());
+        result.setAchievedRate(elapsedSeconds > 0 ? (completed + failed) / elapsedSeconds : 0);
+        result.setLatency(latency.runStatistics());
+        result.setServiceTime(serviceTime.runStatistics());
+        log.info("Load run finished: {} scheduled, {} completed, {} failed, {} dropped, p99 {} ms",
+                scheduled, completed, failed, dropped, result.getLatency().getP99Ms());
+        return result;
+    }
+
+    /**
+     * Публикует по порядку интервалы, окно которых закончилось и все итерации которых завершены
+     *
+     * @param limit      первый интервал, который публиковать нельзя: в него еще попадают запуски
+     * @param startNanos старт прогона; Long.MIN_VALUE - публиковать все оставшиеся интервалы
+     * @return число опубликованных интервалов
+     */
+    private static int publish(Bucket[] buckets, int published, int limit, int bucketSeconds, LoadSchedule schedule,
+                               long startNanos, LoadTestResult result, DoubleConsumer progress) {
+        boolean all = startNanos == Long.MIN_VALUE;
+        double elapsedSeconds = all ? Double.MAX_VALUE : (System.nanoTime() - startNanos) / 1e9;
+        int next = published;
+        while (next < limit) {
+            // В окно интервала могло не попасть ни одного запуска
+            Bucket bucket = buckets[next] != null ? buckets[next] : new Bucket();
+            double offsetSeconds = (double) next * bucketSeconds;
+            if (!all && (elapsedSeconds < offsetSeconds + bucketSeconds || bucket.pending.get() > 0)) {
+                break;
+            }
+            LoadBucket item = new LoadBucket();
+            item.setOffsetMs((long) (offsetSeconds * 1000));
+            item.setTargetRate(schedule.rateAt(offsetSeconds));
+            item.setCompleted(bucket.completed.get());
+            item.setFailed(bucket.failed.get());
+            item.setDropped(bucket.dropped.get());
+            item.setLatency(bucket.latency.runStatistics());
+            item.setServiceTime(bucket.serviceTime.runStatistics());
+            result.getSeries().add(item);
+            buckets[next] = null;
+            next++;
+            progress.accept(Math.min(1.0, (double) next / buckets.length));
+        }
+        return next;
+    }
+
+    private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long delay = deadlineNanos - System.nanoTime();
+        while (delay > 0) {
+            Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+            delay = deadlineNanos - System.nanoTime();
+        }
+    }
+}
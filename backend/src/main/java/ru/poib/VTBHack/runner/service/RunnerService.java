@@ -1,67 +1,152 @@
 package ru.poib.VTBHack.runner.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.poib.VTBHack.aiqueue.service.AiAnalysisQueueService;
 import ru.poib.VTBHack.execution.model.*;
+import ru.poib.VTBHack.execution.service.LatencyRecorder;
 import ru.poib.VTBHack.execution.service.TestExecutionService;
 import ru.poib.VTBHack.generator.model.TestDataGenerationRequest;
 import ru.poib.VTBHack.generator.model.TestDataGenerationResult;
 import ru.poib.VTBHack.generator.service.TestDataGeneratorService;
 import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.metrics.service.PerformanceMetrics;
 import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
 import ru.poib.VTBHack.parser.service.BpmnParserService;
 import ru.poib.VTBHack.parser.service.OpenApiParserService;
 import ru.poib.VTBHack.project.model.Project;
+import ru.poib.VTBHack.project.model.ProjectSnapshot;
+import ru.poib.VTBHack.project.service.ProjectModelService;
 import ru.poib.VTBHack.project.service.ProjectStoreService;
+import ru.poib.VTBHack.runner.model.LoadProfile;
+import ru.poib.VTBHack.runner.model.LoadTestResult;
 import ru.poib.VTBHack.runner.model.RunExecution;
 import ru.poib.VTBHack.runner.repo.RunExecutionRepository;
+import ru.poib.VTBHack.stub.service.StubServerService;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
 public class RunnerService {
+    static final String DEFAULT_BASE_URL = "https://abank.open.bankingapi.ru";
+    // Ограничения нагрузочного профиля
+    private static final long MAX_LOAD_SECONDS = 24 * 60 * 60;
+    private static final double MAX_LOAD_RATE = 10_000;
+    private static final int MAX_IN_FLIGHT = 10_000;
+    private static final int MAX_DATA_VARIANTS = 1_000;
+
     private final RunExecutionRepository repository;
     private final TestExecutionService testExecutionService;
     private final ProjectStoreService projectStoreService;
+    private final ProjectModelService projectModelService;
     private final BpmnParserService bpmnParserService;
     private final OpenApiParserService openApiParserService;
     private final TestDataGeneratorService testDataGeneratorService;
     private final AiAnalysisQueueService aiAnalysisQueueService;
+    private final StubServerService stubServerService;
+    private final LoadTestEngine loadTestEngine;
+    private final PerformanceMetrics metrics;
     private final ObjectMapper objectMapper;
+    // Прогоны выполняются в своем пуле: запрос на запуск не ждет прогона,
+    // а сверх maxConcurrentRuns прогоны ждут в очереди со статусом QUEUED
+    private final ExecutorService runExecutor;
 
     public RunnerService(
             RunExecutionRepository repository,
             TestExecutionService testExecutionService,
             ProjectStoreService projectStoreService,
+            ProjectModelService projectModelService,
             BpmnParserService bpmnParserService,
             OpenApiParserService openApiParserService,
             TestDataGeneratorService testDataGeneratorService,
-            AiAnalysisQueueService aiAnalysisQueueService) {
+            AiAnalysisQueueService aiAnalysisQueueService,
+            StubServerService stubServerService,
+            LoadTestEngine loadTestEngine,
+            PerformanceMetrics metrics,
+            @Value("${runner.max-concurrent-runs:8}") int maxConcurrentRuns) {
         this.repository = repository;
         this.testExecutionService = testExecutionService;
         this.projectStoreService = projectStoreService;
+        this.projectModelService = projectModelService;
         this.bpmnParserService = bpmnParserService;
         this.openApiParserService = openApiParserService;
         this.testDataGeneratorService = testDataGeneratorService;
         this.aiAnalysisQueueService = aiAnalysisQueueService;
+        this.stubServerService = stubServerService;
+        this.loadTestEngine = loadTestEngine;
+        this.metrics = metrics;
         this.objectMapper = new ObjectMapper();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.runExecutor = Executors.newFixedThreadPool(maxConcurrentRuns, runnable -> {
+            Thread thread = new Thread(runnable, "run-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
      * Создает новый запуск и начинает асинхронное выполнение
      */
     public RunExecution startRun(String scenarioId, String projectId, Integer parallelism, String dataTemplateId) {
+        return startRun(scenarioId, projectId, parallelism, dataTemplateId, null, false);
+    }
+
+    /**
+     * Создает новый запуск против указанного API
+     *
+     * @param baseUrl базовый URL API; если не задан - боевой стенд по умолчанию
+     * @param useStub выполнить против встроенной заглушки по OpenAPI спецификации проекта
+     */
+    public RunExecution startRun(String scenarioId, String projectId, Integer parallelism, String dataTemplateId,
+                                 String baseUrl, boolean useStub) {
+        return startRun(scenarioId, projectId, parallelism, dataTemplateId, baseUrl, useStub, null);
+    }
+
+    /**
+     * Создает новый запуск; с профилем нагрузки сценарий выполняется многократно по расписанию профиля
+     *
+     * @param loadProfile профиль нагрузки или null для одного прохода сценария
+     * @throws IllegalArgumentException если профиль некорректен
+     */
+    public RunExecution startRun(String scenarioId, String projectId, Integer parallelism, String dataTemplateId,
+                                 String baseUrl, boolean useStub, LoadProfile loadProfile) {
+        return startRun(scenarioId, projectId, parallelism, dataTemplateId, baseUrl, useStub, loadProfile, null, null);
+    }
+
+    /**
+     * Создает новый запуск с записью или воспроизведением ответов API по кассете
+     *
+     * @param cassetteMode режим кассеты или null - без кассеты
+     * @param cassetteId   идентификатор кассеты или null - ID процесса
+     */
+    public RunExecution startRun(String scenarioId, String projectId, Integer parallelism, String dataTemplateId,
+                                 String baseUrl, boolean useStub, LoadProfile loadProfile,
+                                 ExecutionConfig.CassetteMode cassetteMode, String cassetteId) {
+        if (loadProfile != null) {
+            validate(loadProfile);
+        }
         RunExecution execution = new RunExecution();
         execution.setScenarioId(scenarioId);
         execution.setProjectId(projectId);
+        execution.setBaseUrl(baseUrl);
+        execution.setUseStub(useStub);
+        execution.setLoadProfile(loadProfile);
+        execution.setCassetteMode(cassetteMode != null ? cassetteMode : ExecutionConfig.CassetteMode.OFF);
+        execution.setCassetteId(cassetteId);
         execution.setStatus(RunExecution.RunStatus.QUEUED);
         execution.setParallelism(parallelism != null ? parallelism : 1);
         execution.setCreatedAt(Instant.now());
@@ -69,7 +154,9 @@ public class RunnerService {
         repository.save(execution);
         
         // Запускаем асинхронное выполнение
-        executeAsync(execution.getId());
+        String executionId = execution.getId();
+        long queuedNanos = System.nanoTime();
+        runExecutor.execute(() -> executeRun(executionId, queuedNanos));
         
         return execution;
     }
@@ -88,11 +175,19 @@ public class RunnerService {
         return repository.findByProjectIdOrderByCreatedAtDesc(projectId);
     }
 
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdownNow();
+    }
+
     /**
-     * Асинхронное выполнение теста
+     * Выполнение теста в пуле прогонов
+     *
+     * @param queuedNanos момент постановки в очередь пула по System.nanoTime; ожидание до начала
+     *                    выполнения записывается как vtbhack.run.queue.wait
      */
-    @Async
-    public void executeAsync(String executionId) {
+    private void executeRun(String executionId, long queuedNanos) {
+        metrics.recordRunQueueWait(Duration.ofNanos(System.nanoTime() - queuedNanos));
         RunExecution execution = repository.findById(executionId).orElse(null);
         if (execution == null) {
             log.error("Execution {} not found", executionId);
@@ -114,10 +209,23 @@ public class RunnerService {
                 throw new RuntimeException("Project not found");
             }
 
-            // Парсим BPMN и OpenAPI
-            ProcessModel processModel = bpmnParserService.parse(project.getBpmnXml());
-            var openApiModel = openApiParserService.parseOpenApi(project.getOpenApiJson());
+            // Берем разобранные BPMN и OpenAPI из снимка проекта, а если он устарел или отсутствует - парсим
+            ProcessModel processModel;
+            OpenApiModel openApiModel;
             MappingResult mappingResult = project.getMappingResult();
+            ProjectSnapshot snapshot = projectStoreService.loadSnapshot(project);
+            if (snapshot != null && snapshot.getProcessModel() != null && snapshot.getOpenApiModel() != null) {
+                processModel = snapshot.getProcessModel();
+                openApiModel = snapshot.getOpenApiModel();
+                if (mappingResult == null) {
+                    mappingResult = snapshot.getMappingResult();
+                }
+            } else {
+                processModel = bpmnParserService.parse(project.getBpmnXml());
+                openApiModel = openApiParserService.parseOpenApiLazy(project.getOpenApiJson());
+                // Снимок строится в фоне по полной модели: сериализация ленивой модели связала бы все пути
+                projectModelService.refreshAsync(project);
+            }
 
             if (mappingResult == null) {
                 throw new RuntimeException("Mapping result not found in project");
@@ -129,16 +237,36 @@ public class RunnerService {
             testDataRequest.setOpenApiModel(openApiModel);
             testDataRequest.setGenerationType(ru.poib.VTBHack.generator.model.GenerationType.CLASSIC);
             testDataRequest.setScenario("positive");
-            testDataRequest.setVariantsCount(1);
-
-            TestDataGenerationResult testData = testDataGeneratorService.generateTestData(testDataRequest);
+            TestDataGenerationResult testData = null;
+            TestDataGeneratorService.VirtualUsers virtualUsers = null;
+            LoadProfile loadProfile = execution.getLoadProfile();
+            if (loadProfile != null && loadProfile.getUniqueFields() != null && !loadProfile.getUniqueFields().isEmpty()) {
+                // Уникальные значения на весь прогон: у каждой итерации свой пользователь, данные строятся по ходу
+                long iterations = new LoadSchedule(loadProfile.effectiveStages()).totalIterations();
+                testDataRequest.setSeed(loadProfile.getSeed());
+                testDataRequest.setUniqueFields(loadProfile.getUniqueFields());
+                virtualUsers = testDataGeneratorService.virtualUsers(testDataRequest, iterations);
+                addLog(execution, "info", "Data with unique " + loadProfile.getUniqueFields()
+                        + " is generated per iteration for ~" + iterations + " virtual users");
+            } else if (loadProfile != null) {
+                // Итерации нагрузочного прогона - виртуальные пользователи со своими данными
+                testDataRequest.setVariantsCount(Math.max(1, loadProfile.getDataVariants()));
+                testDataRequest.setSeed(loadProfile.getSeed());
+                testData = testDataGeneratorService.generateVirtualUserData(testDataRequest);
+                addLog(execution, "info", "Generated data for " + testData.getVariants().size()
+                        + " virtual users, seed " + testData.getSeed());
+            } else {
+                testData = testDataGeneratorService.generateTestData(testDataRequest);
+            }
 
             // Создаем конфигурацию выполнения
             ExecutionConfig config = new ExecutionConfig();
-            config.setBaseUrl("https://abank.open.bankingapi.ru"); // TODO: из настроек проекта
+            config.setBaseUrl(resolveBaseUrl(execution, openApiModel));
             config.setRequestTimeoutMs(10000);
             config.setMaxExecutionTimeMs(300000); // 5 минут
             config.setDefaultHeaders(new java.util.HashMap<>());
+            config.setCassetteMode(execution.getCassetteMode());
+            config.setCassetteId(execution.getCassetteId());
 
             // Создаем запрос на выполнение
             TestExecutionRequest executionRequest = new TestExecutionRequest();
@@ -150,6 +278,16 @@ public class RunnerService {
             executionRequest.setTestDataVariantIndex(0);
             executionRequest.setStopOnFirstError(false); // MVP: всегда идем до конца
 
+            if (execution.getLoadProfile() != null) {
+                executeLoad(execution, executionRequest, virtualUsers);
+                execution.setStatus(RunExecution.RunStatus.COMPLETED);
+                execution.setFinishedAt(Instant.now());
+                execution.setProgress(1.0);
+                repository.save(execution);
+                metrics.recordRun("completed", Duration.between(execution.getStartedAt(), execution.getFinishedAt()));
+                return;
+            }
+
             // Выполняем тест с обновлением статуса
             TestExecutionResult result = executeWithProgress(execution, executionRequest);
 
@@ -159,6 +297,7 @@ public class RunnerService {
             execution.setFinishedAt(Instant.now());
             execution.setProgress(1.0);
             repository.save(execution);
+            metrics.recordRun("completed", Duration.between(execution.getStartedAt(), execution.getFinishedAt()));
 
             // Запускаем AI анализ истории вызовов
             try {
@@ -184,6 +323,105 @@ public class RunnerService {
             execution.setFinishedAt(Instant.now());
             addLog(execution, "error", "Execution failed: " + e.getMessage());
             repository.save(execution);
+            if (execution.getStartedAt() != null) {
+                metrics.recordRun("failed", Duration.between(execution.getStartedAt(), execution.getFinishedAt()));
+            }
+        }
+    }
+
+    /**
+     * Базовый URL прогона: заглушка проекта (запускается при необходимости), явно указанный URL
+     * или боевой стенд по умолчанию
+     */
+    private String resolveBaseUrl(RunExecution execution, OpenApiModel openApiModel) throws IOException {
+        if (execution.isUseStub()) {
+            String stubUrl = stubServerService.getOrStart(execution.getProjectId(), openApiModel).getBaseUrl();
+            execution.setBaseUrl(stubUrl);
+            addLog(execution, "info", "Running against OpenAPI stub at " + stubUrl);
+            return stubUrl;
+        }
+        if (execution.getBaseUrl() == null || execution.getBaseUrl().isBlank()) {
+            execution.setBaseUrl(DEFAULT_BASE_URL);
+        }
+        return execution.getBaseUrl();
+    }
+
+    /**
+     * Нагрузочный прогон: каждая итерация - полный проход сценария с данными очередного виртуального пользователя.
+     * Временной ряд пополняется в RunExecution по ходу прогона
+     *
+     * @param virtualUsers данные, строящиеся для каждой итерации, или null - итерации берут
+     *                     заранее построенные данные пользователей шаблона по кругу
+     */
+    private void executeLoad(RunExecution execution, TestExecutionRequest template,
+                             TestDataGeneratorService.VirtualUsers virtualUsers) {
+        int variants = virtualUsers == null ? template.getTestData().getVariants().size() : 1;
+        LoadTestResult loadResult = new LoadTestResult();
+        execution.setLoadResult(loadResult);
+        repository.save(execution);
+        addLog(execution, "info", "Load run started against " + template.getConfig().getBaseUrl());
+
+        // Кассету держит весь прогон: итерации пишут в одну запись, сохраняемую по его окончании
+        testExecutionService.holdCassette(template.getConfig(), template.getProcessModel());
+        // Одна запись задержек шагов на весь прогон: итерации не заводят своих гистограмм
+        LatencyRecorder stepLatency = new LatencyRecorder();
+        try {
+            loadTestEngine.run(execution.getLoadProfile(), index -> {
+                TestDataGenerationResult testData = template.getTestData();
+                if (virtualUsers != null) {
+                    testData = new TestDataGenerationResult();
+                    testData.setVariants(List.of(virtualUsers.data((int) index)));
+                }
+                TestExecutionRequest request = new TestExecutionRequest(
+                        template.getProcessModel(),
+                        template.getMappingResult(),
+                        testData,
+                        // Своя копия: итерации меняют авторизацию и заголовки конфигурации
+                        template.getConfig().copy(),
+                        template.getOpenApiModel(),
+                        (int) (index % variants),
+                        template.isStopOnFirstError());
+                return testExecutionService.executeTest(request, stepLatency).getStatus()
+                        == TestExecutionResult.ExecutionStatus.SUCCESS;
+            }, loadResult, execution::setProgress);
+        } finally {
+            testExecutionService.releaseCassette(template.getConfig());
+        }
+        loadResult.setEndpointLatency(stepLatency.endpointStatistics());
+
+        addLog(execution, "info", String.format("Load run finished: %d completed, %d failed, %d dropped, p99 %.1f ms",
+                loadResult.getCompleted(), loadResult.getFailed(), loadResult.getDropped(),
+                loadResult.getLatency().getP99Ms()));
+    }
+
+    private static void validate(LoadProfile profile) {
+        List<LoadProfile.Stage> stages = profile.effectiveStages();
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("Профиль нагрузки не содержит этапов");
+        }
+        long totalSeconds = 0;
+        double totalIterations = 0;
+        for (LoadProfile.Stage stage : stages) {
+            if (stage.getDurationSeconds() < 0 || stage.getTargetRate() < 0 || stage.getTargetRate() > MAX_LOAD_RATE) {
+                throw new IllegalArgumentException("Некорректный этап профиля нагрузки: длительность "
+                        + stage.getDurationSeconds() + " с, интенсивность " + stage.getTargetRate());
+            }
+            totalSeconds += stage.getDurationSeconds();
+            totalIterations += stage.getTargetRate() * stage.getDurationSeconds();
+        }
+        if (totalSeconds == 0 || totalSeconds > MAX_LOAD_SECONDS || totalIterations == 0) {
+            throw new IllegalArgumentException("Длительность профиля нагрузки должна быть от 1 секунды до "
+                    + MAX_LOAD_SECONDS + " секунд, а интенсивность - больше нуля");
+        }
+        if (profile.getMaxInFlight() < 1 || profile.getMaxInFlight() > MAX_IN_FLIGHT || profile.getMaxQueued() < 0
+                || profile.getBucketSeconds() < 1
+                || profile.getDataVariants() < 1 || profile.getDataVariants() > MAX_DATA_VARIANTS) {
+            throw new IllegalArgumentException("Некорректные ограничения профиля нагрузки");
+        }
+        if (Math.ceil((double) totalSeconds / profile.getBucketSeconds()) > LoadTestEngine.MAX_BUCKETS) {
+            throw new IllegalArgumentException("Временной ряд прогона превышает " + LoadTestEngine.MAX_BUCKETS
+                    + " интервалов: увеличьте ширину интервала до "
+                    + (long) Math.ceil((double) totalSeconds / LoadTestEngine.MAX_BUCKETS) + " с или больше");
         }
     }
 
@@ -227,6 +465,8 @@ public class RunnerService {
         stepExec.setStartedAt(step.getStartTime());
         stepExec.setFinishedAt(step.getEndTime());
         stepExec.setDurationMs(step.getDurationMs());
+        stepExec.setLimiterWaitMs(step.getLimiterWaitMs());
+        stepExec.setConnectionWaitMs(step.getConnectionWaitMs());
         stepExec.setErrorMessage(step.getErrorMessage());
         
         // Преобразуем запрос
@@ -246,6 +486,9 @@ public class RunnerService {
             resp.setStatusCode(step.getResponse().getStatusCode());
             resp.setHeaders(step.getResponse().getHeaders());
             resp.setBody(step.getResponse().getBody());
+            resp.setBodySize(step.getResponse().getBodySize());
+            resp.setBodyTruncated(step.getResponse().isBodyTruncated());
+            resp.setBodyFile(step.getResponse().getBodyFile());
             resp.setResponseTimeMs(step.getResponse().getResponseTimeMs());
             resp.setTimestamp(step.getResponse().getTimestamp());
             stepExec.setResponse(resp);
@@ -0,0 +1,61 @@
+package ru.poib.VTBHack.stub.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.poib.VTBHack.stub.model.StubServerInfo;
+import ru.poib.VTBHack.stub.model.StubSettings;
+import ru.poib.VTBHack.stub.service.StubServerService;
+
+import java.util.List;
+
+/**
+ * REST контроллер заглушек API по OpenAPI спецификациям проектов
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/stubs")
+@CrossOrigin(origins = "*")
+@AllArgsConstructor
+public class StubServerController {
+
+    private final StubServerService stubServerService;
+
+    @GetMapping
+    public ResponseEntity<List<StubServerInfo>> list() {
+        return ResponseEntity.ok(stubServerService.list());
+    }
+
+    @GetMapping("/{projectId}")
+    public ResponseEntity<StubServerInfo> get(@PathVariable String projectId) {
+        StubServerInfo info = stubServerService.get(projectId);
+        if (info == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(info);
+    }
+
+    /**
+     * Запускает заглушку проекта; baseUrl из ответа можно указать как базовый URL прогона
+     */
+    @PostMapping("/{projectId}")
+    public ResponseEntity<StubServerInfo> start(@PathVariable String projectId,
+                                                @RequestBody(required = false) StubSettings settings) {
+        if (settings != null && (settings.getErrorRate() < 0 || settings.getErrorRate() > 1
+                || settings.getLatencyMs() < 0 || settings.getLatencyJitterMs() < 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            StubServerInfo info = stubServerService.start(projectId, settings);
+            if (info == null) return ResponseEntity.notFound().build();
+            return ResponseEntity.ok(info);
+        } catch (Exception e) {
+            log.error("Failed to start OpenAPI stub for project {}", projectId, e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/{projectId}")
+    public ResponseEntity<Void> stop(@PathVariable String projectId) {
+        return stubServerService.stop(projectId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
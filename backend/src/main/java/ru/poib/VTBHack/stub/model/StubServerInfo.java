@@ -0,0 +1,15 @@
+package ru.poib.VTBHack.stub.model;
+
+import lombok.Data;
+
+/**
+ * Запущенная заглушка API
+ */
+@Data
+public class StubServerInfo {
+    private String id;
+    private String baseUrl;
+    private int operations;
+    private long requestsServed;
+    private StubSettings settings;
+}
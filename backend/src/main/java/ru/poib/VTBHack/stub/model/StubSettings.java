@@ -0,0 +1,44 @@
+package ru.poib.VTBHack.stub.model;
+
+import lombok.Data;
+
+/**
+ * Настройки заглушки API, построенной по OpenAPI спецификации
+ */
+@Data
+public class StubSettings {
+    /**
+     * Порт; 0 - любой свободный
+     */
+    private int port = 0;
+
+    /**
+     * Фиксированная задержка ответа в миллисекундах
+     */
+    private long latencyMs = 0;
+
+    /**
+     * Случайная добавка к задержке: равномерно от 0 до latencyJitterMs
+     */
+    private long latencyJitterMs = 0;
+
+    /**
+     * Доля ответов с ошибкой (0..1)
+     */
+    private double errorRate = 0.0;
+
+    /**
+     * HTTP статус внедряемой ошибки
+     */
+    private int errorStatus = 500;
+
+    /**
+     * Генерировать тело заново на каждый запрос (по умолчанию тело операции генерируется один раз)
+     */
+    private boolean regenerateBodies = false;
+
+    /**
+     * Seed генерации тел ответов; null - случайные данные
+     */
+    private Long seed;
+}
@@ -0,0 +1,316 @@
+package ru.poib.VTBHack.stub.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import ru.poib.VTBHack.generator.service.GenerationContext;
+import ru.poib.VTBHack.generator.service.SchemaDataGenerator;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Operation;
+import ru.poib.VTBHack.parser.model.openapi.Response;
+import ru.poib.VTBHack.stub.model.StubSettings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Встроенная заглушка API по OpenAPI спецификации: на каждую операцию отвечает примером из спецификации
+ * или телом, сгенерированным по схеме успешного ответа ({@link SchemaDataGenerator}).
+ * Поддерживает задержку с разбросом и внедрение ошибок. Запросы обслуживаются виртуальными потоками,
+ * тела ответов по умолчанию генерируются один раз на операцию, поэтому заглушка не становится
+ * узким местом при нагрузочных прогонах на одной машине.
+ */
+@Slf4j
+public final class OpenApiStubServer {
+
+    private static final int BACKLOG = 1024;
+    private static final byte[] NOT_FOUND = "{\"error\":\"No operation for this path\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] METHOD_NOT_ALLOWED = "{\"error\":\"Method not allowed\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INJECTED_ERROR = "{\"error\":\"Injected stub error\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STUB_ERROR = "{\"error\":\"Stub failed to build response\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final OpenApiModel openApiModel;
+    private final SchemaDataGenerator schemaDataGenerator;
+    private final StubSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Route> routes;
+    private final AtomicLong requestsServed = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Операция заглушки: шаблон пути, разбитый на сегменты, и подготовленный ответ
+     */
+    private final class Route {
+        final String method;
+        final String[] segments;
+        final int literalSegments;
+        final int status;
+        final Response.MediaType mediaType;
+        final int index;
+        volatile byte[] cachedBody;
+
+        Route(String method, String path, int status, Response.MediaType mediaType, int index) {
+            this.method = method;
+            this.segments = split(path);
+            int literals = 0;
+            for (String segment : segments) {
+                if (!isParameter(segment)) {
+                    literals++;
+                }
+            }
+            this.literalSegments = literals;
+            this.status = status;
+            this.mediaType = mediaType;
+            this.index = index;
+        }
+
+        boolean matches(String[] requestSegments) {
+            if (requestSegments.length != segments.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                if (!isParameter(segments[i]) && !segments[i].equals(requestSegments[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        byte[] body() throws IOException {
+            if (status == 204 || mediaType == null) {
+                return null;
+            }
+            if (settings.isRegenerateBodies()) {
+                return render(GenerationContext.unseeded());
+            }
+            byte[] body = cachedBody;
+            if (body == null) {
+                body = render(GenerationContext.of(settings.getSeed()).forVariant(index));
+                cachedBody = body;
+            }
+            return body;
+        }
+
+        private byte[] render(GenerationContext ctx) throws IOException {
+            Object example = example(mediaType);
+            Object value = example != null
+                    ? example
+                    : schemaDataGenerator.generateFromSchema(mediaType.getSchema(), null, null, openApiModel, ctx);
+            return objectMapper.writeValueAsBytes(value);
+        }
+    }
+
+    public OpenApiStubServer(OpenApiModel openApiModel, SchemaDataGenerator schemaDataGenerator, StubSettings settings) {
+        this.openApiModel = openApiModel;
+        this.schemaDataGenerator = schemaDataGenerator;
+        this.settings = settings;
+        this.routes = compileRoutes(openApiModel);
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.getPort()), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("OpenAPI stub started at {} with {} operations", getBaseUrl(), routes.size());
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    public synchronized String getBaseUrl() {
+        if (server == null) {
+            return null;
+        }
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    public int getOperationCount() {
+        return routes.size();
+    }
+
+    public long getRequestsServed() {
+        return requestsServed.get();
+    }
+
+    public StubSettings getSettings() {
+        return settings;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            requestBody.transferTo(OutputStream.nullOutputStream());
+            requestsServed.incrementAndGet();
+
+            String[] requestSegments = split(exchange.getRequestURI().getPath());
+            String method = exchange.getRequestMethod().toUpperCase();
+            Route route = null;
+            boolean pathKnown = false;
+            for (Route candidate : routes) {
+                if (candidate.matches(requestSegments)) {
+                    pathKnown = true;
+                    if (candidate.method.equals(method)) {
+                        route = candidate;
+                        break;
+                    }
+                }
+            }
+
+            delay();
+            if (route == null) {
+                send(exchange, pathKnown ? 405 : 404, pathKnown ? METHOD_NOT_ALLOWED : NOT_FOUND);
+            } else if (settings.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getErrorRate()) {
+                send(exchange, settings.getErrorStatus(), INJECTED_ERROR);
+            } else {
+                send(exchange, route.status, route.body());
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.warn("Stub failed to answer {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+            if (exchange.getResponseCode() == -1) {
+                send(exchange, 500, STUB_ERROR);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        long latency = settings.getLatencyMs();
+        if (settings.getLatencyJitterMs() > 0) {
+            latency += ThreadLocalRandom.current().nextLong(settings.getLatencyJitterMs() + 1);
+        }
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Маршруты всех операций; шаблоны с большим числом литеральных сегментов проверяются первыми,
+     * чтобы /accounts/balances не перехватывался шаблоном /accounts/{id}
+     */
+    private List<Route> compileRoutes(OpenApiModel model) {
+        List<Route> compiled = new ArrayList<>();
+        if (model == null || model.getPaths() == null) {
+            return compiled;
+        }
+        for (Map.Entry<String, OpenApiModel.PathItem> entry : model.getPaths().entrySet()) {
+            OpenApiModel.PathItem item = entry.getValue();
+            if (item == null) {
+                continue;
+            }
+            addRoute(compiled, "GET", entry.getKey(), item.getGet());
+            addRoute(compiled, "POST", entry.getKey(), item.getPost());
+            addRoute(compiled, "PUT", entry.getKey(), item.getPut());
+            addRoute(compiled, "DELETE", entry.getKey(), item.getDelete());
+        }
+        compiled.sort(Comparator.comparingInt((Route r) -> r.literalSegments).reversed());
+        return compiled;
+    }
+
+    private void addRoute(List<Route> compiled, String method, String path, Operation operation) {
+        if (operation == null) {
+            return;
+        }
+        int status = 200;
+        Response.MediaType mediaType = null;
+        Map<String, Response> responses = operation.getResponses();
+        if (responses != null) {
+            String code = responses.keySet().stream()
+                    .filter(key -> key.length() == 3 && key.startsWith("2") && key.chars().allMatch(Character::isDigit))
+                    .min(Comparator.naturalOrder())
+                    .orElse(responses.containsKey("default") ? "default" : null);
+            if (code != null) {
+                status = "default".equals(code) ? 200 : Integer.parseInt(code);
+                mediaType = jsonMediaType(responses.get(code));
+            }
+        }
+        compiled.add(new Route(method, path, status, mediaType, compiled.size()));
+    }
+
+    private static Response.MediaType jsonMediaType(Response response) {
+        if (response == null || response.getContent() == null || response.getContent().isEmpty()) {
+            return null;
+        }
+        Response.MediaType json = response.getContent().get("application/json");
+        if (json != null) {
+            return json;
+        }
+        for (Map.Entry<String, Response.MediaType> entry : response.getContent().entrySet()) {
+            if (entry.getKey().contains("json")) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Пример ответа: example или значение первого из examples
+     */
+    private static Object example(Response.MediaType mediaType) {
+        if (mediaType.getExample() != null) {
+            return mediaType.getExample();
+        }
+        if (mediaType.getExamples() != null) {
+            for (Object example : mediaType.getExamples().values()) {
+                if (example instanceof Map<?, ?> map && map.containsKey("value")) {
+                    return map.get("value");
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String[] split(String path) {
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        if (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+
+    private static boolean isParameter(String segment) {
+        return segment.startsWith("{") && segment.endsWith("}");
+    }
+}
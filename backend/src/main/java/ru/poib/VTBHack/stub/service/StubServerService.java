@@ -0,0 +1,121 @@
+package ru.poib.VTBHack.stub.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.poib.VTBHack.generator.service.SchemaDataGenerator;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+import ru.poib.VTBHack.project.model.Project;
+import ru.poib.VTBHack.project.model.ProjectSnapshot;
+import ru.poib.VTBHack.project.service.ProjectStoreService;
+import ru.poib.VTBHack.stub.model.StubServerInfo;
+import ru.poib.VTBHack.stub.model.StubSettings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Заглушки API проектов: по одной на проект, запускаются по запросу или при прогоне
+ * с выбранной заглушкой и останавливаются вместе с приложением
+ */
+@Slf4j
+@Service
+public class StubServerService {
+
+    private final SchemaDataGenerator schemaDataGenerator;
+    private final ProjectStoreService projectStoreService;
+    private final OpenApiParserService openApiParserService;
+    private final Map<String, OpenApiStubServer> servers = new ConcurrentHashMap<>();
+
+    public StubServerService(SchemaDataGenerator schemaDataGenerator,
+                             ProjectStoreService projectStoreService,
+                             OpenApiParserService openApiParserService) {
+        this.schemaDataGenerator = schemaDataGenerator;
+        this.projectStoreService = projectStoreService;
+        this.openApiParserService = openApiParserService;
+    }
+
+    /**
+     * Запускает (или перезапускает с новыми настройками) заглушку проекта
+     *
+     * @return сведения о заглушке или null, если проект не найден
+     */
+    public StubServerInfo start(String projectId, StubSettings settings) throws IOException {
+        Project project = projectStoreService.get(projectId);
+        if (project == null) {
+            return null;
+        }
+        ProjectSnapshot snapshot = projectStoreService.loadSnapshot(project);
+        OpenApiModel openApiModel = snapshot != null && snapshot.getOpenApiModel() != null
+                ? snapshot.getOpenApiModel()
+                : openApiParserService.parseOpenApiLazy(project.getOpenApiJson());
+        return toInfo(projectId, start(projectId, openApiModel, settings));
+    }
+
+    /**
+     * Запускает заглушку по уже разобранной спецификации, заменяя ранее запущенную.
+     * Прежняя заглушка останавливается до запуска новой (она может занимать тот же порт);
+     * новая регистрируется только после успешного запуска
+     */
+    public synchronized OpenApiStubServer start(String projectId, OpenApiModel openApiModel,
+                                                StubSettings settings) throws IOException {
+        OpenApiStubServer previous = servers.remove(projectId);
+        if (previous != null) {
+            previous.stop();
+        }
+        OpenApiStubServer server = new OpenApiStubServer(openApiModel, schemaDataGenerator,
+                settings != null ? settings : new StubSettings());
+        server.start();
+        servers.put(projectId, server);
+        return server;
+    }
+
+    /**
+     * Возвращает запущенную заглушку проекта или запускает ее с настройками по умолчанию
+     */
+    public synchronized OpenApiStubServer getOrStart(String projectId, OpenApiModel openApiModel) throws IOException {
+        OpenApiStubServer server = servers.get(projectId);
+        return server != null ? server : start(projectId, openApiModel, null);
+    }
+
+    public StubServerInfo get(String projectId) {
+        OpenApiStubServer server = servers.get(projectId);
+        return server != null ? toInfo(projectId, server) : null;
+    }
+
+    public List<StubServerInfo> list() {
+        List<StubServerInfo> result = new ArrayList<>();
+        servers.forEach((projectId, server) -> result.add(toInfo(projectId, server)));
+        return result;
+    }
+
+    public synchronized boolean stop(String projectId) {
+        OpenApiStubServer server = servers.remove(projectId);
+        if (server == null) {
+            return false;
+        }
+        server.stop();
+        log.info("OpenAPI stub for project {} stopped after {} requests", projectId, server.getRequestsServed());
+        return true;
+    }
+
+    @PreDestroy
+    public synchronized void stopAll() {
+        servers.values().forEach(OpenApiStubServer::stop);
+        servers.clear();
+    }
+
+    private static StubServerInfo toInfo(String projectId, OpenApiStubServer server) {
+        StubServerInfo info = new StubServerInfo();
+        info.setId(projectId);
+        info.setBaseUrl(server.getBaseUrl());
+        info.setOperations(server.getOperationCount());
+        info.setRequestsServed(server.getRequestsServed());
+        info.setSettings(server.getSettings());
+        return info;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.poib.VTBHack.execution.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+import ru.poib.VTBHack.execution.service.HttpRequestExecutor;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLeaseTimingTest {
+
+    @Test
+    void poolWaitIsReportedSeparatelyFromServerTime() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        // Одно соединение на маршрут: второй запрос ждет, пока первый вернет соединение в пул
+        try (PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(1)
+                .setMaxConnTotal(1)
+                .build()) {
+            HttpRequestExecutor executor = new HttpRequestExecutor(new HttpClientConfig().httpClient(pool));
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow";
+            List<CompletableFuture<HttpRequestExecutor.ExecutionResult>> calls = List.of(
+                    CompletableFuture.supplyAsync(() -> executor.execute("GET", url, Map.of(), null, new ExecutionConfig())),
+                    CompletableFuture.supplyAsync(() -> executor.execute("GET", url, Map.of(), null, new ExecutionConfig())));
+
+            long maxWaitMs = 0;
+            for (CompletableFuture<HttpRequestExecutor.ExecutionResult> call : calls) {
+                HttpRequestExecutor.ExecutionResult result = call.get();
+                assertEquals(200, result.getStatusCode());
+                assertTrue(result.getDurationMs() < 550, "server time " + result.getDurationMs());
+                maxWaitMs = Math.max(maxWaitMs, result.getConnectionWaitMs());
+            }
+            assertTrue(maxWaitMs >= 200, "pool wait " + maxWaitMs);
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ru.poib.VTBHack.execution.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.service.BpmnParserService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BpmnExecutionEngineTest {
+
+    private final BpmnExecutionEngine engine = new BpmnExecutionEngine();
+
+    private static final String GATEWAY_PROCESS =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" targetNamespace=\"x\">\n" +
+            "  <process id=\"p\">\n" +
+            "    <startEvent id=\"start\"/>\n" +
+            "    <serviceTask id=\"check\" name=\"Проверка: GET /check\"/>\n" +
+            "    <exclusiveGateway id=\"decision\" default=\"toReject\"/>\n" +
+            "    <serviceTask id=\"approve\" name=\"Одобрение: POST /approve\"/>\n" +
+            "    <serviceTask id=\"reject\" name=\"Отказ: POST /reject\"/>\n" +
+            "    <parallelGateway id=\"fork\"/>\n" +
+            "    <serviceTask id=\"notify\" name=\"Уведомление: POST /notify\"/>\n" +
+            "    <serviceTask id=\"audit\" name=\"Аудит: POST /audit\"/>\n" +
+            "    <parallelGateway id=\"join\"/>\n" +
+            "    <serviceTask id=\"close\" name=\"Закрытие: POST /close\"/>\n" +
+            "    <endEvent id=\"end\"/>\n" +
+            "    <sequenceFlow id=\"f1\" sourceRef=\"start\" targetRef=\"check\"/>\n" +
+            "    <sequenceFlow id=\"f2\" sourceRef=\"check\" targetRef=\"decision\"/>\n" +
+            "    <sequenceFlow id=\"toApprove\" sourceRef=\"decision\" targetRef=\"approve\">\n" +
+            "      <conditionExpression>${status == 'APPROVED' &amp;&amp; amount &lt;= 1000}</conditionExpression>\n" +
+            "    </sequenceFlow>\n" +
+            "    <sequenceFlow id=\"toReject\" sourceRef=\"decision\" targetRef=\"reject\"/>\n" +
+            "    <sequenceFlow id=\"f3\" sourceRef=\"approve\" targetRef=\"fork\"/>\n" +
+            "    <sequenceFlow id=\"f4\" sourceRef=\"fork\" targetRef=\"notify\"/>\n" +
+            "    <sequenceFlow id=\"f5\" sourceRef=\"fork\" targetRef=\"audit\"/>\n" +
+            "    <sequenceFlow id=\"f6\" sourceRef=\"notify\" targetRef=\"join\"/>\n" +
+            "    <sequenceFlow id=\"f7\" sourceRef=\"audit\" targetRef=\"join\"/>\n" +
+            "    <sequenceFlow id=\"f8\" sourceRef=\"join\" targetRef=\"close\"/>\n" +
+            "    <sequenceFlow id=\"f9\" sourceRef=\"reject\" targetRef=\"end\"/>\n" +
+            "    <sequenceFlow id=\"f10\" sourceRef=\"close\" targetRef=\"end\"/>\n" +
+            "  </process>\n" +
+            "</definitions>";
+
+    @Test
+    void buildsStagesThroughGateways() throws Exception {
+        ProcessModel model = new BpmnParserService().parse(GATEWAY_PROCESS);
+
+        // Все ветви остаются в модели, а не только первая
+        assertEquals(6, model.getTasks().size());
+
+        ExecutionPlan plan = engine.createExecutionPlan(model, null);
+
+        assertEquals(List.of(
+                List.of("check"),
+                List.of("approve", "reject"),
+                List.of("notify", "audit"),
+                List.of("close")), plan.getStages());
+    }
+
+    @Test
+    void followsExclusiveBranchMatchingContext() throws Exception {
+        ExecutionPlan plan = engine.createExecutionPlan(new BpmnParserService().parse(GATEWAY_PROCESS), null);
+        Map<String, Object> context = new HashMap<>();
+        context.put("check.status", "APPROVED");
+        context.put("check.amount", 500);
+
+        runPlan(plan, context);
+
+        assertTrue(plan.shouldExecute("approve"));
+        assertFalse(plan.shouldExecute("reject"));
+        assertTrue(plan.shouldExecute("notify"));
+        assertTrue(plan.shouldExecute("audit"));
+        assertTrue(plan.shouldExecute("close"));
+    }
+
+    @Test
+    void takesDefaultFlowAndSkipsDeadBranch() throws Exception {
+        ExecutionPlan plan = engine.createExecutionPlan(new BpmnParserService().parse(GATEWAY_PROCESS), null);
+        Map<String, Object> context = new HashMap<>();
+        context.put("check.status", "APPROVED");
+        context.put("check.amount", 5000);
+
+        runPlan(plan, context);
+
+        assertFalse(plan.shouldExecute("approve"));
+        assertTrue(plan.shouldExecute("reject"));
+        // Мертвая ветвь распространяется через parallel gateway
+        assertFalse(plan.shouldExecute("notify"));
+        assertFalse(plan.shouldExecute("audit"));
+        assertFalse(plan.shouldExecute("close"));
+    }
+
+    @Test
+    void runsConcurrentlyOnlyParallelGatewayBranches() throws Exception {
+        ExecutionPlan plan = engine.createExecutionPlan(new BpmnParserService().parse(GATEWAY_PROCESS), null);
+
+        assertTrue(plan.isParallelFanOut(List.of("notify", "audit")));
+        // Ветви exclusive gateway и задачи после слияния выполняются по очереди
+        assertFalse(plan.isParallelFanOut(List.of("approve", "reject")));
+        assertFalse(plan.isParallelFanOut(List.of("notify", "close")));
+        assertFalse(plan.isParallelFanOut(List.of("notify")));
+    }
+
+    private static void runPlan(ExecutionPlan plan, Map<String, Object> context) {
+        for (List<String> stage : plan.getStages()) {
+            List<Boolean> executed = stage.stream().map(plan::shouldExecute).toList();
+            for (int i = 0; i < stage.size(); i++) {
+                plan.complete(stage.get(i), executed.get(i), context);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.poib.VTBHack.execution.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CapturedBodyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesWholeBodyButKeepsOnlyPrefix() throws IOException {
+        String body = largeJson(2_000);
+
+        CapturedBody captured = read(body, 100, 0, null);
+
+        assertEquals(body.length(), captured.getSize());
+        assertTrue(captured.isTruncated());
+        assertEquals(body.substring(0, 100), captured.getPreview());
+        assertNull(captured.getFile());
+        assertEquals(1999, captured.getJson().get("items").get(1999).asInt());
+    }
+
+    @Test
+    void keepsSmallBodyWhole() throws IOException {
+        CapturedBody captured = read("{\"id\":\"1\"}  ", 100, 0, dir);
+
+        assertFalse(captured.isTruncated());
+        assertEquals("{\"id\":\"1\"}  ", captured.getPreview());
+        assertEquals(12, captured.getSize());
+        assertNull(captured.getFile());
+        assertEquals("1", captured.getJson().get("id").asText());
+    }
+
+    @Test
+    void spillsLargeBodyToFile() throws IOException {
+        String body = largeJson(5_000);
+
+        CapturedBody captured = read(body, 64, 0, dir);
+
+        assertNotNull(captured.getFile());
+        assertEquals(body, Files.readString(Path.of(captured.getFile())));
+    }
+
+    @Test
+    void rejectsBodyOverLimitAndRemovesPartialFile() throws IOException {
+        String body = largeJson(5_000);
+
+        assertThrows(CapturedBody.TooLargeException.class, () -> read(body, 64, 1_000, dir));
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void reportsNonJsonBodyWithoutFailing() throws IOException {
+        CapturedBody captured = read("<html>error</html>", 100, 0, null);
+
+        assertNull(captured.getJson());
+        assertNotNull(captured.getJsonError());
+        assertEquals("<html>error</html>", captured.getPreview());
+        assertEquals(18, captured.getSize());
+    }
+
+    @Test
+    void stopsReadingNonJsonBodyAfterPreview() throws IOException {
+        String body = "<html>" + "x".repeat(100_000) + "</html>";
+        ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+
+        CapturedBody captured = CapturedBody.read(in, 100, 0, null, objectMapper);
+
+        assertFalse(captured.isComplete());
+        assertTrue(captured.isTruncated());
+        assertEquals(body.substring(0, 100), captured.getPreview());
+        assertTrue(in.available() > 90_000, "left unread: " + in.available());
+    }
+
+    @Test
+    void treatsEmptyBodyAsNoJson() throws IOException {
+        CapturedBody captured = read("", 100, 0, null);
+
+        assertNull(captured.getJson());
+        assertNull(captured.getJsonError());
+        assertEquals(0, captured.getSize());
+    }
+
+    private CapturedBody read(String body, int captureBytes, long maxBytes, Path spillDir) throws IOException {
+        return CapturedBody.read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                captureBytes, maxBytes, spillDir, objectMapper);
+    }
+
+    private static String largeJson(int items) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < items; i++) {
+            json.append(i > 0 ? "," : "").append(i);
+        }
+        return json.append("]}").toString();
+    }
+}
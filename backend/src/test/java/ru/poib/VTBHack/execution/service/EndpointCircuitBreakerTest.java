@@ -0,0 +1,144 @@
+package ru.poib.VTBHack.execution.service;
+
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointCircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private static ExecutionConfig.CircuitBreakerConfig settings() {
+        return new ExecutionConfig.CircuitBreakerConfig(50, 80, 1000, 4, 4, 5000, 2);
+    }
+
+    @Test
+    void opensOnFailureRateAndRecoversAfterSuccessfulProbes() {
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker("test", settings(), clock::get);
+        for (boolean failed : new boolean[]{false, true, false}) {
+            breaker.onResult(acquire(breaker), FAST, failed);
+        }
+        assertEquals(EndpointCircuitBreaker.State.CLOSED, breaker.getState(), "До minimumCalls оценки нет");
+        breaker.onResult(acquire(breaker), FAST, true);
+        assertEquals(EndpointCircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        EndpointCircuitBreaker.Permit first = acquire(breaker);
+        EndpointCircuitBreaker.Permit second = acquire(breaker);
+        assertNull(breaker.tryAcquire(), "В полуоткрытом состоянии только halfOpenProbes пробных вызовов");
+        breaker.onResult(first, FAST, false);
+        breaker.onResult(second, FAST, false);
+        assertEquals(EndpointCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensOnSlowCallsAndReopensOnFailedProbe() {
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker("test", settings(), clock::get);
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(acquire(breaker), TimeUnit.SECONDS.toNanos(2), false);
+        }
+        assertEquals(EndpointCircuitBreaker.State.OPEN, breaker.getState());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        breaker.onIgnored(acquire(breaker));
+        breaker.onResult(acquire(breaker), FAST, true);
+        assertEquals(EndpointCircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void callsFromBeforeStateChangeAreNotCountedAsProbes() {
+        EndpointCircuitBreaker breaker = new EndpointCircuitBreaker("test", settings(), clock::get);
+        EndpointCircuitBreaker.Permit lateCall = acquire(breaker);
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(acquire(breaker), FAST, true);
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        EndpointCircuitBreaker.Permit probe = acquire(breaker);
+        assertEquals(EndpointCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Вызов, начатый еще в закрытом состоянии, завершается медленно уже в полуоткрытом
+        breaker.onResult(lateCall, TimeUnit.SECONDS.toNanos(2), true);
+        assertEquals(EndpointCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onIgnored(lateCall);
+        assertNotNull(acquire(breaker));
+        assertNull(breaker.tryAcquire(), "Поздний вызов не возвращает пробное место");
+        breaker.onResult(probe, FAST, false);
+        assertEquals(EndpointCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void registrySharesOneBreakerPerEndpointAndEvictsIdleOnes() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(clock::get);
+        ExecutionConfig config = new ExecutionConfig();
+        config.setCircuitBreaker(settings());
+        String url = "http://api.local/accounts/1";
+
+        EndpointCircuitBreaker breaker = registry.forEndpoint("GET", url, "GET /accounts/{id}", config);
+        assertSame(breaker, registry.forEndpoint("GET", url, "GET /accounts/{id}", config));
+        config.setCircuitBreaker(new ExecutionConfig.CircuitBreakerConfig(50, 80, 1000, 4, 4, 10000, 2));
+        EndpointCircuitBreaker updated = registry.forEndpoint("GET", url, "GET /accounts/{id}", config);
+        assertNotSame(breaker, updated, "Новые настройки заменяют автомат эндпоинта");
+        assertEquals(1, registry.size());
+
+        clock.addAndGet(CircuitBreakerRegistry.IDLE_EVICTION_NANOS + 1);
+        registry.forEndpoint("GET", url, "GET /payments", config);
+        assertEquals(1, registry.size(), "Простаивающий автомат удален");
+    }
+
+    @Test
+    void clientSideErrorsDoNotCountAgainstEndpoint() {
+        ExecutionConfig config = new ExecutionConfig();
+        config.setCircuitBreaker(new ExecutionConfig.CircuitBreakerConfig(50, 100, 5000, 2, 2, 60000, 1));
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+        HttpRequestExecutor executor = new HttpRequestExecutor(HttpClients.createDefault(), new HttpCassetteStore(),
+                new OutboundLimiter(), registry);
+        String url = "http://127.0.0.1:1/accounts/1";
+
+        for (int i = 0; i < 3; i++) {
+            HttpRequestExecutor.ExecutionResult result = executor.execute("TRACE", url, "TRACE /accounts/{id}", Map.of(), null, config);
+            assertTrue(result.getErrorMessage().contains("Unsupported HTTP method"), result.getErrorMessage());
+        }
+        assertEquals(EndpointCircuitBreaker.State.CLOSED,
+                registry.forEndpoint("TRACE", url, "TRACE /accounts/{id}", config).getState());
+    }
+
+    private static EndpointCircuitBreaker.Permit acquire(EndpointCircuitBreaker breaker) {
+        EndpointCircuitBreaker.Permit permit = breaker.tryAcquire();
+        assertNotNull(permit);
+        return permit;
+    }
+
+    @Test
+    void executorFastFailsOnceEndpointIsOpen() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        String url = "http://127.0.0.1:" + closedPort + "/accounts/1";
+        ExecutionConfig config = new ExecutionConfig();
+        config.setCircuitBreaker(new ExecutionConfig.CircuitBreakerConfig(50, 100, 5000, 2, 2, 60000, 1));
+        HttpRequestExecutor executor = new HttpRequestExecutor(HttpClients.createDefault(), new HttpCassetteStore());
+
+        for (int i = 0; i < 2; i++) {
+            HttpRequestExecutor.ExecutionResult result = executor.execute("GET", url, "GET /accounts/{id}", Map.of(), null, config);
+            assertTrue(result.getErrorMessage().startsWith("Network error"), result.getErrorMessage());
+        }
+        HttpRequestExecutor.ExecutionResult rejected = executor.execute("GET", url, "GET /accounts/{id}", Map.of(), null, config);
+        assertFalse(rejected.isSuccess());
+        assertTrue(rejected.getErrorMessage().startsWith(CircuitBreakerRegistry.OPEN_MESSAGE_PREFIX));
+        assertTrue(executor.execute("GET", url, "GET /payments", Map.of(), null, config)
+                .getErrorMessage().startsWith("Network error"), "Другой эндпоинт не отключен");
+    }
+}
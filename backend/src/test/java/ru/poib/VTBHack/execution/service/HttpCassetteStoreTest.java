@@ -0,0 +1,135 @@
+package ru.poib.VTBHack.execution.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpCassetteStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void normalizesUrlsIndependentlyOfHostAndParameterOrder() {
+        assertEquals("/accounts/1?a=1&b=2", HttpCassette.normalizeUrl("https://bank.example/accounts/1/?b=2&a=1"));
+        assertEquals("/accounts/1?a=1&b=2", HttpCassette.normalizeUrl("http://127.0.0.1:8080/accounts/1?a=1&b=2"));
+        assertEquals("/", HttpCassette.normalizeUrl("http://127.0.0.1:8080"));
+    }
+
+    @Test
+    void replaysIdenticalRequestsInRecordedOrderAndFallsBackToUrl() {
+        HttpCassette cassette = new HttpCassette("c1");
+        cassette.record("POST", "http://a/payments", "{\"amount\":1}", 201, Map.of(), "{\"id\":1}", 5);
+        cassette.record("POST", "http://a/payments", "{\"amount\":1}", 201, Map.of(), "{\"id\":2}", 5);
+        cassette.record("GET", "http://a/accounts", null, 200, Map.of(), "[]", 5);
+
+        assertEquals("{\"id\":1}", cassette.replay("POST", "http://b/payments", "{\"amount\":1}").getBody());
+        assertEquals("{\"id\":2}", cassette.replay("POST", "http://b/payments", "{\"amount\":1}").getBody());
+        assertEquals("{\"id\":2}", cassette.replay("POST", "http://b/payments", "{\"amount\":1}").getBody(),
+                "После исчерпания повторяется последний ответ");
+        assertNotNull(cassette.replay("POST", "http://b/payments", "{\"amount\":99}"), "Другое тело - ответ по URL");
+        assertNull(cassette.replay("DELETE", "http://b/payments", null));
+    }
+
+    @Test
+    void keepsTruncationMarkOfRecordedBody() throws Exception {
+        HttpCassetteStore store = new HttpCassetteStore(dir);
+        store.open("big");
+        store.recording("big").record("GET", "http://a/report", null, 200, Map.of(), "head", true,
+                "data/response-bodies/x.body", 5);
+        store.finishRecording("big");
+
+        store.open("big");
+        var entry = store.replaying("big").replay("GET", "http://b/report", null);
+        assertTrue(entry.isBodyTruncated(), "Префикс тела не выдается за полный ответ");
+        assertEquals("data/response-bodies/x.body", entry.getBodyFile());
+        store.finishReplay("big");
+    }
+
+    @Test
+    void concurrentHoldersShareCassetteUntilLastFinishes() throws Exception {
+        HttpCassetteStore store = new HttpCassetteStore(dir);
+        store.open("shared");
+        store.open("shared");
+        store.recording("shared").record("GET", "http://a/accounts", null, 200, Map.of(), "[1]", 5);
+        store.recording("shared").record("GET", "http://a/accounts", null, 200, Map.of(), "[2]", 5);
+
+        store.finishRecording("shared");
+        assertFalse(Files.exists(dir.resolve("shared.cassette.json.gz")), "Первый завершившийся не сохраняет часть записи");
+        store.finishRecording("shared");
+        assertEquals(2, store.replaying("shared").size());
+
+        store.open("shared");
+        store.open("shared");
+        assertEquals("[1]", store.replaying("shared").replay("GET", "http://b/accounts", null).getBody());
+        store.finishReplay("shared");
+        assertEquals("[2]", store.replaying("shared").replay("GET", "http://b/accounts", null).getBody(),
+                "Позиции сохраняются, пока кассету держит другой прогон");
+        store.finishReplay("shared");
+        assertEquals("[1]", store.replaying("shared").replay("GET", "http://b/accounts", null).getBody());
+    }
+
+    @Test
+    void recordedRunIsReplayedWithoutTheServer() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = ("{\"hit\":" + hits.incrementAndGet() + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/accounts?x=1";
+
+        HttpCassetteStore store = new HttpCassetteStore(dir);
+        HttpRequestExecutor executor = new HttpRequestExecutor(HttpClients.createDefault(), store);
+        ExecutionConfig config = new ExecutionConfig();
+        config.setCassetteMode(ExecutionConfig.CassetteMode.RECORD);
+        config.setCassetteId("run-1");
+        try {
+            assertEquals("{\"hit\":1}", executor.execute("GET", url, Map.of(), null, config).getBody());
+            executor.finishCassette(config);
+        } finally {
+            server.stop(0);
+        }
+        assertTrue(Files.exists(dir.resolve("run-1.cassette.json.gz")));
+
+        config.setCassetteMode(ExecutionConfig.CassetteMode.REPLAY);
+        HttpRequestExecutor.ExecutionResult replayed =
+                new HttpRequestExecutor(HttpClients.createDefault(), new HttpCassetteStore(dir))
+                        .execute("GET", url, Map.of(), null, config);
+        assertTrue(replayed.isSuccess());
+        assertEquals(200, replayed.getStatusCode());
+        assertEquals("{\"hit\":1}", replayed.getBody());
+        assertTrue(replayed.getHeaders().keySet().stream().anyMatch("Content-Type"::equalsIgnoreCase));
+        assertEquals(1, hits.get());
+
+        HttpRequestExecutor.ExecutionResult miss = executor.execute("GET", url + "&y=2", Map.of(), null, config);
+        assertFalse(miss.isSuccess());
+        assertTrue(miss.getErrorMessage().startsWith("Cassette miss"));
+    }
+
+    @Test
+    void rejectsUnsafeCassetteIds() {
+        HttpCassetteStore store = new HttpCassetteStore(dir);
+        assertThrows(IllegalArgumentException.class, () -> store.recording("../etc"));
+        assertNull(store.replaying("missing"));
+    }
+}
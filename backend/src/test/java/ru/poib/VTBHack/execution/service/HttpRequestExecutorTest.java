@@ -0,0 +1,85 @@
+package ru.poib.VTBHack.execution.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRequestExecutorTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/text", exchange -> endless(exchange, "x"));
+        server.createContext("/json", exchange -> endless(exchange, "[1"));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Отдает 200 КБ и держит тело открытым: дочитывание до конца ждало бы таймаута ответа
+     */
+    private static void endless(HttpExchange exchange, String start) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        out.write((start + ",1".repeat(100_000)).getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        try {
+            Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.close();
+    }
+
+    @Test
+    void abandonsRestOfNonJsonBodyAfterPreview() {
+        ExecutionConfig config = new ExecutionConfig();
+        config.setResponseCaptureBytes(1024);
+        HttpRequestExecutor executor = new HttpRequestExecutor(HttpClients.createDefault());
+
+        long start = System.nanoTime();
+        HttpRequestExecutor.ExecutionResult result = executor.execute("GET", baseUrl + "/text", Map.of(), null, config);
+
+        assertTrue(System.nanoTime() - start < 5_000_000_000L, "body was drained");
+        assertEquals(200, result.getStatusCode());
+        assertEquals(1024, result.getBody().length());
+        assertFalse(result.getCapturedBody().isComplete());
+    }
+
+    @Test
+    void abandonsBodyOverLimit() {
+        ExecutionConfig config = new ExecutionConfig();
+        config.setMaxResponseBodyBytes(100_000);
+        HttpRequestExecutor executor = new HttpRequestExecutor(HttpClients.createDefault());
+
+        long start = System.nanoTime();
+        HttpRequestExecutor.ExecutionResult result = executor.execute("GET", baseUrl + "/json", Map.of(), null, config);
+
+        assertTrue(System.nanoTime() - start < 5_000_000_000L, "body was drained");
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().contains("exceeds limit"), result.getErrorMessage());
+    }
+}
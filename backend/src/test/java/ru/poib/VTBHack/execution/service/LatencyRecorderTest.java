@@ -0,0 +1,74 @@
+package ru.poib.VTBHack.execution.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.execution.model.LatencyStatistics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyRecorderTest {
+
+    @Test
+    void percentilesPerRunAndEndpoint() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int ms = 1; ms <= 100; ms++) {
+            recorder.record("get", "/accounts/{id}", Duration.ofMillis(ms));
+        }
+        recorder.record("POST", "/payments", Duration.ofMillis(500));
+
+        LatencyStatistics run = recorder.runStatistics();
+        assertEquals(101, run.getCount());
+        assertEquals(51, run.getP50Ms(), 0.1);
+        assertEquals(500, run.getMaxMs(), 0.5);
+
+        Map<String, LatencyStatistics> endpoints = recorder.endpointStatistics();
+        assertEquals(List.of("GET /accounts/{id}", "POST /payments"), List.copyOf(endpoints.keySet()));
+        LatencyStatistics accounts = endpoints.get("GET /accounts/{id}");
+        assertEquals(95, accounts.getP95Ms(), 0.1);
+        assertEquals(99, accounts.getP99Ms(), 0.1);
+        assertEquals(100, accounts.getMaxMs(), 0.1);
+    }
+
+    @Test
+    void mergesSerializedRuns() {
+        LatencyRecorder fast = new LatencyRecorder();
+        LatencyRecorder slow = new LatencyRecorder();
+        for (int i = 0; i < 90; i++) {
+            fast.record("GET", "/accounts", Duration.ofMillis(10));
+        }
+        for (int i = 0; i < 10; i++) {
+            slow.record("GET", "/accounts", Duration.ofMillis(1000));
+        }
+
+        LatencyStatistics merged = LatencyRecorder.merge(List.of(fast.runStatistics(), slow.runStatistics()));
+        assertEquals(100, merged.getCount());
+        assertEquals(10, merged.getP50Ms(), 0.1);
+        assertEquals(1000, merged.getP95Ms(), 1);
+
+        Map<String, LatencyStatistics> byEndpoint = LatencyRecorder.mergeByEndpoint(
+                List.of(fast.endpointStatistics(), slow.endpointStatistics()));
+        assertEquals(100, byEndpoint.get("GET /accounts").getCount());
+    }
+
+    @Test
+    void compactRecorderMergesWithFullPrecision() {
+        LatencyRecorder compact = LatencyRecorder.compact();
+        LatencyRecorder full = new LatencyRecorder();
+        for (int ms = 1; ms <= 100; ms++) {
+            compact.record(Duration.ofMillis(ms));
+            full.record(Duration.ofMillis(ms));
+        }
+        compact.record(Duration.ofHours(2));
+
+        LatencyStatistics compactRun = compact.runStatistics();
+        assertEquals(51, compactRun.getP50Ms(), 0.6);
+        assertEquals(3_600_000, compactRun.getMaxMs(), 36_000);
+
+        LatencyStatistics merged = LatencyRecorder.merge(List.of(compactRun, full.runStatistics()));
+        assertEquals(201, merged.getCount());
+        assertEquals(51, merged.getP50Ms(), 0.6);
+    }
+}
@@ -0,0 +1,114 @@
+package ru.poib.VTBHack.execution.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundLimiterTest {
+
+    private static final String URL = "http://partner.example:8443/accounts/1";
+
+    @Test
+    void tokenBucketAllowsBurstThenSpacesRequests() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 0;
+        assertEquals(0, bucket.reserve(now, Long.MAX_VALUE, 10, 3));
+        assertEquals(0, bucket.reserve(now, Long.MAX_VALUE, 10, 3));
+        assertEquals(0, bucket.reserve(now, Long.MAX_VALUE, 10, 3));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.reserve(now, Long.MAX_VALUE, 10, 3));
+        assertEquals(-1, bucket.reserve(now, TimeUnit.MILLISECONDS.toNanos(150), 10, 3),
+                "Слишком долгое ожидание не резервируется");
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), bucket.reserve(now, Long.MAX_VALUE, 10, 3));
+        bucket.refund(10);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), bucket.reserve(now, Long.MAX_VALUE, 10, 3),
+                "Возвращенное резервирование снова доступно");
+    }
+
+    @Test
+    void hostRateLimitDelaysRequestsAndReportsWait() throws Exception {
+        ExecutionConfig config = new ExecutionConfig();
+        config.setHostLimit(new ExecutionConfig.RateLimit(20, 1, 0));
+        OutboundLimiter limiter = new OutboundLimiter();
+
+        long waited = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            try (OutboundLimiter.Permit permit = limiter.acquire(URL, null, config)) {
+                assertTrue(permit.isGranted());
+                waited += permit.getWaitNanos();
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 190, "elapsed " + elapsedMs);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(waited) >= 190, "waited " + waited);
+    }
+
+    @Test
+    void endpointConcurrencyCapRejectsAfterRequestTimeout() throws Exception {
+        ExecutionConfig config = new ExecutionConfig();
+        config.setRequestTimeoutMs(50);
+        config.setEndpointLimits(Map.of("GET /accounts/{id}", new ExecutionConfig.RateLimit(0, 1, 1)));
+        OutboundLimiter limiter = new OutboundLimiter();
+
+        try (OutboundLimiter.Permit first = limiter.acquire(URL, "GET /accounts/{id}", config)) {
+            assertTrue(first.isGranted());
+            OutboundLimiter.Permit second = limiter.acquire(URL, "GET /accounts/{id}", config);
+            assertFalse(second.isGranted());
+            assertTrue(second.getRejection().startsWith("Concurrency limit"));
+            assertTrue(limiter.acquire(URL, "GET /payments", config).isGranted(), "Другой эндпоинт не ограничен");
+        }
+        try (OutboundLimiter.Permit again = limiter.acquire(URL, "GET /accounts/{id}", config)) {
+            assertTrue(again.isGranted(), "Место освобождается при закрытии разрешения");
+        }
+    }
+
+    @Test
+    void hostRejectionRefundsEndpointReservation() throws Exception {
+        ExecutionConfig config = new ExecutionConfig();
+        config.setRequestTimeoutMs(50);
+        config.setHostLimit(new ExecutionConfig.RateLimit(1, 1, 0));
+        config.setEndpointLimits(Map.of("GET /accounts/{id}", new ExecutionConfig.RateLimit(1, 1, 0)));
+        OutboundLimiter limiter = new OutboundLimiter();
+
+        assertTrue(limiter.acquire(URL, "GET /payments", config).isGranted());
+        OutboundLimiter.Permit rejected = limiter.acquire(URL, "GET /accounts/{id}", config);
+        assertFalse(rejected.isGranted());
+        assertTrue(rejected.getRejection().endsWith("host|partner.example:8443"), rejected.getRejection());
+
+        // Хост свободен, а резерв эндпоинта был возвращен: запрос проходит без ожидания
+        config.setHostLimit(null);
+        OutboundLimiter.Permit granted = limiter.acquire(URL, "GET /accounts/{id}", config);
+        assertTrue(granted.isGranted());
+        assertTrue(granted.getWaitNanos() < TimeUnit.MILLISECONDS.toNanos(20), "wait " + granted.getWaitNanos());
+    }
+
+    @Test
+    void runsWithDifferentLimitsShareHostCapAndIdleStateIsEvicted() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        OutboundLimiter limiter = new OutboundLimiter(clock::get);
+        ExecutionConfig strict = new ExecutionConfig();
+        strict.setRequestTimeoutMs(50);
+        strict.setHostLimit(new ExecutionConfig.RateLimit(0, 1, 1));
+        ExecutionConfig relaxed = new ExecutionConfig();
+        relaxed.setRequestTimeoutMs(50);
+        relaxed.setHostLimit(new ExecutionConfig.RateLimit(0, 1, 2));
+
+        try (OutboundLimiter.Permit first = limiter.acquire(URL, null, relaxed)) {
+            assertTrue(first.isGranted());
+            assertFalse(limiter.acquire(URL, null, strict).isGranted(), "Место занято прогоном с другим лимитом");
+            try (OutboundLimiter.Permit second = limiter.acquire(URL, null, relaxed)) {
+                assertTrue(second.isGranted());
+            }
+        }
+        assertEquals(1, limiter.size());
+
+        clock.addAndGet(OutboundLimiter.IDLE_EVICTION_NANOS + TimeUnit.MINUTES.toNanos(1));
+        limiter.acquire("http://other.example/x", null, strict).close();
+        assertEquals(1, limiter.size(), "Простаивающее состояние хоста удалено");
+    }
+}
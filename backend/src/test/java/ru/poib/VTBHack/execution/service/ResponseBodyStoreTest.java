@@ -0,0 +1,57 @@
+package ru.poib.VTBHack.execution.service;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.poib.VTBHack.execution.model.ExecutionConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseBodyStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void removesExpiredAndOldestFilesOverBudget() throws IOException {
+        Instant now = Instant.now();
+        Path expired = body("expired", 10, now.minus(Duration.ofHours(2)));
+        Path oldest = body("oldest", 60, now.minus(Duration.ofMinutes(30)));
+        Path newer = body("newer", 60, now.minus(Duration.ofMinutes(10)));
+        Path newest = body("newest", 60, now);
+        Path other = Files.writeString(dir.resolve("notes.txt"), "keep");
+        Files.setLastModifiedTime(other, FileTime.from(now.minus(Duration.ofDays(1))));
+
+        new ResponseBodyStore(dir, Duration.ofHours(1), 150).cleanup();
+
+        assertFalse(Files.exists(expired));
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(newer));
+        assertTrue(Files.exists(newest));
+        assertTrue(Files.exists(other), "Чужие файлы каталога не трогаются");
+    }
+
+    @Test
+    void clientCannotChooseSpillDirectory() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue(
+                "{\"spillResponseBodies\":true,\"responseSpillDir\":\"/etc\"}", ExecutionConfig.class));
+        assertTrue(objectMapper.readValue("{\"spillResponseBodies\":true}", ExecutionConfig.class)
+                .isSpillResponseBodies());
+    }
+
+    private Path body(String name, int size, Instant modified) throws IOException {
+        Path file = Files.write(dir.resolve(name + ResponseBodyStore.SUFFIX), new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        return file;
+    }
+}
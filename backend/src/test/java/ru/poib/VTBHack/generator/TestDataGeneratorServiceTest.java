@@ -1,10 +1,23 @@
 package ru.poib.VTBHack.generator;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import ru.poib.VTBHack.generator.model.TestDataGenerationRequest;
 import ru.poib.VTBHack.generator.model.GenerationType;
 import ru.poib.VTBHack.generator.model.TestDataGenerationResult;
+import ru.poib.VTBHack.generator.model.TestDataStep;
+import ru.poib.VTBHack.generator.model.TestDataVariant;
+import ru.poib.VTBHack.generator.model.UniqueFieldType;
 import ru.poib.VTBHack.generator.service.*;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.mapping.model.TaskEndpointMapping;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -45,4 +58,164 @@ public class TestDataGeneratorServiceTest {
         assertNotNull(result);
         assertEquals(1, result.getVariants().size());
     }
+
+    @Test
+    void sameSeedReproducesVariants() throws Exception {
+        OpenApiModel openApi = paymentsSpec();
+        MappingResult mappingResult = paymentsMapping();
+
+        TestDataGenerationRequest req = new TestDataGenerationRequest();
+        req.setGenerationType(GenerationType.CLASSIC);
+        req.setMappingResult(mappingResult);
+        req.setOpenApiModel(openApi);
+        req.setVariantsCount(3);
+        req.setSeed(42L);
+
+        ObjectMapper json = new ObjectMapper();
+        TestDataGenerationResult first = service.generateTestData(req);
+        TestDataGenerationResult second = service.generateTestData(req);
+        assertEquals(42L, first.getSeed());
+        assertEquals(json.valueToTree(first.getVariants()), json.valueToTree(second.getVariants()));
+        assertNotEquals(json.valueToTree(first.getVariants().get(0)), json.valueToTree(first.getVariants().get(1)));
+
+        // Отдельный вариант воспроизводится по seed прогона и индексу
+        List<?> replayed = classic.generateTestData(mappingResult, openApi, "positive",
+                GenerationContext.seeded(42L).forVariant(2));
+        assertEquals(json.valueToTree(first.getVariants().get(2)), json.valueToTree(replayed));
+
+        // Потоковая генерация отдает те же варианты по порядку, в том числе при параллельной сборке
+        req.setVariantsCount(40);
+        TestDataGenerationResult bulk = service.generateTestData(req);
+        Iterator<TestDataVariant> stream = service.streamVariants(req);
+        for (int i = 0; i < 40; i++) {
+            assertTrue(stream.hasNext());
+            TestDataVariant variant = stream.next();
+            assertEquals(i, variant.getIndex());
+            assertEquals(json.valueToTree(bulk.getVariants().get(i)), json.valueToTree(variant.getSteps()));
+        }
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    void compiledPlanKeepsPreCompileOutput() throws Exception {
+        OpenApiModel openApi = new OpenApiParserService().parseOpenApi("""
+                {"openapi": "3.0.0", "paths": {"/accounts/{account_id}/balances": {"get": {
+                  "parameters": [{"name": "account_id", "in": "path", "required": true, "schema": {"type": "string"}},
+                                 {"name": "x-fapi-interaction-id", "in": "header", "schema": {"type": "string"}},
+                                 {"name": "date_from", "in": "query", "schema": {"type": "string", "format": "date"}},
+                                 {"name": "page", "in": "query", "example": "1"}]
+                }}}}
+                """);
+        TaskEndpointMapping mapping = new TaskEndpointMapping();
+        mapping.setTaskId("balances");
+        mapping.setTaskName("Получить баланс");
+        mapping.setEndpointMethod("GET");
+        mapping.setEndpointPath("/accounts/{account_id}/balances");
+        mapping.setCustomRequestData(Map.of("x-fapi-interaction-id", "fixed", "page", 5, "extra", "value"));
+        MappingResult mappingResult = new MappingResult();
+        mappingResult.setTaskMappings(Map.of("balances", mapping));
+        mappingResult.setDataFlowEdges(List.of());
+
+        GenerationPlan plan = classic.compile(mappingResult, openApi);
+        assertEquals(1, plan.size());
+
+        // Ожидаемые значения получены генератором до компиляции плана:
+        // план обязан сохранять порядок случайных выборок
+        ObjectMapper json = new ObjectMapper();
+        String[] expected = {
+                "{\"requestData\":{\"account_id\":\"86739674891906076220\"},"
+                        + "\"queryParams\":{\"extra\":\"value\",\"page\":5,\"date_from\":\"non\"}}",
+                "{\"requestData\":{\"account_id\":\"62171207762624004512\"},"
+                        + "\"queryParams\":{\"extra\":\"value\",\"page\":5}}",
+                "{\"requestData\":{\"account_id\":\"06682560373234062424\"},"
+                        + "\"queryParams\":{\"extra\":\"value\",\"page\":5,\"date_from\":\"iure\"}}"
+        };
+        for (int seed = 0; seed < expected.length; seed++) {
+            TestDataStep step = classic.generateTestData(plan, "positive", GenerationContext.seeded(seed)).get(0);
+            assertEquals(json.readTree(expected[seed]),
+                    json.valueToTree(Map.of("requestData", step.getRequestData(), "queryParams", step.getQueryParams())));
+        }
+
+        TestDataStep pay = classic.generateTestData(classic.compile(paymentsMapping(), paymentsSpec()),
+                "positive", GenerationContext.seeded(1L)).get(0);
+        assertEquals(404201.75, pay.getRequestData().get("amount"));
+        assertEquals("7476cf8a-4baa-4dc0-87b3-41d690d7a28a", pay.getRequestData().get("requestUuid"));
+        assertEquals(Map.of("limit", 6045), pay.getQueryParams());
+        assertEquals(Set.of("firstName", "amount", "requestUuid"), pay.getRequestData().keySet());
+    }
+
+    @Test
+    void virtualUsersGetOwnReproducibleData() throws Exception {
+        OpenApiModel openApi = paymentsSpec();
+        MappingResult mappingResult = paymentsMapping();
+        TestDataGenerationRequest req = new TestDataGenerationRequest();
+        req.setMappingResult(mappingResult);
+        req.setOpenApiModel(openApi);
+        req.setVariantsCount(3);
+        req.setSeed(7L);
+
+        ObjectMapper json = new ObjectMapper();
+        TestDataGenerationResult users = service.generateVirtualUserData(req);
+        assertEquals(3, users.getVariants().size());
+        for (int i = 0; i < 3; i++) {
+            List<?> replayed = classic.generateTestData(mappingResult, openApi, "positive",
+                    GenerationContext.seeded(7L).forVirtualUser(i));
+            assertEquals(json.valueToTree(users.getVariants().get(i)), json.valueToTree(replayed));
+        }
+        // Данные пользователя не совпадают с данными варианта с тем же индексом
+        assertNotEquals(json.valueToTree(users.getVariants().get(0)),
+                json.valueToTree(service.generateTestData(req).getVariants().get(0)));
+    }
+
+    @Test
+    void onDemandVirtualUsersMatchPregeneratedAndStayUnique() throws Exception {
+        TestDataGenerationRequest req = new TestDataGenerationRequest();
+        req.setMappingResult(paymentsMapping());
+        req.setOpenApiModel(paymentsSpec());
+        req.setVariantsCount(3);
+        req.setSeed(7L);
+
+        ObjectMapper json = new ObjectMapper();
+        TestDataGenerationResult pregenerated = service.generateVirtualUserData(req);
+        TestDataGeneratorService.VirtualUsers users = service.virtualUsers(req, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(json.valueToTree(pregenerated.getVariants().get(i)), json.valueToTree(users.data(i)));
+        }
+
+        // Область уникальности общая для всех пользователей, сколько бы их ни было запрошено
+        req.setUniqueFields(Set.of(UniqueFieldType.UUID));
+        TestDataGeneratorService.VirtualUsers unique = service.virtualUsers(req, 2_000);
+        Set<Object> uuids = new java.util.HashSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            Object uuid = unique.data(i).get(0).getRequestData().get("requestUuid");
+            if (uuid != null) {
+                assertTrue(uuids.add(uuid), "repeated " + uuid);
+            }
+        }
+        assertFalse(uuids.isEmpty());
+    }
+
+    private static OpenApiModel paymentsSpec() throws Exception {
+        return new OpenApiParserService().parseOpenApi("""
+                {"openapi": "3.0.0", "paths": {"/payments": {"post": {
+                  "parameters": [{"name": "client_id", "in": "query", "schema": {"type": "string"}},
+                                 {"name": "limit", "in": "query", "schema": {"type": "integer"}}],
+                  "requestBody": {"content": {"application/json": {"schema": {"type": "object",
+                    "properties": {"email": {"type": "string"}, "amount": {"type": "number"},
+                                   "inn": {"type": "string"}, "requestUuid": {"type": "string"},
+                                   "firstName": {"type": "string"}, "status": {"type": "string", "enum": ["A", "B", "C"]}}}}}}
+                }}}}
+                """);
+    }
+
+    private static MappingResult paymentsMapping() {
+        TaskEndpointMapping mapping = new TaskEndpointMapping();
+        mapping.setTaskId("pay");
+        mapping.setEndpointMethod("POST");
+        mapping.setEndpointPath("/payments");
+        MappingResult mappingResult = new MappingResult();
+        mappingResult.setTaskMappings(Map.of("pay", mapping));
+        mappingResult.setDataFlowEdges(List.of());
+        return mappingResult;
+    }
 }
@@ -48,4 +48,19 @@ public class SmartFieldGeneratorTest {
         assertNotNull(amount);
         assertTrue(amount instanceof Number || amount instanceof Double || amount instanceof Float || amount instanceof Integer);
     }
+
+    @Test
+    void classificationFollowsRulePriority() {
+        assertEquals(SmartFieldGenerator.FieldKind.CORRESPONDENT_ACCOUNT,
+                smart.classify("CorrespondentAccount", "string", null));
+        assertEquals(SmartFieldGenerator.FieldKind.SETTLEMENT_ACCOUNT, smart.classify("accountId", "string", null));
+        assertEquals(SmartFieldGenerator.FieldKind.LAST_NAME, smart.classify("lastName", null, null));
+        assertEquals(SmartFieldGenerator.FieldKind.FIRST_NAME, smart.classify("Имя клиента", null, null));
+        assertEquals(SmartFieldGenerator.FieldKind.UUID, smart.classify("requestGuid", null, null));
+        assertEquals(SmartFieldGenerator.FieldKind.NUMERIC_ID, smart.classify("client_id", "string", null));
+        // Имя без ключевых слов классифицируется по типу и формату
+        assertEquals(SmartFieldGenerator.FieldKind.DATE_TIME, smart.classify("createdOn", "string", "date-time"));
+        assertEquals(SmartFieldGenerator.FieldKind.WORD, smart.classify("createdOn", "string", null));
+        assertEquals(SmartFieldGenerator.FieldKind.INTEGER, smart.classify(null, "integer", null));
+    }
 }
@@ -0,0 +1,64 @@
+package ru.poib.VTBHack.generator.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.generator.model.UniqueFieldType;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniquenessScopeTest {
+
+    @Test
+    void filterConfirmsBloomHitsExactly() {
+        // Фильтр заведомо меньше числа значений: ложные срабатывания Блума не должны отбрасывать новые значения
+        UniqueValueFilter filter = new UniqueValueFilter(16);
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(filter.add("value-" + i));
+        }
+        for (int i = 0; i < 50_000; i += 997) {
+            assertFalse(filter.add("value-" + i));
+        }
+        assertEquals(50_000, filter.size());
+    }
+
+    @Test
+    void filterStopsGrowingPastExactLimit() {
+        UniqueValueFilter filter = new UniqueValueFilter(50_000, 1_000);
+        int accepted = 0;
+        for (int i = 0; i < 50_000; i++) {
+            if (filter.add("value-" + i)) {
+                accepted++;
+            }
+        }
+        assertEquals(1_000, filter.exactSize());
+        assertEquals(accepted, filter.size());
+        // Сверх лимита отказывают только ложные срабатывания Блума, около 1%
+        assertTrue(accepted > 49_000, "accepted " + accepted);
+        for (int i = 0; i < 50_000; i += 97) {
+            assertFalse(filter.add("value-" + i));
+        }
+    }
+
+    @Test
+    void sharedAcrossVariantAndVirtualUserContexts() {
+        UniquenessScope scope = new UniquenessScope(List.of(UniqueFieldType.EMAIL, UniqueFieldType.ACCOUNT), 10_000);
+        GenerationContext run = GenerationContext.seeded(11).withUniqueness(scope);
+        SmartFieldGenerator smart = new SmartFieldGenerator(new RussianDataGenerator());
+
+        Set<Object> emails = new HashSet<>();
+        Set<Object> accounts = new HashSet<>();
+        for (int variant = 0; variant < 50; variant++) {
+            GenerationContext ctx = run.forVariant(variant).forVirtualUser(variant % 5);
+            for (int i = 0; i < 100; i++) {
+                assertTrue(emails.add(smart.generateByFieldName("email", null, "string", null, ctx)));
+                assertTrue(accounts.add(smart.generateByFieldName("accountNumber", null, "string", null, ctx)));
+                assertTrue(accounts.add(smart.generateByFieldName("correspondentAccount", null, "string", null, ctx)));
+            }
+        }
+        assertFalse(scope.claim(SmartFieldGenerator.FieldKind.EMAIL, emails.iterator().next()));
+        assertTrue(scope.claim(SmartFieldGenerator.FieldKind.INN, "не отслеживается"));
+    }
+}
@@ -0,0 +1,49 @@
+package ru.poib.VTBHack.generator.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValuePoolTest {
+
+    @Test
+    void refillsBelowThresholdAndKeepsValuesUnique() {
+        // Генератор с маленьким пространством значений: повторы должны отбрасываться
+        AtomicInteger counter = new AtomicInteger();
+        ValuePool pool = new ValuePool(8, 2, ctx -> "v" + (counter.getAndIncrement() % 24), Runnable::run);
+
+        pool.refill();
+        assertEquals(8, pool.size());
+
+        Set<String> drawn = new HashSet<>();
+        for (int i = 0; i < 16; i++) {
+            String value = pool.poll();
+            assertNotNull(value);
+            assertTrue(drawn.add(value), "Значение повторилось в окне пула: " + value);
+        }
+    }
+
+    @Test
+    void emptyPoolDoesNotBlock() {
+        ValuePool pool = new ValuePool(4, 1, ctx -> "x", command -> { });
+        assertNull(pool.poll());
+    }
+
+    @Test
+    void seededContextsBypassPools() {
+        ValuePools pools = new ValuePools(true, 16, 4);
+        SmartFieldGenerator smart = new SmartFieldGenerator(new RussianDataGenerator(), pools);
+        SmartFieldGenerator direct = new SmartFieldGenerator(new RussianDataGenerator());
+
+        Object pooled = smart.generateByFieldName("inn", null, "string", null, GenerationContext.seeded(7));
+        Object expected = direct.generateByFieldName("inn", null, "string", null, GenerationContext.seeded(7));
+        assertEquals(expected, pooled);
+
+        String unseeded = (String) smart.generateByFieldName("inn", null, "string", null);
+        assertTrue(unseeded.matches("\\d{10}"));
+    }
+}
@@ -0,0 +1,58 @@
+package ru.poib.VTBHack.mapping.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.mapping.model.CommonField;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Operation;
+import ru.poib.VTBHack.parser.model.openapi.Parameter;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonFieldAnalyzerTest {
+
+    private final CommonFieldAnalyzer analyzer = new CommonFieldAnalyzer();
+
+    @Test
+    void mergesFieldVariantsAcrossLargeSpec() {
+        // Достаточно операций, чтобы анализ пошел параллельно
+        int operationCount = 1000;
+        Map<String, OpenApiModel.PathItem> paths = new LinkedHashMap<>();
+        for (int i = 0; i < operationCount; i++) {
+            Operation operation = new Operation();
+            List<Parameter> parameters = new ArrayList<>();
+            parameters.add(param(i % 2 == 0 ? "x-consent-id" : "consent_id", i % 2 == 0 ? "header" : "query",
+                    i == 0 ? null : "Consent " + i, i == 3));
+            parameters.add(param("unique_" + i, "query", null, false));
+            operation.setParameters(parameters);
+
+            OpenApiModel.PathItem pathItem = new OpenApiModel.PathItem();
+            pathItem.setGet(operation);
+            paths.put("/resource/" + i, pathItem);
+        }
+        OpenApiModel model = new OpenApiModel();
+        model.setPaths(paths);
+
+        List<CommonField> fields = analyzer.analyzeCommonFields(model);
+
+        assertEquals(1, fields.size());
+        CommonField consent = fields.get(0);
+        assertEquals("x-consent-id", consent.getFieldName());
+        assertEquals("header,query", consent.getFieldType());
+        assertEquals(operationCount, consent.getUsageCount());
+        assertEquals(operationCount, consent.getUsedInEndpoints().size());
+        assertTrue(consent.isRequired());
+        // Описание берется из первого по порядку использования, где оно есть
+        assertEquals("Consent 1", consent.getDescription());
+    }
+
+    private static Parameter param(String name, String in, String description, boolean required) {
+        Parameter parameter = new Parameter();
+        parameter.setName(name);
+        parameter.setIn(in);
+        parameter.setDescription(description);
+        parameter.setRequired(required);
+        return parameter;
+    }
+}
@@ -0,0 +1,136 @@
+package ru.poib.VTBHack.mapping.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Operation;
+import ru.poib.VTBHack.parser.model.openapi.Parameter;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenApiDependencyAnalyzerTest {
+
+    private final OpenApiDependencyAnalyzer analyzer = new OpenApiDependencyAnalyzer();
+
+    // Исходные регулярные выражения анализатора — эталон для сравнения
+    private static final Pattern ENDPOINT_PATTERN = Pattern.compile("(?i)(GET|POST|PUT|DELETE|PATCH)\\s+(/[-\\w{}./]+)");
+    private static final Pattern DEP_HINT_PATTERN = Pattern.compile("(?iu)(получите|получить|подставить|возьмите|используйте|из ответа|response of|через|via|through|get from)");
+    private static final Pattern FIELD_HINT_PATTERN = Pattern.compile("(?iu)(поле|field|значение|token|id|identifier|consent[_-]?id|data)[:\n\r\s]*([A-Za-z0-9_.-]+)");
+    private static final Pattern ENDPOINT_IN_TEXT_PATTERN = Pattern.compile("(?i)(?:через|via|through|get from|получите через|получить через)\\s+(GET|POST|PUT|DELETE|PATCH)\\s+(/[-\\w{}./]+)");
+
+    @Test
+    void extractsParameterDependency() {
+        OpenApiModel model = modelWithParameter(
+                "Идентификатор согласия (получите через POST /account-consents/request)", "x-consent-id");
+
+        Map<String, List<OpenApiDependencyAnalyzer.OpenApiDependency>> result = analyzer.analyze(model);
+
+        List<OpenApiDependencyAnalyzer.OpenApiDependency> deps = result.get("GET:/accounts");
+        assertNotNull(deps);
+        assertEquals(1, deps.size());
+        OpenApiDependencyAnalyzer.OpenApiDependency dep = deps.get(0);
+        assertEquals("POST", dep.method);
+        assertEquals("/account-consents/request", dep.path);
+        assertEquals("x-consent-id", dep.parameterName);
+        assertEquals("header", dep.parameterIn);
+        assertEquals("consent-id", dep.fieldHint);
+        assertEquals(0.95, dep.confidence, 1e-9);
+    }
+
+    @Test
+    void ignoresTextWithoutHttpMethod() {
+        OpenApiModel model = modelWithParameter("Токен доступа, используйте поле access_token", "x-token");
+
+        assertTrue(analyzer.analyze(model).isEmpty());
+    }
+
+    @Test
+    void matchesReferenceRegexImplementation() {
+        List<String> texts = List.of(
+                "Используйте значение из ответа GET /accounts/{accountId} поле: accountId",
+                "forget /x and then POST /payments via PUT /payments/{id}",
+                "GET /forget /x",
+                "See get   /a/b.c-d_e and DELETE / and PATCH /z{",
+                "Consent_ID: abc-1 через GET /consents",
+                "ЧЕРЕЗ POST /upper и identifier xyz",
+                "field\n\rname response of post /x/y",
+                "data без метода",
+                "через  get\t/t1 через delete /t2",
+                "token token: get /tok"
+        );
+
+        for (String text : texts) {
+            for (String paramName : Arrays.asList(null, "client_id", "limit")) {
+                OpenApiModel model = modelWithParameter(text, paramName == null ? "p" : paramName);
+                List<OpenApiDependencyAnalyzer.OpenApiDependency> actual =
+                        analyzer.analyze(model).getOrDefault("GET:/accounts", List.of());
+                List<String> expected = referenceExtract(text, paramName == null ? "p" : paramName);
+
+                assertEquals(expected, actual.stream().map(OpenApiDependencyAnalyzerTest::describe).toList(),
+                        "Расхождение для текста: " + text);
+            }
+        }
+    }
+
+    private static String describe(OpenApiDependencyAnalyzer.OpenApiDependency dep) {
+        return dep.method + " " + dep.path + " " + dep.parameterName + " " + dep.fieldHint + " " + dep.confidence;
+    }
+
+    /**
+     * Прежняя реализация extractDependenciesFromText на регулярных выражениях
+     */
+    private static List<String> referenceExtract(String text, String parameterName) {
+        List<String> deps = new ArrayList<>();
+        boolean hasDependencyHint = DEP_HINT_PATTERN.matcher(text).find();
+        Matcher endpointMatcher = ENDPOINT_PATTERN.matcher(text);
+        while (endpointMatcher.find()) {
+            String depMethod = endpointMatcher.group(1).toUpperCase(Locale.ROOT);
+            String depPath = endpointMatcher.group(2);
+            String fieldHint = referenceFieldHint(text, parameterName);
+            double confidence = 0.5;
+            if (hasDependencyHint) {
+                confidence = 0.9;
+            } else if (parameterName != null) {
+                confidence = 0.8;
+            }
+            if (ENDPOINT_IN_TEXT_PATTERN.matcher(text).find()) {
+                confidence = 0.95;
+            }
+            deps.add(depMethod + " " + depPath + " " + parameterName + " " + fieldHint + " " + confidence);
+        }
+        return deps;
+    }
+
+    private static String referenceFieldHint(String text, String parameterName) {
+        if (parameterName != null) {
+            String normalized = parameterName.replaceFirst("^[xX]-", "");
+            if (normalized.toLowerCase().contains("id") ||
+                normalized.toLowerCase().contains("token") ||
+                normalized.toLowerCase().contains("consent")) {
+                return normalized;
+            }
+        }
+        Matcher fieldMatcher = FIELD_HINT_PATTERN.matcher(text);
+        return fieldMatcher.find() ? fieldMatcher.group(2) : null;
+    }
+
+    private OpenApiModel modelWithParameter(String description, String parameterName) {
+        Parameter parameter = new Parameter();
+        parameter.setName(parameterName);
+        parameter.setIn("header");
+        parameter.setDescription(description);
+
+        Operation operation = new Operation();
+        operation.setParameters(List.of(parameter));
+
+        OpenApiModel.PathItem pathItem = new OpenApiModel.PathItem();
+        pathItem.setGet(operation);
+
+        OpenApiModel model = new OpenApiModel();
+        model.setPaths(Map.of("/accounts", pathItem));
+        return model;
+    }
+}
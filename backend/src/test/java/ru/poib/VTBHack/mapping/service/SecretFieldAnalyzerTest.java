@@ -0,0 +1,74 @@
+package ru.poib.VTBHack.mapping.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.mapping.model.SecretField;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Operation;
+import ru.poib.VTBHack.parser.model.openapi.Parameter;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecretFieldAnalyzerTest {
+
+    private final SecretFieldAnalyzer analyzer = new SecretFieldAnalyzer();
+
+    @Test
+    void reportsFirstMatchingRule() {
+        OpenApiModel model = modelWithParameters(
+                param("X-Api-Key", "header"),
+                param("refresh_token", "query"),
+                param("userPassword", "query"),
+                param("sessionid", "query"),
+                param("limit", "query"));
+
+        Map<String, SecretField> byName = new HashMap<>();
+        analyzer.analyzeSecretFields(model).forEach(f -> byName.put(f.getFieldName(), f));
+
+        assertEquals(4, byName.size());
+        assertFalse(byName.containsKey("limit"));
+        // "api[_-]?key" стоит в списке раньше "x[_-]?api[_-]?key"
+        assertEquals("api[_-]?key", byName.get("X-Api-Key").getMatchedRule());
+        assertEquals("Field name matches secret pattern: (?i).*api[_-]?key.*", byName.get("X-Api-Key").getReason());
+        // "token" стоит раньше "refresh[_-]?token"
+        assertEquals("token", byName.get("refresh_token").getMatchedRule());
+        assertEquals("password", byName.get("userPassword").getMatchedRule());
+        assertEquals("session[_-]?id", byName.get("sessionid").getMatchedRule());
+    }
+
+    @Test
+    void knownSecretHeadersAreCoveredByNameRules() {
+        OpenApiModel model = modelWithParameters(
+                param("auth-token", "header"),
+                param("x-authorization", "header"),
+                param("x-access-token", "header"));
+
+        Map<String, SecretField> byName = new HashMap<>();
+        analyzer.analyzeSecretFields(model).forEach(f -> byName.put(f.getFieldName(), f));
+
+        assertEquals(3, byName.size());
+        assertEquals("token", byName.get("auth-token").getMatchedRule());
+        assertEquals("authorization", byName.get("x-authorization").getMatchedRule());
+        assertEquals("token", byName.get("x-access-token").getMatchedRule());
+    }
+
+    private static Parameter param(String name, String in) {
+        Parameter parameter = new Parameter();
+        parameter.setName(name);
+        parameter.setIn(in);
+        return parameter;
+    }
+
+    private static OpenApiModel modelWithParameters(Parameter... parameters) {
+        Operation operation = new Operation();
+        operation.setParameters(List.of(parameters));
+
+        OpenApiModel.PathItem pathItem = new OpenApiModel.PathItem();
+        pathItem.setGet(operation);
+
+        OpenApiModel model = new OpenApiModel();
+        model.setPaths(Map.of("/accounts", pathItem));
+        return model;
+    }
+}
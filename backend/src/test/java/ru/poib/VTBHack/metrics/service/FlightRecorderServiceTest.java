@@ -0,0 +1,52 @@
+package ru.poib.VTBHack.metrics.service;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.poib.VTBHack.metrics.event.ExecutionPhaseEvent;
+import ru.poib.VTBHack.metrics.model.RecordingInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsCustomPhaseEvents() throws Exception {
+        FlightRecorderService service = new FlightRecorderService(dir);
+        RecordingInfo info = service.start(Duration.ofMinutes(1), "default");
+        assertEquals("RUNNING", info.getState());
+
+        ExecutionPhaseEvent phase = ExecutionPhaseEvent.start(ExecutionPhaseEvent.HTTP, "task_1", "GET", "/accounts/{id}");
+        String body = "{\"id\":\"счет\"}";
+        phase.finish(body);
+
+        Path file = service.stop(info.getId());
+        assertTrue(Files.size(file) > 0);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("ru.poib.VTBHack.ExecutionPhase"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals("GET /accounts/{id}", events.get(0).getString("endpoint"));
+        assertEquals(body.getBytes(StandardCharsets.UTF_8).length, events.get(0).getLong("bytes"));
+
+        assertTrue(service.delete(info.getId()));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void rejectsUnboundedRecordings() {
+        FlightRecorderService service = new FlightRecorderService(dir);
+        assertThrows(IllegalArgumentException.class, () -> service.start(Duration.ofHours(2), "default"));
+        assertThrows(IllegalArgumentException.class, () -> service.start(Duration.ofSeconds(10), "custom"));
+    }
+}
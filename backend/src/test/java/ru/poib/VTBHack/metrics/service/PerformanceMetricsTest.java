@@ -0,0 +1,37 @@
+package ru.poib.VTBHack.metrics.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.parser.service.BpmnParserService;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerformanceMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PerformanceMetrics metrics = new PerformanceMetrics(registry);
+
+    @Test
+    void stepLatencyTaggedByTemplateAndStatusClass() {
+        metrics.recordStep("get", "/accounts/{id}", 200, Duration.ofMillis(12));
+        metrics.recordStep("GET", "/accounts/{id}", 204, Duration.ofMillis(8));
+        metrics.recordStep("GET", "/accounts/{id}", 0, Duration.ofMillis(30));
+
+        Timer ok = registry.get(PerformanceMetrics.STEP_LATENCY)
+                .tags("method", "GET", "path", "/accounts/{id}", "status", "2xx").timer();
+        assertEquals(2, ok.count());
+        assertEquals(1, registry.get(PerformanceMetrics.STEP_LATENCY).tag("status", "NONE").timer().count());
+    }
+
+    @Test
+    void phaseRecordedEvenWhenParsingFails() {
+        BpmnParserService parser = new BpmnParserService(metrics);
+
+        assertThrows(Exception.class, () -> parser.parse("<definitions/>"));
+
+        assertEquals(1, registry.get(PerformanceMetrics.PHASE).tag("phase", "parse.bpmn").timer().count());
+    }
+}
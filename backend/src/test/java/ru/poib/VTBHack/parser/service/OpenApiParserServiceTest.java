@@ -113,4 +113,41 @@ class OpenApiParserServiceTest {
         assertTrue(parameter.isRequired());
         assertEquals("string", parameter.getSchema().getType());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLazyParseMatchesFullBinding() throws IOException {
+        String json;
+        try (InputStream is = getClass().getResourceAsStream("/sample-openapi.json")) {
+            json = new String(is.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+        }
+        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+
+        OpenApiModel full = parserService.parseOpenApi(json);
+        OpenApiModel lazy = parserService.parseOpenApiLazy(json);
+
+        assertEquals(mapper.valueToTree(full), mapper.valueToTree(lazy));
+        assertEquals(java.util.List.copyOf(full.getPaths().keySet()), java.util.List.copyOf(lazy.getPaths().keySet()));
+    }
+
+    @Test
+    void testLazyParseMaterializesOnlyRequestedPaths() throws IOException {
+        String json = "{\"openapi\": \"3.0.0\", \"x-extra\": {\"a\": [1, 2]}, \"paths\": {" +
+                "\"/a\": {\"get\": {\"operationId\": \"getA\"}}," +
+                "\"/b\": {\"post\": {\"operationId\": \"postB\", \"description\": \"Символы \\\"{}\\\"\"}}," +
+                "\"/c\": null}, \"info\": {\"title\": \"T\"}}";
+
+        OpenApiModel model = parserService.parseOpenApiLazy(json);
+        LazyPathItemMap paths = (LazyPathItemMap) model.getPaths();
+
+        assertEquals("3.0.0", model.getOpenApiVersion());
+        assertEquals("T", model.getInfo().getTitle());
+        assertEquals(3, paths.size());
+        assertEquals(0, paths.materializedCount());
+
+        assertEquals("Символы \"{}\"", paths.get("/b").getPost().getDescription());
+        assertEquals(1, paths.materializedCount());
+        assertNull(paths.get("/c"));
+        assertTrue(paths.containsKey("/c"));
+        assertEquals("getA", model.getPaths().get("/a").getGet().getOperationId());
+    }
+}
@@ -0,0 +1,147 @@
+package ru.poib.VTBHack.parser.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlantUmlLexerTest {
+
+    // Исходные регулярные выражения парсера — эталон для сравнения на строках с ключевым словом в начале
+    private static final Pattern ACTOR_PATTERN = Pattern.compile("actor\\s+([\\w\\s]+?)\\s+as\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PARTICIPANT_PATTERN = Pattern.compile("participant\\s+\"([^\"]+)\"\\s+as\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PARTICIPANT_NO_QUOTES_PATTERN = Pattern.compile("participant\\s+([\\w]+)\\s+as\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INTERACTION_PATTERN = Pattern.compile("(\\w+)\\s*(->|-->|->>|<<-|<--|<<--|->x|x<-)\\s*(\\w+)\\s*:\\s*(.+)");
+    private static final Pattern HTTP_METHOD_PATTERN = Pattern.compile("^(GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS)\\s+([^\\s(]+)(?:\\s*\\(([^)]+)\\))?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NOTE_PATTERN = Pattern.compile("note\\s+(left|right|over)\\s*(?:of\\s+(\\w+))?\\s*:\\s*(.+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ALT_PATTERN = Pattern.compile("alt\\s+(.+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ELSE_PATTERN = Pattern.compile("else\\s*(.+)?", Pattern.CASE_INSENSITIVE);
+
+    @Test
+    void interactionMatchesReferenceRegex() {
+        List<String> lines = List.of(
+                "C -> Bank: POST /auth/token",
+                "C->Bank:GET /x",
+                "Bank --> C : 200 OK",
+                "A ->> B: async",
+                "A <<-- B: back",
+                "A <<- B: back",
+                "A <-- B: back",
+                "A ->x B: lost",
+                "Ax<-B: lost",
+                "A ->xB: odd",
+                "A <- B: not an arrow",
+                "A -> B:",
+                "A -> B :   spaced   ",
+                "[A] -> B: bracketed",
+                "foo bar A -> B : msg",
+                "A -> : no target",
+                "Клиент -> Bank: кириллица",
+                "A - > B: broken",
+                "note left: A -> B: inside"
+        );
+        for (String line : lines) {
+            Matcher matcher = INTERACTION_PATTERN.matcher(line);
+            PlantUmlLexer.InteractionLine actual = PlantUmlLexer.interaction(line);
+            if (matcher.find()) {
+                assertNotNull(actual, line);
+                assertEquals(matcher.group(1), actual.from(), line);
+                assertEquals(matcher.group(2), actual.arrow(), line);
+                assertEquals(matcher.group(3), actual.to(), line);
+                assertEquals(matcher.group(4).trim(), actual.message(), line);
+            } else {
+                assertNull(actual, line);
+            }
+        }
+    }
+
+    @Test
+    void declarationsMatchReferenceRegex() {
+        List<String> actors = List.of("actor Client as C", "ACTOR Big Bank  As BB", "actor Клиент as C",
+                "actor A as", "actor A, B as C", "actor  X   as   Y trailing");
+        for (String line : actors) {
+            Matcher matcher = ACTOR_PATTERN.matcher(line);
+            PlantUmlLexer.ActorDecl actual = PlantUmlLexer.actor(line);
+            if (matcher.find()) {
+                assertNotNull(actual, line);
+                assertEquals(matcher.group(1).trim(), actual.name(), line);
+                assertEquals(matcher.group(2), actual.alias(), line);
+            } else {
+                assertNull(actual, line);
+            }
+        }
+
+        List<String> participants = List.of("participant \"API Bank\" as Bank", "participant APIBank as Bank",
+                "Participant \"\" as X", "participant \"Open\" as", "participant Api-Bank as B", "participant X AS y");
+        for (String line : participants) {
+            Matcher quoted = PARTICIPANT_PATTERN.matcher(line);
+            Matcher plain = PARTICIPANT_NO_QUOTES_PATTERN.matcher(line);
+            PlantUmlLexer.ActorDecl actual = PlantUmlLexer.participant(line);
+            Matcher matcher = quoted.find() ? quoted : plain.find() ? plain : null;
+            if (matcher != null) {
+                assertNotNull(actual, line);
+                assertEquals(matcher.group(1).trim(), actual.name(), line);
+                assertEquals(matcher.group(2), actual.alias(), line);
+            } else {
+                assertNull(actual, line);
+            }
+        }
+    }
+
+    @Test
+    void notesAndBlocksMatchReferenceRegex() {
+        List<String> notes = List.of("note left of C: текст", "note over: x", "NOTE RIGHT OF Bank :  y",
+                "note over A, B: not parsed", "note leftof A: tight", "note left of : z", "note left:");
+        for (String line : notes) {
+            Matcher matcher = NOTE_PATTERN.matcher(line);
+            PlantUmlLexer.NoteLine actual = PlantUmlLexer.note(line);
+            if (matcher.find()) {
+                assertNotNull(actual, line);
+                assertEquals(matcher.group(1), actual.position(), line);
+                assertEquals(matcher.group(2), actual.participant(), line);
+                assertEquals(matcher.group(3), actual.text(), line);
+            } else {
+                assertNull(actual, line);
+            }
+        }
+
+        for (String line : List.of("alt success", "alt    two words", "alt")) {
+            Matcher matcher = ALT_PATTERN.matcher(line);
+            assertEquals(matcher.find() ? matcher.group(1) : null,
+                    PlantUmlLexer.blockCondition(line, PlantUmlLexer.Keyword.ALT), line);
+        }
+        for (String line : List.of("else", "else failure", "elsewhere", "ELSE   x")) {
+            Matcher matcher = ELSE_PATTERN.matcher(line);
+            assertTrue(matcher.find());
+            assertEquals(matcher.group(1), PlantUmlLexer.elseCondition(line), line);
+        }
+    }
+
+    @Test
+    void httpCallMatchesReferenceRegex() {
+        List<String> messages = List.of("POST /auth/token", "get /accounts (limit, offset)", "PUT /x(a)",
+                "DELETE /y ()", "PATCH /z (unclosed", "GETX /a", "OPTIONS", "Вызов GET /x", "HEAD\t/h");
+        for (String message : messages) {
+            Matcher matcher = HTTP_METHOD_PATTERN.matcher(message);
+            PlantUmlLexer.HttpCall actual = PlantUmlLexer.httpCall(message);
+            if (matcher.find()) {
+                assertNotNull(actual, message);
+                assertEquals(matcher.group(1), actual.method(), message);
+                assertEquals(matcher.group(2), actual.path(), message);
+                assertEquals(matcher.group(3), actual.parameters(), message);
+            } else {
+                assertNull(actual, message);
+            }
+        }
+    }
+
+    @Test
+    void splitsLinesLikeNormalizedSplit() {
+        String content = "@startuml\r\nA -> B: x\rB\t-> C: y\n\n@enduml\n\n";
+        String normalized = content.replaceAll("\\r\\n", "\n").replaceAll("\\r", "\n").replaceAll("\\t", "    ");
+        assertEquals(List.of(normalized.split("\n")), PlantUmlLexer.splitLines(content));
+    }
+}
@@ -265,6 +265,11 @@ class PlantUmlParserServiceTest {
             """;
 
         DiagramStatistics stats = parserService.getStatistics(plantUml);
+        // Разобранную модель можно использовать во всех операциях без повторного разбора
+        SequenceDiagramModel model = parserService.parse(plantUml);
+        assertEquals(stats, parserService.getStatistics(model));
+        assertEquals(parserService.extractApiEndpoints(plantUml), parserService.extractApiEndpoints(model));
+        assertEquals(parserService.validate(plantUml), parserService.validate(plantUml, model));
 
         assertEquals(2, stats.getParticipantCount());
         assertEquals(8, stats.getInteractionCount());
@@ -0,0 +1,130 @@
+package ru.poib.VTBHack.parser.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.execution.model.ValidationResult;
+import ru.poib.VTBHack.execution.service.ResponseValidator;
+import ru.poib.VTBHack.generator.service.RussianDataGenerator;
+import ru.poib.VTBHack.generator.service.SchemaDataGenerator;
+import ru.poib.VTBHack.generator.service.SmartFieldGenerator;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Parameter;
+import ru.poib.VTBHack.parser.model.openapi.Response;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaRefResolverTest {
+
+    private static final String SPEC = """
+            {
+              "openapi": "3.0.0",
+              "info": {"title": "Refs", "version": "1"},
+              "paths": {
+                "/accounts": {
+                  "get": {
+                    "parameters": [{"name": "status", "in": "query", "schema": {"$ref": "#/components/schemas/Status"}}],
+                    "responses": {
+                      "200": {"content": {"application/json": {"schema": {"$ref": "#/components/schemas/Account"}}}}
+                    }
+                  }
+                }
+              },
+              "components": {
+                "schemas": {
+                  "Status": {"type": "string", "enum": ["Enabled", "Disabled"]},
+                  "Account": {
+                    "type": "object",
+                    "required": ["accountId", "status"],
+                    "properties": {
+                      "accountId": {"type": "string"},
+                      "status": {"$ref": "#/components/schemas/Status"},
+                      "subAccounts": {"type": "array", "items": {"$ref": "#/components/schemas/Account"}}
+                    }
+                  },
+                  "AliasA": {"$ref": "#/components/schemas/AliasB"},
+                  "AliasB": {"$ref": "#/components/schemas/AliasA"}
+                }
+              }
+            }
+            """;
+
+    private final OpenApiParserService parserService = new OpenApiParserService();
+
+    @Test
+    void resolvesSharedComponentsOnceAndKeepsCycles() throws Exception {
+        OpenApiModel model = parserService.parseOpenApiLazy(SPEC);
+        SchemaRefResolver resolver = SchemaRefResolver.of(model);
+        assertSame(resolver, SchemaRefResolver.of(model));
+
+        Response.Schema response = model.getPaths().get("/accounts").getGet()
+                .getResponses().get("200").getContent().get("application/json").getSchema();
+        Response.Schema account = resolver.resolve(response);
+        assertEquals("object", account.getType());
+        assertEquals(List.of("Enabled", "Disabled"),
+                account.getProperties().get("status").getAdditionalProperties().get("enum"));
+
+        // Рекурсивная ссылка указывает на тот же объект, а не на копию
+        Response.Schema items = (Response.Schema) account.getProperties().get("subAccounts")
+                .getAdditionalProperties().get("items");
+        assertSame(account, items);
+        assertSame(account, resolver.resolve(response));
+
+        Parameter.Schema statusParam = model.getPaths().get("/accounts").getGet().getParameters().get(0).getSchema();
+        assertSame(account.getProperties().get("status"), resolver.resolveParameter(statusParam));
+
+        // Цепочка псевдонимов без содержимого разрешается в пустую схему
+        Response.Schema alias = resolver.resolveRaw(Map.of("$ref", "#/components/schemas/AliasA"));
+        assertNull(alias.getType());
+        assertTrue(alias.getProperties().isEmpty());
+    }
+
+    @Test
+    void generatorAndValidatorWorkOnResolvedShapes() throws Exception {
+        OpenApiModel model = parserService.parseOpenApi(SPEC);
+        Response.Schema response = model.getPaths().get("/accounts").getGet()
+                .getResponses().get("200").getContent().get("application/json").getSchema();
+
+        SchemaDataGenerator generator = new SchemaDataGenerator(new SmartFieldGenerator(new RussianDataGenerator()));
+        Object generated = generator.generateFromSchema(response, null, null, model);
+        assertInstanceOf(Map.class, generated);
+        Map<?, ?> account = (Map<?, ?>) generated;
+        assertTrue(account.containsKey("accountId"));
+        assertTrue(List.of("Enabled", "Disabled").contains(account.get("status")));
+
+        // Схема ответа ссылается на общий документ компонентов, а не несет их копию
+        String jsonSchema = SchemaRefResolver.of(model).toJsonSchema(response);
+        assertFalse(jsonSchema.contains("\"components\""), jsonSchema);
+        String iri = jsonSchema.substring(jsonSchema.indexOf("urn:"), jsonSchema.indexOf('#'));
+        assertTrue(SchemaRefResolver.componentsDocument(iri).contains("\"Account\""));
+
+        ResponseValidator validator = new ResponseValidator();
+        ValidationResult valid = validator.validate(200, 200, "application/json", "application/json",
+                "{\"accountId\":\"1\",\"status\":\"Enabled\",\"subAccounts\":[{\"accountId\":\"2\",\"status\":\"Disabled\"}]}",
+                response, model, 10, 1000);
+        assertTrue(valid.isValid(), () -> String.join("; ", valid.getErrors()));
+
+        ValidationResult invalid = validator.validate(200, 200, "application/json", "application/json",
+                "{\"accountId\":\"1\",\"status\":\"Enabled\",\"subAccounts\":[{\"accountId\":\"2\",\"status\":\"Closed\"}]}",
+                response, model, 10, 1000);
+        assertFalse(invalid.isValid());
+    }
+
+    @Test
+    void concurrentLookupsSeeOneFullyBuiltComponent() throws Exception {
+        OpenApiModel model = parserService.parseOpenApi(SPEC);
+        SchemaRefResolver resolver = SchemaRefResolver.of(model);
+        List<Map<String, Object>> refs = new java.util.ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            refs.add(Map.of("$ref", "#/components/schemas/Account"));
+        }
+
+        List<Response.Schema> schemas = refs.parallelStream().map(resolver::resolveRaw).toList();
+
+        for (Response.Schema schema : schemas) {
+            assertSame(schemas.get(0), schema);
+            assertEquals(3, schema.getProperties().size());
+        }
+    }
+}
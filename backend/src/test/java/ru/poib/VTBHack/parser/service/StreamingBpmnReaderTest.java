@@ -0,0 +1,152 @@
+package ru.poib.VTBHack.parser.service;
+
+import org.flowable.bpmn.converter.BpmnXMLConverter;
+import org.flowable.bpmn.model.*;
+import org.flowable.bpmn.model.Process;
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingBpmnReaderTest {
+
+    private static final String HEADER =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\"\n" +
+            "             xmlns:flowable=\"http://flowable.org/bpmn\"\n" +
+            "             xmlns:c=\"http://camunda.org/schema/1.0/bpmn\" targetNamespace=\"x\">\n";
+
+    @Test
+    void matchesFlowableOnSupportedDocuments() throws Exception {
+        List<String> documents = List.of(
+                Files.readString(Path.of("src/main/resources/01_bonus_payment.bpmn")),
+                HEADER +
+                "  <process id=\"p1\" name=\"P &amp; Q\">\n" +
+                "    <startEvent id=\"s\" name=\"Старт\"/>\n" +
+                "    <serviceTask id=\"t1\" name=\"A: GET /a\">\n" +
+                "      <documentation>  first  </documentation>\n" +
+                "      <documentation>second &amp; more</documentation>\n" +
+                "      <extensionElements>\n" +
+                "        <flowable:field name=\"x\" stringValue=\"y\"/>\n" +
+                "        <flowable:apiEndpoint>POST /x &amp; y</flowable:apiEndpoint>\n" +
+                "        <flowable:apiEndpoint>second</flowable:apiEndpoint>\n" +
+                "        <c:properties><c:property name=\"a\" value=\"b\"/></c:properties>\n" +
+                "        <flowable:mixed>abc<flowable:child>q</flowable:child>def</flowable:mixed>\n" +
+                "        <flowable:cd><![CDATA[ cdata text ]]></flowable:cd>\n" +
+                "        <flowable:executionListener event=\"start\" class=\"x\"/>\n" +
+                "      </extensionElements>\n" +
+                "    </serviceTask>\n" +
+                "    <userTask id=\"u1\" name=\"U\"><extensionElements><flowable:custom>v</flowable:custom></extensionElements></userTask>\n" +
+                "    <task id=\"g1\" name=\"Получение: POST /g\"><documentation></documentation></task>\n" +
+                "    <scriptTask id=\"sc1\"/><sendTask id=\"snd\"/><receiveTask id=\"rcv\"/>\n" +
+                "    <exclusiveGateway id=\"gw\" name=\"Решение\" default=\"f4\"/>\n" +
+                "    <parallelGateway id=\"pg\"/>\n" +
+                "    <endEvent id=\"e\" name=\"Конец\"/>\n" +
+                "    <sequenceFlow id=\"f1\" sourceRef=\"s\" targetRef=\"t1\"/>\n" +
+                "    <sequenceFlow id=\"f2\" sourceRef=\"t1\" targetRef=\"gw\"/>\n" +
+                "    <sequenceFlow id=\"f3\" name=\"Да\" sourceRef=\"gw\" targetRef=\"u1\">\n" +
+                "      <conditionExpression xsi:type=\"tFormalExpression\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n" +
+                "        ${amount &gt; 100 &amp;&amp; status == 'OK'}\n" +
+                "      </conditionExpression>\n" +
+                "    </sequenceFlow>\n" +
+                "    <sequenceFlow id=\"f4\" sourceRef=\"gw\" targetRef=\"g1\"/>\n" +
+                "    <sequenceFlow id=\"f5\" sourceRef=\"u1\" targetRef=\"e\"/>\n" +
+                "  </process>\n" +
+                "  <process id=\"p2\"><serviceTask id=\"other\"/></process>\n" +
+                "</definitions>",
+                HEADER + "  <process id=\"empty\"/>\n</definitions>"
+        );
+
+        for (String document : documents) {
+            StreamingBpmnReader.ParsedProcess streamed = StreamingBpmnReader.read(document);
+            Process flowable = parseWithFlowable(document);
+
+            assertEquals(flowable.getId(), streamed.id);
+            assertEquals(flowable.getName(), streamed.name);
+            assertEquals(describeTasks(flowable.findFlowElementsOfType(ServiceTask.class)), describe(streamed.serviceTasks));
+            assertEquals(describeTasks(flowable.findFlowElementsOfType(UserTask.class)), describe(streamed.userTasks));
+            assertEquals(describeTasks(flowable.findFlowElementsOfType(Task.class).stream()
+                            .filter(t -> !(t instanceof ServiceTask) && !(t instanceof UserTask)).toList()),
+                    describe(streamed.genericTasks));
+            assertEquals(flowable.findFlowElementsOfType(SequenceFlow.class).stream()
+                            .map(f -> f.getId() + ":" + f.getSourceRef() + "->" + f.getTargetRef()
+                                    + "|" + f.getName() + "|" + f.getConditionExpression()).toList(),
+                    streamed.sequenceFlows.stream()
+                            .map(f -> f.id() + ":" + f.sourceRef() + "->" + f.targetRef()
+                                    + "|" + f.name() + "|" + f.conditionExpression()).toList());
+            assertEquals(flowable.findFlowElementsOfType(Gateway.class).stream()
+                            .map(g -> g.getId() + "|" + g.getName() + "|" + g.getDefaultFlow()).toList(),
+                    streamed.gateways.stream()
+                            .map(g -> g.getId() + "|" + g.getName() + "|" + g.getDefaultFlow()).toList());
+        }
+    }
+
+    @Test
+    void rejectsConstructsOutsideSupportedSubset() {
+        String withSubProcess = HEADER +
+                "  <process id=\"p\"><subProcess id=\"sp\"><serviceTask id=\"inner\"/></subProcess></process>\n" +
+                "</definitions>";
+        String withPool = HEADER +
+                "  <collaboration id=\"c\"><participant id=\"pool\" processRef=\"p\"/></collaboration>\n" +
+                "  <process id=\"p\"/>\n" +
+                "</definitions>";
+        String withFormProperty = HEADER +
+                "  <process id=\"p\"><userTask id=\"u\"><extensionElements>" +
+                "<flowable:formProperty id=\"f\"/></extensionElements></userTask></process>\n" +
+                "</definitions>";
+
+        for (String document : List.of(withSubProcess, withPool, withFormProperty)) {
+            assertThrows(StreamingBpmnReader.UnsupportedBpmnException.class, () -> StreamingBpmnReader.read(document));
+        }
+    }
+
+    @Test
+    void serviceFallsBackToFlowableForSubProcesses() throws Exception {
+        String document = HEADER +
+                "  <process id=\"p\">\n" +
+                "    <startEvent id=\"s\" name=\"S\"/>\n" +
+                "    <subProcess id=\"sp\"><serviceTask id=\"inner\" name=\"Шаг: GET /inner\"/></subProcess>\n" +
+                "    <endEvent id=\"e\" name=\"E\"/>\n" +
+                "  </process>\n" +
+                "</definitions>";
+
+        ProcessModel model = new BpmnParserService().parse(document);
+
+        assertEquals("p", model.getId());
+        assertEquals("S", model.getStartEventName());
+        assertTrue(model.getTasks().isEmpty()); // задача не достижима от start event
+    }
+
+    private static Process parseWithFlowable(String document) {
+        InputStream inputStream = new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+        BpmnModel model = new BpmnXMLConverter().convertToBpmnModel(() -> inputStream, false, false);
+        return model.getMainProcess();
+    }
+
+    private static List<String> describeTasks(List<? extends FlowElement> elements) {
+        List<String> result = new ArrayList<>();
+        for (FlowElement element : elements) {
+            Map<String, String> extensions = new TreeMap<>();
+            element.getExtensionElements().forEach((key, values) -> {
+                if (!values.isEmpty()) {
+                    extensions.put(key, values.get(0).getElementText());
+                }
+            });
+            result.add(element.getId() + "|" + element.getName() + "|" + element.getDocumentation() + "|" + extensions);
+        }
+        return result;
+    }
+
+    private static List<String> describe(List<StreamingBpmnReader.ParsedTask> tasks) {
+        return tasks.stream()
+                .map(t -> t.id + "|" + t.name + "|" + t.documentation + "|" + new TreeMap<>(t.extensionElements))
+                .toList();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.poib.VTBHack.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.poib.VTBHack.mapping.model.MappingResult;
+import ru.poib.VTBHack.mapping.model.TaskEndpointMapping;
+import ru.poib.VTBHack.parser.model.ProcessModel;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.model.openapi.Response;
+import ru.poib.VTBHack.parser.service.BpmnParserService;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+import ru.poib.VTBHack.project.model.Project;
+import ru.poib.VTBHack.project.model.ProjectSnapshot;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectStoreServiceTest {
+
+    private static final String BPMN =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                    "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" targetNamespace=\"Examples\">\n" +
+                    "  <process id=\"process1\" name=\"Test Process\" isExecutable=\"true\">\n" +
+                    "    <startEvent id=\"start\" name=\"Start\"/>\n" +
+                    "    <serviceTask id=\"service1\" name=\"Аутентификация: POST /auth/bank-token\"/>\n" +
+                    "    <endEvent id=\"end\" name=\"End\"/>\n" +
+                    "    <sequenceFlow id=\"flow1\" sourceRef=\"start\" targetRef=\"service1\"/>\n" +
+                    "    <sequenceFlow id=\"flow2\" sourceRef=\"service1\" targetRef=\"end\"/>\n" +
+                    "  </process>\n" +
+                    "</definitions>";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void snapshotRoundTripsAndIsInvalidatedByContentChange() throws Exception {
+        String openApiJson;
+        try (InputStream in = getClass().getResourceAsStream("/sample-openapi.json")) {
+            openApiJson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        ProjectStoreService store = new ProjectStoreService(tempDir);
+        Project project = store.create("demo", BPMN, openApiJson, null);
+
+        ProcessModel processModel = new BpmnParserService().parse(BPMN);
+        OpenApiModel openApiModel = new OpenApiParserService().parseOpenApiLazy(openApiJson);
+        TaskEndpointMapping mapping = new TaskEndpointMapping();
+        mapping.setTaskId("service1");
+        mapping.setEndpointMethod("POST");
+        mapping.setEndpointPath("/auth/bank-token");
+        MappingResult mappingResult = new MappingResult();
+        mappingResult.setTaskMappings(Map.of("service1", mapping));
+        mappingResult.setDataFlowEdges(List.of());
+
+        store.saveSnapshot(project, processModel, openApiModel, mappingResult);
+        ProjectSnapshot snapshot = store.loadSnapshot(store.get(project.getId()));
+        assertNotNull(snapshot);
+
+        ObjectMapper json = new ObjectMapper();
+        assertEquals(json.valueToTree(processModel), json.valueToTree(snapshot.getProcessModel()));
+        assertEquals(json.valueToTree(openApiModel), json.valueToTree(snapshot.getOpenApiModel()));
+        assertEquals(json.valueToTree(mappingResult), json.valueToTree(snapshot.getMappingResult()));
+
+        // Изменение исходников делает снимок недействительным
+        project.setOpenApiJson(openApiJson + " ");
+        assertNull(store.loadSnapshot(project));
+    }
+
+    @Test
+    void snapshotKeepsSchemaKeywordsWithoutChangingJsonShape() throws Exception {
+        String openApiJson = "{\"openapi\":\"3.0.0\",\"paths\":{\"/accounts\":{\"get\":{\"responses\":{\"200\":"
+                + "{\"description\":\"ok\",\"content\":{\"application/json\":{\"schema\":"
+                + "{\"type\":\"string\",\"minLength\":3}}}}}}}}}";
+        ProjectStoreService store = new ProjectStoreService(tempDir);
+        Project project = store.create("demo", BPMN, openApiJson, null);
+
+        store.saveSnapshot(project, new BpmnParserService().parse(BPMN),
+                new OpenApiParserService().parseOpenApi(openApiJson), new MappingResult());
+        Response.Schema schema = store.loadSnapshot(project).getOpenApiModel().getPaths().get("/accounts")
+                .getGet().getResponses().get("200").getContent().get("application/json").getSchema();
+
+        assertEquals(3, schema.getAdditionalProperties().get("minLength"));
+        // Снимок не меняет вид схемы в JSON API
+        assertTrue(new ObjectMapper().valueToTree(schema).has("additionalProperties"));
+    }
+}
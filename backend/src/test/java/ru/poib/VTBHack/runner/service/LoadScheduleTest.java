@@ -0,0 +1,44 @@
+package ru.poib.VTBHack.runner.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.runner.model.LoadProfile;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadScheduleTest {
+
+    @Test
+    void constantRateSpacesArrivalsEvenly() {
+        LoadSchedule schedule = new LoadSchedule(List.of(new LoadProfile.Stage(0, 10), new LoadProfile.Stage(2, 10)));
+
+        assertEquals(20, schedule.totalIterations());
+        assertEquals(0.0, schedule.arrivalSeconds(0), 1e-9);
+        assertEquals(0.1, schedule.arrivalSeconds(1), 1e-9);
+        assertEquals(1.9, schedule.arrivalSeconds(19), 1e-9);
+        assertTrue(Double.isNaN(schedule.arrivalSeconds(20)));
+    }
+
+    @Test
+    void rampUpSoakAndRampDownFollowTheRate() {
+        LoadProfile profile = new LoadProfile();
+        profile.setTargetRate(10);
+        profile.setRampUpSeconds(2);
+        profile.setSoakSeconds(3);
+        profile.setRampDownSeconds(2);
+        LoadSchedule schedule = new LoadSchedule(profile.effectiveStages());
+
+        // 10 итераций на разгоне, 30 на удержании, 10 на снижении
+        assertEquals(50, schedule.totalIterations());
+        assertEquals(7.0, schedule.totalSeconds(), 1e-9);
+        assertEquals(5.0, schedule.rateAt(1), 1e-9);
+        assertEquals(10.0, schedule.rateAt(4), 1e-9);
+        // На линейном разгоне N(t) = 2.5 t^2, пятая итерация - при t = sqrt(2)
+        assertEquals(Math.sqrt(2), schedule.arrivalSeconds(5), 1e-9);
+        assertEquals(2.0, schedule.arrivalSeconds(10), 1e-9);
+        for (long k = 1; k < 50; k++) {
+            assertTrue(schedule.arrivalSeconds(k) > schedule.arrivalSeconds(k - 1));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.poib.VTBHack.runner.service;
+
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.runner.model.LoadBucket;
+import ru.poib.VTBHack.runner.model.LoadProfile;
+import ru.poib.VTBHack.runner.model.LoadTestResult;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestEngineTest {
+
+    private final LoadTestEngine engine = new LoadTestEngine();
+
+    private static LoadProfile profile(double rate, long seconds, int maxInFlight, int maxQueued) {
+        LoadProfile profile = new LoadProfile();
+        profile.setStages(List.of(new LoadProfile.Stage(0, rate), new LoadProfile.Stage(seconds, rate)));
+        profile.setMaxInFlight(maxInFlight);
+        profile.setMaxQueued(maxQueued);
+        return profile;
+    }
+
+    @Test
+    void runsScheduledIterationsAndPublishesSeries() {
+        LoadTestResult result = engine.run(profile(20, 2, 10, 10), index -> index % 4 != 3,
+                new LoadTestResult(), progress -> { });
+
+        assertEquals(40, result.getScheduled());
+        assertEquals(30, result.getCompleted());
+        assertEquals(10, result.getFailed());
+        assertEquals(0, result.getDropped());
+        assertEquals(2, result.getSeries().size());
+        assertEquals(1000, result.getSeries().get(1).getOffsetMs());
+        assertEquals(40, result.getLatency().getCount());
+        assertEquals(40, result.getSeries().stream().mapToLong(b -> b.getLatency().getCount()).sum());
+    }
+
+    @Test
+    void latencyIncludesQueueingBehindTheInFlightCap() {
+        // Итерация занимает 50 мс, а запускаются они каждые 25 мс по одной: очередь растет,
+        // время выполнения остается около 50 мс, а задержка от запланированного старта - нет
+        LoadTestResult result = engine.run(profile(40, 1, 1, 100), index -> {
+            Thread.sleep(50);
+            return true;
+        }, new LoadTestResult(), progress -> { });
+
+        assertEquals(40, result.getCompleted());
+        assertEquals(1, result.getMaxInFlightObserved());
+        assertTrue(result.getServiceTime().getP99Ms() < 200, "service p99 " + result.getServiceTime().getP99Ms());
+        assertTrue(result.getLatency().getMaxMs() > 900, "latency max " + result.getLatency().getMaxMs());
+    }
+
+    @Test
+    void dropsIterationsWhenQueueIsFull() {
+        LoadTestResult result = engine.run(profile(50, 1, 1, 0), index -> {
+            Thread.sleep(100);
+            return true;
+        }, new LoadTestResult(), progress -> { });
+
+        assertEquals(50, result.getScheduled());
+        assertTrue(result.getDropped() > 30, "dropped " + result.getDropped());
+        assertEquals(50, result.getCompleted() + result.getDropped());
+        LoadBucket bucket = result.getSeries().get(0);
+        assertEquals(result.getDropped(), bucket.getDropped());
+    }
+
+    @Test
+    void laggingArrivalsAreCountedInTheirBucket() {
+        // Публикация первого интервала задерживает планировщик на 1,5 с: запуски второго интервала
+        // обрабатываются уже после окончания его окна и не должны потеряться в опубликованном интервале
+        AtomicBoolean stalled = new AtomicBoolean();
+        LoadTestResult result = engine.run(profile(10, 3, 10, 100), index -> true, new LoadTestResult(), progress -> {
+            if (stalled.compareAndSet(false, true)) {
+                try {
+                    Thread.sleep(1500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        assertEquals(30, result.getScheduled());
+        assertEquals(30, result.getCompleted());
+        assertEquals(3, result.getSeries().size());
+        result.getSeries().forEach(bucket -> assertEquals(10, bucket.getCompleted(), "offset " + bucket.getOffsetMs()));
+    }
+}
@@ -0,0 +1,133 @@
+package ru.poib.VTBHack.stub.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.generator.service.RussianDataGenerator;
+import ru.poib.VTBHack.generator.service.SchemaDataGenerator;
+import ru.poib.VTBHack.generator.service.SmartFieldGenerator;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+import ru.poib.VTBHack.stub.model.StubSettings;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenApiStubServerTest {
+
+    private static final String SPEC = """
+            {
+              "openapi": "3.0.0",
+              "info": {"title": "Stub", "version": "1"},
+              "paths": {
+                "/accounts/{accountId}": {
+                  "get": {
+                    "responses": {
+                      "200": {"content": {"application/json": {"schema": {"$ref": "#/components/schemas/Account"}}}}
+                    }
+                  }
+                },
+                "/accounts/balances": {
+                  "get": {
+                    "responses": {
+                      "200": {"content": {"application/json": {"example": {"total": 42}}}}
+                    }
+                  }
+                },
+                "/payments": {
+                  "post": {
+                    "responses": {"201": {"description": "created"}, "400": {"description": "bad"}}
+                  }
+                }
+              },
+              "components": {
+                "schemas": {
+                  "Account": {
+                    "type": "object",
+                    "required": ["accountId", "status"],
+                    "properties": {
+                      "accountId": {"type": "string"},
+                      "status": {"type": "string", "enum": ["Enabled", "Disabled"]}
+                    }
+                  }
+                }
+              }
+            }
+            """;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OpenApiStubServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private OpenApiStubServer start(StubSettings settings) throws Exception {
+        server = new OpenApiStubServer(
+                new OpenApiParserService().parseOpenApi(SPEC),
+                new SchemaDataGenerator(new SmartFieldGenerator(new RussianDataGenerator())),
+                settings);
+        server.start();
+        return server;
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.getBaseUrl() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void answersWithExampleAndSchemaBodies() throws Exception {
+        start(new StubSettings());
+        assertEquals(3, server.getOperationCount());
+
+        HttpResponse<String> balances = send("GET", "/accounts/balances");
+        assertEquals(200, balances.statusCode());
+        assertEquals(42, objectMapper.readTree(balances.body()).get("total").asInt());
+
+        HttpResponse<String> account = send("GET", "/accounts/acc-1");
+        assertEquals(200, account.statusCode());
+        JsonNode body = objectMapper.readTree(account.body());
+        assertTrue(body.hasNonNull("accountId"));
+        assertTrue(body.get("status").asText().matches("Enabled|Disabled"));
+        assertEquals(account.body(), send("GET", "/accounts/acc-2").body(), "Тело кэшируется на операцию");
+
+        HttpResponse<String> payment = send("POST", "/payments");
+        assertEquals(201, payment.statusCode());
+        assertTrue(payment.body().isEmpty());
+    }
+
+    @Test
+    void rejectsUnknownPathsAndMethods() throws Exception {
+        start(new StubSettings());
+        assertEquals(404, send("GET", "/unknown").statusCode());
+        assertEquals(405, send("DELETE", "/payments").statusCode());
+        assertEquals(2, server.getRequestsServed());
+    }
+
+    @Test
+    void injectsErrorsAndLatency() throws Exception {
+        StubSettings settings = new StubSettings();
+        settings.setErrorRate(1.0);
+        settings.setErrorStatus(503);
+        settings.setLatencyMs(50);
+        start(settings);
+
+        long started = System.nanoTime();
+        HttpResponse<String> response = send("GET", "/accounts/balances");
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(503, response.statusCode());
+        assertTrue(elapsedMs >= 50, "Задержка применяется к каждому ответу");
+    }
+}
@@ -0,0 +1,45 @@
+package ru.poib.VTBHack.stub.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.poib.VTBHack.generator.service.RussianDataGenerator;
+import ru.poib.VTBHack.generator.service.SchemaDataGenerator;
+import ru.poib.VTBHack.generator.service.SmartFieldGenerator;
+import ru.poib.VTBHack.parser.model.openapi.OpenApiModel;
+import ru.poib.VTBHack.parser.service.OpenApiParserService;
+import ru.poib.VTBHack.stub.model.StubSettings;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StubServerServiceTest {
+
+    private final StubServerService service = new StubServerService(
+            new SchemaDataGenerator(new SmartFieldGenerator(new RussianDataGenerator())), null, new OpenApiParserService());
+
+    @AfterEach
+    void tearDown() {
+        service.stopAll();
+    }
+
+    @Test
+    void registersStubOnlyAfterSuccessfulStart() throws Exception {
+        OpenApiModel model = new OpenApiParserService().parseOpenApi("""
+                {"openapi": "3.0.0", "paths": {"/ping": {"get": {"responses": {"200": {"description": "ok"}}}}}}
+                """);
+        try (ServerSocket busy = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            StubSettings settings = new StubSettings();
+            settings.setPort(busy.getLocalPort());
+            assertThrows(IOException.class, () -> service.start("p", model, settings));
+        }
+        assertNull(service.get("p"));
+        assertTrue(service.list().isEmpty());
+
+        OpenApiStubServer server = service.getOrStart("p", model);
+        assertSame(server, service.getOrStart("p", model));
+        assertEquals(server.getBaseUrl(), service.get("p").getBaseUrl());
+    }
+}